@@ -1,11 +1,26 @@
 
+import server.RouteServer;
 import ui.Navigation;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) {
+        // Сервер маршрутов без окна: java -jar Navigation.jar --server [--maps <директория>] [--port 8080]
+        if (Arrays.asList(args).contains("--server")) {
+            System.setProperty("java.awt.headless", "true");
+            try {
+                RouteServer.start(args);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to start route server: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         boolean navigationOnly = true;
         String mapDirectoryPath = "C:/Main/maps";
@@ -0,0 +1,224 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+// Пакетный поиск маршрутов (планы эвакуации, рейсы шаттлов): запросы группируются по началу, и для каждого
+// различного начала выполняется один поиск сразу до всех его целей. Начала обрабатываются параллельно
+// в ForkJoinPool, у каждой задачи-листа свой CompactRouter. Граф должен быть неизменяемым: CompactGraph,
+// снимок карты (MapSnapshot.getRoutingGraph) или MappedMap.
+public final class BatchRouter {
+    // Листьев с начальными узлами на поток пула: больше — ровнее загрузка, меньше — реже создаются рабочие массивы
+    private static final int LEAVES_PER_THREAD = 4;
+
+    private final RoutingGraph graph;
+    private final ForkJoinPool pool;
+
+    public BatchRouter(RoutingGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public BatchRouter(RoutingGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    public static final class Request {
+        final String start;
+        final String end;
+
+        public Request(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getStart() {
+            return start;
+        }
+
+        public String getEnd() {
+            return end;
+        }
+    }
+
+    public static final class Route {
+        final int index;
+        final Request request;
+        final double distance;
+        final RoutePath route;
+
+        Route(int index, Request request, double distance, RoutePath route) {
+            this.index = index;
+            this.request = request;
+            this.distance = distance;
+            this.route = route;
+        }
+
+        // Номер запроса в исходном списке
+        public int getIndex() {
+            return index;
+        }
+
+        public Request getRequest() {
+            return request;
+        }
+
+        // Сумма рангов (RANK) или длин (DISTANCE); Double.POSITIVE_INFINITY, если пути нет
+        public double getDistance() {
+            return distance;
+        }
+
+        public List<String> getPath() {
+            return route.getNodeIds();
+        }
+
+        // Геометрия маршрута: координаты, длины участков, пройденное расстояние и повороты
+        public RoutePath getRoutePath() {
+            return route;
+        }
+
+        public boolean isFound() {
+            return !route.isEmpty();
+        }
+    }
+
+    // Все маршруты в одном результате, в порядке запросов
+    public Result findShortestPaths(List<Request> requests, RoutingMode mode) {
+        Route[] routes = new Route[requests.size()];
+        findShortestPaths(requests, mode, route -> routes[route.index] = route);
+        return new Result(Arrays.asList(routes));
+    }
+
+    // Потоковый вариант для больших пакетов: маршруты одного начала передаются в sink сразу после его поиска,
+    // в памяти держатся только маршруты текущих начал. sink вызывается из потоков пула, но по одному
+    // вызову за раз; порядок маршрутов не совпадает с порядком запросов (см. Route.getIndex)
+    public void findShortestPaths(List<Request> requests, RoutingMode mode, Consumer<Route> sink) {
+        // Запросы сортируются по номеру начального узла; номер запроса — в младших 32 битах
+        long[] order = new long[requests.size()];
+        int known = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            int source = graph.indexOf(request.start);
+            if (source < 0 || graph.indexOf(request.end) < 0) {
+                sink.accept(new Route(i, request, Double.POSITIVE_INFINITY, RoutePath.EMPTY));
+                continue;
+            }
+            order[known++] = (long) source << 32 | i;
+        }
+        order = Arrays.copyOf(order, known);
+        Arrays.sort(order);
+
+        int[] groups = new int[known + 1];
+        int groupCount = 0;
+        for (int i = 0; i < known; i++) {
+            if (i == 0 || order[i] >>> 32 != order[i - 1] >>> 32) {
+                groups[groupCount++] = i;
+            }
+        }
+        groups[groupCount] = known;
+
+        Object lock = new Object();
+        Consumer<Route> serialSink = route -> {
+            synchronized (lock) {
+                sink.accept(route);
+            }
+        };
+        long[] sorted = order;
+        int leaves = LEAVES_PER_THREAD * pool.getParallelism();
+        int grain = Math.max(1, (groupCount + leaves - 1) / leaves);
+        pool.invoke(new GroupTask(grain, requests, mode, sorted, groups, 0, groupCount, serialSink));
+    }
+
+    public static final class Result {
+        private final List<Route> routes;
+
+        Result(List<Route> routes) {
+            this.routes = Collections.unmodifiableList(routes);
+        }
+
+        public int size() {
+            return routes.size();
+        }
+
+        public Route get(int index) {
+            return routes.get(index);
+        }
+
+        public List<Route> getRoutes() {
+            return routes;
+        }
+    }
+
+    // Начала делятся на листья по grain начал; лист создаёт свои рабочие массивы и проходит начала по очереди.
+    // Массивы не ThreadLocal: у потоков общего пула они пережили бы вызов. Листьев порядка
+    // LEAVES_PER_THREAD на поток, поэтому массивы O(n) создаются за вызов ограниченное число раз
+    private final class GroupTask extends RecursiveAction {
+        private final int grain;
+        private final List<Request> requests;
+        private final RoutingMode mode;
+        private final long[] order;
+        private final int[] groups;
+        private final int from;
+        private final int to;
+        private final Consumer<Route> sink;
+
+        GroupTask(int grain, List<Request> requests, RoutingMode mode, long[] order,
+                  int[] groups, int from, int to, Consumer<Route> sink) {
+            this.grain = grain;
+            this.requests = requests;
+            this.mode = mode;
+            this.order = order;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                if (from == to) return;
+                Worker worker = new Worker();
+                for (int group = from; group < to; group++) {
+                    worker.route(requests, mode, order, groups[group], groups[group + 1], sink);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GroupTask(grain, requests, mode, order, groups, from, middle, sink),
+                    new GroupTask(grain, requests, mode, order, groups, middle, to, sink));
+        }
+    }
+
+    // Рабочие массивы одной задачи-листа
+    private final class Worker {
+        final CompactRouter router = new CompactRouter(graph);
+        int[] targets = new int[16];
+
+        void route(List<Request> requests, RoutingMode mode, long[] order, int from, int to, Consumer<Route> sink) {
+            int source = (int) (order[from] >>> 32);
+            int count = to - from;
+            if (targets.length < count) targets = new int[Math.max(count, targets.length * 2)];
+            for (int i = from; i < to; i++) {
+                targets[i - from] = graph.indexOf(requests.get((int) order[i]).end);
+            }
+            router.searchAll(source, mode, targets, count);
+
+            List<Route> routes = new ArrayList<>(count);
+            for (int i = from; i < to; i++) {
+                int index = (int) order[i];
+                int target = targets[i - from];
+                router.pathTo(target);
+                routes.add(new Route(index, requests.get(index), router.distance(target), router.pathRoute()));
+            }
+            for (Route route : routes) {
+                sink.accept(route);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Предвычисленные расстояния между всеми парами зданий и деревья предшественников для
+// восстановления путей. Строится одним поиском из каждого здания, параллельно в ForkJoinPool.
+// Нужна для карт, которые не меняются: CampusMap в режиме навигации и MappedMap в киоске.
+public final class BuildingDistanceTable {
+    public static final long UNREACHABLE = -1;
+    // Больше зданий таблица не берёт: она занимает O(B²) памяти и строится B полными поисками
+    public static final int MAX_BUILDINGS = 1000;
+    // Листьев со строками на поток пула (см. RowTask)
+    private static final int LEAVES_PER_THREAD = 4;
+
+    private final RoutingGraph graph;
+    private final Map<String, Integer> rows;
+    private final int[] buildingNodes;
+    private final long[][] distances;
+    // Для каждого здания-источника: узлы, лежащие на путях к другим зданиям (по возрастанию), и их предшественники
+    private final int[][] treeNodes;
+    private final int[][] treeParents;
+
+    private BuildingDistanceTable(RoutingGraph graph, List<String> buildings) {
+        this.graph = graph;
+        int count = buildings.size();
+        rows = new HashMap<>(count * 2);
+        buildingNodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows.put(buildings.get(i), i);
+            buildingNodes[i] = graph.indexOf(buildings.get(i));
+        }
+        distances = new long[count][];
+        treeNodes = new int[count][];
+        treeParents = new int[count][];
+    }
+
+    public static BuildingDistanceTable build(CampusMap map) {
+        return build(CompactGraph.of(map), map.getBuildings(), ForkJoinPool.commonPool());
+    }
+
+    // Граф — CompactGraph версии карты или MappedMap киоска
+    public static BuildingDistanceTable build(RoutingGraph graph, Collection<String> buildings, ForkJoinPool pool) {
+        List<String> known = new ArrayList<>();
+        for (String building : buildings) {
+            if (graph.indexOf(building) >= 0) known.add(building);
+        }
+        BuildingDistanceTable table = new BuildingDistanceTable(graph, known);
+        int leaves = LEAVES_PER_THREAD * pool.getParallelism();
+        pool.invoke(table.new RowTask(Math.max(1, (known.size() + leaves - 1) / leaves), 0, known.size()));
+        return table;
+    }
+
+    public int size() {
+        return buildingNodes.length;
+    }
+
+    public boolean contains(String buildingId) {
+        return buildingId != null && rows.containsKey(buildingId);
+    }
+
+    public long distance(String from, String to) {
+        Integer row = rows.get(from);
+        Integer column = rows.get(to);
+        return row == null || column == null ? UNREACHABLE : distances[row][column];
+    }
+
+    public List<String> findShortestPath(String from, String to) {
+        Integer row = rows.get(from);
+        Integer column = rows.get(to);
+        if (row == null || column == null || distances[row][column] == UNREACHABLE) {
+            return Collections.emptyList();
+        }
+        int[] nodes = pathNodes(row, column);
+        List<String> path = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            path.add(graph.id(node));
+        }
+        return path;
+    }
+
+    public RoutePath findRoute(String from, String to) {
+        Integer row = rows.get(from);
+        Integer column = rows.get(to);
+        if (row == null || column == null || distances[row][column] == UNREACHABLE) {
+            return RoutePath.EMPTY;
+        }
+        int[] nodes = pathNodes(row, column);
+        RoutePath.Builder builder = new RoutePath.Builder(nodes.length);
+        for (int node : nodes) {
+            builder.add(graph, node);
+        }
+        return builder.build();
+    }
+
+    // Узлы графа на пути от здания row до здания column, от начала к концу
+    private int[] pathNodes(int row, int column) {
+        int source = buildingNodes[row];
+        int node = buildingNodes[column];
+        int length = 1;
+        while (node != source) {
+            node = treeParents[row][Arrays.binarySearch(treeNodes[row], node)];
+            length++;
+        }
+        int[] nodes = new int[length];
+        node = buildingNodes[column];
+        nodes[--length] = node;
+        while (node != source) {
+            node = treeParents[row][Arrays.binarySearch(treeNodes[row], node)];
+            nodes[--length] = node;
+        }
+        return nodes;
+    }
+
+    // Строки делятся на листья по grain строк; у каждого листа свои рабочие массивы (не ThreadLocal:
+    // у потоков общего пула они пережили бы построение таблицы)
+    private final class RowTask extends RecursiveAction {
+        private final int grain;
+        private final int from;
+        private final int to;
+
+        RowTask(int grain, int from, int to) {
+            this.grain = grain;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                if (from == to) return;
+                RowBuilder builder = new RowBuilder();
+                for (int row = from; row < to; row++) {
+                    builder.buildRow(row);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowTask(grain, from, middle), new RowTask(grain, middle, to));
+        }
+    }
+
+    // Рабочие массивы одной задачи-листа: роутер и метки узлов, попавших в дерево путей
+    private final class RowBuilder {
+        final CompactRouter router = new CompactRouter(graph);
+        final int[] marks = new int[graph.nodeCount()];
+        int[] collected = new int[64];
+        int mark;
+
+        void buildRow(int row) {
+            int source = buildingNodes[row];
+            router.searchAll(source);
+            mark++;
+            int size = 0;
+
+            long[] rowDistances = new long[buildingNodes.length];
+            for (int column = 0; column < buildingNodes.length; column++) {
+                int node = buildingNodes[column];
+                double distance = router.distance(node);
+                if (Double.isInfinite(distance)) {
+                    rowDistances[column] = UNREACHABLE;
+                    continue;
+                }
+                rowDistances[column] = (long) distance;
+                for (; node != source && marks[node] != mark; node = router.previousNode(node)) {
+                    marks[node] = mark;
+                    if (size == collected.length) collected = Arrays.copyOf(collected, size * 2);
+                    collected[size++] = node;
+                }
+            }
+
+            int[] nodes = Arrays.copyOf(collected, size);
+            Arrays.sort(nodes);
+            int[] parents = new int[size];
+            for (int i = 0; i < size; i++) {
+                parents[i] = router.previousNode(nodes[i]);
+            }
+            distances[row] = rowDistances;
+            treeNodes[row] = nodes;
+            treeParents[row] = parents;
+        }
+    }
+}
@@ -2,15 +2,41 @@ package model;
 
 import java.awt.Point;
 import java.awt.Polygon;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
 public class CampusMap implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Сколько начальных узлов помнит режим setDynamicRoutingEnabled
+    private static final int DYNAMIC_ROUTING_TREES = 4;
 
     private Map<String, Node> nodes;
     private Map<String, Map<String, Edge>> graph;
     private List<Edge> edges;
+    private transient boolean eagerWeights;
+    private transient boolean bulkImport;
+    private transient ContractionHierarchy hierarchy;
+    private transient boolean buildingTableEnabled;
+    private transient BuildingDistanceTable buildingTable;
+    private transient long version;
+    private transient RouteCache routeCache;
+    private transient SpatialIndex spatialIndex;
+    // Деревья кратчайших путей по длине, исправляемые при правках (null, если режим выключен)
+    private transient ShortestPathTrees shortestPathTrees;
+    // Неизменяемая версия карты для чтения из других потоков (см. snapshot()). После первого запроса
+    // снимка каждая правка обновляет и persistent-структуры, разделяющие память с прежними версиями
+    private transient volatile MapSnapshot snapshot;
+    private transient PersistentMap<String, Node> persistentNodes;
+    private transient PersistentMap<String, PersistentMap<String, Edge>> persistentGraph;
+    private transient RankTree persistentEdges;
+    private transient long edgeSequence;
+    // Последний выданный номер перекрёстка J_<номер>: номера только растут и не используются повторно
+    private transient int lastJunctionNumber;
+    // Имя здания -> его идентификатор: один экземпляр строки "B_" + имя на здание
+    private transient Map<String, String> buildingIds;
 
     public CampusMap() {
         nodes = new HashMap<>();
@@ -18,63 +44,511 @@ public class CampusMap implements Serializable {
         edges = new ArrayList<>();
     }
 
-    public void addBuilding(String name, Polygon shape, Point connectionPoint) {
-        String id = "B_" + name;
-        nodes.put(id, new Node(id, connectionPoint, shape, connectionPoint));
-        graph.putIfAbsent(id, new HashMap<>());
+    // Для загрузки карты известного размера: таблицы не перестраиваются по мере роста
+    public CampusMap(int expectedNodes, int expectedEdges) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, expectedNodes * 4L / 3 + 1);
+        nodes = new HashMap<>(capacity);
+        graph = new HashMap<>(capacity);
+        edges = new ArrayList<>(expectedEdges);
     }
 
-    public String addJunction(Point position) {
-        String id = "J_" + UUID.randomUUID().toString();
-        nodes.put(id, new Node(id, position, null, null));
+    public synchronized void addBuilding(String name, Polygon shape, Point connectionPoint) {
+        String id = buildingIds().computeIfAbsent(name, NodeIds::building);
+        Node node = new Node(id, connectionPoint, shape, connectionPoint);
+        Node replaced = nodes.put(id, node);
         graph.putIfAbsent(id, new HashMap<>());
+        if (persistentNodes != null) {
+            putPersistentNode(node);
+        }
+        if (spatialIndex != null) {
+            if (replaced != null) spatialIndex.removeNode(replaced);
+            spatialIndex.addNode(node);
+        }
+        // Новый узел без дорог расстояний не меняет; заменённый мог сдвинуться
+        if (shortestPathTrees != null && replaced == null) {
+            shortestPathTrees.nodeAdded(version + 1);
+        }
+        mapChanged();
+    }
+
+    public synchronized String addJunction(Point position) {
+        String id;
+        do {
+            id = NodeIds.junction(++lastJunctionNumber);
+        } while (nodes.containsKey(id));
+        addJunction(id, position);
         return id;
     }
 
-    public void addRoad(String fromId, String toId) {
-        if (!nodes.containsKey(fromId) || !nodes.containsKey(toId) || fromId.equals(toId)) return;
-        Point fromPos = nodes.get(fromId).position;
-        Point toPos = nodes.get(toId).position;
+    // Перекрёсток с уже известным идентификатором, например при чтении карты из файла
+    public synchronized void addJunction(String id, Point position) {
+        lastJunctionNumber = Math.max(lastJunctionNumber, NodeIds.junctionNumber(id));
+        Node node = new Node(id, position, null, null);
+        Node replaced = nodes.put(id, node);
+        graph.putIfAbsent(id, new HashMap<>());
+        if (persistentNodes != null) {
+            putPersistentNode(node);
+        }
+        if (spatialIndex != null) {
+            if (replaced != null) spatialIndex.removeNode(replaced);
+            spatialIndex.addNode(node);
+        }
+        // Новый узел без дорог расстояний не меняет; заменённый мог сдвинуться
+        if (shortestPathTrees != null && replaced == null) {
+            shortestPathTrees.nodeAdded(version + 1);
+        }
+        mapChanged();
+    }
+
+    public synchronized void addRoad(String fromId, String toId) {
+        Node fromNode = nodes.get(fromId);
+        Node toNode = nodes.get(toId);
+        if (fromNode == null || toNode == null || fromId.equals(toId)) return;
+        // Рёбра и ключи графа ссылаются на ту же строку, что и узел, а не на копию из файла или интерфейса
+        fromId = fromNode.id;
+        toId = toNode.id;
+        Point fromPos = fromNode.position;
+        Point toPos = toNode.position;
         double length = Math.sqrt(Math.pow(toPos.x - fromPos.x, 2) + Math.pow(toPos.y - fromPos.y, 2));
 
         Edge edge = new Edge(fromId, toId, length);
-        graph.get(fromId).put(toId, edge);
+        Edge replaced = graph.get(fromId).put(toId, edge);
         graph.get(toId).put(fromId, edge);
-        edges.add(edge);
+        if (spatialIndex != null) {
+            if (replaced != null) spatialIndex.removeEdge(replaced);
+            spatialIndex.addEdge(edge);
+        }
+        // Повторная дорога между теми же узлами заменяет прежнюю и в списке рёбер
+        if (replaced != null) {
+            removeFromEdgeList(replaced);
+        }
 
-        updateEdgeWeights();
+        if (bulkImport) {
+            edges.add(edge);
+        } else if (eagerWeights) {
+            edges.add(edge);
+            updateEdgeWeights();
+        } else {
+            insertEdgeWeighted(edge);
+        }
+        if (persistentNodes != null) {
+            edge.sequence = ++edgeSequence;
+            if (replaced != null) {
+                persistentEdges = persistentEdges.minus(replaced);
+            }
+            persistentEdges = persistentEdges.plus(edge);
+            persistentGraph = persistentGraph.plus(fromId, persistentGraph.get(fromId).plus(toId, edge));
+            persistentGraph = persistentGraph.plus(toId, persistentGraph.get(toId).plus(fromId, edge));
+        }
+        if (shortestPathTrees != null && !bulkImport) {
+            shortestPathTrees.edgeAdded(version + 1, graph, edge);
+        }
+        mapChanged();
     }
 
-    public void deleteNode(String nodeId) {
-        if (!nodes.containsKey(nodeId)) return;
+    public synchronized void deleteNode(String nodeId) {
+        deleteNodes(Collections.singletonList(nodeId));
+    }
 
-        List<Edge> edgesToRemove = new ArrayList<>();
-        for (Edge edge : edges) {
-            if (edge.from.equals(nodeId) || edge.to.equals(nodeId)) {
-                edgesToRemove.add(edge);
+    // Удаляет узлы вместе с их дорогами за один проход. Дороги узла берутся из его списка соседей, и у каждого
+    // соседа убирается только обратная ссылка, поэтому работа пропорциональна числу удаляемых дорог, а не
+    // размеру карты. Список рёбер сжимается один раз, начиная с первого удалённого ребра: вес — это ранг,
+    // и ранги дорог после него уменьшаются. Возвращает число удалённых узлов
+    public synchronized int deleteNodes(Collection<String> nodeIds) {
+        Set<Edge> removedEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+        int removedNodes = 0;
+        for (String nodeId : nodeIds) {
+            Node node = nodes.get(nodeId);
+            if (node == null) continue;
+            removedNodes++;
+            Map<String, Edge> neighbors = graph.remove(nodeId);
+            for (Map.Entry<String, Edge> neighbor : neighbors.entrySet()) {
+                // Сосед, удалённый раньше в этом же вызове, уже убрал эту дорогу
+                Map<String, Edge> back = graph.get(neighbor.getKey());
+                if (back == null) continue;
+                Edge edge = neighbor.getValue();
+                removedEdges.add(edge);
+                // Индекс берёт концы дороги из карты узлов, поэтому узел удаляется из неё позже
+                if (spatialIndex != null) {
+                    spatialIndex.removeEdge(edge);
+                }
+                back.remove(nodeId);
+                if (persistentNodes != null) {
+                    removePersistentArc(neighbor.getKey(), nodeId);
+                }
+            }
+            if (spatialIndex != null) {
+                spatialIndex.removeNode(node);
+            }
+            nodes.remove(nodeId);
+            if (persistentNodes != null) {
+                persistentGraph = persistentGraph.minus(nodeId);
+                persistentNodes = persistentNodes.minus(nodeId);
+            }
+            if (node.isBuilding() && buildingIds != null) {
+                buildingIds.remove(node.getLabel());
             }
         }
-        edges.removeAll(edgesToRemove);
+        if (removedNodes == 0) return 0;
 
-        graph.remove(nodeId);
-        for (Map<String, Edge> neighbors : graph.values()) {
-            neighbors.remove(nodeId);
+        if (persistentNodes != null) {
+            for (Edge edge : removedEdges) {
+                persistentEdges = persistentEdges.minus(edge);
+            }
         }
+        removeFromEdgeList(removedEdges);
+        if (shortestPathTrees != null && !bulkImport) {
+            shortestPathTrees.edgesRemoved(version + 1, graph, removedEdges);
+        }
+        mapChanged();
+        return removedNodes;
+    }
 
-        nodes.remove(nodeId);
-
-        updateEdgeWeights();
+    // Удаляет всё, что выделено прямоугольником: узлы, позиция которых лежит в области (у зданий — точка
+    // подключения), и все их дороги. Дороги, лишь проходящие через область, остаются. Возвращает число удалённых узлов
+    public synchronized int deleteNodesIn(Rectangle2D area) {
+        List<String> inside = new ArrayList<>();
+        getSpatialIndex().forEachNodeIn(area, node -> inside.add(node.id));
+        return deleteNodes(inside);
     }
 
-    public void deleteEdge(Edge edge) {
+    public synchronized void deleteEdge(Edge edge) {
         if (edge == null) return;
 
+        if (spatialIndex != null && graph.get(edge.from).get(edge.to) == edge) {
+            spatialIndex.removeEdge(edge);
+        }
         graph.get(edge.from).remove(edge.to);
         graph.get(edge.to).remove(edge.from);
 
-        edges.remove(edge);
+        removeFromEdgeList(edge);
+        if (persistentNodes != null) {
+            persistentEdges = persistentEdges.minus(edge);
+            removePersistentArc(edge.from, edge.to);
+            removePersistentArc(edge.to, edge.from);
+        }
+        if (shortestPathTrees != null && !bulkImport) {
+            shortestPathTrees.edgesRemoved(version + 1, graph, Collections.singletonList(edge));
+        }
+        mapChanged();
+    }
+
+    // Идентификатор здания с этим именем или null, если такого здания нет
+    public synchronized String buildingId(String name) {
+        String id = buildingIds().get(name);
+        return id != null && nodes.containsKey(id) ? id : null;
+    }
+
+    private Map<String, String> buildingIds() {
+        if (buildingIds == null) {
+            buildingIds = new HashMap<>();
+            for (Node node : nodes.values()) {
+                if (node.isBuilding()) {
+                    buildingIds.put(node.getLabel(), node.id);
+                }
+            }
+        }
+        return buildingIds;
+    }
+
+    // Переименовывает перекрёстки старых карт (J_<UUID>) в J_<номер>. Номера выдаются в порядке прежних
+    // идентификаторов, поэтому одна и та же карта всегда получает одни и те же номера: от них зависят
+    // отпечатки иерархий .ch и файлы .mmap. Узлы и дороги общие с уже выданными снимками, поэтому они
+    // не меняются на месте, а заменяются копиями с новыми идентификаторами. Возвращает число переименованных узлов
+    public synchronized int compactJunctionIds() {
+        List<String> legacy = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (!node.isBuilding() && NodeIds.isUuidJunction(node.id)) {
+                legacy.add(node.id);
+            }
+        }
+        if (legacy.isEmpty()) return 0;
+        Collections.sort(legacy);
+
+        Map<String, String> renamed = new HashMap<>(legacy.size() * 2);
+        for (String oldId : legacy) {
+            String newId;
+            do {
+                newId = NodeIds.junction(++lastJunctionNumber);
+            } while (nodes.containsKey(newId));
+            renamed.put(oldId, newId);
+        }
+        // Копия каждой задетой дороги одна: её делят оба конца и список рёбер
+        Map<Edge, Edge> copies = new IdentityHashMap<>();
+        for (String oldId : legacy) {
+            String newId = renamed.get(oldId);
+            Node node = nodes.remove(oldId);
+            nodes.put(newId, new Node(newId, node.position, node.shape, node.connectionPoint));
+            Map<String, Edge> neighbors = graph.remove(oldId);
+            Map<String, Edge> copied = new HashMap<>();
+            for (Map.Entry<String, Edge> neighbor : neighbors.entrySet()) {
+                String next = neighbor.getKey();
+                Edge edge = renamedCopy(neighbor.getValue(), renamed, copies);
+                copied.put(renamed.getOrDefault(next, next), edge);
+                // Соседний перекрёсток, который тоже переименовывается, получит свою таблицу целиком
+                if (!renamed.containsKey(next)) {
+                    Map<String, Edge> back = graph.get(next);
+                    back.remove(oldId);
+                    back.put(newId, edge);
+                }
+            }
+            graph.put(newId, copied);
+        }
+        // Список рёбер может содержать и рёбра, которых уже нет в графе (старые файлы), поэтому концы
+        // переименовываются и по нему, а не только по соседям
+        edges.replaceAll(edge -> renamed.containsKey(edge.from) || renamed.containsKey(edge.to)
+                ? renamedCopy(edge, renamed, copies) : edge);
+        spatialIndex = null;
+        if (persistentNodes != null) {
+            buildPersistent();
+        }
+        mapChanged();
+        return legacy.size();
+    }
+
+    private static Edge renamedCopy(Edge edge, Map<String, String> renamed, Map<Edge, Edge> copies) {
+        return copies.computeIfAbsent(edge, e -> {
+            Edge copy = new Edge(renamed.getOrDefault(e.from, e.from), renamed.getOrDefault(e.to, e.to), e.length);
+            copy.weight = e.weight;
+            copy.sequence = e.sequence;
+            return copy;
+        });
+    }
+
+    // Карты, сохранённые сериализацией Java, содержат перекрёстки J_<UUID>: они переименовываются сразу после чтения
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (Node node : nodes.values()) {
+            lastJunctionNumber = Math.max(lastJunctionNumber, NodeIds.junctionNumber(node.id));
+        }
+        compactJunctionIds();
+    }
+
+    private void putPersistentNode(Node node) {
+        persistentNodes = persistentNodes.plus(node.id, node);
+        if (!persistentGraph.containsKey(node.id)) {
+            persistentGraph = persistentGraph.plus(node.id, PersistentMap.empty());
+        }
+    }
+
+    private void removePersistentArc(String from, String to) {
+        PersistentMap<String, Edge> neighbors = persistentGraph.get(from);
+        if (neighbors != null) {
+            persistentGraph = persistentGraph.plus(from, neighbors.minus(to));
+        }
+    }
 
+    private void removeFromEdgeList(Edge edge) {
+        removeFromEdgeList(Collections.singleton(edge));
+    }
+
+    // removed сравнивает рёбра по ссылке. Позиция ребра в списке известна по его весу (indexOfEdge), поэтому
+    // сжатие начинается с первого удалённого ребра, а рёбра до него не просматриваются
+    private void removeFromEdgeList(Set<Edge> removed) {
+        if (bulkImport || eagerWeights) {
+            edges.removeIf(removed::contains);
+            if (!bulkImport) {
+                updateEdgeWeights();
+            }
+            return;
+        }
+        int first = edges.size();
+        for (Edge edge : removed) {
+            int index = indexOfEdge(edge);
+            if (index >= 0) first = Math.min(first, index);
+        }
+        int kept = first;
+        for (int i = first; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            if (!removed.contains(edge)) {
+                edge.weight = kept;
+                edges.set(kept++, edge);
+            }
+        }
+        edges.subList(kept, edges.size()).clear();
+    }
+
+    public void setIncrementalWeights(boolean incremental) {
+        eagerWeights = !incremental;
+    }
+
+    public boolean isIncrementalWeights() {
+        return !eagerWeights;
+    }
+
+    // Пока идёт импорт, persistent-структуры не обновляются по одной дороге: снимок остаётся прежним
+    // и строится заново при первом запросе после импорта
+    public synchronized void beginBulkImport() {
+        bulkImport = true;
+        spatialIndex = null;
+        persistentNodes = null;
+        persistentGraph = null;
+        persistentEdges = null;
+    }
+
+    public synchronized void endBulkImport() {
+        if (!bulkImport) return;
+        bulkImport = false;
         updateEdgeWeights();
+        mapChanged();
+    }
+
+    public boolean isBulkImport() {
+        return bulkImport;
+    }
+
+    public synchronized void setContractionHierarchy(ContractionHierarchy hierarchy) {
+        if (hierarchy != null && hierarchy.getFingerprint() != ContractionHierarchy.fingerprint(this)) {
+            throw new IllegalArgumentException("Contraction hierarchy was built for a different map");
+        }
+        this.hierarchy = hierarchy;
+        publish();
+    }
+
+    public ContractionHierarchy getContractionHierarchy() {
+        return hierarchy;
+    }
+
+    // Таблица расстояний между зданиями строится лениво при первом запросе и сбрасывается при изменении карты,
+    // поэтому включать её стоит только для карты, которую не правят (режим навигации)
+    public synchronized void setBuildingTableEnabled(boolean enabled) {
+        buildingTableEnabled = enabled;
+        if (!enabled) {
+            buildingTable = null;
+        }
+        publish();
+    }
+
+    public boolean isBuildingTableEnabled() {
+        return buildingTableEnabled;
+    }
+
+    // Поиск по длине (RoutingMode.DISTANCE) по деревьям кратчайших путей от последних начальных узлов.
+    // Дерево строится при первом запросе от узла, а addRoad, deleteEdge и удаление узлов исправляют
+    // только задетую часть деревьев, поэтому повторный поиск после правки не начинается с нуля.
+    // Поиск по рангам деревья не использует: вставка дороги меняет ранги всех более длинных
+    public synchronized void setDynamicRoutingEnabled(boolean enabled) {
+        shortestPathTrees = enabled ? new ShortestPathTrees(DYNAMIC_ROUTING_TREES, version) : null;
+        publish();
+    }
+
+    public boolean isDynamicRoutingEnabled() {
+        return shortestPathTrees != null;
+    }
+
+    ShortestPathTrees getShortestPathTrees() {
+        return shortestPathTrees;
+    }
+
+    // null, если таблица выключена или зданий больше BuildingDistanceTable.MAX_BUILDINGS
+    public synchronized BuildingDistanceTable getBuildingTable() {
+        if (buildingTableEnabled && buildingTable == null && !bulkImport
+                && getBuildings().size() <= BuildingDistanceTable.MAX_BUILDINGS) {
+            buildingTable = BuildingDistanceTable.build(this);
+        }
+        return buildingTable;
+    }
+
+    public synchronized void setRouteCacheCapacity(int capacity) {
+        routeCache = capacity > 0 ? new RouteCache(capacity) : null;
+        publish();
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    // Сетка для поиска объектов по координатам. Строится при первом обращении (в том числе после
+    // десериализации) и дальше обновляется вместе с картой; массовый импорт сбрасывает её, чтобы не обновлять по одной дороге.
+    public SpatialIndex getSpatialIndex() {
+        if (spatialIndex == null) {
+            SpatialIndex index = new SpatialIndex(nodes);
+            for (Node node : nodes.values()) {
+                index.addNode(node);
+            }
+            for (Map.Entry<String, Map<String, Edge>> entry : graph.entrySet()) {
+                for (Map.Entry<String, Edge> neighbor : entry.getValue().entrySet()) {
+                    if (entry.getKey().compareTo(neighbor.getKey()) < 0) {
+                        index.addEdge(neighbor.getValue());
+                    }
+                }
+            }
+            spatialIndex = index;
+        }
+        return spatialIndex;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Согласованная неизменяемая версия карты. Читается без блокировок из любого потока, в том числе
+    // пока другой поток правит карту; блокировка берётся только при первом запросе, когда строятся
+    // persistent-структуры. Во время массового импорта возвращается версия до его начала.
+    public MapSnapshot snapshot() {
+        MapSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                if (bulkImport) {
+                    throw new IllegalStateException("Map snapshot is not available during bulk import");
+                }
+                buildPersistent();
+                publish();
+            }
+            return snapshot;
+        }
+    }
+
+    private void buildPersistent() {
+        PersistentMap<String, Node> nodeVersion = PersistentMap.empty();
+        for (Node node : nodes.values()) {
+            nodeVersion = nodeVersion.plus(node.id, node);
+        }
+        PersistentMap<String, PersistentMap<String, Edge>> graphVersion = PersistentMap.empty();
+        for (Map.Entry<String, Map<String, Edge>> entry : graph.entrySet()) {
+            PersistentMap<String, Edge> neighbors = PersistentMap.empty();
+            for (Map.Entry<String, Edge> neighbor : entry.getValue().entrySet()) {
+                neighbors = neighbors.plus(neighbor.getKey(), neighbor.getValue());
+            }
+            graphVersion = graphVersion.plus(entry.getKey(), neighbors);
+        }
+        // Номера назначаются в порядке списка: рёбра, у которых номер уже есть, добавлены раньше и стоят
+        // раньше остальных рёбер той же длины, поэтому порядок RankTree совпадает с порядком edges
+        RankTree edgeVersion = RankTree.EMPTY;
+        for (Edge edge : edges) {
+            if (edge.sequence == 0) {
+                edge.sequence = ++edgeSequence;
+            }
+            edgeVersion = edgeVersion.plus(edge);
+        }
+        persistentNodes = nodeVersion;
+        persistentGraph = graphVersion;
+        persistentEdges = edgeVersion;
+    }
+
+    // Новая версия для читателей: из persistent-структур снимок создаётся за O(1). Если их нет, снимок
+    // сбрасывается и строится при следующем запросе; во время импорта читатели остаются на прежней версии
+    private void publish() {
+        if (persistentNodes != null) {
+            snapshot = new MapSnapshot(version, persistentNodes, persistentGraph, persistentEdges,
+                    hierarchy, buildingTableEnabled, routeCache, shortestPathTrees);
+        } else if (!bulkImport) {
+            snapshot = null;
+        }
+    }
+
+    // Любое изменение карты делает производные структуры устаревшими
+    private void mapChanged() {
+        version++;
+        if (shortestPathTrees != null) {
+            shortestPathTrees.expire(version);
+        }
+        hierarchy = null;
+        buildingTable = null;
+        publish();
     }
 
     public List<Edge> getEdges() {
@@ -90,6 +564,39 @@ public class CampusMap implements Serializable {
         }
     }
 
+    // Вес ребра равен его индексу в списке, отсортированном по длине, поэтому сам список
+    // служит структурой порядковых статистик: вставка ищет позицию бинарным поиском
+    // и перенумеровывает только рёбра, стоящие после неё.
+    private void insertEdgeWeighted(Edge edge) {
+        int low = 0;
+        int high = edges.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (edges.get(mid).length <= edge.length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        edges.add(low, edge);
+        renumberEdgesFrom(low);
+    }
+
+    private int indexOfEdge(Edge edge) {
+        int index = edge.weight;
+        if (index >= 0 && index < edges.size() && edges.get(index) == edge) {
+            return index;
+        }
+        return edges.indexOf(edge);
+    }
+
+    private void renumberEdgesFrom(int index) {
+        int n = edges.size();
+        for (int i = index; i < n; i++) {
+            edges.get(i).weight = i;
+        }
+    }
+
     public Map<String, Node> getNodes() {
         return nodes;
     }
@@ -109,23 +616,77 @@ public class CampusMap implements Serializable {
     }
 
     public List<String> findShortestPath(String start, String end) {
+        return findShortestPath(start, end, RoutingMode.RANK);
+    }
+
+    public List<String> findShortestPath(String start, String end, RoutingMode mode) {
+        if (start == null || end == null) {
+            return Collections.emptyList();
+        }
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            RoutePath cached = cache.get(version, start, end, mode);
+            if (cached != null) {
+                return cached.getNodeIds();
+            }
+        }
+        ShortestPathTrees trees = shortestPathTrees;
+        RoutePath dynamic = mode == RoutingMode.DISTANCE && trees != null
+                ? trees.findRoute(version, nodes, graph, start, end) : null;
+        if (dynamic != null) {
+            if (cache != null) {
+                cache.put(version, start, end, mode, dynamic);
+            }
+            return dynamic.getNodeIds();
+        }
+        List<String> path = mode == RoutingMode.DISTANCE ? findShortestPathByDistance(start, end) : findShortestPathByRank(start, end);
+        if (cache != null) {
+            // Кэш общий со снимками карты, которые хранят маршруты с геометрией
+            RoutePath route = toRoute(path);
+            cache.put(version, start, end, mode, route);
+            return route.getNodeIds();
+        }
+        return path;
+    }
+
+    private RoutePath toRoute(List<String> path) {
+        RoutePath.Builder builder = new RoutePath.Builder(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            Point position = nodes.get(path.get(i)).getPosition();
+            double length = i == 0 ? 0 : graph.get(path.get(i - 1)).get(path.get(i)).length;
+            builder.add(path.get(i), position.x, position.y, length);
+        }
+        return builder.build();
+    }
+
+    private List<String> findShortestPathByRank(String start, String end) {
         if (start == null || end == null || !graph.containsKey(start) || !graph.containsKey(end)) {
             return Collections.emptyList();
         }
+        if (buildingTableEnabled && nodes.get(start).isBuilding() && nodes.get(end).isBuilding()) {
+            BuildingDistanceTable table = getBuildingTable();
+            if (table != null && table.contains(start) && table.contains(end)) {
+                return table.findShortestPath(start, end);
+            }
+        }
+        if (hierarchy != null) {
+            return hierarchy.findShortestPath(start, end);
+        }
 
         Map<String, Integer> distances = new HashMap<>();
         Map<String, String> previous = new HashMap<>();
-        PriorityQueue<String> queue = new PriorityQueue<>(Comparator.comparingInt(distances::get));
+        // Приоритет фиксируется в элементе очереди: изменение distances не должно ломать порядок кучи
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
         Set<String> visited = new HashSet<>();
 
         for (String nodeId : graph.keySet()) {
             distances.put(nodeId, Integer.MAX_VALUE);
         }
         distances.put(start, 0);
-        queue.add(start);
+        queue.add(new QueueEntry(start, 0));
 
         while (!queue.isEmpty()) {
-            String current = queue.poll();
+            String current = queue.poll().nodeId;
             if (visited.contains(current)) continue;
             visited.add(current);
 
@@ -139,7 +700,7 @@ public class CampusMap implements Serializable {
                 if (newDist < distances.get(next)) {
                     distances.put(next, newDist);
                     previous.put(next, current);
-                    queue.add(next);
+                    queue.add(new QueueEntry(next, newDist));
                 }
             }
         }
@@ -153,4 +714,159 @@ public class CampusMap implements Serializable {
         Collections.reverse(path);
         return path.isEmpty() || !path.get(0).equals(start) ? Collections.emptyList() : path;
     }
-}
\ No newline at end of file
+
+    // Двунаправленная Дейкстра по рангам: прямой поиск от start и обратный от end.
+    // Остановка, когда сумма минимумов обеих очередей не меньше лучшего найденного пути.
+    public List<String> findShortestPathBidirectional(String start, String end) {
+        if (start == null || end == null || !graph.containsKey(start) || !graph.containsKey(end)) {
+            return Collections.emptyList();
+        }
+        if (start.equals(end)) {
+            return new ArrayList<>(Collections.singletonList(start));
+        }
+
+        BidirectionalSearch search = new BidirectionalSearch(start, end);
+        return search.run();
+    }
+
+    private final class BidirectionalSearch {
+        final SearchFrontier forward;
+        final SearchFrontier backward;
+        long best = Long.MAX_VALUE;
+        String meeting;
+
+        BidirectionalSearch(String start, String end) {
+            forward = new SearchFrontier(start);
+            backward = new SearchFrontier(end);
+        }
+
+        List<String> run() {
+            while (!forward.queue.isEmpty() && !backward.queue.isEmpty()) {
+                if (forward.queue.peek().priority + backward.queue.peek().priority >= best) break;
+                if (forward.queue.size() <= backward.queue.size()) {
+                    expand(forward, backward);
+                } else {
+                    expand(backward, forward);
+                }
+            }
+
+            if (meeting == null) {
+                return Collections.emptyList();
+            }
+            List<String> path = new ArrayList<>();
+            for (String current = meeting; current != null; current = forward.previous.get(current)) {
+                path.add(current);
+            }
+            Collections.reverse(path);
+            for (String current = backward.previous.get(meeting); current != null; current = backward.previous.get(current)) {
+                path.add(current);
+            }
+            return path;
+        }
+
+        private void expand(SearchFrontier frontier, SearchFrontier other) {
+            String current = frontier.queue.poll().nodeId;
+            if (!frontier.settled.add(current)) return;
+
+            long currentDistance = frontier.distances.get(current);
+            for (Map.Entry<String, Edge> neighbor : graph.get(current).entrySet()) {
+                String next = neighbor.getKey();
+                long newDist = currentDistance + neighbor.getValue().weight;
+                Long nextDist = frontier.distances.get(next);
+
+                if (nextDist == null || newDist < nextDist) {
+                    frontier.distances.put(next, newDist);
+                    frontier.previous.put(next, current);
+                    frontier.queue.add(new QueueEntry(next, newDist));
+                    nextDist = newDist;
+                }
+                Long otherDist = other.distances.get(next);
+                if (otherDist != null && nextDist + otherDist < best) {
+                    best = nextDist + otherDist;
+                    meeting = next;
+                }
+            }
+        }
+    }
+
+    private static final class SearchFrontier {
+        final Map<String, Long> distances = new HashMap<>();
+        final Map<String, String> previous = new HashMap<>();
+        final PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+        final Set<String> settled = new HashSet<>();
+
+        SearchFrontier(String origin) {
+            distances.put(origin, 0L);
+            queue.add(new QueueEntry(origin, 0));
+        }
+    }
+
+    // A* по длинам дорог: длина ребра равна расстоянию между его концами,
+    // поэтому прямое расстояние до цели не переоценивает остаток пути
+    private List<String> findShortestPathByDistance(String start, String end) {
+        if (start == null || end == null || !graph.containsKey(start) || !graph.containsKey(end)) {
+            return Collections.emptyList();
+        }
+
+        Point goal = nodes.get(end).position;
+        Map<String, Double> distances = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+        Set<String> visited = new HashSet<>();
+
+        distances.put(start, 0.0);
+        queue.add(new QueueEntry(start, straightLineDistance(nodes.get(start).position, goal)));
+
+        while (!queue.isEmpty()) {
+            String current = queue.poll().nodeId;
+            if (!visited.add(current)) continue;
+
+            if (current.equals(end)) break;
+
+            double currentDistance = distances.get(current);
+            for (Map.Entry<String, Edge> neighbor : graph.get(current).entrySet()) {
+                String next = neighbor.getKey();
+                if (visited.contains(next)) continue;
+                double newDist = currentDistance + neighbor.getValue().length;
+                Double oldDist = distances.get(next);
+
+                if (oldDist == null || newDist < oldDist) {
+                    distances.put(next, newDist);
+                    previous.put(next, current);
+                    queue.add(new QueueEntry(next, newDist + straightLineDistance(nodes.get(next).position, goal)));
+                }
+            }
+        }
+
+        if (!visited.contains(end)) {
+            return Collections.emptyList();
+        }
+        List<String> path = new ArrayList<>();
+        for (String current = end; current != null; current = previous.get(current)) {
+            path.add(current);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    static double straightLineDistance(Point from, Point to) {
+        double dx = to.x - from.x;
+        double dy = to.y - from.y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static final class QueueEntry implements Comparable<QueueEntry> {
+        final String nodeId;
+        final double priority;
+
+        QueueEntry(String nodeId, double priority) {
+            this.nodeId = nodeId;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            return Double.compare(priority, other.priority);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package model;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+public final class CompactGraph implements RoutingGraph {
+    private final String[] ids;
+    private final Map<String, Integer> indexById;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final double[] lengths;
+
+    private CompactGraph(String[] ids, Map<String, Integer> indexById, int[] xs, int[] ys,
+                         int[] offsets, int[] targets, int[] weights, double[] lengths) {
+        this.ids = ids;
+        this.indexById = indexById;
+        this.xs = xs;
+        this.ys = ys;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.lengths = lengths;
+    }
+
+    public static CompactGraph of(CampusMap map) {
+        return of(map.getNodes(), map.getGraph(), edge -> edge.weight);
+    }
+
+    // Вес дуги берётся из weight: для снимка карты это ранг ребра в его версии, а не Edge.weight
+    static CompactGraph of(Map<String, Node> nodes, Map<String, Map<String, Edge>> graph, ToIntFunction<Edge> weight) {
+        int n = graph.size();
+        String[] ids = new String[n];
+        Map<String, Integer> indexById = new HashMap<>(n * 2);
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+
+        int index = 0;
+        int arcCount = 0;
+        for (Map.Entry<String, Map<String, Edge>> entry : graph.entrySet()) {
+            String id = entry.getKey();
+            Point position = nodes.get(id).position;
+            ids[index] = id;
+            xs[index] = position.x;
+            ys[index] = position.y;
+            indexById.put(id, index);
+            arcCount += entry.getValue().size();
+            index++;
+        }
+
+        // Каждая неориентированная дорога хранится как две дуги, по одной в строке каждого конца
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[arcCount];
+        int[] weights = new int[arcCount];
+        double[] lengths = new double[arcCount];
+        int arc = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = arc;
+            for (Map.Entry<String, Edge> neighbor : graph.get(ids[i]).entrySet()) {
+                Edge edge = neighbor.getValue();
+                targets[arc] = indexById.get(neighbor.getKey());
+                weights[arc] = weight.applyAsInt(edge);
+                lengths[arc] = edge.length;
+                arc++;
+            }
+        }
+        offsets[n] = arc;
+
+        return new CompactGraph(ids, indexById, xs, ys, offsets, targets, weights, lengths);
+    }
+
+    @Override
+    public int nodeCount() {
+        return ids.length;
+    }
+
+    @Override
+    public int arcCount() {
+        return targets.length;
+    }
+
+    @Override
+    public int indexOf(String id) {
+        Integer index = id == null ? null : indexById.get(id);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public String id(int node) {
+        return ids[node];
+    }
+
+    @Override
+    public int x(int node) {
+        return xs[node];
+    }
+
+    @Override
+    public int y(int node) {
+        return ys[node];
+    }
+
+    @Override
+    public int firstArc(int node) {
+        return offsets[node];
+    }
+
+    @Override
+    public int endArc(int node) {
+        return offsets[node + 1];
+    }
+
+    @Override
+    public int target(int arc) {
+        return targets[arc];
+    }
+
+    @Override
+    public int weight(int arc) {
+        return weights[arc];
+    }
+
+    @Override
+    public double length(int arc) {
+        return lengths[arc];
+    }
+}
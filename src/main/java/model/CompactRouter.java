@@ -0,0 +1,211 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Маршрутизатор над RoutingGraph (CompactGraph или MappedMap). Рабочие массивы выделяются один раз, поэтому после
+// прогрева запрос не создаёт объектов (кроме итогового списка или RoutePath).
+// Экземпляр не потокобезопасен: для параллельных запросов нужен свой роутер на поток.
+public final class CompactRouter {
+    private final RoutingGraph graph;
+    private final double[] distances;
+    private final int[] previous;
+    // Дуга, по которой пришли в узел: из неё берётся Edge.length участка при восстановлении маршрута
+    private final int[] previousArcs;
+    private final int[] stamps;
+    private final int[] path;
+    private final IndexedMinHeap queue;
+    private int stamp;
+    // Цели поиска от одного начала (searchAll с targets): метки выделяются при первом таком поиске
+    private int[] targetStamps;
+    private int remainingTargets;
+    private int pathLength;
+    private int settledCount;
+
+    public CompactRouter(RoutingGraph graph) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        distances = new double[n];
+        previous = new int[n];
+        previousArcs = new int[n];
+        stamps = new int[n];
+        path = new int[n];
+        queue = new IndexedMinHeap(n);
+    }
+
+    public RoutingGraph getGraph() {
+        return graph;
+    }
+
+    public List<String> findShortestPath(String start, String end) {
+        return findShortestPath(start, end, RoutingMode.RANK);
+    }
+
+    public List<String> findShortestPath(String start, String end, RoutingMode mode) {
+        int source = graph.indexOf(start);
+        int target = graph.indexOf(end);
+        if (source < 0 || target < 0 || route(source, target, mode) == 0) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(pathLength);
+        for (int i = 0; i < pathLength; i++) {
+            result.add(graph.id(path[i]));
+        }
+        return result;
+    }
+
+    // Маршрут с координатами, длинами участков и поворотами (RoutePath.EMPTY, если пути нет)
+    public RoutePath findRoute(String start, String end, RoutingMode mode) {
+        int source = graph.indexOf(start);
+        int target = graph.indexOf(end);
+        if (source < 0 || target < 0 || route(source, target, mode) == 0) {
+            return RoutePath.EMPTY;
+        }
+        return pathRoute();
+    }
+
+    // Возвращает число узлов найденного пути (0, если пути нет); сами узлы доступны через pathNode
+    public int route(int source, int target) {
+        return route(source, target, RoutingMode.RANK);
+    }
+
+    public int route(int source, int target, RoutingMode mode) {
+        search(source, target, mode == RoutingMode.DISTANCE);
+        return pathTo(target);
+    }
+
+    // Восстанавливает путь до target в дереве последнего поиска (в том числе после searchAll);
+    // возвращает число узлов пути (0, если target не достигнут), узлы доступны через pathNode и pathRoute
+    public int pathTo(int target) {
+        pathLength = 0;
+        if (!reached(target)) {
+            return 0;
+        }
+        for (int node = target; node >= 0; node = previous[node]) {
+            path[pathLength++] = node;
+        }
+        for (int i = 0, j = pathLength - 1; i < j; i++, j--) {
+            int tmp = path[i];
+            path[i] = path[j];
+            path[j] = tmp;
+        }
+        return pathLength;
+    }
+
+    // Маршрут по узлам, восстановленным последним route или pathTo
+    public RoutePath pathRoute() {
+        if (pathLength == 0) {
+            return RoutePath.EMPTY;
+        }
+        RoutePath.Builder builder = new RoutePath.Builder(pathLength);
+        for (int i = 0; i < pathLength; i++) {
+            int node = path[i];
+            builder.add(graph, node, i == 0 ? -1 : previousArcs[node]);
+        }
+        return builder.build();
+    }
+
+    // Полное дерево кратчайших путей по рангам от source; результат читается через distance и previousNode
+    public void searchAll(int source) {
+        pathLength = 0;
+        search(source, -1, false);
+    }
+
+    // Кратчайшие пути от source до первых count узлов targets: по рангам или по длинам (без эвристики, целей
+    // несколько). Поиск останавливается, когда все цели взяты из очереди; результат — через distance и previousNode
+    public void searchAll(int source, RoutingMode mode, int[] targets, int count) {
+        pathLength = 0;
+        nextStamp();
+        if (targetStamps == null) {
+            targetStamps = new int[graph.nodeCount()];
+        }
+        remainingTargets = 0;
+        for (int i = 0; i < count; i++) {
+            if (targetStamps[targets[i]] != stamp) {
+                targetStamps[targets[i]] = stamp;
+                remainingTargets++;
+            }
+        }
+        search(source, -1, mode == RoutingMode.DISTANCE, false);
+        remainingTargets = 0;
+    }
+
+    public int previousNode(int node) {
+        return reached(node) ? previous[node] : -1;
+    }
+
+    public int pathLength() {
+        return pathLength;
+    }
+
+    public int pathNode(int i) {
+        return path[i];
+    }
+
+    public double distance(int node) {
+        return reached(node) ? distances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    public int settledCount() {
+        return settledCount;
+    }
+
+    // byLength = true — A* по длинам с эвристикой прямого расстояния до цели, иначе Дейкстра по рангам
+    private void search(int source, int target, boolean byLength) {
+        nextStamp();
+        search(source, target, byLength, byLength);
+    }
+
+    private void search(int source, int target, boolean byLength, boolean heuristic) {
+        queue.clear();
+        settledCount = 0;
+        visit(source, 0, -1, -1);
+        queue.push(source, heuristic ? heuristic(source, target) : 0);
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            settledCount++;
+            if (current == target) break;
+            if (remainingTargets > 0 && targetStamps[current] == stamp && --remainingTargets == 0) break;
+
+            double currentDistance = distances[current];
+            for (int arc = graph.firstArc(current), end = graph.endArc(current); arc < end; arc++) {
+                int next = graph.target(arc);
+                double newDistance = currentDistance + (byLength ? graph.length(arc) : graph.weight(arc));
+                if (!reached(next) || newDistance < distances[next]) {
+                    visit(next, newDistance, current, arc);
+                    queue.push(next, heuristic ? newDistance + heuristic(next, target) : newDistance);
+                }
+            }
+        }
+    }
+
+    private double heuristic(int node, int target) {
+        double dx = graph.x(target) - graph.x(node);
+        double dy = graph.y(target) - graph.y(node);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private boolean reached(int node) {
+        return stamps[node] == stamp;
+    }
+
+    private void visit(int node, double distance, int from, int arc) {
+        stamps[node] = stamp;
+        distances[node] = distance;
+        previous[node] = from;
+        previousArcs[node] = arc;
+    }
+
+    // Поколения вместо очистки массивов: узел считается посещённым, только если его метка равна текущей
+    private void nextStamp() {
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            if (targetStamps != null) Arrays.fill(targetStamps, 0);
+            stamp = 1;
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Иерархия сжатия (Contraction Hierarchies) над рангами рёбер.
+// Предобработка сжимает вершины по возрастанию важности и добавляет рёбра-сокращения;
+// запрос — двунаправленная Дейкстра только по рёбрам, ведущим к более важным вершинам.
+// Структура неизменяема; рабочие массивы запросов отдельные для каждого потока.
+public final class ContractionHierarchy {
+    private static final int MAGIC = 0x43484831; // "CHH1"
+
+    private final String[] ids;
+    private final Map<String, Integer> indexById;
+    private final int[] ranks;
+    private final int[] offsets;
+    private final int[] targets;
+    private final long[] weights;
+    private final int[] middles;
+    private final long fingerprint;
+    private final ThreadLocal<Query> queries = ThreadLocal.withInitial(Query::new);
+    private volatile GraphNodes graphNodes;
+
+    private ContractionHierarchy(String[] ids, int[] ranks, int[] offsets, int[] targets,
+                                 long[] weights, int[] middles, long fingerprint) {
+        this.ids = ids;
+        this.ranks = ranks;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.middles = middles;
+        this.fingerprint = fingerprint;
+        this.indexById = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            indexById.put(ids[i], i);
+        }
+    }
+
+    public static ContractionHierarchy build(CampusMap map) {
+        return new Builder(CompactGraph.of(map)).build(fingerprint(map));
+    }
+
+    // Отпечаток карты, не зависящий от порядка обхода хеш-таблиц: по нему проверяется,
+    // что сохранённая иерархия построена именно для этой карты
+    public static long fingerprint(CampusMap map) {
+        long hash = mix(map.getNodes().size());
+        for (String id : map.getNodes().keySet()) {
+            hash += mix(id.hashCode());
+        }
+        for (Edge edge : map.getEdges()) {
+            hash += mix(((long) (edge.from.hashCode() + edge.to.hashCode()) << 32) ^ edge.weight ^ Double.doubleToLongBits(edge.length));
+        }
+        return hash;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int nodeCount() {
+        return ids.length;
+    }
+
+    public int shortcutCount() {
+        int count = 0;
+        for (int middle : middles) {
+            if (middle >= 0) count++;
+        }
+        return count;
+    }
+
+    public List<String> findShortestPath(String start, String end) {
+        Integer source = start == null ? null : indexById.get(start);
+        Integer target = end == null ? null : indexById.get(end);
+        if (source == null || target == null) {
+            return Collections.emptyList();
+        }
+        Query query = queries.get();
+        int length = query.run(source, target);
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(ids[query.path[i]]);
+        }
+        return path;
+    }
+
+    // Маршрут с геометрией из graph — графа той же карты (MappedMap или граф снимка), откуда берутся
+    // координаты и длины дорог. Соответствие номеров узлов иерархии и graph строится один раз на граф
+    public RoutePath findRoute(String start, String end, RoutingGraph graph) {
+        Integer source = start == null ? null : indexById.get(start);
+        Integer target = end == null ? null : indexById.get(end);
+        if (source == null || target == null) {
+            return RoutePath.EMPTY;
+        }
+        int[] graphNodes = graphNodes(graph);
+        Query query = queries.get();
+        int length = query.run(source, target);
+        if (length == 0) {
+            return RoutePath.EMPTY;
+        }
+        RoutePath.Builder builder = new RoutePath.Builder(length);
+        for (int i = 0; i < length; i++) {
+            int node = graphNodes[query.path[i]];
+            if (node < 0) {
+                throw new IllegalArgumentException("Node " + ids[query.path[i]] + " is missing from the routing graph");
+            }
+            builder.add(graph, node);
+        }
+        return builder.build();
+    }
+
+    private int[] graphNodes(RoutingGraph graph) {
+        GraphNodes cached = graphNodes;
+        if (cached == null || cached.graph != graph) {
+            int[] nodes = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                nodes[i] = graph.indexOf(ids[i]);
+            }
+            cached = new GraphNodes(graph, nodes);
+            graphNodes = cached;
+        }
+        return cached.nodes;
+    }
+
+    private static final class GraphNodes {
+        final RoutingGraph graph;
+        final int[] nodes;
+
+        GraphNodes(RoutingGraph graph, int[] nodes) {
+            this.graph = graph;
+            this.nodes = nodes;
+        }
+    }
+
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeLong(fingerprint);
+        data.writeInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            data.writeUTF(ids[i]);
+            data.writeInt(ranks[i]);
+            data.writeInt(offsets[i]);
+        }
+        data.writeInt(targets.length);
+        for (int arc = 0; arc < targets.length; arc++) {
+            data.writeInt(targets[arc]);
+            data.writeLong(weights[arc]);
+            data.writeInt(middles[arc]);
+        }
+        data.flush();
+    }
+
+    public static ContractionHierarchy load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a contraction hierarchy file");
+        }
+        long fingerprint = data.readLong();
+        int n = data.readInt();
+        String[] ids = new String[n];
+        int[] ranks = new int[n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            ids[i] = data.readUTF();
+            ranks[i] = data.readInt();
+            offsets[i] = data.readInt();
+        }
+        int arcs = data.readInt();
+        offsets[n] = arcs;
+        int[] targets = new int[arcs];
+        long[] weights = new long[arcs];
+        int[] middles = new int[arcs];
+        for (int arc = 0; arc < arcs; arc++) {
+            targets[arc] = data.readInt();
+            weights[arc] = data.readLong();
+            middles[arc] = data.readInt();
+        }
+        return new ContractionHierarchy(ids, ranks, offsets, targets, weights, middles, fingerprint);
+    }
+
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Середина ребра-сокращения между a и b (или -1 для исходной дороги).
+    // Ребро хранится у менее важной из двух вершин.
+    private int middleOf(int a, int b) {
+        int low = ranks[a] < ranks[b] ? a : b;
+        int high = low == a ? b : a;
+        for (int arc = offsets[low]; arc < offsets[low + 1]; arc++) {
+            if (targets[arc] == high) return middles[arc];
+        }
+        throw new IllegalStateException("Missing hierarchy arc " + ids[a] + " - " + ids[b]);
+    }
+
+    private final class Query {
+        final long[][] distances = new long[2][ids.length];
+        final int[][] previous = new int[2][ids.length];
+        final int[][] previousMiddle = new int[2][ids.length];
+        final int[][] stamps = new int[2][ids.length];
+        final IndexedMinHeap[] queues = {new IndexedMinHeap(ids.length), new IndexedMinHeap(ids.length)};
+        int[] segments = new int[64 * 3];
+        // Узлы последнего найденного пути (номера иерархии) от source к target
+        int[] path = new int[64];
+        int pathLength;
+        int stamp;
+
+        // Возвращает число узлов пути в path (0, если пути нет)
+        int run(int source, int target) {
+            stamp++;
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps[0], 0);
+                Arrays.fill(stamps[1], 0);
+                stamp = 1;
+            }
+            queues[0].clear();
+            queues[1].clear();
+            reach(0, source, 0, -1, -1);
+            reach(1, target, 0, -1, -1);
+
+            long best = Long.MAX_VALUE;
+            int meeting = -1;
+            while (true) {
+                boolean forwardOpen = !queues[0].isEmpty() && queues[0].minKey() < best;
+                boolean backwardOpen = !queues[1].isEmpty() && queues[1].minKey() < best;
+                if (!forwardOpen && !backwardOpen) break;
+                int side = forwardOpen && (!backwardOpen || queues[0].minKey() <= queues[1].minKey()) ? 0 : 1;
+
+                int current = queues[side].poll();
+                long currentDistance = distances[side][current];
+                if (stamps[1 - side][current] == stamp && currentDistance + distances[1 - side][current] < best) {
+                    best = currentDistance + distances[1 - side][current];
+                    meeting = current;
+                }
+                for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                    int next = targets[arc];
+                    long newDistance = currentDistance + weights[arc];
+                    if (stamps[side][next] != stamp || newDistance < distances[side][next]) {
+                        reach(side, next, newDistance, current, middles[arc]);
+                    }
+                }
+            }
+
+            pathLength = 0;
+            if (meeting < 0) {
+                return 0;
+            }
+            List<Integer> forwardChain = new ArrayList<>();
+            for (int node = meeting; node >= 0; node = previous[0][node]) {
+                forwardChain.add(node);
+            }
+            Collections.reverse(forwardChain);
+            append(source);
+            for (int i = 1; i < forwardChain.size(); i++) {
+                int node = forwardChain.get(i);
+                unpack(forwardChain.get(i - 1), node, previousMiddle[0][node]);
+            }
+            for (int node = meeting; previous[1][node] >= 0; node = previous[1][node]) {
+                unpack(node, previous[1][node], previousMiddle[1][node]);
+            }
+            return pathLength;
+        }
+
+        private void append(int node) {
+            if (pathLength == path.length) {
+                path = Arrays.copyOf(path, pathLength * 2);
+            }
+            path[pathLength++] = node;
+        }
+
+        private void reach(int side, int node, long distance, int from, int middle) {
+            stamps[side][node] = stamp;
+            distances[side][node] = distance;
+            previous[side][node] = from;
+            previousMiddle[side][node] = middle;
+            queues[side].push(node, distance);
+        }
+
+        // Разворачивает ребро from-to (через middle) в исходные дороги, добавляя узлы после from
+        private void unpack(int from, int to, int middle) {
+            int top = 0;
+            push(top++, from, to, middle);
+            while (top > 0) {
+                top--;
+                int a = segments[3 * top];
+                int b = segments[3 * top + 1];
+                int m = segments[3 * top + 2];
+                if (m < 0) {
+                    append(b);
+                } else {
+                    push(top++, m, b, middleOf(m, b));
+                    push(top++, a, m, middleOf(a, m));
+                }
+            }
+        }
+
+        private void push(int index, int a, int b, int middle) {
+            if (3 * index + 3 > segments.length) {
+                segments = Arrays.copyOf(segments, segments.length * 2);
+            }
+            segments[3 * index] = a;
+            segments[3 * index + 1] = b;
+            segments[3 * index + 2] = middle;
+        }
+    }
+
+    private static final class Builder {
+        // Оценка важности допускает лишние сокращения, поэтому поиск свидетелей при ней короче
+        private static final int SIMULATION_SETTLE_LIMIT = 50;
+        private static final int CONTRACTION_SETTLE_LIMIT = 1000;
+
+        private final CompactGraph graph;
+        private final int n;
+        private final int[][] adjacentNodes;
+        private final long[][] adjacentWeights;
+        private final int[][] adjacentMiddles;
+        private final int[] degrees;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        private final int[] ranks;
+
+        private final double[] witnessDistances;
+        private final int[] witnessStamps;
+        private final IndexedMinHeap witnessQueue;
+        private int witnessStamp;
+
+        Builder(CompactGraph graph) {
+            this.graph = graph;
+            n = graph.nodeCount();
+            adjacentNodes = new int[n][];
+            adjacentWeights = new long[n][];
+            adjacentMiddles = new int[n][];
+            degrees = new int[n];
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            ranks = new int[n];
+            witnessDistances = new double[n];
+            witnessStamps = new int[n];
+            witnessQueue = new IndexedMinHeap(n);
+
+            for (int node = 0; node < n; node++) {
+                int degree = graph.endArc(node) - graph.firstArc(node);
+                adjacentNodes[node] = new int[Math.max(4, degree)];
+                adjacentWeights[node] = new long[Math.max(4, degree)];
+                adjacentMiddles[node] = new int[Math.max(4, degree)];
+            }
+            for (int node = 0; node < n; node++) {
+                for (int arc = graph.firstArc(node); arc < graph.endArc(node); arc++) {
+                    connect(node, graph.target(arc), graph.weight(arc), -1);
+                }
+            }
+        }
+
+        ContractionHierarchy build(long fingerprint) {
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for (int node = 0; node < n; node++) {
+                order.push(node, priority(node));
+            }
+
+            int rank = 0;
+            while (!order.isEmpty()) {
+                int node = order.poll();
+                // Ленивое обновление: важность могла вырасти после сжатия соседей
+                double current = priority(node);
+                if (!order.isEmpty() && current > order.minKey()) {
+                    order.push(node, current);
+                    continue;
+                }
+                contract(node, true);
+                contracted[node] = true;
+                ranks[node] = rank++;
+                for (int i = 0; i < degrees[node]; i++) {
+                    int neighbor = adjacentNodes[node][i];
+                    if (!contracted[neighbor]) {
+                        contractedNeighbors[neighbor]++;
+                        order.update(neighbor, priority(neighbor));
+                    }
+                }
+            }
+
+            int[] offsets = new int[n + 1];
+            for (int node = 0; node < n; node++) {
+                int upward = 0;
+                for (int i = 0; i < degrees[node]; i++) {
+                    if (ranks[adjacentNodes[node][i]] > ranks[node]) upward++;
+                }
+                offsets[node + 1] = offsets[node] + upward;
+            }
+            int[] targets = new int[offsets[n]];
+            long[] weights = new long[offsets[n]];
+            int[] middles = new int[offsets[n]];
+            String[] ids = new String[n];
+            for (int node = 0; node < n; node++) {
+                ids[node] = graph.id(node);
+                int arc = offsets[node];
+                for (int i = 0; i < degrees[node]; i++) {
+                    if (ranks[adjacentNodes[node][i]] > ranks[node]) {
+                        targets[arc] = adjacentNodes[node][i];
+                        weights[arc] = adjacentWeights[node][i];
+                        middles[arc] = adjacentMiddles[node][i];
+                        arc++;
+                    }
+                }
+            }
+            return new ContractionHierarchy(ids, ranks, offsets, targets, weights, middles, fingerprint);
+        }
+
+        // Разность рёбер: сколько сокращений добавит сжатие минус сколько рёбер исчезнет,
+        // плюс число уже сжатых соседей для равномерного сжатия по карте
+        private double priority(int node) {
+            int activeDegree = 0;
+            for (int i = 0; i < degrees[node]; i++) {
+                if (!contracted[adjacentNodes[node][i]]) activeDegree++;
+            }
+            return contract(node, false) - activeDegree + contractedNeighbors[node];
+        }
+
+        private int contract(int node, boolean addShortcuts) {
+            int shortcuts = 0;
+            int degree = degrees[node];
+            int settleLimit = addShortcuts ? CONTRACTION_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT;
+            for (int i = 0; i < degree; i++) {
+                int from = adjacentNodes[node][i];
+                if (contracted[from]) continue;
+                long toNode = adjacentWeights[node][i];
+                long maxOutgoing = -1;
+                for (int j = i + 1; j < degree; j++) {
+                    if (!contracted[adjacentNodes[node][j]]) {
+                        maxOutgoing = Math.max(maxOutgoing, adjacentWeights[node][j]);
+                    }
+                }
+                if (maxOutgoing < 0) continue;
+                witnessSearch(from, node, toNode + maxOutgoing, settleLimit);
+                for (int j = i + 1; j < degree; j++) {
+                    int to = adjacentNodes[node][j];
+                    if (contracted[to]) continue;
+                    long viaNode = toNode + adjacentWeights[node][j];
+                    if (witnessStamps[to] != witnessStamp || witnessDistances[to] > viaNode) {
+                        shortcuts++;
+                        if (addShortcuts) {
+                            connect(from, to, viaNode, node);
+                            connect(to, from, viaNode, node);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        // Ограниченная Дейкстра от source в обход excluded: ищет путь-свидетель, делающий сокращение лишним
+        private void witnessSearch(int source, int excluded, long limit, int settleLimit) {
+            witnessStamp++;
+            witnessQueue.clear();
+            witnessStamps[source] = witnessStamp;
+            witnessDistances[source] = 0;
+            witnessQueue.push(source, 0);
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled++ < settleLimit) {
+                int current = witnessQueue.poll();
+                double distance = witnessDistances[current];
+                if (distance > limit) break;
+                for (int i = 0; i < degrees[current]; i++) {
+                    int next = adjacentNodes[current][i];
+                    if (next == excluded || contracted[next]) continue;
+                    double newDistance = distance + adjacentWeights[current][i];
+                    if (witnessStamps[next] != witnessStamp || newDistance < witnessDistances[next]) {
+                        witnessStamps[next] = witnessStamp;
+                        witnessDistances[next] = newDistance;
+                        witnessQueue.push(next, newDistance);
+                    }
+                }
+            }
+        }
+
+        private void connect(int from, int to, long weight, int middle) {
+            for (int i = 0; i < degrees[from]; i++) {
+                if (adjacentNodes[from][i] == to) {
+                    if (weight < adjacentWeights[from][i]) {
+                        adjacentWeights[from][i] = weight;
+                        adjacentMiddles[from][i] = middle;
+                    }
+                    return;
+                }
+            }
+            int degree = degrees[from];
+            if (degree == adjacentNodes[from].length) {
+                adjacentNodes[from] = Arrays.copyOf(adjacentNodes[from], degree * 2);
+                adjacentWeights[from] = Arrays.copyOf(adjacentWeights[from], degree * 2);
+                adjacentMiddles[from] = Arrays.copyOf(adjacentMiddles[from], degree * 2);
+            }
+            adjacentNodes[from][degree] = to;
+            adjacentWeights[from][degree] = weight;
+            adjacentMiddles[from][degree] = middle;
+            degrees[from] = degree + 1;
+        }
+    }
+}
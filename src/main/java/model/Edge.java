@@ -3,10 +3,15 @@ package model;
 import java.io.Serializable;
 
 public class Edge implements Serializable {
+    // Значение, которое JVM вычисляла для исходного класса: старые файлы .map должны читаться
+    private static final long serialVersionUID = -2480133122531270790L;
+
     String from;
     String to;
     double length;
     int weight;
+    // Порядок добавления среди рёбер равной длины для RankTree; 0 — ещё не назначен
+    transient long sequence;
 
     public Edge(String from, String to, double length) {
         this.from = from;
@@ -14,4 +19,16 @@ public class Edge implements Serializable {
         this.length = length;
         this.weight = 0;
     }
-}
\ No newline at end of file
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public double getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,162 @@
+package model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+// Неизменяемая версия карты (см. CampusMap.snapshot()). Узлы, дороги и ранги хранятся в persistent-структурах,
+// общих с соседними версиями, поэтому снимок создаётся при каждой правке за O(1) и читается из любого потока
+// без блокировок. Маршруты те же, что у CampusMap.findShortestPath: таблица расстояний между зданиями,
+// иерархия сжатия или поиск по графу; CompactGraph для них строится лениво в потоке первого запроса.
+public final class MapSnapshot {
+    private final long version;
+    private final PersistentMap<String, Node> nodes;
+    private final PersistentMap<String, PersistentMap<String, Edge>> graph;
+    private final RankTree edges;
+    private final ContractionHierarchy hierarchy;
+    private final boolean buildingTableEnabled;
+    private final RouteCache routeCache;
+    private final ShortestPathTrees shortestPathTrees;
+    private final ThreadLocal<CompactRouter> routers = ThreadLocal.withInitial(() -> new CompactRouter(compactGraph()));
+    private volatile CompactGraph compactGraph;
+    private volatile BuildingDistanceTable buildingTable;
+    private volatile boolean buildingTableTooLarge;
+
+    MapSnapshot(long version, PersistentMap<String, Node> nodes, PersistentMap<String, PersistentMap<String, Edge>> graph,
+                RankTree edges, ContractionHierarchy hierarchy, boolean buildingTableEnabled, RouteCache routeCache,
+                ShortestPathTrees shortestPathTrees) {
+        this.version = version;
+        this.nodes = nodes;
+        this.graph = graph;
+        this.edges = edges;
+        this.hierarchy = hierarchy;
+        this.buildingTableEnabled = buildingTableEnabled;
+        this.routeCache = routeCache;
+        this.shortestPathTrees = shortestPathTrees;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Представления только для чтения; попытка изменить их бросает UnsupportedOperationException
+    public Map<String, Node> getNodes() {
+        return nodes;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Edge>> getGraph() {
+        return (Map<String, Map<String, Edge>>) (Map<String, ?>) graph;
+    }
+
+    // Рёбра в порядке рангов; список создаётся заново при каждом вызове
+    public List<Edge> getEdges() {
+        return Collections.unmodifiableList(edges.toList());
+    }
+
+    public int getEdgeCount() {
+        return edges.size();
+    }
+
+    // Вес (ранг) ребра в этой версии или -1, если ребра в ней нет. Edge.weight может быть уже перенумерован правками
+    public int weight(Edge edge) {
+        return edges.rank(edge);
+    }
+
+    public List<String> findShortestPath(String start, String end, RoutingMode mode) {
+        return findRoute(start, end, mode).getNodeIds();
+    }
+
+    // Маршрут с координатами, длинами участков и поворотами; RoutePath.EMPTY, если пути нет
+    public RoutePath findRoute(String start, String end, RoutingMode mode) {
+        if (start == null || end == null) {
+            return RoutePath.EMPTY;
+        }
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            RoutePath cached = cache.get(version, start, end, mode);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        RoutePath route = route(start, end, mode);
+        if (cache != null) {
+            cache.put(version, start, end, mode, route);
+        }
+        return route;
+    }
+
+    private RoutePath route(String start, String end, RoutingMode mode) {
+        // Деревья CampusMap подходят, только пока карта не ушла дальше этой версии
+        if (mode == RoutingMode.DISTANCE && shortestPathTrees != null) {
+            RoutePath route = shortestPathTrees.findRoute(version, nodes, getGraph(), start, end);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (mode == RoutingMode.RANK && graph.containsKey(start) && graph.containsKey(end)) {
+            if (buildingTableEnabled && nodes.get(start).isBuilding() && nodes.get(end).isBuilding()) {
+                BuildingDistanceTable table = buildingTable();
+                if (table != null && table.contains(start) && table.contains(end)) {
+                    return table.findRoute(start, end);
+                }
+            }
+            if (hierarchy != null) {
+                return hierarchy.findRoute(start, end, compactGraph());
+            }
+        }
+        return routers.get().findRoute(start, end, mode);
+    }
+
+    // Неизменяемый граф этой версии для CompactRouter и BatchRouter; строится при первом обращении
+    public RoutingGraph getRoutingGraph() {
+        return compactGraph();
+    }
+
+    CompactGraph compactGraph() {
+        CompactGraph result = compactGraph;
+        if (result == null) {
+            synchronized (this) {
+                result = compactGraph;
+                if (result == null) {
+                    result = CompactGraph.of(nodes, getGraph(), edges::rank);
+                    compactGraph = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // null, если зданий больше BuildingDistanceTable.MAX_BUILDINGS; отказ тоже запоминается
+    private BuildingDistanceTable buildingTable() {
+        BuildingDistanceTable result = buildingTable;
+        if (result == null && !buildingTableTooLarge) {
+            synchronized (this) {
+                result = buildingTable;
+                if (result == null && !buildingTableTooLarge) {
+                    Set<String> buildings = buildings();
+                    if (buildings.size() > BuildingDistanceTable.MAX_BUILDINGS) {
+                        buildingTableTooLarge = true;
+                    } else {
+                        result = BuildingDistanceTable.build(compactGraph(), buildings, ForkJoinPool.commonPool());
+                        buildingTable = result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Set<String> buildings() {
+        Set<String> buildings = new HashSet<>();
+        for (Node node : nodes.values()) {
+            if (node.isBuilding()) {
+                buildings.add(node.id);
+            }
+        }
+        return buildings;
+    }
+}
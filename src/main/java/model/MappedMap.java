@@ -0,0 +1,806 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// Карта только для чтения поверх файла, отображённого в память (для киосков в режиме навигации).
+// Объекты Node и Edge не создаются: маршрутизация и отрисовка читают плоские массивы прямо из файла,
+// поэтому открытие занимает время на чтение заголовка, а куча почти не растёт.
+//
+// Файл (little-endian): заголовок из 64 байт, затем секции подряд —
+// длины дуг (double), координаты узлов, смещения дуг по узлам (CSR), цели и веса дуг,
+// номер здания для каждого узла (-1 у перекрёстка), узел, границы и смещения вершин каждого здания,
+// координаты вершин, таблица ячеек (узлы, дороги и здания по ячейкам сетки, три CSR),
+// смещения идентификаторов, номера узлов в порядке идентификаторов и сами идентификаторы в UTF-8.
+// Узлы упорядочены по y, затем по x, чтобы соседние на карте узлы лежали рядом в файле.
+public final class MappedMap implements RoutingGraph {
+    private static final int MAGIC = 0x434D4D31; // "CMM1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    // Начальный размер ячейки, как в SpatialIndex; на разреженной карте ячейки укрупняются, чтобы их было не больше узлов
+    private static final int CELL_SIZE = 64;
+
+    private static final Comparator<Node> BY_POSITION = (a, b) -> {
+        int compare = Integer.compare(a.position.y, b.position.y);
+        if (compare == 0) compare = Integer.compare(a.position.x, b.position.x);
+        return compare != 0 ? compare : a.id.compareTo(b.id);
+    };
+
+    private final long fingerprint;
+    private final int nodeCount;
+    private final int arcCount;
+    private final int buildingCount;
+    private final DoubleBuffer lengths;
+    private final IntBuffer xs;
+    private final IntBuffer ys;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final IntBuffer nodeBuildings;
+    private final IntBuffer buildingNodes;
+    private final IntBuffer buildingBounds;
+    private final IntBuffer vertexOffsets;
+    private final IntBuffer vertexXs;
+    private final IntBuffer vertexYs;
+    private final int cellSize;
+    private final int originX;
+    private final int originY;
+    private final int columns;
+    private final int rows;
+    private final IntBuffer cellNodeOffsets;
+    private final IntBuffer cellNodes;
+    private final IntBuffer cellRoadOffsets;
+    private final IntBuffer cellRoads;
+    private final IntBuffer cellBuildingOffsets;
+    private final IntBuffer cellBuildings;
+    private final IntBuffer idOffsets;
+    private final IntBuffer idOrder;
+    private final ByteBuffer idBytes;
+
+    private String[] labels;
+    private ContractionHierarchy hierarchy;
+    private RouteCache routeCache;
+    private volatile boolean buildingTableEnabled;
+    private volatile BuildingDistanceTable buildingTable;
+    private volatile boolean buildingTableTooLarge;
+    private final ThreadLocal<CompactRouter> routers = ThreadLocal.withInitial(() -> new CompactRouter(this));
+
+    private MappedMap(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped map file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported mapped map version: " + buffer.getInt(4));
+        }
+        fingerprint = buffer.getLong(8);
+        nodeCount = buffer.getInt(16);
+        arcCount = buffer.getInt(20);
+        buildingCount = buffer.getInt(24);
+        int vertexCount = buffer.getInt(28);
+        int idByteCount = buffer.getInt(32);
+        cellSize = buffer.getInt(36);
+        originX = buffer.getInt(40);
+        originY = buffer.getInt(44);
+        columns = buffer.getInt(48);
+        rows = buffer.getInt(52);
+        int roadEntries = buffer.getInt(56);
+        int buildingEntries = buffer.getInt(60);
+        long cells = (long) columns * rows;
+        if (nodeCount < 0 || arcCount < 0 || buildingCount < 0 || vertexCount < 0 || idByteCount < 0
+                || cellSize <= 0 || columns <= 0 || rows <= 0 || roadEntries < 0 || buildingEntries < 0
+                || fileSize(nodeCount, arcCount, buildingCount, vertexCount, idByteCount, cells, roadEntries, buildingEntries) != buffer.capacity()) {
+            throw new IOException("Mapped map file is truncated or corrupt");
+        }
+
+        int position = HEADER_SIZE;
+        lengths = slice(buffer, position, 8L * arcCount).asDoubleBuffer();
+        position += 8 * arcCount;
+        xs = ints(buffer, position, nodeCount);
+        position += 4 * nodeCount;
+        ys = ints(buffer, position, nodeCount);
+        position += 4 * nodeCount;
+        offsets = ints(buffer, position, nodeCount + 1);
+        position += 4 * (nodeCount + 1);
+        targets = ints(buffer, position, arcCount);
+        position += 4 * arcCount;
+        weights = ints(buffer, position, arcCount);
+        position += 4 * arcCount;
+        nodeBuildings = ints(buffer, position, nodeCount);
+        position += 4 * nodeCount;
+        buildingNodes = ints(buffer, position, buildingCount);
+        position += 4 * buildingCount;
+        buildingBounds = ints(buffer, position, 4 * buildingCount);
+        position += 16 * buildingCount;
+        vertexOffsets = ints(buffer, position, buildingCount + 1);
+        position += 4 * (buildingCount + 1);
+        vertexXs = ints(buffer, position, vertexCount);
+        position += 4 * vertexCount;
+        vertexYs = ints(buffer, position, vertexCount);
+        position += 4 * vertexCount;
+        cellNodeOffsets = ints(buffer, position, (int) cells + 1);
+        position += 4 * ((int) cells + 1);
+        cellNodes = ints(buffer, position, nodeCount);
+        position += 4 * nodeCount;
+        cellRoadOffsets = ints(buffer, position, (int) cells + 1);
+        position += 4 * ((int) cells + 1);
+        cellRoads = ints(buffer, position, 2 * roadEntries);
+        position += 8 * roadEntries;
+        cellBuildingOffsets = ints(buffer, position, (int) cells + 1);
+        position += 4 * ((int) cells + 1);
+        cellBuildings = ints(buffer, position, buildingEntries);
+        position += 4 * buildingEntries;
+        idOffsets = ints(buffer, position, nodeCount + 1);
+        position += 4 * (nodeCount + 1);
+        idOrder = ints(buffer, position, nodeCount);
+        position += 4 * nodeCount;
+        idBytes = slice(buffer, position, idByteCount);
+    }
+
+    public static MappedMap open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Map is too large to be memory-mapped: " + size + " bytes");
+            }
+            // Отображение остаётся действительным и после закрытия канала
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedMap(buffer.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    public static void write(CampusMap map, OutputStream out) throws IOException {
+        Node[] nodes = map.getNodes().values().toArray(new Node[0]);
+        Arrays.sort(nodes, BY_POSITION);
+        int n = nodes.length;
+        Map<String, Integer> indexById = new HashMap<>(n * 4 / 3 + 1);
+        int arcs = 0;
+        int buildings = 0;
+        int vertices = 0;
+        byte[][] ids = new byte[n][];
+        int idByteCount = 0;
+        for (int i = 0; i < n; i++) {
+            indexById.put(nodes[i].id, i);
+            arcs += map.getGraph().get(nodes[i].id).size();
+            if (nodes[i].isBuilding()) {
+                buildings++;
+                vertices += nodes[i].shape.npoints;
+            }
+            ids[i] = nodes[i].id.getBytes(StandardCharsets.UTF_8);
+            idByteCount += ids[i].length;
+        }
+
+        // Сетка ячеек покрывает узлы и контуры зданий. Дорога и здание попадают во все ячейки своих границ
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int[][] bounds = new int[buildings][];
+        for (int i = 0, building = 0; i < n; i++) {
+            minX = Math.min(minX, nodes[i].position.x);
+            minY = Math.min(minY, nodes[i].position.y);
+            maxX = Math.max(maxX, nodes[i].position.x);
+            maxY = Math.max(maxY, nodes[i].position.y);
+            if (nodes[i].isBuilding()) {
+                bounds[building] = buildingBounds(nodes[i]);
+                minX = Math.min(minX, bounds[building][0]);
+                minY = Math.min(minY, bounds[building][1]);
+                maxX = Math.max(maxX, bounds[building][2]);
+                maxY = Math.max(maxY, bounds[building][3]);
+                building++;
+            }
+        }
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        int cellSize = CELL_SIZE;
+        while (cellCount(minX, maxX, cellSize) * cellCount(minY, maxY, cellSize) > Math.max(n, 1)) {
+            cellSize *= 2;
+        }
+        int columns = (int) cellCount(minX, maxX, cellSize);
+        int rows = (int) cellCount(minY, maxY, cellSize);
+        int cells = columns * rows;
+
+        long[] nodeEntries = new long[n];
+        for (int i = 0; i < n; i++) {
+            int cell = cellOf(nodes[i].position.y, minY, cellSize, rows) * columns + cellOf(nodes[i].position.x, minX, cellSize, columns);
+            nodeEntries[i] = (long) cell << 32 | i;
+        }
+        CellEntries roadEntries = new CellEntries(minX, minY, cellSize, columns, rows);
+        List<int[]> roads = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (String neighbor : map.getGraph().get(nodes[i].id).keySet()) {
+                int j = indexById.get(neighbor);
+                if (j < i) continue;
+                roadEntries.add(Math.min(nodes[i].position.x, nodes[j].position.x), Math.min(nodes[i].position.y, nodes[j].position.y),
+                        Math.max(nodes[i].position.x, nodes[j].position.x), Math.max(nodes[i].position.y, nodes[j].position.y), roads.size());
+                roads.add(new int[]{i, j});
+            }
+        }
+        CellEntries buildingEntries = new CellEntries(minX, minY, cellSize, columns, rows);
+        for (int i = 0; i < buildings; i++) {
+            buildingEntries.add(bounds[i][0], bounds[i][1], bounds[i][2], bounds[i][3], i);
+        }
+
+        if (fileSize(n, arcs, buildings, vertices, idByteCount, cells, roadEntries.size, buildingEntries.size) > Integer.MAX_VALUE) {
+            throw new IOException("Map is too large to be memory-mapped");
+        }
+
+        Sink sink = new Sink(out);
+        sink.putInt(MAGIC);
+        sink.putInt(VERSION);
+        sink.putLong(ContractionHierarchy.fingerprint(map));
+        sink.putInt(n);
+        sink.putInt(arcs);
+        sink.putInt(buildings);
+        sink.putInt(vertices);
+        sink.putInt(idByteCount);
+        sink.putInt(cellSize);
+        sink.putInt(minX);
+        sink.putInt(minY);
+        sink.putInt(columns);
+        sink.putInt(rows);
+        sink.putInt(roadEntries.size);
+        sink.putInt(buildingEntries.size);
+
+        // Каждая неориентированная дорога хранится как две дуги, как в CompactGraph
+        for (Node node : nodes) {
+            for (Edge edge : map.getGraph().get(node.id).values()) {
+                sink.putDouble(edge.length);
+            }
+        }
+        for (Node node : nodes) {
+            sink.putInt(node.position.x);
+        }
+        for (Node node : nodes) {
+            sink.putInt(node.position.y);
+        }
+        int arc = 0;
+        for (Node node : nodes) {
+            sink.putInt(arc);
+            arc += map.getGraph().get(node.id).size();
+        }
+        sink.putInt(arc);
+        for (Node node : nodes) {
+            for (String neighbor : map.getGraph().get(node.id).keySet()) {
+                sink.putInt(indexById.get(neighbor));
+            }
+        }
+        for (Node node : nodes) {
+            for (Edge edge : map.getGraph().get(node.id).values()) {
+                sink.putInt(edge.weight);
+            }
+        }
+
+        int building = 0;
+        for (Node node : nodes) {
+            sink.putInt(node.isBuilding() ? building++ : -1);
+        }
+        for (int i = 0; i < n; i++) {
+            if (nodes[i].isBuilding()) sink.putInt(i);
+        }
+        for (int[] box : bounds) {
+            for (int value : box) {
+                sink.putInt(value);
+            }
+        }
+        int vertex = 0;
+        for (Node node : nodes) {
+            if (!node.isBuilding()) continue;
+            sink.putInt(vertex);
+            vertex += node.shape.npoints;
+        }
+        sink.putInt(vertex);
+        for (Node node : nodes) {
+            if (!node.isBuilding()) continue;
+            for (int j = 0; j < node.shape.npoints; j++) {
+                sink.putInt(node.shape.xpoints[j]);
+            }
+        }
+        for (Node node : nodes) {
+            if (!node.isBuilding()) continue;
+            for (int j = 0; j < node.shape.npoints; j++) {
+                sink.putInt(node.shape.ypoints[j]);
+            }
+        }
+
+        Arrays.sort(nodeEntries);
+        putCellOffsets(sink, nodeEntries, n, cells);
+        for (long entry : nodeEntries) {
+            sink.putInt((int) entry);
+        }
+        long[] sortedRoads = roadEntries.sorted();
+        putCellOffsets(sink, sortedRoads, sortedRoads.length, cells);
+        for (long entry : sortedRoads) {
+            int[] road = roads.get((int) entry);
+            sink.putInt(road[0]);
+            sink.putInt(road[1]);
+        }
+        long[] sortedBuildings = buildingEntries.sorted();
+        putCellOffsets(sink, sortedBuildings, sortedBuildings.length, cells);
+        for (long entry : sortedBuildings) {
+            sink.putInt((int) entry);
+        }
+
+        int idOffset = 0;
+        for (byte[] id : ids) {
+            sink.putInt(idOffset);
+            idOffset += id.length;
+        }
+        sink.putInt(idOffset);
+        // Порядок идентификаторов по байтам UTF-8: indexOf ищет в нём двоичным поиском
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareBytes(ids[a], ids[b]));
+        for (Integer index : order) {
+            sink.putInt(index);
+        }
+        for (byte[] id : ids) {
+            sink.putBytes(id);
+        }
+        sink.flush();
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int arcCount() {
+        return arcCount;
+    }
+
+    @Override
+    public int indexOf(String id) {
+        if (id == null) return -1;
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int node = idOrder.get(mid);
+            int compare = compareId(node, key);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String id(int node) {
+        int start = idOffsets.get(node);
+        byte[] bytes = new byte[idOffsets.get(node + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = idBytes.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int x(int node) {
+        return xs.get(node);
+    }
+
+    @Override
+    public int y(int node) {
+        return ys.get(node);
+    }
+
+    @Override
+    public int firstArc(int node) {
+        return offsets.get(node);
+    }
+
+    @Override
+    public int endArc(int node) {
+        return offsets.get(node + 1);
+    }
+
+    @Override
+    public int target(int arc) {
+        return targets.get(arc);
+    }
+
+    @Override
+    public int weight(int arc) {
+        return weights.get(arc);
+    }
+
+    @Override
+    public double length(int arc) {
+        return lengths.get(arc);
+    }
+
+    // Номер здания узла или -1, если узел — перекрёсток
+    public int buildingOf(int node) {
+        return nodeBuildings.get(node);
+    }
+
+    public int buildingCount() {
+        return buildingCount;
+    }
+
+    // Узел здания; его координаты — точка подключения
+    public int buildingNode(int building) {
+        return buildingNodes.get(building);
+    }
+
+    public int buildingMinX(int building) {
+        return buildingBounds.get(4 * building);
+    }
+
+    public int buildingMinY(int building) {
+        return buildingBounds.get(4 * building + 1);
+    }
+
+    public int buildingMaxX(int building) {
+        return buildingBounds.get(4 * building + 2);
+    }
+
+    public int buildingMaxY(int building) {
+        return buildingBounds.get(4 * building + 3);
+    }
+
+    // Вершины контура здания — номера с firstVertex по endVertex - 1
+    public int firstVertex(int building) {
+        return vertexOffsets.get(building);
+    }
+
+    public int endVertex(int building) {
+        return vertexOffsets.get(building + 1);
+    }
+
+    public int vertexX(int vertex) {
+        return vertexXs.get(vertex);
+    }
+
+    public int vertexY(int vertex) {
+        return vertexYs.get(vertex);
+    }
+
+    // Таблица ячеек: квадратная сетка со стороной cellSize от (originX, originY). Координата за пределами
+    // сетки относится к крайней ячейке, поэтому найденные по ячейкам объекты нужно ещё проверить по границам
+    public int cellColumn(double x) {
+        return cellOf(x, originX, cellSize, columns);
+    }
+
+    public int cellRow(double y) {
+        return cellOf(y, originY, cellSize, rows);
+    }
+
+    public int cell(int column, int row) {
+        return row * columns + column;
+    }
+
+    // Узлы ячейки (здания и перекрёстки) — cellNode(i) для i с firstCellNode по endCellNode - 1
+    public int firstCellNode(int cell) {
+        return cellNodeOffsets.get(cell);
+    }
+
+    public int endCellNode(int cell) {
+        return cellNodeOffsets.get(cell + 1);
+    }
+
+    public int cellNode(int entry) {
+        return cellNodes.get(entry);
+    }
+
+    // Дороги, границы которых задевают ячейку; дорога задана двумя узлами, первый с меньшим номером
+    public int firstCellRoad(int cell) {
+        return cellRoadOffsets.get(cell);
+    }
+
+    public int endCellRoad(int cell) {
+        return cellRoadOffsets.get(cell + 1);
+    }
+
+    public int cellRoadFrom(int entry) {
+        return cellRoads.get(2 * entry);
+    }
+
+    public int cellRoadTo(int entry) {
+        return cellRoads.get(2 * entry + 1);
+    }
+
+    // Здания, границы которых (buildingMinX и т. д.) задевают ячейку
+    public int firstCellBuilding(int cell) {
+        return cellBuildingOffsets.get(cell);
+    }
+
+    public int endCellBuilding(int cell) {
+        return cellBuildingOffsets.get(cell + 1);
+    }
+
+    public int cellBuilding(int entry) {
+        return cellBuildings.get(entry);
+    }
+
+    // Подпись здания (имя без "B_"); строки создаются при первой отрисовке и запоминаются
+    public String label(int building) {
+        String[] cached = labels;
+        if (cached == null) {
+            cached = new String[buildingCount];
+            labels = cached;
+        }
+        if (cached[building] == null) {
+            cached[building] = id(buildingNode(building)).substring(2);
+        }
+        return cached[building];
+    }
+
+    public Set<String> getBuildings() {
+        Set<String> buildings = new HashSet<>();
+        for (int building = 0; building < buildingCount; building++) {
+            buildings.add(id(buildingNode(building)));
+        }
+        return buildings;
+    }
+
+    public void setContractionHierarchy(ContractionHierarchy hierarchy) {
+        if (hierarchy != null && hierarchy.getFingerprint() != fingerprint) {
+            throw new IllegalArgumentException("Contraction hierarchy was built for a different map");
+        }
+        this.hierarchy = hierarchy;
+    }
+
+    public ContractionHierarchy getContractionHierarchy() {
+        return hierarchy;
+    }
+
+    // Таблица расстояний между зданиями для поиска по рангам: строится при первом запросе между зданиями
+    // (в потоке этого запроса) и дальше не сбрасывается — карта не меняется
+    public void setBuildingTableEnabled(boolean enabled) {
+        buildingTableEnabled = enabled;
+    }
+
+    public boolean isBuildingTableEnabled() {
+        return buildingTableEnabled;
+    }
+
+    public void setRouteCacheCapacity(int capacity) {
+        routeCache = capacity > 0 ? new RouteCache(capacity) : null;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    public List<String> findShortestPath(String start, String end, RoutingMode mode) {
+        return findRoute(start, end, mode).getNodeIds();
+    }
+
+    // Маршрут с координатами, длинами участков и поворотами; RoutePath.EMPTY, если пути нет
+    public RoutePath findRoute(String start, String end, RoutingMode mode) {
+        if (start == null || end == null) {
+            return RoutePath.EMPTY;
+        }
+        // Карта не меняется, поэтому версия для кэша маршрутов постоянна
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            RoutePath cached = cache.get(0, start, end, mode);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        RoutePath route = route(start, end, mode);
+        if (cache != null) {
+            cache.put(0, start, end, mode, route);
+        }
+        return route;
+    }
+
+    // null, если зданий больше BuildingDistanceTable.MAX_BUILDINGS; отказ тоже запоминается
+    private BuildingDistanceTable buildingTable() {
+        BuildingDistanceTable result = buildingTable;
+        if (result == null && !buildingTableTooLarge) {
+            synchronized (this) {
+                result = buildingTable;
+                if (result == null && !buildingTableTooLarge) {
+                    if (buildingCount > BuildingDistanceTable.MAX_BUILDINGS) {
+                        buildingTableTooLarge = true;
+                    } else {
+                        result = BuildingDistanceTable.build(this, getBuildings(), ForkJoinPool.commonPool());
+                        buildingTable = result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Рабочие массивы маршрутизатора выделяются при первом запросе в каждом потоке, а не при открытии карты;
+    // сама карта только читается, поэтому запросы из разных потоков идут параллельно
+    private RoutePath route(String start, String end, RoutingMode mode) {
+        if (mode == RoutingMode.RANK) {
+            if (buildingTableEnabled && isBuilding(start) && isBuilding(end)) {
+                BuildingDistanceTable table = buildingTable();
+                if (table != null) {
+                    return table.findRoute(start, end);
+                }
+            }
+            if (hierarchy != null) {
+                return hierarchy.findRoute(start, end, this);
+            }
+        }
+        return routers.get().findRoute(start, end, mode);
+    }
+
+    private boolean isBuilding(String id) {
+        int node = indexOf(id);
+        return node >= 0 && buildingOf(node) >= 0;
+    }
+
+    private int compareId(int node, byte[] key) {
+        int start = idOffsets.get(node);
+        int length = idOffsets.get(node + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int compare = (idBytes.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if (compare != 0) return compare;
+        }
+        return length - key.length;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int compare = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (compare != 0) return compare;
+        }
+        return a.length - b.length;
+    }
+
+    private static long fileSize(long nodes, long arcs, long buildings, long vertices, long idBytes,
+                                 long cells, long roadEntries, long buildingEntries) {
+        return HEADER_SIZE + 8 * arcs + 4 * (nodes + nodes + nodes + 1 + arcs + arcs + nodes
+                + buildings + 4 * buildings + buildings + 1 + vertices + vertices
+                + cells + 1 + nodes + cells + 1 + 2 * roadEntries + cells + 1 + buildingEntries
+                + nodes + 1 + nodes) + idBytes;
+    }
+
+    // Границы контура вместе с точкой подключения: по ним отсекаются невидимые здания
+    private static int[] buildingBounds(Node node) {
+        Polygon shape = node.shape;
+        Point connection = node.position;
+        int minX = connection.x, minY = connection.y, maxX = connection.x, maxY = connection.y;
+        for (int j = 0; j < shape.npoints; j++) {
+            minX = Math.min(minX, shape.xpoints[j]);
+            minY = Math.min(minY, shape.ypoints[j]);
+            maxX = Math.max(maxX, shape.xpoints[j]);
+            maxY = Math.max(maxY, shape.ypoints[j]);
+        }
+        return new int[]{minX, minY, maxX, maxY};
+    }
+
+    private static long cellCount(int min, int max, int cellSize) {
+        return ((long) max - min) / cellSize + 1;
+    }
+
+    private static int cellOf(double coordinate, int origin, int cellSize, int count) {
+        double cell = Math.floor((coordinate - origin) / cellSize);
+        return (int) Math.max(0, Math.min(count - 1, cell));
+    }
+
+    // Смещения списков по ячейкам для записей, отсортированных по номеру ячейки в старших 32 битах
+    private static void putCellOffsets(Sink sink, long[] entries, int count, int cells) throws IOException {
+        int entry = 0;
+        for (int cell = 0; cell <= cells; cell++) {
+            while (entry < count && (int) (entries[entry] >>> 32) < cell) entry++;
+            sink.putInt(entry);
+        }
+    }
+
+    // Записи (ячейка, номер объекта) для объектов с границами: объект попадает во все ячейки своих границ
+    private static final class CellEntries {
+        private final int originX;
+        private final int originY;
+        private final int cellSize;
+        private final int columns;
+        private final int rows;
+        private long[] entries = new long[64];
+        int size;
+
+        CellEntries(int originX, int originY, int cellSize, int columns, int rows) {
+            this.originX = originX;
+            this.originY = originY;
+            this.cellSize = cellSize;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        void add(int minX, int minY, int maxX, int maxY, int item) {
+            for (int row = cellOf(minY, originY, cellSize, rows); row <= cellOf(maxY, originY, cellSize, rows); row++) {
+                for (int column = cellOf(minX, originX, cellSize, columns); column <= cellOf(maxX, originX, cellSize, columns); column++) {
+                    if (size == entries.length) entries = Arrays.copyOf(entries, 2 * size);
+                    entries[size++] = (long) (row * columns + column) << 32 | item;
+                }
+            }
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(entries, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    // Приведение к Buffer — чтобы собранный на новом JDK код не требовал ByteBuffer.position(int) из Java 9
+    private static ByteBuffer slice(ByteBuffer buffer, int position, long length) {
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer) view).position(position);
+        ((Buffer) view).limit((int) (position + length));
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static IntBuffer ints(ByteBuffer buffer, int position, int count) {
+        return slice(buffer, position, 4L * count).asIntBuffer();
+    }
+
+    // Запись little-endian через собственный буфер: DataOutputStream пишет только big-endian
+    private static final class Sink {
+        private final OutputStream out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Sink(OutputStream out) {
+            this.out = out;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                ensure(1);
+                buffer.put(b);
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            out.write(buffer.array(), 0, buffer.position());
+            ((Buffer) buffer).clear();
+        }
+    }
+}
@@ -5,10 +5,14 @@ import java.awt.Polygon;
 import java.io.Serializable;
 
 public class Node implements Serializable {
+    // Значение, которое JVM вычисляла для исходного класса: старые файлы .map должны читаться
+    private static final long serialVersionUID = 2879872649458662040L;
+
     String id;
     Point position;
     Polygon shape;
     Point connectionPoint;
+    private transient String label;
 
     public Node(String id, Point position, Polygon shape, Point connectionPoint) {
         this.id = id;
@@ -36,4 +40,12 @@ public class Node implements Serializable {
     public Point getConnectionPoint() {
         return connectionPoint;
     }
-}
\ No newline at end of file
+
+    // Подпись здания на карте — имя без префикса "B_"; запоминается, чтобы не создавать строку на каждый кадр
+    public String getLabel() {
+        if (label == null) {
+            label = id.substring(2);
+        }
+        return label;
+    }
+}
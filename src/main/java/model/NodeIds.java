@@ -0,0 +1,47 @@
+package model;
+
+import java.util.UUID;
+
+// Идентификаторы узлов карты: здания — "B_" + имя, перекрёстки — "J_" + номер, который карта выдаёт
+// по возрастанию. Перекрёстки старых карт назывались J_<UUID>; такие идентификаторы ещё встречаются
+// в файлах и переименовываются при чтении (CampusMap.compactJunctionIds).
+public final class NodeIds {
+    public static final String BUILDING_PREFIX = "B_";
+    public static final String JUNCTION_PREFIX = "J_";
+
+    private NodeIds() {
+    }
+
+    public static String building(String name) {
+        return BUILDING_PREFIX + name;
+    }
+
+    public static String junction(int number) {
+        return JUNCTION_PREFIX + number;
+    }
+
+    // Номер перекрёстка, если id в точности равен junction(номер), иначе -1
+    public static int junctionNumber(String id) {
+        int length = id.length();
+        if (length < 3 || length > 12 || !id.startsWith(JUNCTION_PREFIX) || id.charAt(2) == '0') {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 2; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            number = number * 10 + (c - '0');
+        }
+        return number <= Integer.MAX_VALUE ? (int) number : -1;
+    }
+
+    // Идентификатор перекрёстка старого вида J_<UUID>, который восстанавливается из UUID в точности
+    public static boolean isUuidJunction(String id) {
+        if (id.length() != 38 || !id.startsWith(JUNCTION_PREFIX)) return false;
+        try {
+            return UUID.fromString(id.substring(2)).toString().equals(id.substring(2));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+// Неизменяемая хеш-таблица со структурным разделением (HAMT: префиксное дерево по 5 бит хеша).
+// plus и minus возвращают новую таблицу и копируют только путь от корня до изменённого листа,
+// остальное дерево общее со старой версией. Поэтому старые версии можно читать из других потоков
+// без блокировок, пока владелец создаёт новые. Методы Map, меняющие таблицу, не поддерживаются.
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Object root;
+    private final int size;
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Leaf<K, V> leaf = find(key);
+        return leaf == null ? null : leaf.value;
+    }
+
+    PersistentMap<K, V> plus(K key, V value) {
+        boolean[] added = new boolean[1];
+        Object updated = put(root, 0, hash(key), key, value, added);
+        return updated == root ? this : new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    PersistentMap<K, V> minus(Object key) {
+        Object updated = remove(root, 0, hash(key), key);
+        if (updated == root) return this;
+        return updated == null ? empty() : new PersistentMap<>(updated, size - 1);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new LeafIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Leaf<K, V> find(Object key) {
+        int hash = hash(key);
+        Object node = root;
+        for (int shift = 0; node != null; shift += 5) {
+            if (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int bit = 1 << ((hash >>> shift) & 31);
+                if ((branch.bitmap & bit) == 0) return null;
+                node = branch.children[Integer.bitCount(branch.bitmap & (bit - 1))];
+            } else if (node instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) node;
+                return leaf.hash == hash && Objects.equals(leaf.key, key) ? leaf : null;
+            } else {
+                Collision collision = (Collision) node;
+                if (collision.hash != hash) return null;
+                for (Leaf<?, ?> leaf : collision.leaves) {
+                    if (Objects.equals(leaf.key, key)) return (Leaf<K, V>) leaf;
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Object put(Object node, int shift, int hash, Object key, Object value, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return new Leaf<>(hash, key, value);
+        }
+        if (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int bit = 1 << ((hash >>> shift) & 31);
+            int index = Integer.bitCount(branch.bitmap & (bit - 1));
+            if ((branch.bitmap & bit) == 0) {
+                added[0] = true;
+                return branch.insert(bit, index, new Leaf<>(hash, key, value));
+            }
+            Object child = branch.children[index];
+            Object updated = put(child, shift + 5, hash, key, value, added);
+            return updated == child ? branch : branch.replace(index, updated);
+        }
+        if (node instanceof Leaf) {
+            Leaf<?, ?> leaf = (Leaf<?, ?>) node;
+            if (leaf.hash == hash && Objects.equals(leaf.key, key)) {
+                return leaf.value == value ? leaf : new Leaf<>(hash, key, value);
+            }
+            added[0] = true;
+            Leaf<?, ?> created = new Leaf<>(hash, key, value);
+            if (leaf.hash == hash) {
+                return new Collision(hash, new Leaf<?, ?>[]{leaf, created});
+            }
+            return split(leaf, leaf.hash, created, shift);
+        }
+        Collision collision = (Collision) node;
+        if (collision.hash != hash) {
+            added[0] = true;
+            return split(collision, collision.hash, new Leaf<>(hash, key, value), shift);
+        }
+        Leaf<?, ?>[] leaves = collision.leaves;
+        for (int i = 0; i < leaves.length; i++) {
+            if (Objects.equals(leaves[i].key, key)) {
+                if (leaves[i].value == value) return collision;
+                Leaf<?, ?>[] copy = leaves.clone();
+                copy[i] = new Leaf<>(hash, key, value);
+                return new Collision(hash, copy);
+            }
+        }
+        added[0] = true;
+        Leaf<?, ?>[] copy = Arrays.copyOf(leaves, leaves.length + 1);
+        copy[leaves.length] = new Leaf<>(hash, key, value);
+        return new Collision(hash, copy);
+    }
+
+    // Два узла с разными хешами в одной ячейке: ветвление до первых 5 бит, в которых хеши различаются
+    private static Object split(Object existing, int existingHash, Leaf<?, ?> created, int shift) {
+        int existingSlot = (existingHash >>> shift) & 31;
+        int createdSlot = (created.hash >>> shift) & 31;
+        if (existingSlot == createdSlot) {
+            return new Branch(1 << existingSlot, new Object[]{split(existing, existingHash, created, shift + 5)});
+        }
+        Object[] children = existingSlot < createdSlot
+                ? new Object[]{existing, created} : new Object[]{created, existing};
+        return new Branch((1 << existingSlot) | (1 << createdSlot), children);
+    }
+
+    private static Object remove(Object node, int shift, int hash, Object key) {
+        if (node == null) return null;
+        if (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((branch.bitmap & bit) == 0) return branch;
+            int index = Integer.bitCount(branch.bitmap & (bit - 1));
+            Object child = branch.children[index];
+            Object updated = remove(child, shift + 5, hash, key);
+            if (updated == child) return branch;
+            if (updated == null) {
+                if (branch.children.length == 1) return null;
+                Branch smaller = branch.delete(bit, index);
+                // Единственный оставшийся лист поднимается выше: поиск всё равно найдёт его по хешу
+                return smaller.children.length == 1 && !(smaller.children[0] instanceof Branch) ? smaller.children[0] : smaller;
+            }
+            if (branch.children.length == 1 && !(updated instanceof Branch)) return updated;
+            return branch.replace(index, updated);
+        }
+        if (node instanceof Leaf) {
+            Leaf<?, ?> leaf = (Leaf<?, ?>) node;
+            return leaf.hash == hash && Objects.equals(leaf.key, key) ? null : leaf;
+        }
+        Collision collision = (Collision) node;
+        if (collision.hash != hash) return collision;
+        Leaf<?, ?>[] leaves = collision.leaves;
+        for (int i = 0; i < leaves.length; i++) {
+            if (Objects.equals(leaves[i].key, key)) {
+                if (leaves.length == 2) return leaves[1 - i];
+                Leaf<?, ?>[] copy = new Leaf<?, ?>[leaves.length - 1];
+                System.arraycopy(leaves, 0, copy, 0, i);
+                System.arraycopy(leaves, i + 1, copy, i, leaves.length - i - 1);
+                return new Collision(hash, copy);
+            }
+        }
+        return collision;
+    }
+
+    private static final class Branch {
+        final int bitmap;
+        final Object[] children;
+
+        Branch(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        Branch insert(int bit, int index, Object child) {
+            Object[] copy = new Object[children.length + 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            copy[index] = child;
+            System.arraycopy(children, index, copy, index + 1, children.length - index);
+            return new Branch(bitmap | bit, copy);
+        }
+
+        Branch replace(int index, Object child) {
+            Object[] copy = children.clone();
+            copy[index] = child;
+            return new Branch(bitmap, copy);
+        }
+
+        Branch delete(int bit, int index) {
+            Object[] copy = new Object[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            System.arraycopy(children, index + 1, copy, index, children.length - index - 1);
+            return new Branch(bitmap & ~bit, copy);
+        }
+    }
+
+    // Ключи с одинаковым полным хешем
+    private static final class Collision {
+        final int hash;
+        final Leaf<?, ?>[] leaves;
+
+        Collision(int hash, Leaf<?, ?>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private static final class Leaf<K, V> implements Entry<K, V> {
+        final int hash;
+        final K key;
+        final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // Обход в глубину; глубина дерева не больше 7 уровней ветвления
+    private static final class LeafIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Object[][] stack = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Object[] collision;
+        private int collisionPosition;
+        private Leaf<K, V> next;
+
+        LeafIterator(Object root) {
+            if (root != null) {
+                stack[0] = new Object[]{root};
+                depth = 0;
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) throw new NoSuchElementException();
+            Leaf<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            if (collision != null) {
+                if (collisionPosition < collision.length) {
+                    next = (Leaf<K, V>) collision[collisionPosition++];
+                    return;
+                }
+                collision = null;
+            }
+            while (depth >= 0) {
+                Object[] level = stack[depth];
+                if (positions[depth] == level.length) {
+                    positions[depth] = 0;
+                    depth--;
+                    continue;
+                }
+                Object node = level[positions[depth]++];
+                if (node instanceof Branch) {
+                    stack[++depth] = ((Branch) node).children;
+                } else if (node instanceof Leaf) {
+                    next = (Leaf<K, V>) node;
+                    return;
+                } else {
+                    collision = ((Collision) node).leaves;
+                    collisionPosition = 1;
+                    next = (Leaf<K, V>) collision[0];
+                    return;
+                }
+            }
+            next = null;
+        }
+    }
+}
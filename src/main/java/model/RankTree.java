@@ -0,0 +1,150 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Неизменяемое декартово дерево (treap) рёбер в порядке рангов: по длине, при равной длине — по
+// порядку добавления (Edge.sequence), как в списке CampusMap.edges. Размеры поддеревьев дают ранг
+// ребра за O(log n), поэтому вес ребра в снимке не хранится в самом Edge, который перенумеровывается
+// при правках. plus и minus копируют только путь от корня, остальное дерево общее с прежней версией.
+final class RankTree {
+    static final RankTree EMPTY = new RankTree(null);
+
+    private final Entry root;
+
+    private RankTree(Entry root) {
+        this.root = root;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    RankTree plus(Edge edge) {
+        return new RankTree(insert(root, edge, priority(edge)));
+    }
+
+    // Ребра нет в дереве — возвращается это же дерево
+    RankTree minus(Edge edge) {
+        Entry updated = delete(root, edge);
+        return updated == root ? this : new RankTree(updated);
+    }
+
+    // Ранг ребра (число рёбер перед ним) или -1, если ребра в дереве нет
+    int rank(Edge edge) {
+        int rank = 0;
+        Entry entry = root;
+        while (entry != null) {
+            int compare = compare(edge, entry.edge);
+            if (compare < 0) {
+                entry = entry.left;
+            } else if (compare > 0) {
+                rank += size(entry.left) + 1;
+                entry = entry.right;
+            } else {
+                return entry.edge == edge ? rank + size(entry.left) : -1;
+            }
+        }
+        return -1;
+    }
+
+    List<Edge> toList() {
+        List<Edge> edges = new ArrayList<>(size());
+        collect(root, edges);
+        return edges;
+    }
+
+    private static void collect(Entry entry, List<Edge> edges) {
+        while (entry != null) {
+            collect(entry.left, edges);
+            edges.add(entry.edge);
+            entry = entry.right;
+        }
+    }
+
+    static int compare(Edge a, Edge b) {
+        int compare = Double.compare(a.length, b.length);
+        return compare != 0 ? compare : Long.compare(a.sequence, b.sequence);
+    }
+
+    // Приоритет — перемешанный номер ребра: дерево сбалансировано в среднем и не зависит от порядка вставки
+    private static int priority(Edge edge) {
+        long h = edge.sequence * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int size(Entry entry) {
+        return entry == null ? 0 : entry.size;
+    }
+
+    private static Entry insert(Entry entry, Edge edge, int priority) {
+        if (entry == null) {
+            return new Entry(edge, priority, null, null);
+        }
+        if (priority > entry.priority) {
+            Entry[] parts = new Entry[2];
+            split(entry, edge, parts);
+            return new Entry(edge, priority, parts[0], parts[1]);
+        }
+        if (compare(edge, entry.edge) < 0) {
+            return new Entry(entry.edge, entry.priority, insert(entry.left, edge, priority), entry.right);
+        }
+        return new Entry(entry.edge, entry.priority, entry.left, insert(entry.right, edge, priority));
+    }
+
+    // parts[0] — рёбра меньше edge, parts[1] — остальные
+    private static void split(Entry entry, Edge edge, Entry[] parts) {
+        if (entry == null) {
+            parts[0] = null;
+            parts[1] = null;
+        } else if (compare(entry.edge, edge) < 0) {
+            split(entry.right, edge, parts);
+            parts[0] = new Entry(entry.edge, entry.priority, entry.left, parts[0]);
+        } else {
+            split(entry.left, edge, parts);
+            parts[1] = new Entry(entry.edge, entry.priority, parts[1], entry.right);
+        }
+    }
+
+    private static Entry delete(Entry entry, Edge edge) {
+        if (entry == null) return null;
+        int compare = compare(edge, entry.edge);
+        if (compare < 0) {
+            Entry left = delete(entry.left, edge);
+            return left == entry.left ? entry : new Entry(entry.edge, entry.priority, left, entry.right);
+        }
+        if (compare > 0) {
+            Entry right = delete(entry.right, edge);
+            return right == entry.right ? entry : new Entry(entry.edge, entry.priority, entry.left, right);
+        }
+        return entry.edge == edge ? merge(entry.left, entry.right) : entry;
+    }
+
+    // Все рёбра left меньше всех рёбер right
+    private static Entry merge(Entry left, Entry right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            return new Entry(left.edge, left.priority, left.left, merge(left.right, right));
+        }
+        return new Entry(right.edge, right.priority, merge(left, right.left), right.right);
+    }
+
+    private static final class Entry {
+        final Edge edge;
+        final int priority;
+        final Entry left;
+        final Entry right;
+        final int size;
+
+        Entry(Edge edge, int priority, Entry left, Entry right) {
+            this.edge = edge;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+}
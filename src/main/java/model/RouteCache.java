@@ -0,0 +1,96 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Кэш маршрутов с вытеснением давно не использованных (LRU). Каждая запись привязана к версии карты:
+// при запросе с другой версией кэш очищается, поэтому устаревший маршрут никогда не возвращается.
+public final class RouteCache {
+    private final int capacity;
+    private final LinkedHashMap<RouteKey, RoutePath> routes;
+    private long version = -1;
+    private long hits;
+    private long misses;
+
+    public RouteCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Route cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.routes = new LinkedHashMap<RouteKey, RoutePath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, RoutePath> eldest) {
+                return size() > RouteCache.this.capacity;
+            }
+        };
+    }
+
+    public synchronized RoutePath get(long mapVersion, String start, String end, RoutingMode mode) {
+        if (mapVersion != version) {
+            routes.clear();
+            version = mapVersion;
+        }
+        RoutePath path = routes.get(new RouteKey(start, end, mode));
+        if (path == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return path;
+    }
+
+    public synchronized void put(long mapVersion, String start, String end, RoutingMode mode, RoutePath path) {
+        if (mapVersion != version) {
+            routes.clear();
+            version = mapVersion;
+        }
+        routes.put(new RouteKey(start, end, mode), path);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        routes.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    private static final class RouteKey {
+        final String start;
+        final String end;
+        final RoutingMode mode;
+
+        RouteKey(String start, String end, RoutingMode mode) {
+            this.start = start;
+            this.end = end;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RouteKey)) return false;
+            RouteKey other = (RouteKey) o;
+            return start.equals(other.start) && end.equals(other.end) && mode == other.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return (start.hashCode() * 31 + end.hashCode()) * 31 + mode.hashCode();
+        }
+    }
+}
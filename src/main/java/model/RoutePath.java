@@ -0,0 +1,195 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Найденный маршрут вместе с геометрией: координаты узлов, длины участков (Edge.length), пройденное
+// расстояние до каждого узла и углы поворота на перекрёстках — в массивах примитивов. Заполняется роутером
+// при восстановлении пути, поэтому панели и клиентам сервера не нужно искать узлы в карте. Неизменяем.
+public final class RoutePath {
+    public static final RoutePath EMPTY = new Builder(0).build();
+
+    private final String[] ids;
+    private final int[] xs;
+    private final int[] ys;
+    // segmentLengths[i] — длина участка от узла i до узла i + 1
+    private final double[] segmentLengths;
+    // distances[i] — расстояние от начала маршрута до узла i
+    private final double[] distances;
+    // turns[i] — угол поворота в узле i в градусах: положительный — направо (на экране, ось y вниз),
+    // отрицательный — налево; в начале и в конце маршрута 0
+    private final double[] turns;
+    private final List<String> nodeIds;
+
+    private RoutePath(String[] ids, int[] xs, int[] ys, double[] segmentLengths, double[] distances, double[] turns) {
+        this.ids = ids;
+        this.xs = xs;
+        this.ys = ys;
+        this.segmentLengths = segmentLengths;
+        this.distances = distances;
+        this.turns = turns;
+        this.nodeIds = new NodeIds();
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public String id(int i) {
+        return ids[i];
+    }
+
+    public int x(int i) {
+        return xs[i];
+    }
+
+    public int y(int i) {
+        return ys[i];
+    }
+
+    public int segmentCount() {
+        return segmentLengths.length;
+    }
+
+    public double segmentLength(int i) {
+        return segmentLengths[i];
+    }
+
+    public double distance(int i) {
+        return distances[i];
+    }
+
+    public double turnAngle(int i) {
+        return turns[i];
+    }
+
+    // Сумма Edge.length по маршруту независимо от режима поиска
+    public double getLength() {
+        return ids.length == 0 ? 0 : distances[ids.length - 1];
+    }
+
+    // Идентификаторы узлов, как у findShortestPath; список неизменяем и один на маршрут
+    public List<String> getNodeIds() {
+        return nodeIds;
+    }
+
+    private final class NodeIds extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return ids[index];
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    // Маршрут собирается по одному узлу от начала к концу; поворот в узле считается, как только
+    // добавлен следующий за ним
+    static final class Builder {
+        private String[] ids;
+        private int[] xs;
+        private int[] ys;
+        private double[] segmentLengths;
+        private double[] distances;
+        private double[] turns;
+        private int size;
+        private RoutingGraph lastGraph;
+        private int lastNode = -1;
+
+        Builder(int capacity) {
+            ids = new String[capacity];
+            xs = new int[capacity];
+            ys = new int[capacity];
+            segmentLengths = new double[Math.max(0, capacity - 1)];
+            distances = new double[capacity];
+            turns = new double[capacity];
+        }
+
+        // segmentLength — длина дороги от предыдущего узла; для первого узла не используется
+        Builder add(String id, int x, int y, double segmentLength) {
+            if (size == ids.length) grow();
+            ids[size] = id;
+            xs[size] = x;
+            ys[size] = y;
+            if (size > 0) {
+                segmentLengths[size - 1] = segmentLength;
+                distances[size] = distances[size - 1] + segmentLength;
+            }
+            if (size > 1) {
+                turns[size - 1] = turn(size - 2, size - 1, size);
+            }
+            size++;
+            lastGraph = null;
+            lastNode = -1;
+            return this;
+        }
+
+        // Узел графа, в который пришли по дуге arc (-1 для первого узла)
+        Builder add(RoutingGraph graph, int node, int arc) {
+            add(graph.id(node), graph.x(node), graph.y(node), arc < 0 ? 0 : graph.length(arc));
+            lastGraph = graph;
+            lastNode = node;
+            return this;
+        }
+
+        // Узел графа, соседний с предыдущим добавленным узлом того же графа: дуга ищется среди O(степени) дуг
+        Builder add(RoutingGraph graph, int node) {
+            int arc = -1;
+            if (lastGraph == graph && lastNode >= 0) {
+                for (int a = graph.firstArc(lastNode), end = graph.endArc(lastNode); a < end; a++) {
+                    if (graph.target(a) == node && (arc < 0 || graph.length(a) < graph.length(arc))) {
+                        arc = a;
+                    }
+                }
+                if (arc < 0) {
+                    throw new IllegalArgumentException("No road between " + graph.id(lastNode) + " and " + graph.id(node));
+                }
+            }
+            return add(graph, node, arc);
+        }
+
+        RoutePath build() {
+            if (size != ids.length) {
+                ids = Arrays.copyOf(ids, size);
+                xs = Arrays.copyOf(xs, size);
+                ys = Arrays.copyOf(ys, size);
+                distances = Arrays.copyOf(distances, size);
+                turns = Arrays.copyOf(turns, size);
+            }
+            int segments = Math.max(0, size - 1);
+            if (segments != segmentLengths.length) {
+                segmentLengths = Arrays.copyOf(segmentLengths, segments);
+            }
+            return new RoutePath(ids, xs, ys, segmentLengths, distances, turns);
+        }
+
+        private double turn(int before, int at, int after) {
+            double inX = xs[at] - xs[before];
+            double inY = ys[at] - ys[before];
+            double outX = xs[after] - xs[at];
+            double outY = ys[after] - ys[at];
+            if ((inX == 0 && inY == 0) || (outX == 0 && outY == 0)) {
+                return 0;
+            }
+            return Math.toDegrees(Math.atan2(inX * outY - inY * outX, inX * outX + inY * outY));
+        }
+
+        private void grow() {
+            int capacity = Math.max(4, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            segmentLengths = Arrays.copyOf(segmentLengths, capacity - 1);
+            distances = Arrays.copyOf(distances, capacity);
+            turns = Arrays.copyOf(turns, capacity);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package model;
+
+// Граф для маршрутизатора CompactRouter: узлы и дуги пронумерованы, дуги узла идут подряд (CSR).
+// Реализации — CompactGraph в памяти и MappedMap поверх отображённого в память файла
+public interface RoutingGraph {
+    int nodeCount();
+
+    int arcCount();
+
+    // Номер узла или -1, если такого идентификатора нет
+    int indexOf(String id);
+
+    String id(int node);
+
+    int x(int node);
+
+    int y(int node);
+
+    int firstArc(int node);
+
+    int endArc(int node);
+
+    int target(int arc);
+
+    int weight(int arc);
+
+    double length(int arc);
+}
@@ -0,0 +1,8 @@
+package model;
+
+public enum RoutingMode {
+    // Дейкстра по рангам рёбер (Edge.weight) — исходный режим
+    RANK,
+    // A* по реальным длинам дорог с эвристикой прямого расстояния
+    DISTANCE
+}
@@ -0,0 +1,177 @@
+package model;
+
+import java.util.*;
+
+// Дерево кратчайших путей по длине дорог (RoutingMode.DISTANCE) от одного узла, которое после правки карты
+// исправляется, а не строится заново (по Ramalingam–Reps). Новая дорога может только сократить расстояния:
+// они распространяются от её концов, пока уменьшаются. Удалённая дорога дерева отрезает поддерево: его узлы
+// получают расстояние через соседей вне поддерева, и дальше Дейкстра идёт только по нему. Удаление дороги
+// вне дерева расстояний не меняет. По рангам (RoutingMode.RANK) так не получится: новая дорога сдвигает
+// ранги всех более длинных, и меняются веса почти всех путей.
+final class ShortestPathTree {
+    private final String source;
+    private final Map<String, Double> distances = new HashMap<>();
+    // Предыдущий узел на кратчайшем пути; дети узла — соседи, у которых он записан родителем
+    private final Map<String, String> parents = new HashMap<>();
+    // Сколько раз последнее построение или исправление уточняло расстояние узла
+    private int lastUpdates;
+
+    ShortestPathTree(String source, Map<String, ? extends Map<String, Edge>> graph) {
+        this.source = source;
+        distances.put(source, 0.0);
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        queue.add(new Entry(source, 0));
+        lastUpdates = 1 + propagate(graph, queue);
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    int getLastUpdates() {
+        return lastUpdates;
+    }
+
+    // Расстояние до узла или бесконечность, если он недостижим
+    double distance(String nodeId) {
+        Double distance = distances.get(nodeId);
+        return distance != null ? distance : Double.POSITIVE_INFINITY;
+    }
+
+    // Граф уже содержит новую дорогу
+    void edgeAdded(Map<String, ? extends Map<String, Edge>> graph, Edge edge) {
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        int updates = relax(edge.from, edge.to, edge.length, queue) + relax(edge.to, edge.from, edge.length, queue);
+        lastUpdates = updates + propagate(graph, queue);
+    }
+
+    // Граф уже без этих дорог (и, возможно, без их узлов). false, если удалён сам начальный узел
+    boolean edgesRemoved(Map<String, ? extends Map<String, Edge>> graph, Collection<Edge> removed) {
+        lastUpdates = 0;
+        if (!graph.containsKey(source)) {
+            return false;
+        }
+        Deque<String> stack = new ArrayDeque<>();
+        for (Edge edge : removed) {
+            if (edge.from.equals(parents.get(edge.to))) {
+                stack.push(edge.to);
+            } else if (edge.to.equals(parents.get(edge.from))) {
+                stack.push(edge.from);
+            }
+        }
+        if (stack.isEmpty()) {
+            return true;
+        }
+
+        // Отрезанные поддеревья: путь к любому их узлу проходил через одну из удалённых дорог дерева,
+        // а ниже неё — по оставшимся дорогам, поэтому обход детей от отрезанных корней находит их все
+        Set<String> affected = new HashSet<>();
+        while (!stack.isEmpty()) {
+            String node = stack.pop();
+            if (!affected.add(node)) continue;
+            Map<String, Edge> neighbors = graph.get(node);
+            if (neighbors == null) continue;
+            for (String next : neighbors.keySet()) {
+                if (node.equals(parents.get(next)) && !affected.contains(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        for (String node : affected) {
+            distances.remove(node);
+            parents.remove(node);
+        }
+
+        // Лучшая дорога в поддерево от узлов вне него, затем Дейкстра внутри поддерева
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        for (String node : affected) {
+            Map<String, Edge> neighbors = graph.get(node);
+            if (neighbors == null) continue;
+            String parent = null;
+            double best = Double.POSITIVE_INFINITY;
+            for (Map.Entry<String, Edge> neighbor : neighbors.entrySet()) {
+                if (affected.contains(neighbor.getKey())) continue;
+                Double distance = distances.get(neighbor.getKey());
+                if (distance != null && distance + neighbor.getValue().length < best) {
+                    best = distance + neighbor.getValue().length;
+                    parent = neighbor.getKey();
+                }
+            }
+            if (parent != null) {
+                queue.add(new Entry(node, best));
+                parents.put(node, parent);
+            }
+        }
+        for (Entry entry : queue) {
+            distances.put(entry.nodeId, entry.distance);
+        }
+        lastUpdates = queue.size() + propagate(graph, queue);
+        return true;
+    }
+
+    List<String> path(String end) {
+        if (!distances.containsKey(end)) {
+            return Collections.emptyList();
+        }
+        List<String> path = new ArrayList<>();
+        for (String current = end; current != null; current = parents.get(current)) {
+            path.add(current);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    RoutePath route(Map<String, Node> nodes, Map<String, ? extends Map<String, Edge>> graph, String end) {
+        List<String> path = path(end);
+        if (path.isEmpty()) {
+            return RoutePath.EMPTY;
+        }
+        RoutePath.Builder builder = new RoutePath.Builder(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            Node node = nodes.get(path.get(i));
+            double length = i == 0 ? 0 : graph.get(path.get(i - 1)).get(path.get(i)).length;
+            builder.add(node.id, node.position.x, node.position.y, length);
+        }
+        return builder.build();
+    }
+
+    private int relax(String from, String to, double length, PriorityQueue<Entry> queue) {
+        Double distance = distances.get(from);
+        if (distance == null) return 0;
+        double newDistance = distance + length;
+        Double oldDistance = distances.get(to);
+        if (oldDistance != null && newDistance >= oldDistance) return 0;
+        distances.put(to, newDistance);
+        parents.put(to, from);
+        queue.add(new Entry(to, newDistance));
+        return 1;
+    }
+
+    // Дейкстра от узлов очереди: расстояния остальных узлов уже верны или завышены
+    private int propagate(Map<String, ? extends Map<String, Edge>> graph, PriorityQueue<Entry> queue) {
+        int updates = 0;
+        while (!queue.isEmpty()) {
+            Entry entry = queue.poll();
+            if (entry.distance > distances.get(entry.nodeId)) continue;
+            for (Map.Entry<String, Edge> neighbor : graph.get(entry.nodeId).entrySet()) {
+                updates += relax(entry.nodeId, neighbor.getKey(), neighbor.getValue().length, queue);
+            }
+        }
+        return updates;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final String nodeId;
+        final double distance;
+
+        Entry(String nodeId, double distance) {
+            this.nodeId = nodeId;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package model;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Деревья кратчайших путей по длине для последних начальных узлов (CampusMap.setDynamicRoutingEnabled).
+// Все деревья относятся к одной версии карты. Правку, о которой сообщает CampusMap (новая дорога, удалённые
+// дороги и узлы, новый узел без дорог), деревья исправляют и переходят на следующую версию; после любой
+// другой правки они сбрасываются. Маршруты запрашивают и потоки поиска по снимкам, поэтому методы синхронизированы.
+final class ShortestPathTrees {
+    private final LinkedHashMap<String, ShortestPathTree> trees;
+    private long version;
+
+    ShortestPathTrees(int capacity, long version) {
+        this.version = version;
+        this.trees = new LinkedHashMap<String, ShortestPathTree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ShortestPathTree> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Маршрут по дереву от start; null, если деревья относятся к другой версии карты, чем граф.
+    // Новое дерево строится без блокировки: правки карты в EDT ждут её, а поиск идёт в потоке RouteSearch.
+    // Сохраняется дерево, только если карта за это время не ушла дальше; для графа mapVersion оно верно в любом случае
+    RoutePath findRoute(long mapVersion, Map<String, Node> nodes, Map<String, ? extends Map<String, Edge>> graph,
+                        String start, String end) {
+        synchronized (this) {
+            if (mapVersion != version) {
+                return null;
+            }
+            if (!graph.containsKey(start) || !graph.containsKey(end)) {
+                return RoutePath.EMPTY;
+            }
+            ShortestPathTree tree = trees.get(start);
+            if (tree != null) {
+                return tree.route(nodes, graph, end);
+            }
+        }
+        ShortestPathTree built = new ShortestPathTree(start, graph);
+        synchronized (this) {
+            if (mapVersion == version) {
+                trees.putIfAbsent(start, built);
+            }
+            // Сохранённое дерево могут исправлять следующие правки, поэтому маршрут читается под блокировкой
+            return built.route(nodes, graph, end);
+        }
+    }
+
+    // Сохранённое дерево от start или null
+    synchronized ShortestPathTree tree(String start) {
+        return trees.get(start);
+    }
+
+    // Все оповещения вызываются до того, как карта перейдёт на newVersion
+    synchronized void nodeAdded(long newVersion) {
+        advance(newVersion);
+    }
+
+    synchronized void edgeAdded(long newVersion, Map<String, ? extends Map<String, Edge>> graph, Edge edge) {
+        if (advance(newVersion)) {
+            for (ShortestPathTree tree : trees.values()) {
+                tree.edgeAdded(graph, edge);
+            }
+        }
+    }
+
+    synchronized void edgesRemoved(long newVersion, Map<String, ? extends Map<String, Edge>> graph, Collection<Edge> removed) {
+        if (advance(newVersion)) {
+            for (Iterator<ShortestPathTree> it = trees.values().iterator(); it.hasNext(); ) {
+                if (!it.next().edgesRemoved(graph, removed)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    // Карта перешла на mapVersion; если об изменении не сообщили, деревья устарели
+    synchronized void expire(long mapVersion) {
+        if (mapVersion != version) {
+            trees.clear();
+            version = mapVersion;
+        }
+    }
+
+    synchronized int size() {
+        return trees.size();
+    }
+
+    private boolean advance(long newVersion) {
+        boolean current = newVersion == version + 1;
+        if (!current) {
+            trees.clear();
+        }
+        version = newVersion;
+        return current;
+    }
+}
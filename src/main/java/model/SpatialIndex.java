@@ -0,0 +1,422 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Равномерная сетка над картой: узлы по позиции, дороги по клеткам, которые пересекает отрезок,
+// здания по клеткам своего ограничивающего прямоугольника. CampusMap обновляет её при изменениях.
+// Объект, занимающий несколько клеток, при обходе области сообщается один раз — в первой из них.
+public final class SpatialIndex {
+    static final int CELL_SIZE = 64;
+    // Клетки расширены на полпикселя, чтобы отрезок по границе попадал в обе соседние
+    private static final double CELL_MARGIN = 0.5;
+
+    private final Map<String, Node> nodes;
+    private final CellTable cells = new CellTable();
+    // Диапазон когда-либо занятых клеток; при удалении не сужается
+    private int minCx = Integer.MAX_VALUE, minCy = Integer.MAX_VALUE;
+    private int maxCx = Integer.MIN_VALUE, maxCy = Integer.MIN_VALUE;
+
+    SpatialIndex(Map<String, Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    private static final class Cell {
+        final int cx;
+        final int cy;
+        final List<Node> nodes = new ArrayList<>(2);
+        final List<Edge> edges = new ArrayList<>(2);
+        final List<BuildingEntry> buildings = new ArrayList<>(1);
+
+        Cell(int cx, int cy) {
+            this.cx = cx;
+            this.cy = cy;
+        }
+
+        boolean isEmpty() {
+            return nodes.isEmpty() && edges.isEmpty() && buildings.isEmpty();
+        }
+    }
+
+    // Клетки по ключу (cx, cy) с открытой адресацией: поиск без упаковки ключа в Long,
+    // чтобы обход видимой области при отрисовке не создавал объектов
+    private static final class CellTable {
+        long[] keys = new long[64];
+        Cell[] slots = new Cell[64];
+        int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        Cell get(long key) {
+            int mask = slots.length - 1;
+            for (int i = slot(key, mask); slots[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return slots[i];
+            }
+            return null;
+        }
+
+        void put(long key, Cell cell) {
+            if (2 * (size + 1) > slots.length) resize(slots.length * 2);
+            int mask = slots.length - 1;
+            int i = slot(key, mask);
+            while (slots[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (slots[i] == null) size++;
+            keys[i] = key;
+            slots[i] = cell;
+        }
+
+        void remove(long key) {
+            int mask = slots.length - 1;
+            int i = slot(key, mask);
+            while (slots[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (slots[i] == null) return;
+            size--;
+            // Сдвигаем следующие элементы цепочки на освободившееся место
+            for (int gap = i, j = (i + 1) & mask; ; j = (j + 1) & mask) {
+                if (slots[j] == null) {
+                    slots[gap] = null;
+                    return;
+                }
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    slots[gap] = slots[j];
+                    gap = j;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Cell[] oldSlots = slots;
+            keys = new long[capacity];
+            slots = new Cell[capacity];
+            size = 0;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != null) put(oldKeys[i], oldSlots[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+
+    // Здание и диапазон клеток, которые оно занимает
+    private static final class BuildingEntry {
+        final Node building;
+        final int minCx, minCy, maxCx, maxCy;
+
+        BuildingEntry(Node building, Rectangle bounds) {
+            this.building = building;
+            minCx = cellOf(bounds.x);
+            minCy = cellOf(bounds.y);
+            maxCx = cellOf(bounds.x + bounds.width);
+            maxCy = cellOf(bounds.y + bounds.height);
+        }
+    }
+
+    void addNode(Node node) {
+        cellAt(node.position.x, node.position.y, true).nodes.add(node);
+        if (node.isBuilding()) {
+            BuildingEntry entry = new BuildingEntry(node, buildingBounds(node));
+            for (int cy = entry.minCy; cy <= entry.maxCy; cy++) {
+                for (int cx = entry.minCx; cx <= entry.maxCx; cx++) {
+                    cell(cx, cy, true).buildings.add(entry);
+                }
+            }
+        }
+    }
+
+    void removeNode(Node node) {
+        Cell cell = cellAt(node.position.x, node.position.y, false);
+        if (cell != null) {
+            cell.nodes.remove(node);
+            dropIfEmpty(cell);
+        }
+        if (node.isBuilding()) {
+            Rectangle bounds = buildingBounds(node);
+            for (int cy = cellOf(bounds.y); cy <= cellOf(bounds.y + bounds.height); cy++) {
+                for (int cx = cellOf(bounds.x); cx <= cellOf(bounds.x + bounds.width); cx++) {
+                    Cell c = cell(cx, cy, false);
+                    if (c != null) {
+                        c.buildings.removeIf(entry -> entry.building == node);
+                        dropIfEmpty(c);
+                    }
+                }
+            }
+        }
+    }
+
+    void addEdge(Edge edge) {
+        Point a = nodes.get(edge.from).position;
+        Point b = nodes.get(edge.to).position;
+        // Расширенная клетка может задеть отрезок, лежащий на границе соседней, поэтому смотрим на клетку шире
+        for (int cy = cellOf(Math.min(a.y, b.y) - 1); cy <= cellOf(Math.max(a.y, b.y) + 1); cy++) {
+            for (int cx = cellOf(Math.min(a.x, b.x) - 1); cx <= cellOf(Math.max(a.x, b.x) + 1); cx++) {
+                if (crossesCells(a, b, cx, cy, cx, cy)) {
+                    cell(cx, cy, true).edges.add(edge);
+                }
+            }
+        }
+    }
+
+    void removeEdge(Edge edge) {
+        Point a = nodes.get(edge.from).position;
+        Point b = nodes.get(edge.to).position;
+        for (int cy = cellOf(Math.min(a.y, b.y) - 1); cy <= cellOf(Math.max(a.y, b.y) + 1); cy++) {
+            for (int cx = cellOf(Math.min(a.x, b.x) - 1); cx <= cellOf(Math.max(a.x, b.x) + 1); cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c != null) {
+                    c.edges.remove(edge);
+                    dropIfEmpty(c);
+                }
+            }
+        }
+    }
+
+    // Ближайший узел не дальше radius от точки или null
+    public Node nearestNode(int x, int y, double radius) {
+        Node nearest = null;
+        double best = radius;
+        for (int cy = cellOf(y - radius); cy <= cellOf(y + radius); cy++) {
+            for (int cx = cellOf(x - radius); cx <= cellOf(x + radius); cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c == null) continue;
+                for (Node node : c.nodes) {
+                    double distance = Math.sqrt(Math.pow(node.position.x - x, 2) + Math.pow(node.position.y - y, 2));
+                    if (distance < best) {
+                        best = distance;
+                        nearest = node;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    // Ближайшая дорога, отрезок которой проходит ближе radius от точки, или null
+    public Edge nearestEdge(Point p, double radius) {
+        Edge nearest = null;
+        double best = radius;
+        for (int cy = cellOf(p.y - radius); cy <= cellOf(p.y + radius); cy++) {
+            for (int cx = cellOf(p.x - radius); cx <= cellOf(p.x + radius); cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c == null) continue;
+                for (Edge edge : c.edges) {
+                    double distance = distanceToSegment(p, nodes.get(edge.from).position, nodes.get(edge.to).position);
+                    if (distance < best) {
+                        best = distance;
+                        nearest = edge;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    // Здания, ограничивающий прямоугольник которых (с запасом radius) может содержать точку
+    public List<Node> buildingsNear(Point p, double radius) {
+        List<Node> result = null;
+        int minCx = cellOf(p.x - radius), minCy = cellOf(p.y - radius);
+        for (int cy = minCy; cy <= cellOf(p.y + radius); cy++) {
+            for (int cx = minCx; cx <= cellOf(p.x + radius); cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c == null) continue;
+                for (BuildingEntry entry : c.buildings) {
+                    if (isFirstCell(entry, cx, cy, minCx, minCy)) {
+                        if (result == null) result = new ArrayList<>(2);
+                        result.add(entry.building);
+                    }
+                }
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    // Покрывает ли область всё проиндексированное: тогда отсекать нечего и проще обойти карту целиком
+    public boolean coversAll(Rectangle2D area) {
+        return cells.isEmpty() || (cellOf(area.getMinX()) <= minCx && cellOf(area.getMinY()) <= minCy
+                && cellOf(area.getMaxX()) >= maxCx && cellOf(area.getMaxY()) >= maxCy);
+    }
+
+    // Узлы (перекрёстки и точки подключения зданий), позиция которых лежит в области
+    public void forEachNodeIn(Rectangle2D area, Consumer<Node> action) {
+        int minCx = cellOf(area.getMinX()), minCy = cellOf(area.getMinY());
+        int maxCx = cellOf(area.getMaxX()), maxCy = cellOf(area.getMaxY());
+        if (cellCount(minCx, minCy, maxCx, maxCy) > cells.size()) {
+            for (Cell c : cells.slots) {
+                if (c != null && c.cx >= minCx && c.cx <= maxCx && c.cy >= minCy && c.cy <= maxCy) {
+                    visitNodes(c, area, action);
+                }
+            }
+            return;
+        }
+        for (int cy = minCy; cy <= maxCy; cy++) {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c != null) visitNodes(c, area, action);
+            }
+        }
+    }
+
+    // Дороги, которые могут пересекать область (проверка с точностью до клетки сетки)
+    public void forEachEdgeIn(Rectangle2D area, Consumer<Edge> action) {
+        int minCx = cellOf(area.getMinX()), minCy = cellOf(area.getMinY());
+        int maxCx = cellOf(area.getMaxX()), maxCy = cellOf(area.getMaxY());
+        if (cellCount(minCx, minCy, maxCx, maxCy) > cells.size()) {
+            for (Cell c : cells.slots) {
+                if (c != null && c.cx >= minCx && c.cx <= maxCx && c.cy >= minCy && c.cy <= maxCy) {
+                    visitEdges(c, minCx, minCy, maxCx, action);
+                }
+            }
+            return;
+        }
+        for (int cy = minCy; cy <= maxCy; cy++) {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c != null) visitEdges(c, minCx, minCy, maxCx, action);
+            }
+        }
+    }
+
+    // Здания, которые могут пересекать область (проверка с точностью до клетки сетки)
+    public void forEachBuildingIn(Rectangle2D area, Consumer<Node> action) {
+        int minCx = cellOf(area.getMinX()), minCy = cellOf(area.getMinY());
+        int maxCx = cellOf(area.getMaxX()), maxCy = cellOf(area.getMaxY());
+        if (cellCount(minCx, minCy, maxCx, maxCy) > cells.size()) {
+            for (Cell c : cells.slots) {
+                if (c != null && c.cx >= minCx && c.cx <= maxCx && c.cy >= minCy && c.cy <= maxCy) {
+                    visitBuildings(c, minCx, minCy, action);
+                }
+            }
+            return;
+        }
+        for (int cy = minCy; cy <= maxCy; cy++) {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                Cell c = cell(cx, cy, false);
+                if (c != null) visitBuildings(c, minCx, minCy, action);
+            }
+        }
+    }
+
+    private static void visitNodes(Cell c, Rectangle2D area, Consumer<Node> action) {
+        for (int i = 0; i < c.nodes.size(); i++) {
+            Node node = c.nodes.get(i);
+            if (area.contains(node.position.x, node.position.y)) action.accept(node);
+        }
+    }
+
+    private void visitEdges(Cell c, int minCx, int minCy, int maxCx, Consumer<Edge> action) {
+        for (int i = 0; i < c.edges.size(); i++) {
+            Edge edge = c.edges.get(i);
+            Point a = nodes.get(edge.from).position;
+            Point b = nodes.get(edge.to).position;
+            // Дорога уже была сообщена, если проходит через клетку левее в этой строке или строкой выше
+            if (c.cx > minCx && crossesCells(a, b, minCx, c.cy, c.cx - 1, c.cy)) continue;
+            if (c.cy > minCy && crossesCells(a, b, minCx, minCy, maxCx, c.cy - 1)) continue;
+            action.accept(edge);
+        }
+    }
+
+    private static void visitBuildings(Cell c, int minCx, int minCy, Consumer<Node> action) {
+        for (int i = 0; i < c.buildings.size(); i++) {
+            BuildingEntry entry = c.buildings.get(i);
+            if (isFirstCell(entry, c.cx, c.cy, minCx, minCy)) action.accept(entry.building);
+        }
+    }
+
+    private static boolean isFirstCell(BuildingEntry entry, int cx, int cy, int minCx, int minCy) {
+        return cx == Math.max(entry.minCx, minCx) && cy == Math.max(entry.minCy, minCy);
+    }
+
+    static double distanceToSegment(Point p, Point p1, Point p2) {
+        double x = p.x, y = p.y;
+        double x1 = p1.x, y1 = p1.y;
+        double x2 = p2.x, y2 = p2.y;
+
+        double l2 = (x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1);
+        if (l2 == 0) return Math.sqrt((x - x1) * (x - x1) + (y - y1) * (y - y1));
+
+        double t = Math.max(0, Math.min(1, ((x - x1) * (x2 - x1) + (y - y1) * (y2 - y1)) / l2));
+        double projectionX = x1 + t * (x2 - x1);
+        double projectionY = y1 + t * (y2 - y1);
+
+        return Math.sqrt((x - projectionX) * (x - projectionX) + (y - projectionY) * (y - projectionY));
+    }
+
+    // Контур здания вместе с точкой подключения, которая может лежать снаружи
+    private static Rectangle buildingBounds(Node building) {
+        Rectangle bounds = building.shape.getBounds();
+        if (building.connectionPoint != null) {
+            bounds.add(building.connectionPoint);
+        }
+        return bounds;
+    }
+
+    // Пересекает ли отрезок прямоугольник из клеток [minCx..maxCx] x [minCy..maxCy] (с учётом расширения клеток)
+    private static boolean crossesCells(Point a, Point b, int minCx, int minCy, int maxCx, int maxCy) {
+        double left = (double) minCx * CELL_SIZE - CELL_MARGIN;
+        double top = (double) minCy * CELL_SIZE - CELL_MARGIN;
+        double right = (double) (maxCx + 1) * CELL_SIZE + CELL_MARGIN;
+        double bottom = (double) (maxCy + 1) * CELL_SIZE + CELL_MARGIN;
+        if (a.x >= left && a.x <= right && a.y >= top && a.y <= bottom) return true;
+        if (b.x >= left && b.x <= right && b.y >= top && b.y <= bottom) return true;
+        return Line2D.linesIntersect(a.x, a.y, b.x, b.y, left, top, right, top)
+                || Line2D.linesIntersect(a.x, a.y, b.x, b.y, right, top, right, bottom)
+                || Line2D.linesIntersect(a.x, a.y, b.x, b.y, left, bottom, right, bottom)
+                || Line2D.linesIntersect(a.x, a.y, b.x, b.y, left, top, left, bottom);
+    }
+
+    private static long cellCount(int minCx, int minCy, int maxCx, int maxCy) {
+        return (long) (maxCx - minCx + 1) * (maxCy - minCy + 1);
+    }
+
+    private static int cellOf(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    private static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    private Cell cellAt(int x, int y, boolean create) {
+        return cell(cellOf(x), cellOf(y), create);
+    }
+
+    private Cell cell(int cx, int cy, boolean create) {
+        Cell c = cells.get(key(cx, cy));
+        if (c == null && create) {
+            c = new Cell(cx, cy);
+            cells.put(key(cx, cy), c);
+            minCx = Math.min(minCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCx = Math.max(maxCx, cx);
+            maxCy = Math.max(maxCy, cy);
+        }
+        return c;
+    }
+
+    private void dropIfEmpty(Cell c) {
+        if (c.isEmpty()) {
+            cells.remove(key(c.cx, c.cy));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package server;
+
+// Запись ответов JSON без сторонних библиотек: ответы сервера — плоские объекты, строки и массивы чисел
+final class Json {
+    private final StringBuilder out = new StringBuilder(256);
+    private boolean first = true;
+
+    Json beginObject() {
+        separator();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    Json endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    Json beginArray() {
+        separator();
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    Json endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    Json name(String name) {
+        separator();
+        string(name);
+        out.append(':');
+        first = true;
+        return this;
+    }
+
+    Json value(String value) {
+        separator();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        first = false;
+        return this;
+    }
+
+    Json value(long value) {
+        separator();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    Json value(double value) {
+        separator();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    Json value(boolean value) {
+        separator();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separator() {
+        if (!first) {
+            out.append(',');
+        }
+        first = false;
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
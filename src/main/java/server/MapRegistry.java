@@ -0,0 +1,110 @@
+package server;
+
+import model.MappedMap;
+import util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Открытые карты директории. Каждая карта — MappedMap (неизменяемая, отображённая в память, с иерархией сжатия),
+// поэтому её читают все потоки сервера без блокировок. Если файл .map сохранён заново, при следующем запросе
+// открывается новая версия (из нового файла .mmap, см. FileUtil.mappedFileFor), а запросы, уже получившие
+// старую, дорабатывают на ней. Перестроение блокирует только запросы к той же карте.
+final class MapRegistry {
+    // Имя карты из запроса не должно выводить за пределы директории
+    private static final Pattern MAP_NAME = Pattern.compile("[\\p{L}\\p{N}_\\-. ]+");
+    private static final int ROUTE_CACHE_CAPACITY = 1024;
+
+    private static final class Entry {
+        final MappedMap map;
+        // Версия файла .map, как в имени файла .mmap (FileUtil.mappedFileFor)
+        final long modified;
+        final long length;
+
+        Entry(MappedMap map, long modified, long length) {
+            this.map = map;
+            this.modified = modified;
+            this.length = length;
+        }
+
+        boolean isCurrent(File mapFile) {
+            return modified == mapFile.lastModified() && length == mapFile.length();
+        }
+    }
+
+    private final File directory;
+    private final ConcurrentHashMap<String, Entry> maps = new ConcurrentHashMap<>();
+    // Блокировка открытия для каждой карты: пока одна карта перестраивается, другие открываются параллельно
+    private final ConcurrentHashMap<String, Object> openLocks = new ConcurrentHashMap<>();
+
+    MapRegistry(File directory) {
+        this.directory = directory;
+    }
+
+    // Открывает все карты заранее, чтобы первые запросы не ждали построения .mmap и .ch
+    void preload() {
+        for (String name : names()) {
+            try {
+                get(name);
+            } catch (IOException e) {
+                System.err.println("Failed to open map " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    List<String> names() {
+        List<String> names = new ArrayList<>();
+        File[] mapFiles = directory.listFiles((dir, name) -> name.endsWith(".map"));
+        if (mapFiles != null) {
+            for (File mapFile : mapFiles) {
+                String name = mapFile.getName();
+                names.add(name.substring(0, name.length() - 4));
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    // null, если такой карты нет
+    MappedMap get(String name) throws IOException {
+        if (name == null || name.startsWith(".") || !MAP_NAME.matcher(name).matches()) {
+            return null;
+        }
+        File mapFile = new File(directory, name + ".map");
+        if (!mapFile.isFile()) {
+            maps.remove(name);
+            return null;
+        }
+        Entry entry = maps.get(name);
+        if (entry != null && entry.isCurrent(mapFile)) {
+            return entry.map;
+        }
+        synchronized (openLocks.computeIfAbsent(name, key -> new Object())) {
+            entry = maps.get(name);
+            if (entry == null || !entry.isCurrent(mapFile)) {
+                long modified = mapFile.lastModified();
+                long length = mapFile.length();
+                entry = new Entry(open(mapFile), modified, length);
+                maps.put(name, entry);
+            }
+            return entry.map;
+        }
+    }
+
+    private static MappedMap open(File mapFile) throws IOException {
+        long started = System.currentTimeMillis();
+        try {
+            MappedMap map = FileUtil.openMappedMap(mapFile);
+            map.setRouteCacheCapacity(ROUTE_CACHE_CAPACITY);
+            System.out.println("Opened map in " + (System.currentTimeMillis() - started) + " ms: " + mapFile.getAbsolutePath());
+            return map;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unsupported map file: " + mapFile.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.MappedMap;
+import model.RoutePath;
+import model.RoutingMode;
+import util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Сервер маршрутов без интерфейса (HTTP/JSON на com.sun.net.httpserver) для табло и мобильных клиентов.
+// Карты директории открываются как MappedMap и держатся открытыми (MapRegistry).
+// Запросы обрабатывает пул из threads потоков с очередью queueCapacity; когда очередь полна, запрос
+// выполняется в потоке приёма соединений, и сервер перестаёт принимать новые, пока не освободится.
+//   GET /health
+//   GET /maps
+//   GET /buildings?map=<карта>
+//   GET /route?map=<карта>&from=<здание>&to=<здание>[&mode=rank|distance]
+// Маршрут отдаётся с геометрией: координаты узлов, длины участков, пройденное расстояние и углы поворота
+public final class RouteServer {
+    public static final int DEFAULT_PORT = 8080;
+
+    private final MapRegistry maps;
+    private final HttpServer http;
+    private final ThreadPoolExecutor executor;
+
+    public RouteServer(File mapDirectory, InetSocketAddress address, int threads, int queueCapacity) throws IOException {
+        maps = new MapRegistry(mapDirectory);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "route-server-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        // Без TCP_NODELAY заголовки и тело ответа уходят разными пакетами, и клиент с keep-alive ждёт
+        // отложенного ACK: ~40 мс на каждый запрос. Настройка читается при первом создании HttpServer
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        http = HttpServer.create(address, 0);
+        http.setExecutor(executor);
+        http.createContext("/health", exchange -> handle(exchange, this::health));
+        http.createContext("/maps", exchange -> handle(exchange, this::mapList));
+        http.createContext("/buildings", exchange -> handle(exchange, this::buildings));
+        http.createContext("/route", exchange -> handle(exchange, this::route));
+    }
+
+    public void start() {
+        maps.preload();
+        http.start();
+        System.out.println("Route server listening on port " + getPort());
+    }
+
+    public void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    // Параметры: --maps <директория> --port <порт> --threads <число потоков> --queue <длина очереди>
+    public static RouteServer start(String[] args) throws IOException {
+        String mapDirectory = null;
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int queueCapacity = 256;
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--maps":
+                    mapDirectory = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queueCapacity = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        RouteServer server = new RouteServer(FileUtil.loadMapDirectory(mapDirectory),
+                new InetSocketAddress(port), threads, queueCapacity);
+        server.start();
+        return server;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        start(args);
+    }
+
+    private interface Handler {
+        // Возвращает тело ответа 200 или бросает RequestException
+        String handle(Map<String, String> parameters) throws IOException;
+    }
+
+    // Ошибка запроса клиента: отвечается кодом status и сообщением в поле error
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new RequestException(405, "Only GET is supported");
+            }
+            body = handler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (RequestException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Route server error on " + exchange.getRequestURI() + ": " + e);
+            status = 500;
+            body = error("Internal error");
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String health(Map<String, String> parameters) {
+        return new Json().beginObject()
+                .name("status").value("ok")
+                .name("maps").value(maps.names().size())
+                .endObject().toString();
+    }
+
+    private String mapList(Map<String, String> parameters) {
+        Json json = new Json().beginObject().name("maps").beginArray();
+        for (String name : maps.names()) {
+            json.value(name);
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private String buildings(Map<String, String> parameters) throws IOException {
+        MappedMap map = map(parameters);
+        List<String> names = new ArrayList<>();
+        for (int building = 0; building < map.buildingCount(); building++) {
+            names.add(map.label(building));
+        }
+        names.sort(null);
+        Json json = new Json().beginObject().name("buildings").beginArray();
+        for (String name : names) {
+            json.value(name);
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private String route(Map<String, String> parameters) throws IOException {
+        MappedMap map = map(parameters);
+        String from = building(map, parameters, "from");
+        String to = building(map, parameters, "to");
+        String modeName = parameters.getOrDefault("mode", "rank");
+        RoutingMode mode;
+        if ("rank".equals(modeName)) {
+            mode = RoutingMode.RANK;
+        } else if ("distance".equals(modeName)) {
+            mode = RoutingMode.DISTANCE;
+        } else {
+            throw new RequestException(400, "Unknown mode: " + modeName);
+        }
+
+        long started = System.nanoTime();
+        RoutePath route = map.findRoute(from, to, mode);
+        long micros = (System.nanoTime() - started) / 1000;
+
+        Json json = new Json().beginObject()
+                .name("map").value(parameters.get("map"))
+                .name("from").value(parameters.get("from"))
+                .name("to").value(parameters.get("to"))
+                .name("mode").value(modeName)
+                .name("found").value(!route.isEmpty())
+                .name("micros").value(micros)
+                .name("length").value(route.getLength())
+                .name("path").beginArray();
+        for (int i = 0; i < route.size(); i++) {
+            json.value(route.id(i));
+        }
+        json.endArray().name("points").beginArray();
+        for (int i = 0; i < route.size(); i++) {
+            json.beginArray().value(route.x(i)).value(route.y(i)).endArray();
+        }
+        json.endArray().name("segments").beginArray();
+        for (int i = 0; i < route.segmentCount(); i++) {
+            json.value(route.segmentLength(i));
+        }
+        json.endArray().name("distances").beginArray();
+        for (int i = 0; i < route.size(); i++) {
+            json.value(route.distance(i));
+        }
+        json.endArray().name("turns").beginArray();
+        for (int i = 0; i < route.size(); i++) {
+            json.value(route.turnAngle(i));
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private MappedMap map(Map<String, String> parameters) throws IOException {
+        String name = required(parameters, "map");
+        MappedMap map = maps.get(name);
+        if (map == null) {
+            throw new RequestException(404, "Unknown map: " + name);
+        }
+        return map;
+    }
+
+    // Здание задаётся именем, как в списках интерфейса; возвращается идентификатор узла
+    private static String building(MappedMap map, Map<String, String> parameters, String parameter) {
+        String name = required(parameters, parameter);
+        String id = "B_" + name;
+        int node = map.indexOf(id);
+        if (node < 0 || map.buildingOf(node) < 0) {
+            throw new RequestException(404, "Unknown building: " + name);
+        }
+        return id;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new RequestException(400, "Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            try {
+                parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            } catch (IllegalArgumentException e) {
+                throw new RequestException(400, "Malformed query");
+            }
+        }
+        return parameters;
+    }
+
+    private static String error(String message) {
+        return new Json().beginObject().name("error").value(message).endObject().toString();
+    }
+}
@@ -0,0 +1,59 @@
+package ui;
+
+import java.util.Arrays;
+
+// Пороги детализации при отдалении. Масштаб — то же значение, что MapPanel.scale (1.0 — без увеличения).
+// При масштабе меньше tierScales[i] карта рисуется упрощённой геометрией уровня i: контуры зданий и цепочки
+// дорог упрощены так, чтобы отклонение на экране не превышало tolerancePixels.
+public final class LevelOfDetail {
+    public static final LevelOfDetail DEFAULT = new LevelOfDetail(0.5, 0.35, new double[]{0.6, 0.3, 0.15}, 1.0);
+    // Всегда полная детализация, как до появления уровней
+    public static final LevelOfDetail FULL = new LevelOfDetail(0, 0, new double[0], 0);
+
+    private final double labelMinScale;
+    private final double junctionMinScale;
+    private final double[] tierScales;
+    private final double tolerancePixels;
+
+    public LevelOfDetail(double labelMinScale, double junctionMinScale, double[] tierScales, double tolerancePixels) {
+        if (labelMinScale < 0 || junctionMinScale < 0 || tolerancePixels < 0) {
+            throw new IllegalArgumentException("Level of detail thresholds must not be negative");
+        }
+        for (int i = 0; i < tierScales.length; i++) {
+            if (tierScales[i] <= 0 || (i > 0 && tierScales[i] >= tierScales[i - 1])) {
+                throw new IllegalArgumentException("Tier scales must be positive and strictly decreasing: " + Arrays.toString(tierScales));
+            }
+        }
+        this.labelMinScale = labelMinScale;
+        this.junctionMinScale = junctionMinScale;
+        this.tierScales = tierScales.clone();
+        this.tolerancePixels = tolerancePixels;
+    }
+
+    public boolean showLabels(double scale) {
+        return scale >= labelMinScale;
+    }
+
+    // Перекрёстки и точки подключения зданий
+    public boolean showJunctions(double scale) {
+        return scale >= junctionMinScale;
+    }
+
+    public int tierCount() {
+        return tierScales.length;
+    }
+
+    // Номер уровня упрощения для масштаба или -1, если нужна полная геометрия
+    public int tierFor(double scale) {
+        int tier = -1;
+        for (int i = 0; i < tierScales.length && scale < tierScales[i]; i++) {
+            tier = i;
+        }
+        return tier;
+    }
+
+    // Допуск в единицах карты: на самом крупном масштабе уровня отклонение равно tolerancePixels
+    public double tolerance(int tier) {
+        return tolerancePixels / tierScales[tier];
+    }
+}
@@ -0,0 +1,79 @@
+package ui;
+
+import model.CampusMap;
+import model.Edge;
+import model.Node;
+
+import java.awt.*;
+import java.util.List;
+
+// Поиск объектов карты под курсором. Допуски заданы в пикселях экрана и делятся на масштаб.
+public class MapHitTester {
+    private final CampusMap map;
+
+    public MapHitTester(CampusMap map) {
+        this.map = map;
+    }
+
+    public Node findBuildingAt(Point p, double scale) {
+        for (Node node : map.getSpatialIndex().buildingsNear(p, 5 / scale)) {
+            if (node.getShape().contains(p) || isPointOnPolygonContour(node.getShape(), p, scale)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public String findNodeAt(int x, int y, double scale) {
+        Node node = map.getSpatialIndex().nearestNode(x, y, 15 / scale);
+        return node == null ? null : node.getId();
+    }
+
+    public Edge findEdgeAt(Point p, double scale) {
+        return map.getSpatialIndex().nearestEdge(p, 5 / scale);
+    }
+
+    public boolean isPointOnOrInsideBuilding(Point p, double scale) {
+        List<Node> candidates = map.getSpatialIndex().buildingsNear(p, 5 / scale);
+        // Точка подключения здания не считается его частью, к ней можно провести дорогу
+        for (Node node : candidates) {
+            if (node.getConnectionPoint() != null &&
+                    Math.abs(node.getConnectionPoint().x - p.x) < 5 / scale &&
+                    Math.abs(node.getConnectionPoint().y - p.y) < 5 / scale) {
+                return false;
+            }
+        }
+        for (Node node : candidates) {
+            if (node.getShape().contains(p) || isPointOnPolygonContour(node.getShape(), p, scale)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isPointOnPolygonContour(Polygon polygon, Point p, double scale) {
+        for (int i = 0; i < polygon.npoints; i++) {
+            Point p1 = new Point(polygon.xpoints[i], polygon.ypoints[i]);
+            Point p2 = new Point(polygon.xpoints[(i + 1) % polygon.npoints], polygon.ypoints[(i + 1) % polygon.npoints]);
+            if (distanceToSegment(p, p1, p2) < 5 / scale) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static double distanceToSegment(Point p, Point p1, Point p2) {
+        double x = p.x, y = p.y;
+        double x1 = p1.x, y1 = p1.y;
+        double x2 = p2.x, y2 = p2.y;
+
+        double l2 = (x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1);
+        if (l2 == 0) return Math.sqrt((x - x1) * (x - x1) + (y - y1) * (y - y1));
+
+        double t = Math.max(0, Math.min(1, ((x - x1) * (x2 - x1) + (y - y1) * (y2 - y1)) / l2));
+        double projectionX = x1 + t * (x2 - x1);
+        double projectionY = y1 + t * (y2 - y1);
+
+        return Math.sqrt((x - projectionX) * (x - projectionX) + (y - projectionY) * (y - projectionY));
+    }
+}
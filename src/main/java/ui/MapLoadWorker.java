@@ -0,0 +1,103 @@
+package ui;
+
+import model.CampusMap;
+import model.MappedMap;
+import model.Node;
+import util.FileUtil;
+import util.MapLoadListener;
+
+import javax.swing.*;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+// Загрузка карты в фоновом потоке. Прогресс (0–100) приходит через setProgress, прочитанные узлы —
+// пачками через process, чтобы панель могла показывать карту по мере чтения. Готовая карта передаётся
+// в loaded одним вызовом в потоке EDT; до этого интерфейс работает со старой картой.
+// cancel(true) прерывает поток, и чтение файла останавливается на следующем блоке.
+abstract class MapLoadWorker extends SwingWorker<MapLoadWorker.Result, List<Node>> {
+    // Узлов в одной пачке предпросмотра: реже — меньше перерисовок, чаще — плавнее
+    private static final int PREVIEW_CHUNK = 2000;
+
+    static final class Result {
+        final File file;
+        final CampusMap map;
+        final MappedMap mapped;
+
+        Result(File file, CampusMap map, MappedMap mapped) {
+            this.file = file;
+            this.map = map;
+            this.mapped = mapped;
+        }
+    }
+
+    private final File mapFile;
+    private final boolean readOnly;
+
+    MapLoadWorker(File mapFile, boolean readOnly) {
+        this.mapFile = mapFile;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    protected Result doInBackground() throws Exception {
+        long started = System.currentTimeMillis();
+        MapLoadListener listener = new MapLoadListener() {
+            private List<Node> pending = new ArrayList<>(PREVIEW_CHUNK);
+
+            @Override
+            public void bytesRead(long bytes, long total) {
+                setProgress(total > 0 ? (int) Math.min(100, bytes * 100 / total) : 0);
+            }
+
+            @Override
+            public void nodeRead(Node node) {
+                pending.add(node);
+                if (pending.size() == PREVIEW_CHUNK) {
+                    publish(pending);
+                    pending = new ArrayList<>(PREVIEW_CHUNK);
+                }
+            }
+        };
+
+        Result result;
+        if (readOnly) {
+            result = new Result(mapFile, null, FileUtil.openMappedMap(mapFile, listener));
+        } else {
+            result = new Result(mapFile, FileUtil.readMap(mapFile, listener), null);
+        }
+        System.out.println("Loaded map in " + (System.currentTimeMillis() - started) + " ms: " + mapFile.getAbsolutePath());
+        return result;
+    }
+
+    @Override
+    protected void process(List<List<Node>> chunks) {
+        for (List<Node> nodes : chunks) {
+            preview(nodes);
+        }
+    }
+
+    @Override
+    protected void done() {
+        try {
+            loaded(get());
+        } catch (CancellationException e) {
+            cancelled();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            failed(e.getCause());
+        }
+    }
+
+    // Пачка узлов, уже прочитанных из файла (только двоичный формат .map в режиме редактирования)
+    protected abstract void preview(List<Node> nodes);
+
+    protected abstract void loaded(Result result);
+
+    protected abstract void cancelled();
+
+    protected abstract void failed(Throwable cause);
+}
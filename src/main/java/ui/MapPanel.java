@@ -2,19 +2,25 @@ package ui;
 
 import model.CampusMap;
 import model.Edge;
+import model.MappedMap;
 import model.Node;
+import model.RoutePath;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
 
 public class MapPanel extends JPanel {
     private CampusMap map;
-    private List<String> currentPath;
+    private final MapHitTester hitTester;
+    private MapRenderer renderer;
+    private StaticMapLayer staticLayer;
+    private RoutePath currentPath;
     private boolean drawingBuilding;
     private boolean editingBuilding;
     private boolean selectingConnectionPoint;
@@ -26,6 +32,8 @@ public class MapPanel extends JPanel {
     private String roadStartNode;
     private int draggingVertexIndex = -1;
     private Object selectedObject;
+    // Угол области, которую выделяют перетаскиванием с Shift (null, если область не выделяется)
+    private Point selectionStart;
     private boolean isEditMode;
     private double scale = 1.0;
     private double translateX = 0;
@@ -34,11 +42,21 @@ public class MapPanel extends JPanel {
     private Point tempCircleCenter; // Центр временной окружности
     private int tempCircleRadius; // Радиус временной окружности
     private Navigation parentFrame; // Ссылка на родительский фрейм
+    // Узлы загружаемой карты (null, если карта не загружается) и картинка, куда они дорисовываются по мере поступления
+    private List<Node> loadingPreview;
+    private BufferedImage previewImage;
+    private int previewDrawn;
+    private double previewScale;
+    private double previewTranslateX;
+    private double previewTranslateY;
 
     public MapPanel(CampusMap map, Navigation parentFrame) {
         this.map = map;
+        this.hitTester = new MapHitTester(map);
+        this.renderer = new MapRenderer(map);
+        this.staticLayer = new StaticMapLayer(renderer);
         this.parentFrame = parentFrame;
-        this.currentPath = new ArrayList<>();
+        this.currentPath = RoutePath.EMPTY;
         this.isEditMode = true;
         resetModes();
         setPreferredSize(new Dimension(800, 600));
@@ -57,6 +75,8 @@ public class MapPanel extends JPanel {
                     }
                 } else if (editingBuilding) {
                     draggingVertexIndex = findVertexAt(scaledPoint.x, scaledPoint.y);
+                } else if (evt.isShiftDown() && !drawingRoad && !selectingConnectionPoint) {
+                    selectionStart = scaledPoint;
                 } else if (drawingRoad && roadStartNode == null) {
                     roadStartNode = findNodeAt(scaledPoint.x, scaledPoint.y);
                     if (roadStartNode != null) {
@@ -92,6 +112,10 @@ public class MapPanel extends JPanel {
                     startPoint = null;
                     updateCancelButtonVisibility();
                     repaint();
+                } else if (selectionStart != null) {
+                    selectionStart = null;
+                    parentFrame.setDeleteButtonEnabled(selectedObject instanceof Rectangle
+                            && !((Rectangle) selectedObject).isEmpty());
                 }
                 draggingVertexIndex = -1;
             }
@@ -109,6 +133,11 @@ public class MapPanel extends JPanel {
                     tempPolygon.xpoints[draggingVertexIndex] = scaledPoint.x;
                     tempPolygon.ypoints[draggingVertexIndex] = scaledPoint.y;
                     repaint();
+                } else if (selectionStart != null) {
+                    Rectangle area = new Rectangle(selectionStart);
+                    area.add(scaledPoint);
+                    selectedObject = area;
+                    repaint();
                 }
             }
 
@@ -179,7 +208,7 @@ public class MapPanel extends JPanel {
                     }
                 } else if (!drawingBuilding && !editingBuilding && !selectingConnectionPoint && !drawingRoad) {
                     resetModes();
-                    setCurrentPath(new ArrayList<>());
+                    setCurrentPath(RoutePath.EMPTY);
                     Node selectedBuilding = findBuildingAt(scaledPoint);
                     if (selectedBuilding != null) {
                         selectedObject = selectedBuilding;
@@ -243,6 +272,7 @@ public class MapPanel extends JPanel {
         tempRoadPoints = new ArrayList<>();
         roadStartNode = null;
         startPoint = null;
+        selectionStart = null;
         currentBuildingName = null;
         buildingShapeType = null;
         clearSelection();
@@ -253,38 +283,15 @@ public class MapPanel extends JPanel {
     }
 
     private Node findBuildingAt(Point p) {
-        for (Node node : map.getNodes().values()) {
-            if (node.isBuilding()) {
-                if (node.getShape().contains(p) || isPointOnPolygonContour(node.getShape(), p)) {
-                    return node;
-                }
-            }
-        }
-        return null;
+        return hitTester.findBuildingAt(p, scale);
     }
 
     private String findNodeAt(int x, int y) {
-        for (Node node : map.getNodes().values()) {
-            Point pos = node.getPosition();
-            if (Math.sqrt(Math.pow(pos.x - x, 2) + Math.pow(pos.y - y, 2)) < 15 / scale) {
-                return node.getId();
-            }
-        }
-        return null;
+        return hitTester.findNodeAt(x, y, scale);
     }
 
     private Edge findEdgeAt(Point p) {
-        for (String from : map.getGraph().keySet()) {
-            for (Map.Entry<String, Edge> neighbor : map.getGraph().get(from).entrySet()) {
-                String to = neighbor.getKey();
-                Point p1 = map.getNodes().get(from).getPosition();
-                Point p2 = map.getNodes().get(to).getPosition();
-                if (distanceToSegment(p, p1, p2) < 5 / scale) {
-                    return neighbor.getValue();
-                }
-            }
-        }
-        return null;
+        return hitTester.findEdgeAt(p, scale);
     }
 
     private int findVertexAt(int x, int y) {
@@ -308,45 +315,15 @@ public class MapPanel extends JPanel {
     }
 
     private boolean isPointOnPolygonContour(Polygon polygon, Point p) {
-        for (int i = 0; i < polygon.npoints; i++) {
-            Point p1 = new Point(polygon.xpoints[i], polygon.ypoints[i]);
-            Point p2 = new Point(polygon.xpoints[(i + 1) % polygon.npoints], polygon.ypoints[(i + 1) % polygon.npoints]);
-            if (distanceToSegment(p, p1, p2) < 5 / scale) {
-                return true;
-            }
-        }
-        return false;
+        return MapHitTester.isPointOnPolygonContour(polygon, p, scale);
     }
 
     private boolean isPointOnOrInsideBuilding(Point p) {
-        for (Node node : map.getNodes().values()) {
-            if (node.isBuilding()) {
-                if (node.getConnectionPoint() != null &&
-                        Math.abs(node.getConnectionPoint().x - p.x) < 5 / scale &&
-                        Math.abs(node.getConnectionPoint().y - p.y) < 5 / scale) {
-                    return false;
-                }
-                if (node.getShape().contains(p) || isPointOnPolygonContour(node.getShape(), p)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return hitTester.isPointOnOrInsideBuilding(p, scale);
     }
 
     private double distanceToSegment(Point p, Point p1, Point p2) {
-        double x = p.x, y = p.y;
-        double x1 = p1.x, y1 = p1.y;
-        double x2 = p2.x, y2 = p2.y;
-
-        double l2 = (x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1);
-        if (l2 == 0) return Math.sqrt((x - x1) * (x - x1) + (y - y1) * (y - y1));
-
-        double t = Math.max(0, Math.min(1, ((x - x1) * (x2 - x1) + (y - y1) * (y2 - y1)) / l2));
-        double projectionX = x1 + t * (x2 - x1);
-        double projectionY = y1 + t * (y2 - y1);
-
-        return Math.sqrt((x - projectionX) * (x - projectionX) + (y - projectionY) * (y - projectionY));
+        return MapHitTester.distanceToSegment(p, p1, p2);
     }
 
     private Polygon approximateCircle(Point center, int radius) {
@@ -394,8 +371,8 @@ public class MapPanel extends JPanel {
         repaint();
     }
 
-    public void setCurrentPath(List<String> path) {
-        currentPath = path;
+    public void setCurrentPath(RoutePath route) {
+        currentPath = route;
         repaint();
     }
 
@@ -421,6 +398,40 @@ public class MapPanel extends JPanel {
         parentFrame.updateBuildingCombos();
     }
 
+    public void startLoadingPreview() {
+        loadingPreview = new ArrayList<>();
+        previewDrawn = 0;
+        repaint();
+    }
+
+    public void addLoadingPreview(List<Node> nodes) {
+        if (loadingPreview == null) return;
+        loadingPreview.addAll(nodes);
+        repaint();
+    }
+
+    public void stopLoadingPreview() {
+        loadingPreview = null;
+        previewImage = null;
+        repaint();
+    }
+
+    // Карта только для чтения (киоск): рисуется вместо CampusMap, редактирование при этом недоступно
+    public void setMappedMap(MappedMap mappedMap) {
+        LevelOfDetail levelOfDetail = renderer.getLevelOfDetail();
+        renderer = mappedMap != null ? new MapRenderer(mappedMap) : new MapRenderer(map);
+        renderer.setLevelOfDetail(levelOfDetail);
+        staticLayer = new StaticMapLayer(renderer);
+        setEditMode(false);
+    }
+
+    // Пороги упрощения карты при отдалении; слой карты перерисовывается с новыми порогами
+    public void setLevelOfDetail(LevelOfDetail levelOfDetail) {
+        renderer.setLevelOfDetail(levelOfDetail);
+        staticLayer.invalidate();
+        repaint();
+    }
+
     public void resetZoom() {
         scale = 1.0;
         translateX = 0;
@@ -442,35 +453,17 @@ public class MapPanel extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (loadingPreview != null) {
+            paintLoadingPreview(g2d);
+            return;
+        }
+        // Дороги и здания берутся из закэшированного слоя, поверх рисуются выделение и временные фигуры
+        staticLayer.paint(g2d, getWidth(), getHeight(), scale, translateX, translateY, getBackground());
 
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.translate(translateX, translateY);
         g2d.scale(scale, scale);
 
-        // Отрисовка дорог
-        g2d.setColor(new Color(200, 200, 200));
-        Set<String> drawnEdges = new HashSet<>();
-        for (String from : map.getGraph().keySet()) {
-            for (Map.Entry<String, Edge> neighbor : map.getGraph().get(from).entrySet()) {
-                String to = neighbor.getKey();
-                String edgeKey = from.compareTo(to) < 0 ? from + "-" + to : to + "-" + from;
-                if (!drawnEdges.contains(edgeKey)) {
-                    Point fromPos = map.getNodes().get(from).getPosition();
-                    Point toPos = map.getNodes().get(to).getPosition();
-                    if (isEditMode && selectedObject instanceof Edge && selectedObject == neighbor.getValue()) {
-                        g2d.setColor(new Color(255, 165, 0));
-                        g2d.setStroke(new BasicStroke((float) (6 / scale)));
-                    } else {
-                        g2d.setColor(new Color(200, 200, 200));
-                        g2d.setStroke(new BasicStroke((float) (4 / scale)));
-                    }
-                    g2d.drawLine(fromPos.x, fromPos.y, toPos.x, toPos.y);
-                    drawnEdges.add(edgeKey);
-                    g2d.setStroke(new BasicStroke((float) (1 / scale)));
-                }
-            }
-        }
-
         // Отрисовка временной дороги
         if (isEditMode && drawingRoad && !tempRoadPoints.isEmpty()) {
             g2d.setColor(new Color(200, 200, 200));
@@ -485,52 +478,11 @@ public class MapPanel extends JPanel {
         }
 
         // Отрисовка пути
-        if (!currentPath.isEmpty()) {
-            g2d.setColor(new Color(66, 133, 244));
-            g2d.setStroke(new BasicStroke((float) (3 / scale)));
-            for (int i = 0; i < currentPath.size() - 1; i++) {
-                String from = currentPath.get(i);
-                String to = currentPath.get(i + 1);
-                Point fromPos = map.getNodes().get(from).getPosition();
-                Point toPos = map.getNodes().get(to).getPosition();
-                g2d.drawLine(fromPos.x, fromPos.y, toPos.x, toPos.y);
-            }
-            g2d.setStroke(new BasicStroke((float) (1 / scale)));
-        }
+        renderer.paintPath(g2d, scale, currentPath);
 
-        // Отрисовка зданий и точек
-        for (Node node : map.getNodes().values()) {
-            if (node.isBuilding()) {
-                g2d.setColor(new Color(100, 149, 237, 180));
-                g2d.fillPolygon(node.getShape());
-                g2d.setColor(new Color(25, 25, 112));
-                g2d.setStroke(new BasicStroke((float) (1.5 / scale)));
-                g2d.drawPolygon(node.getShape());
-                if (isEditMode && selectedObject == node) {
-                    g2d.setColor(new Color(255, 165, 0));
-                    g2d.setStroke(new BasicStroke((float) (4 / scale)));
-                    g2d.drawPolygon(node.getShape());
-                    g2d.drawOval(node.getConnectionPoint().x - (int) (7 / scale), node.getConnectionPoint().y - (int) (7 / scale), (int) (14 / scale), (int) (14 / scale));
-                    g2d.setStroke(new BasicStroke((float) (1 / scale)));
-                }
-                g2d.setColor(new Color(34, 139, 34));
-                g2d.fillOval(node.getConnectionPoint().x - (int) (5 / scale), node.getConnectionPoint().y - (int) (5 / scale), (int) (10 / scale), (int) (10 / scale));
-                g2d.setColor(Color.WHITE);
-                g2d.fillOval(node.getConnectionPoint().x - (int) (2 / scale), node.getConnectionPoint().y - (int) (2 / scale), (int) (4 / scale), (int) (4 / scale));
-                g2d.setColor(Color.BLACK);
-                g2d.setFont(new Font("Arial", Font.PLAIN, (int) (12 / scale)));
-                Rectangle bounds = node.getShape().getBounds();
-                g2d.drawString(node.getId().substring(2), bounds.x + bounds.width + 5, bounds.y + bounds.height / 2);
-            } else {
-                g2d.setColor(new Color(180, 180, 180));
-                g2d.fillOval(node.getPosition().x - (int) (5 / scale), node.getPosition().y - (int) (5 / scale), (int) (10 / scale), (int) (10 / scale));
-                if (isEditMode && selectedObject == node) {
-                    g2d.setColor(new Color(255, 165, 0));
-                    g2d.setStroke(new BasicStroke((float) (4 / scale)));
-                    g2d.drawOval(node.getPosition().x - (int) (7 / scale), node.getPosition().y - (int) (7 / scale), (int) (14 / scale), (int) (14 / scale));
-                    g2d.setStroke(new BasicStroke((float) (1 / scale)));
-                }
-            }
+        // Отрисовка выделенного объекта
+        if (isEditMode) {
+            renderer.paintSelection(g2d, scale, selectedObject);
         }
 
         // Отрисовка временного здания
@@ -571,4 +523,32 @@ public class MapPanel extends JPanel {
             }
         }
     }
-}
\ No newline at end of file
+
+    // Новые узлы дорисовываются в картинку; при смене масштаба, сдвига или размера она рисуется заново
+    private void paintLoadingPreview(Graphics2D g2d) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+        if (previewImage == null || previewImage.getWidth() != width || previewImage.getHeight() != height
+                || previewScale != scale || previewTranslateX != translateX || previewTranslateY != translateY) {
+            previewImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            previewDrawn = 0;
+            previewScale = scale;
+            previewTranslateX = translateX;
+            previewTranslateY = translateY;
+        }
+        if (previewDrawn < loadingPreview.size()) {
+            Graphics2D image = previewImage.createGraphics();
+            try {
+                image.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                image.translate(translateX, translateY);
+                image.scale(scale, scale);
+                renderer.paintPreview(image, scale, loadingPreview, previewDrawn, loadingPreview.size());
+            } finally {
+                image.dispose();
+            }
+            previewDrawn = loadingPreview.size();
+        }
+        g2d.drawImage(previewImage, 0, 0, null);
+    }
+}
@@ -0,0 +1,451 @@
+package ui;
+
+import model.CampusMap;
+import model.Edge;
+import model.MappedMap;
+import model.Node;
+import model.RoutePath;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+// Отрисовка карты в координатах карты (преобразование уже применено к Graphics2D).
+// Если передана видимая область, рисуются только объекты, попадающие в неё по пространственному индексу.
+// Цвета, штрихи и шрифт не создаются в цикле отрисовки: память на кадр не зависит от размера карты.
+// Карта только для чтения (MappedMap) рисуется прямо из отображённого файла, без объектов Node и Edge;
+// упрощённые уровни детализации для неё строятся по тому же файлу (SimplifiedGeometry).
+public class MapRenderer {
+    // Запас вокруг видимой области в пикселях экрана: толщина линий и кружки узлов
+    private static final int OUTLINE_MARGIN = 10;
+    // Подпись рисуется справа от здания, поэтому слева запас больше
+    private static final int LABEL_MARGIN = 200;
+
+    private static final Color ROAD_COLOR = new Color(200, 200, 200);
+    private static final Color SELECTION_COLOR = new Color(255, 165, 0);
+    private static final Color PATH_COLOR = new Color(66, 133, 244);
+    private static final Color BUILDING_FILL = new Color(100, 149, 237, 180);
+    private static final Color BUILDING_OUTLINE = new Color(25, 25, 112);
+    private static final Color CONNECTION_COLOR = new Color(34, 139, 34);
+    private static final Color JUNCTION_COLOR = new Color(180, 180, 180);
+
+    private final CampusMap map;
+    private final MappedMap mapped;
+    private Style style;
+    private LevelOfDetail levelOfDetail = LevelOfDetail.DEFAULT;
+    private SimplifiedGeometry simplified;
+    // Вершины контура здания из MappedMap для fillPolygon; растут до самого сложного контура
+    private int[] polygonXs = new int[16];
+    private int[] polygonYs = new int[16];
+
+    public MapRenderer(CampusMap map) {
+        this.map = map;
+        this.mapped = null;
+    }
+
+    public MapRenderer(MappedMap mapped) {
+        this.map = null;
+        this.mapped = mapped;
+    }
+
+    // Версия карты для кэша слоя; карта только для чтения не меняется
+    public long getMapVersion() {
+        return map != null ? map.getVersion() : 0;
+    }
+
+    // Штрихи, шрифт и размеры маркеров для одного масштаба. Пересоздаются только при смене масштаба
+    private static final class Style {
+        final double scale;
+        final BasicStroke thin;
+        final BasicStroke road;
+        final BasicStroke selectedRoad;
+        final BasicStroke path;
+        final BasicStroke outline;
+        final BasicStroke highlight;
+        final Font label;
+        final int radius2, radius5, radius7;
+        final int diameter4, diameter10, diameter14;
+
+        Style(double scale) {
+            this.scale = scale;
+            thin = new BasicStroke((float) (1 / scale));
+            road = new BasicStroke((float) (4 / scale));
+            selectedRoad = new BasicStroke((float) (6 / scale));
+            path = new BasicStroke((float) (3 / scale));
+            outline = new BasicStroke((float) (1.5 / scale));
+            highlight = new BasicStroke((float) (4 / scale));
+            label = new Font("Arial", Font.PLAIN, (int) (12 / scale));
+            radius2 = (int) (2 / scale);
+            radius5 = (int) (5 / scale);
+            radius7 = (int) (7 / scale);
+            diameter4 = (int) (4 / scale);
+            diameter10 = (int) (10 / scale);
+            diameter14 = (int) (14 / scale);
+        }
+    }
+
+    private Style style(double scale) {
+        Style current = style;
+        if (current == null || current.scale != scale) {
+            current = new Style(scale);
+            style = current;
+        }
+        return current;
+    }
+
+    public LevelOfDetail getLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    public void setLevelOfDetail(LevelOfDetail levelOfDetail) {
+        this.levelOfDetail = levelOfDetail;
+    }
+
+    // Упрощённая геометрия для масштаба или null, если рисуется полная
+    private SimplifiedGeometry.Tier tier(double scale) {
+        int tier = levelOfDetail.tierFor(scale);
+        if (tier < 0) return null;
+        if (mapped != null) {
+            if (simplified == null || !simplified.isCurrent(mapped, levelOfDetail)) {
+                simplified = new SimplifiedGeometry(mapped, levelOfDetail);
+            }
+        } else if (simplified == null || !simplified.isCurrent(map, levelOfDetail)) {
+            simplified = new SimplifiedGeometry(map, levelOfDetail);
+        }
+        return simplified.tier(tier);
+    }
+
+    // Видимая часть карты: клип Graphics2D уже в координатах карты, без клипа — null (рисовать всё)
+    public static Rectangle2D visibleArea(Graphics2D g2d) {
+        return g2d.getClipBounds();
+    }
+
+    // Если видна вся карта, обход по индексу только мешает, и объекты перебираются напрямую
+    public void paintRoads(Graphics2D g2d, double scale, Rectangle2D visible, Object selected) {
+        Style style = style(scale);
+        SimplifiedGeometry.Tier tier = tier(scale);
+        if (mapped != null && tier == null) {
+            paintMappedRoads(g2d, style, visible == null ? null : expand(visible, OUTLINE_MARGIN / scale, 0));
+            return;
+        }
+        if (tier != null) {
+            // При отдалении дороги рисуются упрощёнными ломаными по цепочкам перекрёстков
+            Rectangle2D area = visible == null ? null : expand(visible, OUTLINE_MARGIN / scale, 0);
+            g2d.setColor(ROAD_COLOR);
+            g2d.setStroke(style.road);
+            for (int i = 0; i < tier.roadXs.length; i++) {
+                if (area == null || overlaps(tier.roadBounds[i], area)) {
+                    g2d.drawPolyline(tier.roadXs[i], tier.roadYs[i], tier.roadXs[i].length);
+                }
+            }
+            if (selected instanceof Edge) {
+                paintRoad(g2d, style, (Edge) selected, selected);
+            }
+        } else if (visible == null || map.getSpatialIndex().coversAll(visible)) {
+            List<Edge> edges = map.getEdges();
+            for (int i = 0; i < edges.size(); i++) {
+                paintRoad(g2d, style, edges.get(i), selected);
+            }
+        } else {
+            map.getSpatialIndex().forEachEdgeIn(expand(visible, OUTLINE_MARGIN / scale, 0),
+                    edge -> paintRoad(g2d, style, edge, selected));
+        }
+        g2d.setStroke(style.thin);
+    }
+
+    // Координаты узлов берутся из самого маршрута, без поиска узлов в карте
+    public void paintPath(Graphics2D g2d, double scale, RoutePath route) {
+        if (route.isEmpty()) return;
+        Style style = style(scale);
+        g2d.setColor(PATH_COLOR);
+        g2d.setStroke(style.path);
+        for (int i = 0; i < route.size() - 1; i++) {
+            g2d.drawLine(route.x(i), route.y(i), route.x(i + 1), route.y(i + 1));
+        }
+        g2d.setStroke(style.thin);
+    }
+
+    public void paintNodes(Graphics2D g2d, double scale, Rectangle2D visible, Object selected) {
+        Style style = style(scale);
+        SimplifiedGeometry.Tier tier = tier(scale);
+        boolean labels = levelOfDetail.showLabels(scale);
+        boolean junctions = levelOfDetail.showJunctions(scale);
+        g2d.setFont(style.label);
+        if (mapped != null) {
+            paintMappedNodes(g2d, style, tier, visible == null ? null : expand(visible, OUTLINE_MARGIN / scale, labels ? LABEL_MARGIN / scale : 0),
+                    visible == null ? null : expand(visible, OUTLINE_MARGIN / scale, 0), labels, junctions);
+        } else if (visible == null || map.getSpatialIndex().coversAll(visible)) {
+            for (Node node : map.getNodes().values()) {
+                if (node.isBuilding()) {
+                    paintBuilding(g2d, style, node, tier, selected, labels, junctions);
+                } else if (junctions) {
+                    paintJunction(g2d, style, node, selected);
+                }
+            }
+        } else {
+            map.getSpatialIndex().forEachBuildingIn(expand(visible, OUTLINE_MARGIN / scale, labels ? LABEL_MARGIN / scale : 0),
+                    building -> paintBuilding(g2d, style, building, tier, selected, labels, junctions));
+            if (junctions) {
+                map.getSpatialIndex().forEachNodeIn(expand(visible, OUTLINE_MARGIN / scale, 0), node -> {
+                    if (!node.isBuilding()) paintJunction(g2d, style, node, selected);
+                });
+            }
+        }
+        g2d.setStroke(style.thin);
+    }
+
+    // Предпросмотр карты, которая ещё загружается: узлы nodes с from по to - 1, без дорог и подписей
+    public void paintPreview(Graphics2D g2d, double scale, List<Node> nodes, int from, int to) {
+        Style style = style(scale);
+        for (int i = from; i < to; i++) {
+            Node node = nodes.get(i);
+            if (node.isBuilding()) {
+                g2d.setColor(BUILDING_FILL);
+                g2d.fillPolygon(node.getShape());
+            } else {
+                Point position = node.getPosition();
+                g2d.setColor(JUNCTION_COLOR);
+                g2d.fillOval(position.x - style.radius2, position.y - style.radius2, style.diameter4, style.diameter4);
+            }
+        }
+    }
+
+    // Выделение рисуется поверх закэшированного слоя карты
+    public void paintSelection(Graphics2D g2d, double scale, Object selected) {
+        Style style = style(scale);
+        if (selected instanceof Edge) {
+            paintRoad(g2d, style, (Edge) selected, selected);
+        } else if (selected instanceof Node) {
+            Node node = (Node) selected;
+            if (node.isBuilding()) {
+                g2d.setColor(SELECTION_COLOR);
+                g2d.setStroke(style.highlight);
+                g2d.drawPolygon(node.getShape());
+                g2d.drawOval(node.getConnectionPoint().x - style.radius7, node.getConnectionPoint().y - style.radius7, style.diameter14, style.diameter14);
+                paintConnectionPoint(g2d, style, node);
+            } else {
+                paintJunction(g2d, style, node, selected);
+            }
+        } else if (selected instanceof Rectangle) {
+            g2d.setColor(SELECTION_COLOR);
+            g2d.setStroke(style.thin);
+            g2d.draw((Rectangle) selected);
+        }
+        g2d.setStroke(style.thin);
+    }
+
+    // Каждая дорога хранится двумя дугами; рисуется дуга от меньшего номера узла к большему.
+    // С видимой областью дороги берутся из таблицы ячеек файла (MappedMap.firstCellRoad)
+    private void paintMappedRoads(Graphics2D g2d, Style style, Rectangle2D area) {
+        g2d.setColor(ROAD_COLOR);
+        g2d.setStroke(style.road);
+        if (area == null) {
+            for (int node = 0, n = mapped.nodeCount(); node < n; node++) {
+                for (int arc = mapped.firstArc(node), end = mapped.endArc(node); arc < end; arc++) {
+                    int next = mapped.target(arc);
+                    if (next > node) {
+                        g2d.drawLine(mapped.x(node), mapped.y(node), mapped.x(next), mapped.y(next));
+                    }
+                }
+            }
+        } else {
+            int minColumn = mapped.cellColumn(area.getMinX());
+            int maxColumn = mapped.cellColumn(area.getMaxX());
+            int minRow = mapped.cellRow(area.getMinY());
+            int maxRow = mapped.cellRow(area.getMaxY());
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    int cell = mapped.cell(column, row);
+                    for (int entry = mapped.firstCellRoad(cell), end = mapped.endCellRoad(cell); entry < end; entry++) {
+                        int from = mapped.cellRoadFrom(entry);
+                        int to = mapped.cellRoadTo(entry);
+                        int x1 = mapped.x(from), y1 = mapped.y(from), x2 = mapped.x(to), y2 = mapped.y(to);
+                        int minX = Math.min(x1, x2), minY = Math.min(y1, y2);
+                        if (isFirstCell(minX, minY, minColumn, minRow, column, row)
+                                && overlaps(minX, minY, Math.max(x1, x2), Math.max(y1, y2), area)) {
+                            g2d.drawLine(x1, y1, x2, y2);
+                        }
+                    }
+                }
+            }
+        }
+        g2d.setStroke(style.thin);
+    }
+
+    private void paintMappedNodes(Graphics2D g2d, Style style, SimplifiedGeometry.Tier tier, Rectangle2D buildingArea,
+                                  Rectangle2D junctionArea, boolean labels, boolean junctions) {
+        if (buildingArea == null) {
+            for (int building = 0, count = mapped.buildingCount(); building < count; building++) {
+                paintMappedBuilding(g2d, style, tier, building, labels, junctions);
+            }
+        } else {
+            int minColumn = mapped.cellColumn(buildingArea.getMinX());
+            int maxColumn = mapped.cellColumn(buildingArea.getMaxX());
+            int minRow = mapped.cellRow(buildingArea.getMinY());
+            int maxRow = mapped.cellRow(buildingArea.getMaxY());
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    int cell = mapped.cell(column, row);
+                    for (int entry = mapped.firstCellBuilding(cell), end = mapped.endCellBuilding(cell); entry < end; entry++) {
+                        int building = mapped.cellBuilding(entry);
+                        int minX = mapped.buildingMinX(building);
+                        int minY = mapped.buildingMinY(building);
+                        if (isFirstCell(minX, minY, minColumn, minRow, column, row)
+                                && overlaps(minX, minY, mapped.buildingMaxX(building), mapped.buildingMaxY(building), buildingArea)) {
+                            paintMappedBuilding(g2d, style, tier, building, labels, junctions);
+                        }
+                    }
+                }
+            }
+        }
+        if (!junctions) return;
+        g2d.setColor(JUNCTION_COLOR);
+        if (junctionArea == null) {
+            for (int node = 0, n = mapped.nodeCount(); node < n; node++) {
+                if (mapped.buildingOf(node) < 0) paintMappedJunction(g2d, style, node);
+            }
+            return;
+        }
+        for (int row = mapped.cellRow(junctionArea.getMinY()), maxRow = mapped.cellRow(junctionArea.getMaxY()); row <= maxRow; row++) {
+            for (int column = mapped.cellColumn(junctionArea.getMinX()), maxColumn = mapped.cellColumn(junctionArea.getMaxX()); column <= maxColumn; column++) {
+                int cell = mapped.cell(column, row);
+                for (int entry = mapped.firstCellNode(cell), end = mapped.endCellNode(cell); entry < end; entry++) {
+                    int node = mapped.cellNode(entry);
+                    if (mapped.buildingOf(node) < 0 && overlaps(mapped.x(node), mapped.y(node), mapped.x(node), mapped.y(node), junctionArea)) {
+                        paintMappedJunction(g2d, style, node);
+                    }
+                }
+            }
+        }
+    }
+
+    // Дорога или здание лежит во всех ячейках своих границ; рисуется один раз — в первой из просматриваемых
+    private boolean isFirstCell(int minX, int minY, int minColumn, int minRow, int column, int row) {
+        return Math.max(mapped.cellColumn(minX), minColumn) == column && Math.max(mapped.cellRow(minY), minRow) == row;
+    }
+
+    private void paintMappedBuilding(Graphics2D g2d, Style style, SimplifiedGeometry.Tier tier, int building,
+                                     boolean labels, boolean junctions) {
+        if (tier != null) {
+            Polygon shape = tier.shape(building);
+            g2d.setColor(BUILDING_FILL);
+            g2d.fillPolygon(shape);
+            g2d.setColor(BUILDING_OUTLINE);
+            g2d.setStroke(style.outline);
+            g2d.drawPolygon(shape);
+        } else {
+            int first = mapped.firstVertex(building);
+            int vertices = mapped.endVertex(building) - first;
+            if (vertices > polygonXs.length) {
+                polygonXs = new int[vertices];
+                polygonYs = new int[vertices];
+            }
+            for (int i = 0; i < vertices; i++) {
+                polygonXs[i] = mapped.vertexX(first + i);
+                polygonYs[i] = mapped.vertexY(first + i);
+            }
+            g2d.setColor(BUILDING_FILL);
+            g2d.fillPolygon(polygonXs, polygonYs, vertices);
+            g2d.setColor(BUILDING_OUTLINE);
+            g2d.setStroke(style.outline);
+            g2d.drawPolygon(polygonXs, polygonYs, vertices);
+        }
+        int node = mapped.buildingNode(building);
+        if (junctions) {
+            paintConnectionPoint(g2d, style, mapped.x(node), mapped.y(node));
+        }
+        if (labels) {
+            // Границы включают точку подключения; подпись по ним может сдвинуться, если точка выступает за контур
+            int minY = mapped.buildingMinY(building);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString(mapped.label(building), mapped.buildingMaxX(building) + 5, minY + (mapped.buildingMaxY(building) - minY) / 2);
+        }
+    }
+
+    private void paintMappedJunction(Graphics2D g2d, Style style, int node) {
+        int x = mapped.x(node);
+        int y = mapped.y(node);
+        g2d.fillOval(x - style.radius5, y - style.radius5, style.diameter10, style.diameter10);
+    }
+
+    private void paintRoad(Graphics2D g2d, Style style, Edge edge, Object selected) {
+        Point fromPos = map.getNodes().get(edge.getFrom()).getPosition();
+        Point toPos = map.getNodes().get(edge.getTo()).getPosition();
+        if (selected == edge) {
+            g2d.setColor(SELECTION_COLOR);
+            g2d.setStroke(style.selectedRoad);
+        } else {
+            g2d.setColor(ROAD_COLOR);
+            g2d.setStroke(style.road);
+        }
+        g2d.drawLine(fromPos.x, fromPos.y, toPos.x, toPos.y);
+    }
+
+    private void paintBuilding(Graphics2D g2d, Style style, Node node, SimplifiedGeometry.Tier tier, Object selected,
+                               boolean label, boolean connectionPoint) {
+        Polygon shape = tier != null ? tier.shape(node) : node.getShape();
+        g2d.setColor(BUILDING_FILL);
+        g2d.fillPolygon(shape);
+        g2d.setColor(BUILDING_OUTLINE);
+        g2d.setStroke(style.outline);
+        g2d.drawPolygon(shape);
+        if (selected == node) {
+            g2d.setColor(SELECTION_COLOR);
+            g2d.setStroke(style.highlight);
+            g2d.drawPolygon(shape);
+            g2d.drawOval(node.getConnectionPoint().x - style.radius7, node.getConnectionPoint().y - style.radius7, style.diameter14, style.diameter14);
+        }
+        if (connectionPoint) {
+            paintConnectionPoint(g2d, style, node);
+        }
+        if (!label) return;
+
+        // Подпись справа от контура; границы считаются по вершинам, без Polygon.getBounds() с новым Rectangle
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < shape.npoints; i++) {
+            minX = Math.min(minX, shape.xpoints[i]);
+            maxX = Math.max(maxX, shape.xpoints[i]);
+            minY = Math.min(minY, shape.ypoints[i]);
+            maxY = Math.max(maxY, shape.ypoints[i]);
+        }
+        g2d.setColor(Color.BLACK);
+        g2d.drawString(node.getLabel(), maxX + 5, minY + (maxY - minY) / 2);
+    }
+
+    private void paintConnectionPoint(Graphics2D g2d, Style style, Node node) {
+        Point connection = node.getConnectionPoint();
+        paintConnectionPoint(g2d, style, connection.x, connection.y);
+    }
+
+    private void paintConnectionPoint(Graphics2D g2d, Style style, int x, int y) {
+        g2d.setColor(CONNECTION_COLOR);
+        g2d.fillOval(x - style.radius5, y - style.radius5, style.diameter10, style.diameter10);
+        g2d.setColor(Color.WHITE);
+        g2d.fillOval(x - style.radius2, y - style.radius2, style.diameter4, style.diameter4);
+    }
+
+    private void paintJunction(Graphics2D g2d, Style style, Node node, Object selected) {
+        Point position = node.getPosition();
+        g2d.setColor(JUNCTION_COLOR);
+        g2d.fillOval(position.x - style.radius5, position.y - style.radius5, style.diameter10, style.diameter10);
+        if (selected == node) {
+            g2d.setColor(SELECTION_COLOR);
+            g2d.setStroke(style.highlight);
+            g2d.drawOval(position.x - style.radius7, position.y - style.radius7, style.diameter14, style.diameter14);
+        }
+    }
+
+    // В отличие от Rectangle2D.intersects, учитывает вырожденные (вертикальные и горизонтальные) ломаные
+    private static boolean overlaps(Rectangle bounds, Rectangle2D area) {
+        return overlaps(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height, area);
+    }
+
+    private static boolean overlaps(int minX, int minY, int maxX, int maxY, Rectangle2D area) {
+        return minX <= area.getMaxX() && maxX >= area.getMinX() && minY <= area.getMaxY() && maxY >= area.getMinY();
+    }
+
+    private static Rectangle2D expand(Rectangle2D area, double margin, double extraLeft) {
+        return new Rectangle2D.Double(area.getX() - margin - extraLeft, area.getY() - margin,
+                area.getWidth() + 2 * margin + extraLeft, area.getHeight() + 2 * margin);
+    }
+}
@@ -2,7 +2,11 @@ package ui;
 
 import model.CampusMap;
 import model.Edge;
+import model.MapSnapshot;
+import model.MappedMap;
 import model.Node;
+import model.RoutePath;
+import model.RoutingMode;
 import util.FileUtil;
 
 import javax.swing.*;
@@ -14,9 +18,12 @@ import java.awt.event.MouseEvent;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.Callable;
 
 public class Navigation extends JFrame {
     private CampusMap currentMap;
+    // В режиме только навигации карта открывается из файла .mmap без загрузки в кучу
+    private MappedMap mappedMap;
     private File currentFile;
     private String mapName;
     private MapPanel mapPanel;
@@ -24,6 +31,9 @@ public class Navigation extends JFrame {
     private JPanel modePanel;
     private JPanel titlePanel;
     private JLabel mapNameLabel;
+    private JProgressBar loadProgress;
+    private JButton cancelLoadButton;
+    private MapLoadWorker loadWorker;
     public JComboBox<String> startCombo;
     public JComboBox<String> endCombo;
     private JButton deleteButton;
@@ -39,20 +49,29 @@ public class Navigation extends JFrame {
     private JComboBox<String> mapCombo;
     private JLabel startLabel;
     private JLabel endLabel;
+    private JLabel routeModeLabel;
+    private JComboBox<String> routeModeCombo;
     private JButton findPathButton;
+    private JLabel routeStatusLabel;
+    private final RouteSearch<RoutePath> routeSearch = new RouteSearch<>();
     private JLayeredPane layeredPane;
     private JButton resetZoomButton;
     private JButton cancelButton;
     private final boolean navigationOnly;
     private final File mapDirectory;
 
+    private static final String ROUTE_MODE_RANK = "By road rank";
+    private static final String ROUTE_MODE_DISTANCE = "By distance (A*)";
+
+    private static final int ROUTE_CACHE_CAPACITY = 64;
+
     private static final double CONTROL_PANEL_WIDTH_PERCENT = 0.20;
     private static final int MIN_CONTROL_PANEL_WIDTH = 150;
     private static final int CONTROL_PANEL_PADDING = 20;
 
     public Navigation(boolean navigationOnly, String title, String mapDirectoryPath) {
         this.navigationOnly = navigationOnly;
-        currentMap = new CampusMap();
+        currentMap = newEditableMap();
         currentFile = null;
         mapName = "Untitled";
         if(title != null) {
@@ -72,6 +91,20 @@ public class Navigation extends JFrame {
         mapNameLabel.setFont(new Font("Arial", Font.BOLD, 16));
         mapNameLabel.setForeground(new Color(25, 25, 112));
         titlePanel.add(mapNameLabel);
+        // Прогресс и отмена видны только пока карта загружается
+        loadProgress = new JProgressBar(0, 100);
+        loadProgress.setStringPainted(true);
+        loadProgress.setVisible(false);
+        titlePanel.add(loadProgress);
+        cancelLoadButton = new JButton("Cancel");
+        styleButton(cancelLoadButton, false);
+        cancelLoadButton.setVisible(false);
+        cancelLoadButton.addActionListener(evt -> {
+            if (loadWorker != null) {
+                loadWorker.cancel(true);
+            }
+        });
+        titlePanel.add(cancelLoadButton);
 
         initializeUI();
         setupModeButtonListeners();
@@ -104,6 +137,9 @@ public class Navigation extends JFrame {
         add(layeredPane, BorderLayout.CENTER);
 
         mapPanel = new MapPanel(currentMap, this);
+        if (mappedMap != null) {
+            mapPanel.setMappedMap(mappedMap);
+        }
         mapPanel.setBounds(0, 0, 800, 600);
         layeredPane.add(mapPanel, JLayeredPane.DEFAULT_LAYER);
 
@@ -188,7 +224,9 @@ public class Navigation extends JFrame {
         clearMapButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         styleButton(clearMapButton, false);
         clearMapButton.addActionListener(evt -> {
-            currentMap = new CampusMap();
+            routeSearch.cancel();
+            currentMap = newEditableMap();
+            mappedMap = null;
             currentFile = null;
             mapName = "Untitled";
             mapNameLabel.setText(mapName);
@@ -219,8 +257,8 @@ public class Navigation extends JFrame {
                     if (!selectedFile.getName().endsWith(".map")) {
                         selectedFile = new File(selectedFile.getAbsolutePath() + ".map");
                     }
-                    try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(selectedFile))) {
-                        oos.writeObject(currentMap);
+                    try {
+                        FileUtil.writeMap(currentMap, selectedFile);
                         currentFile = selectedFile;
                         mapName = selectedFile.getName();
                         if (mapName.endsWith(".map")) {
@@ -235,8 +273,8 @@ public class Navigation extends JFrame {
                     }
                 }
             } else {
-                try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(currentFile))) {
-                    oos.writeObject(currentMap);
+                try {
+                    FileUtil.writeMap(currentMap, currentFile);
                     JOptionPane.showMessageDialog(this, "Map saved successfully!");
                 } catch (IOException ex) {
                     JOptionPane.showMessageDialog(this, "Error saving map!");
@@ -252,7 +290,6 @@ public class Navigation extends JFrame {
             fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Map files (*.map)", "map"));
             if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
                 loadMap(fileChooser.getSelectedFile());
-                updateNewMapButtonState();
             }
         });
 
@@ -261,7 +298,9 @@ public class Navigation extends JFrame {
         styleButton(newMapButton, false);
         newMapButton.setEnabled(false);
         newMapButton.addActionListener(evt -> {
-            currentMap = new CampusMap();
+            routeSearch.cancel();
+            currentMap = newEditableMap();
+            mappedMap = null;
             currentFile = null;
             mapName = "Untitled";
             mapNameLabel.setText(mapName);
@@ -288,7 +327,6 @@ public class Navigation extends JFrame {
                 File mapFile = new File(mapDirectory, selectedMap + ".map");
                 System.out.println("Loading map: " + mapFile.getAbsolutePath());
                 loadMap(mapFile);
-                updateNewMapButtonState();
             }
         });
         FileUtil.updateMapCombo(mapCombo, mapDirectory);
@@ -297,6 +335,10 @@ public class Navigation extends JFrame {
         startCombo = createStyledComboBox();
         endLabel = createStyledLabel("End Building:");
         endCombo = createStyledComboBox();
+        routeModeLabel = createStyledLabel("Route Mode:");
+        routeModeCombo = createStyledComboBox();
+        routeModeCombo.addItem(ROUTE_MODE_RANK);
+        routeModeCombo.addItem(ROUTE_MODE_DISTANCE);
         findPathButton = new JButton("Find Shortest Path");
         findPathButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         styleButton(findPathButton, false);
@@ -304,15 +346,12 @@ public class Navigation extends JFrame {
             String start = (String) startCombo.getSelectedItem();
             String end = (String) endCombo.getSelectedItem();
             if (start != null && end != null) {
-                java.util.List<String> path = currentMap.findShortestPath("B_" + start, "B_" + end);
-                mapPanel.setCurrentPath(path);
-                if (path.isEmpty()) {
-                    JOptionPane.showMessageDialog(this, "No path found between the selected buildings!");
-                }
+                findPath("B_" + start, "B_" + end, getSelectedRoutingMode());
             } else {
                 JOptionPane.showMessageDialog(this, "Select start and end buildings!");
             }
         });
+        routeStatusLabel = createStyledLabel(" ");
 
         deleteButton = new JButton("Delete");
         deleteButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -331,6 +370,12 @@ public class Navigation extends JFrame {
                 currentMap.deleteEdge(edge);
                 mapPanel.clearSelection();
                 mapPanel.repaint();
+            } else if (selected instanceof Rectangle) {
+                // Область, выделенная перетаскиванием с Shift: все узлы в ней и их дороги
+                currentMap.deleteNodesIn((Rectangle) selected);
+                mapPanel.clearSelection();
+                updateBuildingCombos();
+                mapPanel.repaint();
             }
         });
 
@@ -356,6 +401,49 @@ public class Navigation extends JFrame {
         }
     }
 
+    // Маршрут ищется в потоке RouteSearch по снимку карты; EDT остаётся свободным, а результат
+    // показывается, только если это последний запрошенный маршрут и карта с тех пор не менялась
+    private void findPath(String start, String end, RoutingMode mode) {
+        Callable<RoutePath> query;
+        CampusMap map = currentMap;
+        long version = map.getVersion();
+        if (mappedMap != null) {
+            MappedMap mapped = mappedMap;
+            query = () -> mapped.findRoute(start, end, mode);
+        } else {
+            MapSnapshot snapshot = map.snapshot();
+            query = () -> snapshot.findRoute(start, end, mode);
+        }
+        routeStatusLabel.setText("Searching...");
+        routeSearch.submit(query, new RouteSearch.Callback<RoutePath>() {
+            @Override
+            public void found(RoutePath route, long elapsedMillis) {
+                if (map != currentMap || map.getVersion() != version) {
+                    routeStatusLabel.setText("Map changed, search again");
+                    return;
+                }
+                System.out.println("Route " + start + " -> " + end + " (" + mode + "): " + route.size() + " nodes in " + elapsedMillis + " ms");
+                mapPanel.setCurrentPath(route);
+                if (route.isEmpty()) {
+                    routeStatusLabel.setText("No path (" + elapsedMillis + " ms)");
+                    JOptionPane.showMessageDialog(Navigation.this, "No path found between the selected buildings!");
+                } else {
+                    routeStatusLabel.setText(String.format("%d nodes, length %.0f, %d ms", route.size(), route.getLength(), elapsedMillis));
+                }
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+                System.out.println("Route search failed: " + cause);
+                routeStatusLabel.setText("Route search failed");
+            }
+        });
+    }
+
+    private RoutingMode getSelectedRoutingMode() {
+        return ROUTE_MODE_DISTANCE.equals(routeModeCombo.getSelectedItem()) ? RoutingMode.DISTANCE : RoutingMode.RANK;
+    }
+
     private void updateNewMapButtonState() {
         if (newMapButton != null) {
             newMapButton.setEnabled(currentFile != null);
@@ -485,37 +573,110 @@ public class Navigation extends JFrame {
         dialog.setVisible(true);
     }
 
+    // Карта читается в фоновом потоке; текущая карта остаётся в работе, пока новая не прочитана целиком,
+    // и заменяется одним шагом в loaded. Повторный выбор карты отменяет предыдущую загрузку
     private void loadMap(File mapFile) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(mapFile))) {
-            currentMap = (CampusMap) ois.readObject();
-            currentFile = mapFile;
-            mapName = mapFile.getName();
-            if (mapName.endsWith(".map")) {
-                mapName = mapName.substring(0, mapName.length() - 4);
+        if (loadWorker != null) {
+            loadWorker.cancel(true);
+        }
+        mapPanel.startLoadingPreview();
+        loadProgress.setValue(0);
+        loadProgress.setVisible(true);
+        cancelLoadButton.setVisible(true);
+        titlePanel.revalidate();
+        loadWorker = new MapLoadWorker(mapFile, navigationOnly) {
+            @Override
+            protected void preview(java.util.List<Node> nodes) {
+                if (loadWorker == this) {
+                    mapPanel.addLoadingPreview(nodes);
+                }
             }
-            mapNameLabel.setText(mapName);
-            getContentPane().removeAll();
-            initializeUI();
-            setupModeButtonListeners();
-            if (navigationOnly) {
-                switchToNavigationMode();
-            } else {
-                switchToNavigationMode();
+
+            @Override
+            protected void loaded(Result result) {
+                if (loadWorker != this) return;
+                finishLoading();
+                showLoadedMap(result);
             }
-            updateBuildingCombos();
-            revalidate();
-            repaint();
-            updateControlPanelWidth();
-            JOptionPane.showMessageDialog(this, "Map loaded successfully!");
-        } catch (IOException | ClassNotFoundException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading map!");
+
+            @Override
+            protected void cancelled() {
+                if (loadWorker != this) return;
+                finishLoading();
+                mapPanel.stopLoadingPreview();
+            }
+
+            @Override
+            protected void failed(Throwable cause) {
+                if (loadWorker != this) return;
+                System.out.println("Error loading map " + mapFile.getAbsolutePath() + ": " + cause);
+                finishLoading();
+                mapPanel.stopLoadingPreview();
+                JOptionPane.showMessageDialog(Navigation.this, "Error loading map!");
+            }
+        };
+        loadWorker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName()) && evt.getSource() == loadWorker) {
+                loadProgress.setValue((Integer) evt.getNewValue());
+            }
+        });
+        loadWorker.execute();
+    }
+
+    private void finishLoading() {
+        loadWorker = null;
+        loadProgress.setVisible(false);
+        cancelLoadButton.setVisible(false);
+        titlePanel.revalidate();
+    }
+
+    // В редакторе маршрут по длине после правки дороги исправляется, а не ищется заново
+    private CampusMap newEditableMap() {
+        CampusMap map = new CampusMap();
+        map.setDynamicRoutingEnabled(!navigationOnly);
+        return map;
+    }
+
+    private void showLoadedMap(MapLoadWorker.Result result) {
+        routeSearch.cancel();
+        if (result.mapped != null) {
+            // Киоск карту не меняет: она читается прямо из отображённого в память файла
+            mappedMap = result.mapped;
+            mappedMap.setRouteCacheCapacity(ROUTE_CACHE_CAPACITY);
+            mappedMap.setBuildingTableEnabled(true);
+            currentMap = new CampusMap();
+        } else {
+            mappedMap = null;
+            currentMap = result.map;
+            currentMap.setRouteCacheCapacity(ROUTE_CACHE_CAPACITY);
+            currentMap.setDynamicRoutingEnabled(!navigationOnly);
         }
+        currentFile = result.file;
+        mapName = result.file.getName();
+        if (mapName.endsWith(".map")) {
+            mapName = mapName.substring(0, mapName.length() - 4);
+        }
+        mapNameLabel.setText(mapName);
+        getContentPane().removeAll();
+        initializeUI();
+        setupModeButtonListeners();
+        if (navigationOnly) {
+            switchToNavigationMode();
+        } else {
+            switchToNavigationMode();
+        }
+        updateBuildingCombos();
+        revalidate();
+        repaint();
+        updateNewMapButtonState();
+        updateControlPanelWidth();
+        JOptionPane.showMessageDialog(this, "Map loaded successfully!");
     }
 
     private void switchToEditMode() {
         System.out.println("Entering Edit Mode");
         mapPanel.setEditMode(true);
-        mapPanel.setCurrentPath(new ArrayList<>());
+        mapPanel.setCurrentPath(RoutePath.EMPTY);
         controlPanel.removeAll();
         addComponentWithSpacing(controlPanel, addBuildingButton);
         addComponentWithSpacing(controlPanel, finishBuildingButton);
@@ -528,7 +689,10 @@ public class Navigation extends JFrame {
         addComponentWithSpacing(controlPanel, startCombo);
         addComponentWithSpacing(controlPanel, endLabel);
         addComponentWithSpacing(controlPanel, endCombo);
+        addComponentWithSpacing(controlPanel, routeModeLabel);
+        addComponentWithSpacing(controlPanel, routeModeCombo);
         addComponentWithSpacing(controlPanel, findPathButton);
+        addComponentWithSpacing(controlPanel, routeStatusLabel);
         addComponentWithSpacing(controlPanel, deleteButton);
         addComponentWithSpacing(controlPanel, cancelButton);
         updateModeButtonStyles(true);
@@ -542,14 +706,17 @@ public class Navigation extends JFrame {
     private void switchToNavigationMode() {
         System.out.println("Entering Navigation Mode");
         mapPanel.setEditMode(false);
-        mapPanel.setCurrentPath(new ArrayList<>());
+        mapPanel.setCurrentPath(RoutePath.EMPTY);
         controlPanel.removeAll();
         addComponentWithSpacing(controlPanel, mapCombo);
         addComponentWithSpacing(controlPanel, startLabel);
         addComponentWithSpacing(controlPanel, startCombo);
         addComponentWithSpacing(controlPanel, endLabel);
         addComponentWithSpacing(controlPanel, endCombo);
+        addComponentWithSpacing(controlPanel, routeModeLabel);
+        addComponentWithSpacing(controlPanel, routeModeCombo);
         addComponentWithSpacing(controlPanel, findPathButton);
+        addComponentWithSpacing(controlPanel, routeStatusLabel);
         updateModeButtonStyles(false);
         FileUtil.updateMapCombo(mapCombo, mapDirectory);
         updateControlPanelWidth();
@@ -558,7 +725,7 @@ public class Navigation extends JFrame {
     }
 
     public void updateBuildingCombos() {
-        ArrayList<String> buildingIds = new ArrayList<>(currentMap.getBuildings());
+        ArrayList<String> buildingIds = new ArrayList<>(mappedMap != null ? mappedMap.getBuildings() : currentMap.getBuildings());
         Collections.sort(buildingIds, (id1, id2) -> {
             String name1 = id1.startsWith("B_") ? id1.substring(2) : id1;
             String name2 = id2.startsWith("B_") ? id2.substring(2) : id2;
@@ -653,6 +820,8 @@ public class Navigation extends JFrame {
         adjustComboBoxPopupWidth(startCombo);
         updateComboBoxSize(endCombo);
         adjustComboBoxPopupWidth(endCombo);
+        updateComboBoxSize(routeModeCombo);
+        adjustComboBoxPopupWidth(routeModeCombo);
 
         updateUI();
     }
@@ -0,0 +1,69 @@
+package ui;
+
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Поиск маршрутов в отдельном потоке. Побеждает последний запрос: новый запрос отменяет предыдущий
+// (ещё не начатый не выполняется вовсе, результат уже идущего отбрасывается), а колбэк вызывается
+// в потоке EDT только для последнего. Методы submit и cancel вызываются из EDT.
+final class RouteSearch<T> {
+    interface Callback<T> {
+        void found(T route, long elapsedMillis);
+
+        void failed(Throwable cause);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "route-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pending;
+    private long latest;
+
+    // Запрос должен читать только неизменяемые данные (MapSnapshot, MappedMap)
+    void submit(Callable<T> query, Callback<T> callback) {
+        cancel();
+        long request = latest;
+        pending = executor.submit(() -> {
+            long started = System.nanoTime();
+            try {
+                T route = query.call();
+                long elapsed = (System.nanoTime() - started) / 1_000_000;
+                deliver(request, () -> callback.found(route, elapsed));
+            } catch (Throwable e) {
+                deliver(request, () -> callback.failed(e));
+            }
+        });
+    }
+
+    // Отменяет текущий запрос, например при смене карты
+    void cancel() {
+        latest++;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    boolean isBusy() {
+        return pending != null;
+    }
+
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void deliver(long request, Runnable result) {
+        SwingUtilities.invokeLater(() -> {
+            if (request == latest) {
+                pending = null;
+                result.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,354 @@
+package ui;
+
+import model.CampusMap;
+import model.Edge;
+import model.MappedMap;
+import model.Node;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Упрощённая геометрия карты для уровней детализации. Дороги объединены в ломаные по цепочкам
+// перекрёстков, у которых ровно две дороги; ломаные и контуры зданий упрощены алгоритмом Дугласа — Пекера.
+// Каждый уровень строится при первом обращении и действителен для одной версии карты.
+// Для карты только для чтения (MappedMap) уровни строятся по отображённому файлу, контуры — по номеру здания.
+final class SimplifiedGeometry {
+    private final CampusMap map;
+    private final MappedMap mapped;
+    private final LevelOfDetail levelOfDetail;
+    private final long version;
+    private final Tier[] tiers;
+    private List<int[][]> chains;
+
+    SimplifiedGeometry(CampusMap map, LevelOfDetail levelOfDetail) {
+        this.map = map;
+        this.mapped = null;
+        this.levelOfDetail = levelOfDetail;
+        this.version = map.getVersion();
+        this.tiers = new Tier[levelOfDetail.tierCount()];
+    }
+
+    SimplifiedGeometry(MappedMap mapped, LevelOfDetail levelOfDetail) {
+        this.map = null;
+        this.mapped = mapped;
+        this.levelOfDetail = levelOfDetail;
+        this.version = 0;
+        this.tiers = new Tier[levelOfDetail.tierCount()];
+    }
+
+    boolean isCurrent(CampusMap map, LevelOfDetail levelOfDetail) {
+        return this.map == map && this.levelOfDetail == levelOfDetail && version == map.getVersion();
+    }
+
+    // Карта только для чтения не меняется
+    boolean isCurrent(MappedMap mapped, LevelOfDetail levelOfDetail) {
+        return this.mapped == mapped && this.levelOfDetail == levelOfDetail;
+    }
+
+    Tier tier(int index) {
+        if (tiers[index] == null) {
+            if (chains == null) {
+                chains = map != null ? roadChains(map) : roadChains(mapped);
+            }
+            tiers[index] = map != null ? new Tier(map, chains, levelOfDetail.tolerance(index))
+                    : new Tier(mapped, chains, levelOfDetail.tolerance(index));
+        }
+        return tiers[index];
+    }
+
+    static final class Tier {
+        final int[][] roadXs;
+        final int[][] roadYs;
+        final Rectangle[] roadBounds;
+        private final Map<Node, Polygon> shapes = new IdentityHashMap<>();
+        // Контуры зданий MappedMap по номеру здания
+        private final Polygon[] buildingShapes;
+
+        Tier(CampusMap map, List<int[][]> chains, double tolerance) {
+            roadXs = new int[chains.size()][];
+            roadYs = new int[chains.size()][];
+            roadBounds = new Rectangle[chains.size()];
+            simplifyRoads(chains, tolerance);
+            for (Node node : map.getNodes().values()) {
+                if (node.isBuilding()) {
+                    shapes.put(node, simplifyPolygon(node.getShape(), tolerance));
+                }
+            }
+            buildingShapes = new Polygon[0];
+        }
+
+        Tier(MappedMap mapped, List<int[][]> chains, double tolerance) {
+            roadXs = new int[chains.size()][];
+            roadYs = new int[chains.size()][];
+            roadBounds = new Rectangle[chains.size()];
+            simplifyRoads(chains, tolerance);
+            buildingShapes = new Polygon[mapped.buildingCount()];
+            for (int building = 0; building < buildingShapes.length; building++) {
+                int first = mapped.firstVertex(building);
+                int vertices = mapped.endVertex(building) - first;
+                int[] xs = new int[vertices];
+                int[] ys = new int[vertices];
+                for (int i = 0; i < vertices; i++) {
+                    xs[i] = mapped.vertexX(first + i);
+                    ys[i] = mapped.vertexY(first + i);
+                }
+                buildingShapes[building] = simplifyPolygon(new Polygon(xs, ys, vertices), tolerance);
+            }
+        }
+
+        private void simplifyRoads(List<int[][]> chains, double tolerance) {
+            for (int i = 0; i < chains.size(); i++) {
+                int[][] simplified = simplifyPolyline(chains.get(i)[0], chains.get(i)[1], tolerance);
+                roadXs[i] = simplified[0];
+                roadYs[i] = simplified[1];
+                roadBounds[i] = new Polygon(roadXs[i], roadYs[i], roadXs[i].length).getBounds();
+            }
+        }
+
+        Polygon shape(Node building) {
+            Polygon shape = shapes.get(building);
+            return shape != null ? shape : building.getShape();
+        }
+
+        Polygon shape(int building) {
+            return buildingShapes[building];
+        }
+    }
+
+    // Цепочки дорог: внутренние узлы цепочки — перекрёстки ровно с двумя дорогами.
+    // Каждая цепочка — пара массивов {xs, ys} координат узлов по порядку
+    static List<int[][]> roadChains(CampusMap map) {
+        Map<String, Map<String, Edge>> graph = map.getGraph();
+        Set<Edge> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<int[][]> chains = new ArrayList<>();
+
+        for (Map.Entry<String, Map<String, Edge>> entry : graph.entrySet()) {
+            if (isInterior(map, entry.getKey())) continue;
+            for (Map.Entry<String, Edge> neighbor : entry.getValue().entrySet()) {
+                if (!visited.contains(neighbor.getValue())) {
+                    chains.add(walk(map, entry.getKey(), neighbor.getKey(), neighbor.getValue(), visited));
+                }
+            }
+        }
+        // Остались только замкнутые кольца из внутренних перекрёстков
+        for (Map.Entry<String, Map<String, Edge>> entry : graph.entrySet()) {
+            for (Map.Entry<String, Edge> neighbor : entry.getValue().entrySet()) {
+                if (!visited.contains(neighbor.getValue())) {
+                    chains.add(walk(map, entry.getKey(), neighbor.getKey(), neighbor.getValue(), visited));
+                }
+            }
+        }
+        return chains;
+    }
+
+    private static int[][] walk(CampusMap map, String start, String next, Edge first, Set<Edge> visited) {
+        List<Point> points = new ArrayList<>();
+        points.add(map.getNodes().get(start).getPosition());
+        visited.add(first);
+        String previous = start;
+        String current = next;
+        while (!current.equals(start) && isInterior(map, current)) {
+            points.add(map.getNodes().get(current).getPosition());
+            String following = null;
+            for (Map.Entry<String, Edge> neighbor : map.getGraph().get(current).entrySet()) {
+                if (!neighbor.getKey().equals(previous) && !visited.contains(neighbor.getValue())) {
+                    following = neighbor.getKey();
+                    visited.add(neighbor.getValue());
+                    break;
+                }
+            }
+            if (following == null) break;
+            previous = current;
+            current = following;
+        }
+        points.add(map.getNodes().get(current).getPosition());
+
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+        return new int[][]{xs, ys};
+    }
+
+    private static boolean isInterior(CampusMap map, String nodeId) {
+        return !map.getNodes().get(nodeId).isBuilding() && map.getGraph().get(nodeId).size() == 2;
+    }
+
+    // То же по дугам MappedMap: каждая дорога — две встречные дуги, пройденными отмечаются обе
+    static List<int[][]> roadChains(MappedMap mapped) {
+        boolean[] visited = new boolean[mapped.arcCount()];
+        List<int[][]> chains = new ArrayList<>();
+
+        for (int node = 0, n = mapped.nodeCount(); node < n; node++) {
+            if (isInterior(mapped, node)) continue;
+            for (int arc = mapped.firstArc(node), end = mapped.endArc(node); arc < end; arc++) {
+                if (!visited[arc]) {
+                    chains.add(walk(mapped, node, arc, visited));
+                }
+            }
+        }
+        // Остались только замкнутые кольца из внутренних перекрёстков
+        for (int node = 0, n = mapped.nodeCount(); node < n; node++) {
+            for (int arc = mapped.firstArc(node), end = mapped.endArc(node); arc < end; arc++) {
+                if (!visited[arc]) {
+                    chains.add(walk(mapped, node, arc, visited));
+                }
+            }
+        }
+        return chains;
+    }
+
+    private static int[][] walk(MappedMap mapped, int start, int first, boolean[] visited) {
+        int[] xs = new int[8];
+        int[] ys = new int[8];
+        xs[0] = mapped.x(start);
+        ys[0] = mapped.y(start);
+        int count = 1;
+        int current = visit(mapped, start, first, visited);
+        while (current != start && isInterior(mapped, current)) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, 2 * count);
+                ys = Arrays.copyOf(ys, 2 * count);
+            }
+            xs[count] = mapped.x(current);
+            ys[count] = mapped.y(current);
+            count++;
+            int following = -1;
+            for (int arc = mapped.firstArc(current), end = mapped.endArc(current); arc < end; arc++) {
+                if (!visited[arc]) {
+                    following = visit(mapped, current, arc, visited);
+                    break;
+                }
+            }
+            if (following < 0) break;
+            current = following;
+        }
+        xs = Arrays.copyOf(xs, count + 1);
+        ys = Arrays.copyOf(ys, count + 1);
+        xs[count] = mapped.x(current);
+        ys[count] = mapped.y(current);
+        return new int[][]{xs, ys};
+    }
+
+    // Отмечает дугу и встречную ей, возвращает узел на другом конце дороги
+    private static int visit(MappedMap mapped, int from, int arc, boolean[] visited) {
+        int to = mapped.target(arc);
+        visited[arc] = true;
+        for (int back = mapped.firstArc(to), end = mapped.endArc(to); back < end; back++) {
+            if (mapped.target(back) == from) {
+                visited[back] = true;
+                break;
+            }
+        }
+        return to;
+    }
+
+    private static boolean isInterior(MappedMap mapped, int node) {
+        return mapped.buildingOf(node) < 0 && mapped.endArc(node) - mapped.firstArc(node) == 2;
+    }
+
+    // Дуглас — Пекер для ломаной: концы сохраняются, отклонение остальных точек не больше tolerance
+    static int[][] simplifyPolyline(int[] xs, int[] ys, double tolerance) {
+        int n = xs.length;
+        if (n <= 2 || tolerance <= 0) return new int[][]{xs.clone(), ys.clone()};
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        markKept(xs, ys, 0, n - 1, tolerance, keep);
+        return collect(xs, ys, keep);
+    }
+
+    // Замкнутый контур делится на две ломаные по самой удалённой от первой вершины точке
+    static Polygon simplifyPolygon(Polygon polygon, double tolerance) {
+        int n = polygon.npoints;
+        int[] xs = Arrays.copyOf(polygon.xpoints, n);
+        int[] ys = Arrays.copyOf(polygon.ypoints, n);
+        if (n <= 4 || tolerance <= 0) return new Polygon(xs, ys, n);
+
+        int farthest = 0;
+        double farthestDistance = -1;
+        for (int i = 1; i < n; i++) {
+            double distance = Math.hypot(xs[i] - xs[0], ys[i] - ys[0]);
+            if (distance > farthestDistance) {
+                farthestDistance = distance;
+                farthest = i;
+            }
+        }
+        // Замыкаем контур, чтобы вторая половина шла от farthest до повтора первой вершины
+        int[] closedXs = Arrays.copyOf(xs, n + 1);
+        int[] closedYs = Arrays.copyOf(ys, n + 1);
+        closedXs[n] = xs[0];
+        closedYs[n] = ys[0];
+        boolean[] keep = new boolean[n + 1];
+        keep[0] = true;
+        keep[farthest] = true;
+        markKept(closedXs, closedYs, 0, farthest, tolerance, keep);
+        markKept(closedXs, closedYs, farthest, n, tolerance, keep);
+        keep[n] = false;
+
+        int[][] kept = collect(closedXs, closedYs, keep);
+        if (kept[0].length < 3) {
+            // Контур выродился в отрезок: рисуем ограничивающий прямоугольник, чтобы здание не пропало
+            Rectangle bounds = polygon.getBounds();
+            return new Polygon(new int[]{bounds.x, bounds.x + bounds.width, bounds.x + bounds.width, bounds.x},
+                    new int[]{bounds.y, bounds.y, bounds.y + bounds.height, bounds.y + bounds.height}, 4);
+        }
+        return new Polygon(kept[0], kept[1], kept[0].length);
+    }
+
+    // Отмечает сохраняемые точки между first и last (обе уже сохранены); стек вместо рекурсии
+    private static void markKept(int[] xs, int[] ys, int first, int last, double tolerance, boolean[] keep) {
+        int[] stack = new int[2 * (last - first + 1)];
+        int top = 0;
+        stack[top++] = first;
+        stack[top++] = last;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            int farthest = -1;
+            double farthestDistance = tolerance;
+            for (int i = start + 1; i < end; i++) {
+                double distance = MapHitTester.distanceToSegment(new Point(xs[i], ys[i]),
+                        new Point(xs[start], ys[start]), new Point(xs[end], ys[end]));
+                if (distance > farthestDistance) {
+                    farthestDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+    }
+
+    private static int[][] collect(int[] xs, int[] ys, boolean[] keep) {
+        int count = 0;
+        for (boolean k : keep) {
+            if (k) count++;
+        }
+        int[] keptXs = new int[count];
+        int[] keptYs = new int[count];
+        for (int i = 0, j = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                keptXs[j] = xs[i];
+                keptYs[j] = ys[i];
+                j++;
+            }
+        }
+        return new int[][]{keptXs, keptYs};
+    }
+}
@@ -0,0 +1,79 @@
+package ui;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+// Неизменяемая часть карты (дороги, здания, подписи), закэшированная во внеэкранном изображении.
+// Перерисовывается только при изменении карты (по её версии), масштаба, сдвига или размера панели,
+// поэтому перетаскивание вершин и рисование временных фигур копирует готовую картинку.
+public class StaticMapLayer {
+    private final MapRenderer renderer;
+
+    private BufferedImage image;
+    private long version = -1;
+    private double scale;
+    private double translateX;
+    private double translateY;
+    private double deviceScale;
+    private Color background;
+
+    public StaticMapLayer(MapRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    // g2d — графика панели без преобразования карты; width и height — размер панели
+    public void paint(Graphics2D g2d, int width, int height, double scale, double translateX, double translateY, Color background) {
+        if (width <= 0 || height <= 0) return;
+        // На экранах с масштабированием Graphics2D уже увеличен, изображение строится в пикселях устройства
+        AffineTransform device = g2d.getTransform();
+        double deviceScale = Math.max(1.0, Math.max(Math.abs(device.getScaleX()), Math.abs(device.getScaleY())));
+        int imageWidth = (int) Math.ceil(width * deviceScale);
+        int imageHeight = (int) Math.ceil(height * deviceScale);
+
+        if (image == null || image.getWidth() != imageWidth || image.getHeight() != imageHeight) {
+            image = createImage(g2d, imageWidth, imageHeight);
+            version = -1;
+        }
+        if (version != renderer.getMapVersion() || this.scale != scale || this.translateX != translateX
+                || this.translateY != translateY || this.deviceScale != deviceScale || !background.equals(this.background)) {
+            render(width, height, scale, translateX, translateY, deviceScale, background);
+        }
+        g2d.drawImage(image, 0, 0, width, height, null);
+    }
+
+    public void invalidate() {
+        version = -1;
+    }
+
+    private void render(int width, int height, double scale, double translateX, double translateY, double deviceScale, Color background) {
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setColor(background);
+            g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.scale(deviceScale, deviceScale);
+            g2d.setClip(0, 0, width, height);
+            g2d.translate(translateX, translateY);
+            g2d.scale(scale, scale);
+            renderer.paintRoads(g2d, scale, MapRenderer.visibleArea(g2d), null);
+            renderer.paintNodes(g2d, scale, MapRenderer.visibleArea(g2d), null);
+        } finally {
+            g2d.dispose();
+        }
+        this.version = renderer.getMapVersion();
+        this.scale = scale;
+        this.translateX = translateX;
+        this.translateY = translateY;
+        this.deviceScale = deviceScale;
+        this.background = background;
+    }
+
+    private static BufferedImage createImage(Graphics2D g2d, int width, int height) {
+        GraphicsConfiguration configuration = g2d.getDeviceConfiguration();
+        if (configuration != null && configuration.getDevice().getType() != GraphicsDevice.TYPE_IMAGE_BUFFER) {
+            return configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
@@ -0,0 +1,89 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Построчное чтение CSV: поля в кавычках могут содержать разделитель, перевод строки и "" вместо кавычки.
+// Разделитель (запятая, точка с запятой или табуляция) определяется по первой записи — заголовку
+final class CsvReader {
+    private final Reader in;
+    private final char[] buffer = new char[1 << 14];
+    private int position;
+    private int limit;
+    private char delimiter;
+    private final StringBuilder field = new StringBuilder(256);
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    // Следующая запись или null в конце файла; пустые строки пропускаются
+    List<String> next() throws IOException {
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean empty = true;
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) throw new IOException("Unterminated quoted field in CSV");
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+            if (c == -1 || c == '\n') {
+                if (empty && field.length() == 0) {
+                    if (c == -1) return null;
+                    continue;
+                }
+                record.add(field.toString());
+                return record;
+            }
+            if (c == '\r' || (c == '\uFEFF' && empty && field.length() == 0)) continue;
+            empty = false;
+            if (c == '"') {
+                quoted = true;
+            } else if (isDelimiter((char) c)) {
+                record.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private boolean isDelimiter(char c) {
+        if (delimiter == 0 && (c == ',' || c == ';' || c == '\t')) {
+            delimiter = c;
+        }
+        return c == delimiter;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1) position++;
+        return c;
+    }
+}
@@ -1,8 +1,16 @@
 package util;
 
+import model.CampusMap;
+import model.ContractionHierarchy;
+import model.MappedMap;
+
 import javax.swing.*;
 import java.io.*;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
+import java.util.regex.Pattern;
 
 public class FileUtil {
     public static File loadMapDirectory(String mapDirectory) {
@@ -60,4 +68,150 @@ public class FileUtil {
         }
         mapCombo.setSelectedIndex(0);
     }
+
+    // Читает карту в двоичном формате MapFormat; файлы, сохранённые сериализацией Java, по-прежнему открываются
+    public static CampusMap readMap(File mapFile) throws IOException, ClassNotFoundException {
+        return readMap(mapFile, null);
+    }
+
+    // С listener чтение сообщает о прогрессе и прерывается с InterruptedIOException, если прерван читающий поток
+    public static CampusMap readMap(File mapFile, MapLoadListener listener) throws IOException, ClassNotFoundException {
+        InputStream file = new FileInputStream(mapFile);
+        if (listener != null) {
+            file = new ProgressInputStream(file, mapFile.length(), listener);
+        }
+        try (InputStream in = new BufferedInputStream(file)) {
+            if (MapFormat.isLegacy(in)) {
+                return (CampusMap) new ObjectInputStream(in).readObject();
+            }
+            return MapFormat.read(in, listener);
+        }
+    }
+
+    public static boolean isLegacyMap(File mapFile) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(mapFile))) {
+            return MapFormat.isLegacy(in);
+        }
+    }
+
+    // Карта пишется во временный файл и затем заменяет прежнюю, чтобы ошибка записи не испортила сохранённую
+    public static void writeMap(CampusMap map, File mapFile) throws IOException {
+        File tempFile = new File(mapFile.getAbsolutePath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            MapFormat.write(map, out);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        Files.move(tempFile.toPath(), mapFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static File hierarchyFileFor(File mapFile) {
+        return new File(mapFile.getParentFile(), mapName(mapFile) + ".ch");
+    }
+
+    private static String mapName(File mapFile) {
+        String name = mapFile.getName();
+        return name.endsWith(".map") ? name.substring(0, name.length() - 4) : name;
+    }
+
+    // Загружает иерархию сжатия из файла рядом с картой; если файла нет или он устарел,
+    // строит иерархию заново и сохраняет её для следующего запуска
+    public static ContractionHierarchy loadOrBuildHierarchy(File mapFile, CampusMap map) {
+        ContractionHierarchy stored = loadHierarchy(mapFile, ContractionHierarchy.fingerprint(map));
+        if (stored != null) {
+            return stored;
+        }
+        File hierarchyFile = hierarchyFileFor(mapFile);
+
+        long started = System.currentTimeMillis();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(map);
+        System.out.println("Built contraction hierarchy in " + (System.currentTimeMillis() - started) + " ms");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(hierarchyFile))) {
+            hierarchy.save(out);
+        } catch (IOException e) {
+            System.err.println("Failed to save contraction hierarchy: " + e.getMessage());
+        }
+        return hierarchy;
+    }
+
+    // Иерархия из файла рядом с картой, если она построена для карты с этим отпечатком, иначе null
+    public static ContractionHierarchy loadHierarchy(File mapFile, long fingerprint) {
+        File hierarchyFile = hierarchyFileFor(mapFile);
+        if (!hierarchyFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(hierarchyFile))) {
+            ContractionHierarchy hierarchy = ContractionHierarchy.load(in);
+            if (hierarchy.getFingerprint() == fingerprint) {
+                return hierarchy;
+            }
+            System.out.println("Contraction hierarchy is stale: " + hierarchyFile.getAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to read contraction hierarchy: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // Файл .mmap для текущей версии карты: в имени — время изменения и размер файла .map. Пересохранённая
+    // карта получает новое имя, поэтому перестроение не заменяет файл, который ещё отображён в память
+    // открытой MappedMap (в Windows такой файл нельзя ни заменить, ни удалить)
+    public static File mappedFileFor(File mapFile) {
+        return new File(mapFile.getParentFile(), mapName(mapFile) + "." + Long.toHexString(mapFile.lastModified())
+                + "-" + Long.toHexString(mapFile.length()) + ".mmap");
+    }
+
+    // Открывает карту только для чтения из файла .mmap рядом с картой. Если файла для этой версии карты
+    // ещё нет, он строится вместе с иерархией сжатия, а файлы прежних версий удаляются
+    public static MappedMap openMappedMap(File mapFile) throws IOException, ClassNotFoundException {
+        return openMappedMap(mapFile, null);
+    }
+
+    // listener получает прогресс только при перестроении .mmap, когда читается сама карта
+    public static MappedMap openMappedMap(File mapFile, MapLoadListener listener) throws IOException, ClassNotFoundException {
+        // Имя берётся до чтения: если карту сохранят ещё раз во время чтения, следующее открытие построит файл заново
+        File mappedFile = mappedFileFor(mapFile);
+        if (!mappedFile.isFile()) {
+            long started = System.currentTimeMillis();
+            CampusMap map = readMap(mapFile, listener);
+            writeMapped(map, mappedFile);
+            loadOrBuildHierarchy(mapFile, map);
+            deleteStaleMappedFiles(mapFile);
+            System.out.println("Built mapped map in " + (System.currentTimeMillis() - started) + " ms: " + mappedFile.getAbsolutePath());
+        }
+        MappedMap mapped = MappedMap.open(mappedFile);
+        mapped.setContractionHierarchy(loadHierarchy(mapFile, mapped.getFingerprint()));
+        return mapped;
+    }
+
+    // Файл пишется под временным именем и переносится на место, только если его там ещё нет: файл той же
+    // версии мог построить другой процесс, и он уже может быть отображён в память
+    public static void writeMapped(CampusMap map, File mappedFile) throws IOException {
+        File tempFile = File.createTempFile(mappedFile.getName(), ".tmp", mappedFile.getAbsoluteFile().getParentFile());
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            MappedMap.write(map, out);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        try {
+            Files.move(tempFile.toPath(), mappedFile.toPath());
+        } catch (FileAlreadyExistsException e) {
+            tempFile.delete();
+        }
+    }
+
+    // Удаляет файлы .mmap прежних версий карты (и .mmap без версии в имени). Файл, который ещё отображён
+    // в память, в Windows не удаляется — он будет удалён после следующего перестроения
+    public static void deleteStaleMappedFiles(File mapFile) {
+        String current = mappedFileFor(mapFile).getName();
+        Pattern versions = Pattern.compile(Pattern.quote(mapName(mapFile)) + "(\\.[0-9a-f]+-[0-9a-f]+)?\\.mmap");
+        File[] stale = mapFile.getAbsoluteFile().getParentFile().listFiles(
+                (dir, name) -> versions.matcher(name).matches() && !name.equals(current));
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+    }
 }
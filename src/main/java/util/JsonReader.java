@@ -0,0 +1,193 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Потоковое чтение JSON по лексемам, без дерева в памяти: импорт GeoJSON разбирает по одному объекту
+// (feature) за раз, поэтому размер файла не ограничен памятью. Запятые и двоеточия пропускаются как
+// разделители и не проверяются: файлы приходят из выгрузок ГИС, а не от пользователя
+final class JsonReader {
+    enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END }
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 14];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private final StringBuilder text = new StringBuilder(64);
+
+    JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    Token peek() throws IOException {
+        int c = peekChar();
+        switch (c) {
+            case -1: return Token.END;
+            case '{': return Token.BEGIN_OBJECT;
+            case '}': return Token.END_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case ']': return Token.END_ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+            case 'f': return Token.BOOLEAN;
+            case 'n': return Token.NULL;
+            default: return Token.NUMBER;
+        }
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    // Есть ли ещё элемент в текущем объекте или массиве
+    boolean hasNext() throws IOException {
+        int c = peekChar();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    String nextName() throws IOException {
+        return nextString();
+    }
+
+    String nextString() throws IOException {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') return text.toString();
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) throw error("Bad \\u escape");
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        break;
+                    default: text.append((char) c);
+                }
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    double nextDouble() throws IOException {
+        String number = nextLiteral();
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Expected a number but was " + number);
+        }
+    }
+
+    // Строка или число как текст (например, имя здания из свойств); у остальных значений — null
+    String nextScalar() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) return nextString();
+        if (token == Token.NUMBER) return nextLiteral();
+        skipValue();
+        return null;
+    }
+
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    read();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    read();
+                    depth--;
+                    break;
+                case STRING:
+                    nextString();
+                    break;
+                case END:
+                    throw error("Unexpected end of input");
+                default:
+                    nextLiteral();
+            }
+        } while (depth > 0);
+    }
+
+    // Число, true, false или null
+    private String nextLiteral() throws IOException {
+        peekChar();
+        text.setLength(0);
+        while (true) {
+            int c = peekRaw();
+            if (c == -1 || c == ',' || c == ':' || c == '}' || c == ']' || c == '"' || Character.isWhitespace(c)) break;
+            text.append((char) read());
+        }
+        if (text.length() == 0) throw error("Unexpected character");
+        return text.toString();
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peekChar();
+        if (c != expected) {
+            throw error(c == -1 ? "Unexpected end of input" : "Expected '" + expected + "' but was '" + (char) c + "'");
+        }
+        position++;
+    }
+
+    // Следующий значимый символ без чтения: пробелы, разделители и метка порядка байтов пропускаются
+    private int peekChar() throws IOException {
+        while (true) {
+            int c = peekRaw();
+            if (c == '\n') line++;
+            if (c == -1 || !(Character.isWhitespace(c) || c == ',' || c == ':' || c == '\uFEFF')) return c;
+            position++;
+        }
+    }
+
+    private int peekRaw() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peekRaw();
+        if (c == -1) throw error("Unexpected end of input");
+        if (c == '\n') line++;
+        position++;
+        return c;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Malformed JSON at line " + line + ": " + message);
+    }
+}
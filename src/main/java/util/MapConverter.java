@@ -0,0 +1,40 @@
+package util;
+
+import model.CampusMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// Переводит карты директории из сериализации Java в двоичный формат MapFormat.
+// Исходный файл остаётся рядом с расширением .map.bak; уже переведённые карты пропускаются
+public class MapConverter {
+    public static void main(String[] args) {
+        File mapDirectory = FileUtil.loadMapDirectory(args.length > 0 ? args[0] : null);
+        File[] mapFiles = mapDirectory.listFiles((dir, name) -> name.endsWith(".map"));
+        if (mapFiles == null || mapFiles.length == 0) {
+            System.out.println("No .map files found in: " + mapDirectory.getAbsolutePath());
+            return;
+        }
+        for (File mapFile : mapFiles) {
+            try {
+                if (!FileUtil.isLegacyMap(mapFile)) {
+                    System.out.println("Already converted: " + mapFile.getName());
+                    continue;
+                }
+                long legacySize = mapFile.length();
+                convert(mapFile);
+                System.out.println("Converted: " + mapFile.getName() + " (" + legacySize + " -> " + mapFile.length() + " bytes)");
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Failed to convert " + mapFile.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static void convert(File mapFile) throws IOException, ClassNotFoundException {
+        CampusMap map = FileUtil.readMap(mapFile);
+        Files.copy(mapFile.toPath(), new File(mapFile.getAbsolutePath() + ".bak").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileUtil.writeMap(map, mapFile);
+    }
+}
@@ -0,0 +1,363 @@
+package util;
+
+import model.CampusMap;
+import model.Edge;
+import model.Node;
+import model.NodeIds;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Двоичный формат файлов .map вместо сериализации Java.
+// Заголовок: MAGIC, версия формата, число строк, узлов и дорог. Затем таблица строк (имена зданий
+// и идентификаторы перекрёстков не вида J_<номер> или J_<UUID>), узлы и дороги. Номер перекрёстка
+// пишется как varint; J_<UUID> остался от старых карт и при чтении переименовывается в J_<номер>.
+// Узлы упорядочены по y, затем по x, и их координаты записаны разностью с предыдущей точкой (zigzag + varint), вершины контура — разностью
+// с предыдущей вершиной. Дороги идут в порядке рангов и ссылаются на узлы по номеру, поэтому веса
+// восстанавливаются тем же порядком без пересортировки.
+public final class MapFormat {
+    public static final int MAGIC = 0x434D4150; // "CMAP"
+    public static final int VERSION = 2;
+    // Версия 1: перекрёстки J_<UUID>, без JUNCTION_NUMBER
+    private static final int MIN_VERSION = 1;
+    // Первые байты потока ObjectOutputStream: так распознаются карты старого формата
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    private static final int BUILDING = 0;
+    private static final int JUNCTION_UUID = 1;
+    private static final int JUNCTION = 2;
+    private static final int JUNCTION_NUMBER = 3;
+
+    private static final Comparator<Node> BY_POSITION = (a, b) -> {
+        int compare = Integer.compare(a.getPosition().y, b.getPosition().y);
+        if (compare == 0) compare = Integer.compare(a.getPosition().x, b.getPosition().x);
+        return compare != 0 ? compare : a.getId().compareTo(b.getId());
+    };
+
+    private MapFormat() {
+    }
+
+    // Поток должен поддерживать mark/reset (например, BufferedInputStream); позиция не меняется
+    public static boolean isLegacy(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return (first << 8 | second) == SERIALIZATION_MAGIC;
+    }
+
+    public static void write(CampusMap map, OutputStream out) throws IOException {
+        Node[] nodes = map.getNodes().values().toArray(new Node[0]);
+        Arrays.sort(nodes, BY_POSITION);
+
+        Map<String, Integer> indexById = new HashMap<>(nodes.length * 4 / 3 + 1);
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        int[] kinds = new int[nodes.length];
+        int[] refs = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            String id = nodes[i].getId();
+            indexById.put(id, i);
+            String text;
+            if (nodes[i].isBuilding()) {
+                if (!id.startsWith(NodeIds.BUILDING_PREFIX)) throw new IOException("Unsupported building id: " + id);
+                kinds[i] = BUILDING;
+                text = id.substring(2);
+            } else if (NodeIds.junctionNumber(id) >= 0) {
+                kinds[i] = JUNCTION_NUMBER;
+                refs[i] = NodeIds.junctionNumber(id);
+                continue;
+            } else if (NodeIds.isUuidJunction(id)) {
+                kinds[i] = JUNCTION_UUID;
+                continue;
+            } else {
+                kinds[i] = JUNCTION;
+                text = id;
+            }
+            Integer ref = stringIndex.get(text);
+            if (ref == null) {
+                ref = strings.size();
+                stringIndex.put(text, ref);
+                strings.add(text);
+            }
+            refs[i] = ref;
+        }
+
+        // Дороги, заменённые повторной дорогой между теми же узлами, в старых файлах могли остаться
+        // в списке рёбер без записи в графе; такие не сохраняются
+        List<Edge> edges = new ArrayList<>(map.getEdges().size());
+        for (Edge edge : map.getEdges()) {
+            Map<String, Edge> neighbors = map.getGraph().get(edge.getFrom());
+            if (neighbors != null && neighbors.get(edge.getTo()) == edge) {
+                edges.add(edge);
+            }
+        }
+
+        Output output = new Output(out);
+        output.writeInt(MAGIC);
+        output.writeVarInt(VERSION);
+        output.writeVarInt(strings.size());
+        output.writeVarInt(nodes.length);
+        output.writeVarInt(edges.size());
+        for (String text : strings) {
+            output.writeString(text);
+        }
+
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = nodes[i];
+            Point position = node.getPosition();
+            output.writeByte(kinds[i]);
+            output.writeSignedVarInt(position.x - x);
+            output.writeSignedVarInt(position.y - y);
+            x = position.x;
+            y = position.y;
+            if (kinds[i] == JUNCTION_UUID) {
+                UUID uuid = UUID.fromString(node.getId().substring(2));
+                output.writeLong(uuid.getMostSignificantBits());
+                output.writeLong(uuid.getLeastSignificantBits());
+                continue;
+            }
+            output.writeVarInt(refs[i]);
+            if (kinds[i] == BUILDING) {
+                // Точка подключения здания совпадает с его позицией (см. CampusMap.addBuilding)
+                Polygon shape = node.getShape();
+                output.writeVarInt(shape.npoints);
+                int previousX = position.x;
+                int previousY = position.y;
+                for (int j = 0; j < shape.npoints; j++) {
+                    output.writeSignedVarInt(shape.xpoints[j] - previousX);
+                    output.writeSignedVarInt(shape.ypoints[j] - previousY);
+                    previousX = shape.xpoints[j];
+                    previousY = shape.ypoints[j];
+                }
+            }
+        }
+
+        for (Edge edge : edges) {
+            int from = indexById.get(edge.getFrom());
+            int to = indexById.get(edge.getTo());
+            output.writeVarInt(from);
+            output.writeSignedVarInt(to - from);
+        }
+        output.flush();
+    }
+
+    public static CampusMap read(InputStream in) throws IOException {
+        return read(in, null);
+    }
+
+    // listener (может быть null) получает каждый узел сразу после добавления в карту
+    public static CampusMap read(InputStream in, MapLoadListener listener) throws IOException {
+        Input input = new Input(in);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a map file");
+        }
+        int version = input.readVarInt();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Unsupported map format version: " + version);
+        }
+        int stringCount = input.readCount();
+        int nodeCount = input.readCount();
+        int edgeCount = input.readCount();
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = input.readString();
+        }
+
+        CampusMap map = new CampusMap(nodeCount, edgeCount);
+        map.beginBulkImport();
+        String[] ids = new String[nodeCount];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int kind = input.readByte();
+            x += input.readSignedVarInt();
+            y += input.readSignedVarInt();
+            Point position = new Point(x, y);
+            if (kind == JUNCTION_NUMBER) {
+                ids[i] = NodeIds.junction(input.readVarInt());
+                map.addJunction(ids[i], position);
+            } else if (kind == JUNCTION_UUID) {
+                ids[i] = NodeIds.JUNCTION_PREFIX + new UUID(input.readLong(), input.readLong());
+                map.addJunction(ids[i], position);
+            } else if (kind == JUNCTION) {
+                ids[i] = string(strings, input.readVarInt());
+                map.addJunction(ids[i], position);
+            } else if (kind == BUILDING) {
+                String name = string(strings, input.readVarInt());
+                map.addBuilding(name, readShape(input, x, y), position);
+                ids[i] = NodeIds.building(name);
+            } else {
+                throw new IOException("Unknown node kind: " + kind);
+            }
+            if (listener != null) {
+                listener.nodeRead(map.getNodes().get(ids[i]));
+            }
+        }
+
+        for (int i = 0; i < edgeCount; i++) {
+            int from = input.readVarInt();
+            int to = from + input.readSignedVarInt();
+            if (from < 0 || from >= nodeCount || to < 0 || to >= nodeCount) {
+                throw new IOException("Road refers to a missing node");
+            }
+            map.addRoad(ids[from], ids[to]);
+        }
+        map.compactJunctionIds();
+        // Дороги уже идут в порядке рангов: устойчивая сортировка сохраняет его и проставляет веса
+        map.endBulkImport();
+        return map;
+    }
+
+    private static Polygon readShape(Input input, int x, int y) throws IOException {
+        int n = input.readCount();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int j = 0; j < n; j++) {
+            x += input.readSignedVarInt();
+            y += input.readSignedVarInt();
+            xs[j] = x;
+            ys[j] = y;
+        }
+        return new Polygon(xs, ys, n);
+    }
+
+    private static String string(String[] strings, int index) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("String index out of range: " + index);
+        }
+        return strings[index];
+    }
+
+    // Собственные буферы вместо DataOutputStream/BufferedOutputStream: varint пишется побайтно,
+    // а синхронизированный write(int) на миллионах узлов заметен
+    private static final class Output {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeByte(int value) throws IOException {
+            if (position == buffer.length) flushBuffer();
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        // Разности координат вычисляются по модулю 2^32, поэтому переполнение при чтении взаимно сокращается
+        void writeSignedVarInt(int value) throws IOException {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeInt(int value) throws IOException {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                writeByte(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) throws IOException {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeString(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static final class Input {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        int readByte() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    throw new EOFException("Unexpected end of map file");
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        int readVarInt() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if (b < 0x80) return result;
+            }
+            throw new IOException("Malformed varint in map file");
+        }
+
+        int readSignedVarInt() throws IOException {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readCount() throws IOException {
+            int count = readVarInt();
+            if (count < 0) throw new IOException("Negative count in map file");
+            return count;
+        }
+
+        int readInt() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = value << 8 | readByte();
+            }
+            return value;
+        }
+
+        long readLong() throws IOException {
+            return (long) readInt() << 32 | (readInt() & 0xFFFFFFFFL);
+        }
+
+        String readString() throws IOException {
+            int length = readCount();
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) readByte();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
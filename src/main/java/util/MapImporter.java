@@ -0,0 +1,595 @@
+package util;
+
+import model.CampusMap;
+import model.NodeIds;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Импорт карты из выгрузки ГИС: GeoJSON (FeatureCollection) или CSV с геометрией в WKT.
+// Файл читается потоково, по одному объекту: полигоны становятся зданиями, линии — дорогами. Вершины линий
+// притягиваются к уже созданному перекрёстку не дальше snapRadius (поиск по сетке-хэшу), поэтому дороги
+// из разных объектов сходятся в общих перекрёстках. Здания добавляются в конце: точка подключения — ближайшая
+// к перекрёстку точка контура, если перекрёсток не дальше connectRadius. Карта заполняется в режиме
+// beginBulkImport: веса, пространственный индекс и снимок строятся один раз после импорта.
+// Координаты: (x - originX) * scale, y так же или с переворотом оси (flipY) — у ГИС ось y направлена вверх
+public final class MapImporter {
+    // Размер клетки сетки перекрёстков; при большем snapRadius клетка равна ему
+    private static final int CELL_SIZE = 32;
+
+    private double scale = 1;
+    private double originX;
+    private double originY;
+    private boolean flipY;
+    private double snapRadius = 1;
+    private double connectRadius = 50;
+    private String nameProperty = "name";
+
+    // Итоги последнего импорта
+    private int buildingCount;
+    private int unconnectedBuildings;
+    private int junctionCount;
+    private int skippedFeatures;
+
+    public void setScale(double scale) {
+        this.scale = scale;
+    }
+
+    public void setOrigin(double x, double y) {
+        originX = x;
+        originY = y;
+    }
+
+    public void setFlipY(boolean flipY) {
+        this.flipY = flipY;
+    }
+
+    public void setSnapRadius(double snapRadius) {
+        this.snapRadius = snapRadius;
+    }
+
+    public void setConnectRadius(double connectRadius) {
+        this.connectRadius = connectRadius;
+    }
+
+    // Свойство объекта GeoJSON или столбец CSV с именем здания
+    public void setNameProperty(String nameProperty) {
+        this.nameProperty = nameProperty;
+    }
+
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    public int getUnconnectedBuildings() {
+        return unconnectedBuildings;
+    }
+
+    public int getJunctionCount() {
+        return junctionCount;
+    }
+
+    public int getSkippedFeatures() {
+        return skippedFeatures;
+    }
+
+    // Формат выбирается по расширению: .csv — CSV, .geojson и .json — GeoJSON
+    public CampusMap importFile(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        boolean csv = name.endsWith(".csv");
+        if (!csv && !name.endsWith(".geojson") && !name.endsWith(".json")) {
+            throw new IOException("Unsupported file type: " + file.getName());
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            return csv ? importCsv(reader) : importGeoJson(reader);
+        }
+    }
+
+    public CampusMap importGeoJson(Reader reader) throws IOException {
+        Import target = new Import();
+        JsonReader json = new JsonReader(reader);
+        // Файл может быть и одиночным Feature: его geometry и properties лежат на верхнем уровне
+        Feature single = new Feature();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("features")) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    Feature feature = new Feature();
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        feature.readMember(json, json.nextName());
+                    }
+                    json.endObject();
+                    target.add(feature.type, feature.coordinates, feature.name);
+                }
+                json.endArray();
+            } else {
+                single.readMember(json, name);
+            }
+        }
+        json.endObject();
+        if (single.type != null) {
+            target.add(single.type, single.coordinates, single.name);
+        }
+        return target.finish();
+    }
+
+    // Первая строка — заголовок со столбцом геометрии WKT (wkt, geometry, the_geom или geom)
+    // и, если есть, столбцом имени nameProperty
+    public CampusMap importCsv(Reader reader) throws IOException {
+        Import target = new Import();
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) throw new IOException("Empty CSV file");
+        int geometryColumn = column(header, "wkt", "geometry", "the_geom", "geom");
+        if (geometryColumn < 0) throw new IOException("CSV has no WKT geometry column");
+        int nameColumn = column(header, nameProperty);
+        for (List<String> row = csv.next(); row != null; row = csv.next()) {
+            if (row.size() <= geometryColumn) {
+                target.skipped++;
+                continue;
+            }
+            Wkt wkt = new Wkt(row.get(geometryColumn));
+            String type = wkt.type();
+            Object coordinates = wkt.coordinates();
+            target.add(type, coordinates, nameColumn >= 0 && nameColumn < row.size() ? row.get(nameColumn) : null);
+        }
+        return target.finish();
+    }
+
+    private static int column(List<String> header, String... names) {
+        for (String name : names) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(name)) return i;
+            }
+        }
+        return -1;
+    }
+
+    // java -cp Navigation.jar util.MapImporter campus.geojson [maps] [--scale=0.5] [--origin=x,y] [--flip-y]
+    //     [--snap=1] [--connect=50] [--name=name]
+    public static void main(String[] args) {
+        MapImporter importer = new MapImporter();
+        List<String> files = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--scale=")) {
+                    importer.setScale(Double.parseDouble(arg.substring(8)));
+                } else if (arg.startsWith("--origin=")) {
+                    String[] origin = arg.substring(9).split(",");
+                    importer.setOrigin(Double.parseDouble(origin[0]), Double.parseDouble(origin[1]));
+                } else if (arg.equals("--flip-y")) {
+                    importer.setFlipY(true);
+                } else if (arg.startsWith("--snap=")) {
+                    importer.setSnapRadius(Double.parseDouble(arg.substring(7)));
+                } else if (arg.startsWith("--connect=")) {
+                    importer.setConnectRadius(Double.parseDouble(arg.substring(10)));
+                } else if (arg.startsWith("--name=")) {
+                    importer.setNameProperty(arg.substring(7));
+                } else {
+                    files.add(arg);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            files.clear();
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: MapImporter <file.geojson|file.csv> [map directory] [--scale=s] [--origin=x,y] [--flip-y] [--snap=r] [--connect=r] [--name=property]");
+            return;
+        }
+
+        File input = new File(files.get(0));
+        File mapDirectory = FileUtil.loadMapDirectory(files.size() > 1 ? files.get(1) : null);
+        String mapName = input.getName().replaceFirst("\\.[^.]*$", "");
+        File mapFile = new File(mapDirectory, mapName + ".map");
+        try {
+            long start = System.currentTimeMillis();
+            CampusMap map = importer.importFile(input);
+            FileUtil.writeMap(map, mapFile);
+            System.out.println("Imported " + input.getName() + " in " + (System.currentTimeMillis() - start) + " ms: "
+                    + importer.getBuildingCount() + " buildings (" + importer.getUnconnectedBuildings() + " without road), "
+                    + importer.getJunctionCount() + " junctions, " + map.getEdges().size() + " roads, "
+                    + importer.getSkippedFeatures() + " features skipped -> " + mapFile.getAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to import " + input.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // Один объект GeoJSON: тип геометрии, её координаты и имя из свойств; порядок полей в файле любой
+    private final class Feature {
+        String type;
+        Object coordinates;
+        String name;
+
+        void readMember(JsonReader json, String member) throws IOException {
+            if (member.equals("geometry") && json.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String key = json.nextName();
+                    if (key.equals("type")) {
+                        type = json.nextScalar();
+                    } else if (key.equals("coordinates")) {
+                        coordinates = readCoordinates(json);
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else if (member.equals("properties") && json.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (json.nextName().equals(nameProperty)) {
+                        name = json.nextScalar();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+        }
+    }
+
+    // Позиция — double[] {x, y} (высота отбрасывается), остальные уровни вложенности — списки
+    private static Object readCoordinates(JsonReader json) throws IOException {
+        if (json.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            json.skipValue();
+            return null;
+        }
+        json.beginArray();
+        if (json.peek() == JsonReader.Token.NUMBER) {
+            double[] position = new double[2];
+            for (int i = 0; json.hasNext(); i++) {
+                if (i < 2) {
+                    position[i] = json.nextDouble();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endArray();
+            return position;
+        }
+        List<Object> list = new ArrayList<>();
+        while (json.hasNext()) {
+            list.add(readCoordinates(json));
+        }
+        json.endArray();
+        return list;
+    }
+
+    // Геометрия WKT из CSV: координаты той же вложенности, что в GeoJSON. Тип переводится в имя GeoJSON
+    private static final class Wkt {
+        private final String text;
+        private int position;
+
+        Wkt(String text) {
+            this.text = text;
+        }
+
+        String type() {
+            skipSpaces();
+            int start = position;
+            while (position < text.length() && Character.isLetter(text.charAt(position))) position++;
+            String type = text.substring(start, position).toUpperCase(Locale.ROOT);
+            switch (type) {
+                case "POLYGON": return "Polygon";
+                case "MULTIPOLYGON": return "MultiPolygon";
+                case "LINESTRING": return "LineString";
+                case "MULTILINESTRING": return "MultiLineString";
+                default: return type;
+            }
+        }
+
+        // null для EMPTY и для неразборчивого текста
+        Object coordinates() {
+            // Размерность (Z, M, ZM) пропускается: лишние числа позиции отбрасываются
+            skipSpaces();
+            while (position < text.length() && Character.isLetter(text.charAt(position))) position++;
+            try {
+                return nested();
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private Object nested() {
+            expect('(');
+            List<Object> list = new ArrayList<>();
+            boolean positions = peek() != '(';
+            do {
+                list.add(positions ? position() : nested());
+            } while (consume(','));
+            expect(')');
+            return list;
+        }
+
+        private double[] position() {
+            double[] xy = new double[2];
+            for (int i = 0; ; i++) {
+                skipSpaces();
+                int start = position;
+                while (position < text.length() && "+-.0123456789eE".indexOf(text.charAt(position)) >= 0) position++;
+                if (start == position) break;
+                if (i < 2) xy[i] = Double.parseDouble(text.substring(start, position));
+            }
+            return xy;
+        }
+
+        private char peek() {
+            skipSpaces();
+            if (position >= text.length()) throw new IllegalArgumentException("Unexpected end of WKT");
+            return text.charAt(position);
+        }
+
+        private boolean consume(char c) {
+            if (peek() != c) return false;
+            position++;
+            return true;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) throw new IllegalArgumentException("Expected '" + c + "' in WKT");
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+        }
+    }
+
+    // Состояние одного импорта: карта, сетка перекрёстков и здания, ждущие подключения
+    private final class Import {
+        final CampusMap map = new CampusMap();
+        final int cellSize = Math.max(CELL_SIZE, (int) Math.ceil(snapRadius));
+        // Клетка (cx, cy) -> номера перекрёстков в ней; в нулевом элементе массива — их число
+        final Map<Long, int[]> cells = new HashMap<>();
+        String[] junctionIds = new String[1024];
+        int[] junctionX = new int[1024];
+        int[] junctionY = new int[1024];
+        int junctions;
+        final List<String> buildingNames = new ArrayList<>();
+        final List<Polygon> buildingShapes = new ArrayList<>();
+        final Set<String> usedNames = new HashSet<>();
+        int skipped;
+        int unconnected;
+
+        Import() {
+            map.beginBulkImport();
+        }
+
+        void add(String type, Object coordinates, String name) {
+            if (type == null || coordinates == null) {
+                skipped++;
+                return;
+            }
+            switch (type) {
+                case "Polygon":
+                    building(outerRing(coordinates), name);
+                    break;
+                case "MultiPolygon":
+                    // У здания один контур: из частей берётся наибольшая по площади
+                    List<Point> largest = null;
+                    double largestArea = -1;
+                    for (Object polygon : list(coordinates)) {
+                        List<Point> ring = outerRing(polygon);
+                        double area = ring == null ? -1 : area(ring);
+                        if (area > largestArea) {
+                            largest = ring;
+                            largestArea = area;
+                        }
+                    }
+                    building(largest, name);
+                    break;
+                case "LineString":
+                    road(coordinates);
+                    break;
+                case "MultiLineString":
+                    for (Object line : list(coordinates)) {
+                        road(line);
+                    }
+                    break;
+                default:
+                    skipped++;
+            }
+        }
+
+        private void road(Object line) {
+            int previous = -1;
+            for (Object vertex : list(line)) {
+                if (!(vertex instanceof double[])) {
+                    skipped++;
+                    return;
+                }
+                Point point = transform((double[]) vertex);
+                int junction = junctionAt(point.x, point.y);
+                if (previous >= 0 && junction != previous) {
+                    map.addRoad(junctionIds[previous], junctionIds[junction]);
+                }
+                previous = junction;
+            }
+        }
+
+        private void building(List<Point> ring, String name) {
+            if (ring == null || ring.size() < 3) {
+                skipped++;
+                return;
+            }
+            Polygon shape = new Polygon();
+            for (Point point : ring) {
+                shape.addPoint(point.x, point.y);
+            }
+            buildingNames.add(uniqueName(name));
+            buildingShapes.add(shape);
+        }
+
+        // Внешнее кольцо полигона без повторённой в конце первой вершины и без совпавших после округления
+        private List<Point> outerRing(Object polygon) {
+            List<?> rings = list(polygon);
+            if (rings.isEmpty()) return null;
+            List<Point> ring = new ArrayList<>();
+            for (Object vertex : list(rings.get(0))) {
+                if (!(vertex instanceof double[])) return null;
+                Point point = transform((double[]) vertex);
+                if (ring.isEmpty() || !point.equals(ring.get(ring.size() - 1))) ring.add(point);
+            }
+            while (ring.size() > 1 && ring.get(0).equals(ring.get(ring.size() - 1))) {
+                ring.remove(ring.size() - 1);
+            }
+            return ring;
+        }
+
+        // Имена зданий уникальны (addBuilding с тем же именем заменяет здание); у безымянных — номер
+        private String uniqueName(String name) {
+            String base = name == null || name.trim().isEmpty() ? "Building " + (buildingNames.size() + 1) : name.trim();
+            String unique = base;
+            for (int k = 2; !usedNames.add(unique); k++) {
+                unique = base + " (" + k + ")";
+            }
+            return unique;
+        }
+
+        private Point transform(double[] position) {
+            double x = (position[0] - originX) * scale;
+            double y = (flipY ? originY - position[1] : position[1] - originY) * scale;
+            return new Point((int) Math.round(x), (int) Math.round(y));
+        }
+
+        // Ближайший перекрёсток не дальше snapRadius или новый в этой точке
+        private int junctionAt(int x, int y) {
+            int cx = Math.floorDiv(x, cellSize);
+            int cy = Math.floorDiv(y, cellSize);
+            int nearest = -1;
+            double best = snapRadius * snapRadius;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int[] cell = cells.get(key(cx + dx, cy + dy));
+                    if (cell == null) continue;
+                    for (int i = 1; i <= cell[0]; i++) {
+                        int j = cell[i];
+                        double ddx = junctionX[j] - x;
+                        double ddy = junctionY[j] - y;
+                        double distance = ddx * ddx + ddy * ddy;
+                        if (distance <= best) {
+                            best = distance;
+                            nearest = j;
+                        }
+                    }
+                }
+            }
+            if (nearest >= 0) return nearest;
+
+            if (junctions == junctionIds.length) {
+                junctionIds = Arrays.copyOf(junctionIds, junctions * 2);
+                junctionX = Arrays.copyOf(junctionX, junctions * 2);
+                junctionY = Arrays.copyOf(junctionY, junctions * 2);
+            }
+            junctionIds[junctions] = map.addJunction(new Point(x, y));
+            junctionX[junctions] = x;
+            junctionY[junctions] = y;
+            long key = key(cx, cy);
+            int[] cell = cells.get(key);
+            if (cell == null) {
+                cell = new int[4];
+            } else if (cell[0] + 1 == cell.length) {
+                cell = Arrays.copyOf(cell, cell.length * 2);
+            }
+            cell[++cell[0]] = junctions;
+            cells.put(key, cell);
+            return junctions++;
+        }
+
+        CampusMap finish() {
+            for (int i = 0; i < buildingShapes.size(); i++) {
+                connect(buildingNames.get(i), buildingShapes.get(i));
+            }
+            map.endBulkImport();
+            buildingCount = buildingShapes.size();
+            unconnectedBuildings = unconnected;
+            junctionCount = junctions;
+            skippedFeatures = skipped;
+            return map;
+        }
+
+        // Здание подключается дорогой к ближайшему перекрёстку не дальше connectRadius от контура
+        private void connect(String name, Polygon shape) {
+            Rectangle bounds = shape.getBounds();
+            int radius = (int) Math.ceil(connectRadius);
+            double best = connectRadius * connectRadius;
+            int nearest = -1;
+            Point connection = new Point(shape.xpoints[0], shape.ypoints[0]);
+            for (int cy = Math.floorDiv(bounds.y - radius, cellSize); cy <= Math.floorDiv(bounds.y + bounds.height + radius, cellSize); cy++) {
+                for (int cx = Math.floorDiv(bounds.x - radius, cellSize); cx <= Math.floorDiv(bounds.x + bounds.width + radius, cellSize); cx++) {
+                    int[] cell = cells.get(key(cx, cy));
+                    if (cell == null) continue;
+                    for (int i = 1; i <= cell[0]; i++) {
+                        int j = cell[i];
+                        double[] closest = closestOnContour(shape, junctionX[j], junctionY[j]);
+                        if (closest[2] <= best) {
+                            best = closest[2];
+                            nearest = j;
+                            connection = new Point((int) Math.round(closest[0]), (int) Math.round(closest[1]));
+                        }
+                    }
+                }
+            }
+            map.addBuilding(name, shape, connection);
+            if (nearest >= 0) {
+                map.addRoad(NodeIds.building(name), junctionIds[nearest]);
+            } else {
+                unconnected++;
+            }
+        }
+    }
+
+    // Ближайшая к точке (x, y) точка контура: {x, y, квадрат расстояния}
+    static double[] closestOnContour(Polygon shape, double x, double y) {
+        double[] best = {shape.xpoints[0], shape.ypoints[0], Double.POSITIVE_INFINITY};
+        for (int i = 0; i < shape.npoints; i++) {
+            int j = (i + 1) % shape.npoints;
+            double ax = shape.xpoints[i];
+            double ay = shape.ypoints[i];
+            double dx = shape.xpoints[j] - ax;
+            double dy = shape.ypoints[j] - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / lengthSquared));
+            double px = ax + t * dx;
+            double py = ay + t * dy;
+            double distance = (px - x) * (px - x) + (py - y) * (py - y);
+            if (distance < best[2]) {
+                best[0] = px;
+                best[1] = py;
+                best[2] = distance;
+            }
+        }
+        return best;
+    }
+
+    private static double area(List<Point> ring) {
+        double sum = 0;
+        for (int i = 0; i < ring.size(); i++) {
+            Point a = ring.get(i);
+            Point b = ring.get((i + 1) % ring.size());
+            sum += (double) a.x * b.y - (double) b.x * a.y;
+        }
+        return Math.abs(sum) / 2;
+    }
+
+    private static List<?> list(Object coordinates) {
+        return coordinates instanceof List ? (List<?>) coordinates : Collections.emptyList();
+    }
+
+    private static long key(int cx, int cy) {
+        return (long) cx << 32 | (cy & 0xFFFFFFFFL);
+    }
+}
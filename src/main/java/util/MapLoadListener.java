@@ -0,0 +1,13 @@
+package util;
+
+import model.Node;
+
+// Наблюдатель за чтением карты из файла. Вызывается в потоке, который читает карту
+public interface MapLoadListener {
+    // Прочитано bytes байт из total (размер файла)
+    void bytesRead(long bytes, long total);
+
+    // Очередной узел уже добавлен в карту; вызывается только для двоичного формата MapFormat
+    default void nodeRead(Node node) {
+    }
+}
@@ -0,0 +1,31 @@
+package util;
+
+import model.CampusMap;
+
+import java.io.File;
+import java.io.IOException;
+
+// Офлайн-предобработка: строит иерархии сжатия (.ch) и файлы карт только для чтения (.mmap)
+// для всех карт директории, чтобы киоски не тратили на это время при запуске
+public class MapPreprocessor {
+    public static void main(String[] args) {
+        File mapDirectory = FileUtil.loadMapDirectory(args.length > 0 ? args[0] : null);
+        File[] mapFiles = mapDirectory.listFiles((dir, name) -> name.endsWith(".map"));
+        if (mapFiles == null || mapFiles.length == 0) {
+            System.out.println("No .map files found in: " + mapDirectory.getAbsolutePath());
+            return;
+        }
+        for (File mapFile : mapFiles) {
+            try {
+                File mappedFile = FileUtil.mappedFileFor(mapFile);
+                CampusMap map = FileUtil.readMap(mapFile);
+                FileUtil.loadOrBuildHierarchy(mapFile, map);
+                FileUtil.writeMapped(map, mappedFile);
+                FileUtil.deleteStaleMappedFiles(mapFile);
+                System.out.println("Preprocessed: " + mapFile.getName());
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Failed to preprocess " + mapFile.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+// Считает прочитанные байты для MapLoadListener и прерывает чтение, если поток загрузки прерван
+// (SwingWorker.cancel(true)): ни ObjectInputStream, ни MapFormat сами прерывание не проверяют
+final class ProgressInputStream extends FilterInputStream {
+    private final MapLoadListener listener;
+    private final long total;
+    private long count;
+
+    ProgressInputStream(InputStream in, long total, MapLoadListener listener) {
+        super(in);
+        this.total = total;
+        this.listener = listener;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkInterrupted();
+        int b = super.read();
+        if (b >= 0) advance(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        checkInterrupted();
+        int read = super.read(buffer, offset, length);
+        if (read > 0) advance(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkInterrupted();
+        long skipped = super.skip(n);
+        advance(skipped);
+        return skipped;
+    }
+
+    private void advance(long bytes) {
+        count += bytes;
+        listener.bytesRead(count, total);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Map loading cancelled");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import model.BatchRouter;
+import model.CampusMap;
+import model.CompactRouter;
+import model.RoutingGraph;
+import model.RoutingMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// План из sources × targets маршрутов между зданиями: цикл одиночных запросов против пакетного поиска
+// (один поиск на начало, начала параллельно)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BatchRoutingBenchmark {
+    @Param({"2000"})
+    public int buildings;
+
+    @Param({"16", "128"})
+    public int sources;
+
+    @Param({"64"})
+    public int targets;
+
+    private RoutingGraph graph;
+    private CompactRouter router;
+    private BatchRouter batchRouter;
+    private List<BatchRouter.Request> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusMap map = SyntheticMaps.campus(buildings, 42);
+        graph = map.snapshot().getRoutingGraph();
+        router = new CompactRouter(graph);
+        batchRouter = new BatchRouter(graph);
+
+        List<String> ids = new ArrayList<>(map.getBuildings());
+        ids.sort(null);
+        Random random = new Random(7);
+        requests = new ArrayList<>();
+        for (int s = 0; s < sources; s++) {
+            String start = ids.get(random.nextInt(ids.size()));
+            for (int t = 0; t < targets; t++) {
+                requests.add(new BatchRouter.Request(start, ids.get(random.nextInt(ids.size()))));
+            }
+        }
+    }
+
+    @Benchmark
+    public int singleQueries() {
+        int found = 0;
+        for (BatchRouter.Request request : requests) {
+            found += router.findShortestPath(request.getStart(), request.getEnd(), RoutingMode.DISTANCE).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public BatchRouter.Result batch() {
+        return batchRouter.findShortestPaths(requests, RoutingMode.DISTANCE);
+    }
+}
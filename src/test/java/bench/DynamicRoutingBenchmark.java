@@ -0,0 +1,55 @@
+package bench;
+
+import model.CampusMap;
+import model.Edge;
+import model.RoutingMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Правка и повторный поиск, как в редакторе: дорога на найденном маршруте удаляется, маршрут ищется снова,
+// дорога возвращается, маршрут ищется снова. A* с нуля против исправляемого дерева кратчайших путей
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DynamicRoutingBenchmark {
+    @Param({"100000"})
+    public int nodes;
+
+    @Param({"false", "true"})
+    public boolean dynamic;
+
+    private CampusMap map;
+    private String start;
+    private String end;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = SyntheticMaps.generate("campus", nodes, 42);
+        map.setDynamicRoutingEnabled(dynamic);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        buildings.sort(null);
+        random = new Random(7);
+        do {
+            start = buildings.get(random.nextInt(buildings.size()));
+            end = buildings.get(random.nextInt(buildings.size()));
+        } while (map.findShortestPath(start, end, RoutingMode.DISTANCE).size() < 20);
+    }
+
+    @Benchmark
+    public int editAndRoute() {
+        List<String> path = map.findShortestPath(start, end, RoutingMode.DISTANCE);
+        int i = 1 + random.nextInt(path.size() - 2);
+        Edge edge = map.getGraph().get(path.get(i)).get(path.get(i + 1));
+        map.deleteEdge(edge);
+        int found = map.findShortestPath(start, end, RoutingMode.DISTANCE).size();
+        map.addRoad(edge.getFrom(), edge.getTo());
+        return found + map.findShortestPath(start, end, RoutingMode.DISTANCE).size();
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import model.CampusMap;
+import model.Edge;
+import model.Node;
+import org.openjdk.jmh.annotations.*;
+import ui.MapHitTester;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Поиск объектов под курсором (MapPanel делегирует его MapHitTester)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HitTestBenchmark {
+    private static final int CLICKS = 256;
+
+    @Param({"1000", "10000", "50000"})
+    public int buildings;
+
+    private MapHitTester hitTester;
+    private Point[] clicks;
+    private int click;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusMap map = SyntheticMaps.campus(buildings, 5);
+        hitTester = new MapHitTester(map);
+        int side = (int) Math.ceil(Math.sqrt(buildings)) * 120;
+        Random random = new Random(9);
+        clicks = new Point[CLICKS];
+        for (int i = 0; i < CLICKS; i++) {
+            clicks[i] = new Point(random.nextInt(side), random.nextInt(side));
+        }
+    }
+
+    private Point nextClick() {
+        click = (click + 1) % CLICKS;
+        return clicks[click];
+    }
+
+    @Benchmark
+    public String findNodeAt() {
+        Point p = nextClick();
+        return hitTester.findNodeAt(p.x, p.y, 1.0);
+    }
+
+    @Benchmark
+    public Edge findEdgeAt() {
+        return hitTester.findEdgeAt(nextClick(), 1.0);
+    }
+
+    @Benchmark
+    public Node findBuildingAt() {
+        return hitTester.findBuildingAt(nextClick(), 1.0);
+    }
+
+    @Benchmark
+    public boolean isPointOnOrInsideBuilding() {
+        return hitTester.isPointOnOrInsideBuilding(nextClick(), 1.0);
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import model.CampusMap;
+import model.Edge;
+import model.Node;
+import org.openjdk.jmh.annotations.*;
+import util.MapImporter;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Импорт выгрузки ГИС: синтетическая карта записывается в GeoJSON (здания — полигоны, каждая дорога —
+// отдельная линия) и читается обратно MapImporter. Размер файла печатается при подготовке
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ImportBenchmark {
+
+    @Param({"100000"})
+    public int nodes;
+
+    private byte[] geoJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusMap map = SyntheticMaps.generate("campus", nodes, 11);
+        StringBuilder json = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[\n");
+        boolean first = true;
+        for (Node node : map.getNodes().values()) {
+            if (!node.isBuilding()) continue;
+            Polygon shape = node.getShape();
+            json.append(first ? "" : ",\n").append("{\"type\":\"Feature\",\"properties\":{\"name\":\"").append(node.getLabel())
+                    .append("\"},\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+            for (int i = 0; i <= shape.npoints; i++) {
+                int j = i % shape.npoints;
+                json.append(i == 0 ? "" : ",").append('[').append(shape.xpoints[j]).append(',').append(shape.ypoints[j]).append(']');
+            }
+            json.append("]]}}");
+            first = false;
+        }
+        for (Edge edge : map.getEdges()) {
+            Point from = map.getNodes().get(edge.getFrom()).getPosition();
+            Point to = map.getNodes().get(edge.getTo()).getPosition();
+            json.append(first ? "" : ",\n").append("{\"type\":\"Feature\",\"properties\":{},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[")
+                    .append(from.x).append(',').append(from.y).append("],[").append(to.x).append(',').append(to.y).append("]]}}");
+            first = false;
+        }
+        json.append("]}\n");
+        geoJson = json.toString().getBytes(StandardCharsets.UTF_8);
+        System.out.println("GeoJSON: " + geoJson.length + " bytes");
+    }
+
+    @Benchmark
+    public CampusMap importGeoJson() throws IOException {
+        return new MapImporter().importGeoJson(new InputStreamReader(new ByteArrayInputStream(geoJson), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import model.CampusMap;
+import org.openjdk.jmh.annotations.*;
+import util.MapFormat;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+// Загрузка карты из памяти: сериализация Java против двоичного формата MapFormat.
+// Размер файлов печатается при подготовке; память видна с -prof gc
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class MapLoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int nodes;
+
+    @Param({"campus"})
+    public String layout;
+
+    private byte[] serialized;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CampusMap map = SyntheticMaps.generate(layout, nodes, 11);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(map);
+        }
+        serialized = out.toByteArray();
+        out = new ByteArrayOutputStream();
+        MapFormat.write(map, out);
+        binary = out.toByteArray();
+        System.out.println("Serialized: " + serialized.length + " bytes, binary: " + binary.length + " bytes");
+    }
+
+    @Benchmark
+    public CampusMap readSerialized() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (CampusMap) in.readObject();
+        }
+    }
+
+    @Benchmark
+    public CampusMap readBinary() throws IOException {
+        return MapFormat.read(new ByteArrayInputStream(binary));
+    }
+}
@@ -0,0 +1,132 @@
+package bench;
+
+import model.CampusMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Изменение карты: построение дорог (по одной, пакетно, с полной пересортировкой), удаление узлов
+// и удаление области (одним вызовом и по одному узлу)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MutationBenchmark {
+
+    @Param({"5000", "50000"})
+    public int roads;
+
+    private Point[] points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(3);
+        int side = (int) Math.sqrt(roads) * 20;
+        points = new Point[roads + 1];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point(random.nextInt(side), random.nextInt(side));
+        }
+    }
+
+    @Benchmark
+    public CampusMap addRoadsIncremental() {
+        return buildChain(new CampusMap(), false);
+    }
+
+    @Benchmark
+    public CampusMap addRoadsBulkImport() {
+        CampusMap map = new CampusMap();
+        map.beginBulkImport();
+        buildChain(map, false);
+        map.endBulkImport();
+        return map;
+    }
+
+    @Benchmark
+    public CampusMap addRoadsEagerResort() {
+        CampusMap map = new CampusMap();
+        map.setIncrementalWeights(false);
+        // Полная пересортировка квадратична, поэтому здесь строится только десятая часть дорог
+        return buildChain(map, true);
+    }
+
+    @State(Scope.Thread)
+    public static class LoadedMap {
+        @Param({"50000"})
+        public int size;
+
+        CampusMap map;
+        List<String> junctions;
+        // Прямоугольник в центре карты площадью около 10% от всей
+        Rectangle region;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            map = SyntheticMaps.randomGeometric(size, 3, 11);
+            junctions = new ArrayList<>(map.getNodes().keySet());
+            Rectangle bounds = null;
+            for (String id : junctions) {
+                Point position = map.getNodes().get(id).getPosition();
+                if (bounds == null) bounds = new Rectangle(position);
+                else bounds.add(position);
+            }
+            int width = (int) (bounds.width * 0.316);
+            int height = (int) (bounds.height * 0.316);
+            region = new Rectangle((int) bounds.getCenterX() - width / 2, (int) bounds.getCenterY() - height / 2, width, height);
+        }
+    }
+
+    @Benchmark
+    public int deleteRegion(LoadedMap loaded) {
+        return loaded.map.deleteNodesIn(loaded.region);
+    }
+
+    @Benchmark
+    public int deleteRegionNodeByNode(LoadedMap loaded) {
+        List<String> inside = new ArrayList<>();
+        loaded.map.getSpatialIndex().forEachNodeIn(loaded.region, node -> inside.add(node.getId()));
+        for (String id : inside) {
+            loaded.map.deleteNode(id);
+        }
+        return inside.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    public int deleteNodeAndReconnect(LoadedMap loaded) {
+        CampusMap map = loaded.map;
+        List<String> junctions = loaded.junctions;
+        int index = (int) (System.nanoTime() % junctions.size());
+        String victim = junctions.get(index);
+        List<String> neighbors = new ArrayList<>(map.getGraph().get(victim).keySet());
+        Point position = map.getNodes().get(victim).getPosition();
+
+        map.deleteNode(victim);
+        String replacement = map.addJunction(position);
+        for (String neighbor : neighbors) {
+            map.addRoad(replacement, neighbor);
+        }
+        junctions.set(index, replacement);
+        return map.getEdges().size();
+    }
+
+    private CampusMap buildChain(CampusMap map, boolean reduced) {
+        int count = reduced ? roads / 10 : roads;
+        String previous = map.addJunction(points[0]);
+        for (int i = 1; i <= count; i++) {
+            String next = map.addJunction(points[i]);
+            map.addRoad(previous, next);
+            previous = next;
+        }
+        return map;
+    }
+}
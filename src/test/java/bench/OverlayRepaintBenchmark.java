@@ -0,0 +1,87 @@
+package bench;
+
+import model.CampusMap;
+import org.openjdk.jmh.annotations.*;
+import ui.MapRenderer;
+import ui.StaticMapLayer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Кадр во время перетаскивания вершины: карта не меняется, двигается только временный полигон.
+// full — вся карта рисуется заново, cached — копируется закэшированный слой StaticMapLayer.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OverlayRepaintBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+    private static final Color BACKGROUND = new Color(245, 245, 245);
+
+    @Param({"1000", "10000"})
+    public int buildings;
+
+    private MapRenderer renderer;
+    private StaticMapLayer layer;
+    private BufferedImage screen;
+    private double scale;
+    private Polygon dragged;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusMap map = SyntheticMaps.campus(buildings, 5);
+        map.getSpatialIndex();
+        renderer = new MapRenderer(map);
+        layer = new StaticMapLayer(renderer);
+        screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int side = (int) Math.ceil(Math.sqrt(buildings)) * 120;
+        scale = Math.min((double) WIDTH / side, (double) HEIGHT / side);
+        dragged = new Polygon(new int[]{100, 300, 300, 100}, new int[]{100, 100, 300, 300}, 4);
+    }
+
+    @Benchmark
+    public BufferedImage full() {
+        Graphics2D g2d = screen.createGraphics();
+        try {
+            g2d.setColor(BACKGROUND);
+            g2d.fillRect(0, 0, WIDTH, HEIGHT);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setClip(0, 0, WIDTH, HEIGHT);
+            g2d.scale(scale, scale);
+            renderer.paintRoads(g2d, scale, MapRenderer.visibleArea(g2d), null);
+            renderer.paintNodes(g2d, scale, MapRenderer.visibleArea(g2d), null);
+            paintOverlay(g2d);
+        } finally {
+            g2d.dispose();
+        }
+        return screen;
+    }
+
+    @Benchmark
+    public BufferedImage cached() {
+        Graphics2D g2d = screen.createGraphics();
+        try {
+            layer.paint(g2d, WIDTH, HEIGHT, scale, 0, 0, BACKGROUND);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.scale(scale, scale);
+            paintOverlay(g2d);
+        } finally {
+            g2d.dispose();
+        }
+        return screen;
+    }
+
+    private void paintOverlay(Graphics2D g2d) {
+        frame = (frame + 1) % 200;
+        dragged.xpoints[2] = 300 + frame * 10;
+        dragged.invalidate();
+        g2d.setColor(new Color(100, 149, 237, 180));
+        g2d.fillPolygon(dragged);
+        g2d.setColor(new Color(25, 25, 112));
+        g2d.drawPolygon(dragged);
+    }
+}
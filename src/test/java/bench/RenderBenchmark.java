@@ -0,0 +1,66 @@
+package bench;
+
+import model.CampusMap;
+import model.RoutePath;
+import org.openjdk.jmh.annotations.*;
+import ui.MapRenderer;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Отрисовка карты без окна в BufferedImage того же размера, что и окно навигации.
+// culling=false рисует всю карту, как MapPanel до отсечения по видимой области.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RenderBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+
+    @Param({"1000", "10000"})
+    public int buildings;
+
+    // zoomed — угол карты при максимальном увеличении, overview — вся карта целиком
+    @Param({"zoomed", "overview"})
+    public String view;
+
+    @Param({"true", "false"})
+    public boolean culling;
+
+    private MapRenderer renderer;
+    private BufferedImage image;
+    private double scale;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CampusMap map = SyntheticMaps.campus(buildings, 5);
+        map.getSpatialIndex();
+        renderer = new MapRenderer(map);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        int side = (int) Math.ceil(Math.sqrt(buildings)) * 120;
+        scale = view.equals("zoomed") ? 2.0 : Math.min((double) WIDTH / side, (double) HEIGHT / side);
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setBackground(new Color(245, 245, 245));
+            g2d.clearRect(0, 0, WIDTH, HEIGHT);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setClip(0, 0, WIDTH, HEIGHT);
+            g2d.scale(scale, scale);
+            Rectangle2D visible = culling ? MapRenderer.visibleArea(g2d) : null;
+            renderer.paintRoads(g2d, scale, visible, null);
+            renderer.paintPath(g2d, scale, RoutePath.EMPTY);
+            renderer.paintNodes(g2d, scale, visible, null);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+}
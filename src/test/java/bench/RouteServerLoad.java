@@ -0,0 +1,182 @@
+package bench;
+
+import model.CampusMap;
+import server.RouteServer;
+import util.FileUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Нагрузочный прогон сервера маршрутов: clients потоков в течение seconds секунд запрашивают маршруты
+// между случайными зданиями и печатают пропускную способность и задержки p50/p90/p99/max.
+// Без --url поднимает сервер в этом же процессе на синтетическом кампусе из buildings зданий:
+//   java -Djava.awt.headless=true -cp target/classes:target/test-classes bench.RouteServerLoad
+//       [--buildings 2000] [--clients 16] [--seconds 10] [--threads 8] [--url http://host:8080 --map campus]
+public final class RouteServerLoad {
+    private static final Pattern STRING = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    public static void main(String[] args) throws Exception {
+        int buildings = intArg(args, "--buildings", 2000);
+        int clients = intArg(args, "--clients", 16);
+        int seconds = intArg(args, "--seconds", 10);
+        int threads = intArg(args, "--threads", Runtime.getRuntime().availableProcessors() * 2);
+        String url = stringArg(args, "--url", null);
+        String mapName = stringArg(args, "--map", "campus");
+
+        RouteServer server = null;
+        if (url == null) {
+            File directory = Files.createTempDirectory("route-server-load").toFile();
+            CampusMap map = SyntheticMaps.campus(buildings, 19);
+            FileUtil.writeMap(map, new File(directory, mapName + ".map"));
+            server = new RouteServer(directory, new InetSocketAddress("127.0.0.1", 0), threads, 256);
+            server.start();
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+
+        List<String> names = strings(get(url + "/buildings?map=" + encode(mapName)));
+        names.remove(0); // ключ "buildings"
+        System.out.println("Map " + mapName + ": " + names.size() + " buildings, " + clients + " clients, " + seconds + " s");
+        String base = url + "/route?map=" + encode(mapName);
+
+        // Прогрев: страницы .mmap и JIT
+        runClients(names, base, clients, 2_000_000_000L);
+        Result result = runClients(names, base, clients, seconds * 1_000_000_000L);
+
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        System.out.printf("requests: %d, errors: %d, throughput: %.0f req/s%n",
+                latencies.length, result.errors, latencies.length / (result.nanos / 1e9));
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private static final class Result {
+        final long[] latencies;
+        final long errors;
+        final long nanos;
+
+        Result(long[] latencies, long errors, long nanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+    }
+
+    private static Result runClients(List<String> names, String base, int clients, long durationNanos) throws InterruptedException {
+        long[][] perClient = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        long started = System.nanoTime();
+        long deadline = started + durationNanos;
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(client);
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    String from = names.get(random.nextInt(names.size()));
+                    String to = names.get(random.nextInt(names.size()));
+                    String mode = random.nextBoolean() ? "rank" : "distance";
+                    long requestStarted = System.nanoTime();
+                    try {
+                        get(base + "&from=" + encode(from) + "&to=" + encode(to) + "&mode=" + mode);
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - requestStarted;
+                }
+                perClient[client] = latencies;
+                counts[client] = count;
+                done.countDown();
+            }, "load-client-" + c);
+            thread.start();
+        }
+        done.await();
+        long nanos = System.nanoTime() - started;
+        int total = 0;
+        for (int count : counts) total += count;
+        long[] all = new long[total];
+        int position = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(perClient[c], 0, all, position, counts[c]);
+            position += counts[c];
+        }
+        return new Result(all, errors.get(), nanos);
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Соединения переиспользуются (keep-alive), если ответ прочитан до конца
+    private static String get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                body.write(buffer, 0, read);
+            }
+            if (status != 200) {
+                throw new IOException("HTTP " + status + ": " + url);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> strings(String json) {
+        List<String> strings = new ArrayList<>();
+        Matcher matcher = STRING.matcher(json);
+        while (matcher.find()) {
+            strings.add(matcher.group(1).replace("\\\"", "\"").replace("\\\\", "\\"));
+        }
+        return strings;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        String value = stringArg(args, name, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String stringArg(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,82 @@
+package bench;
+
+import model.CampusMap;
+import model.CompactGraph;
+import model.CompactRouter;
+import model.RoutingMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Поиск пути на синтетических картах: исходная Дейкстра, двунаправленная, A* и CSR-роутер
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RoutingBenchmark {
+    private static final int QUERIES = 64;
+
+    // 1M узлов — размер из исходного BidirectionalSearchBenchmark; построение такой карты занимает
+    // заметное время, для быстрого прогона: -p nodes=10000,100000
+    @Param({"10000", "100000", "1000000"})
+    public int nodes;
+
+    @Param({"grid", "random", "campus"})
+    public String layout;
+
+    private CampusMap map;
+    private CompactGraph compactGraph;
+    private CompactRouter router;
+    private String[] starts;
+    private String[] ends;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = SyntheticMaps.generate(layout, nodes, 42);
+        compactGraph = CompactGraph.of(map);
+        router = new CompactRouter(compactGraph);
+
+        List<String> ids = new ArrayList<>(map.getNodes().keySet());
+        Random random = new Random(7);
+        starts = new String[QUERIES];
+        ends = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = ids.get(random.nextInt(ids.size()));
+            ends[i] = ids.get(random.nextInt(ids.size()));
+        }
+    }
+
+    private int nextQuery() {
+        query = (query + 1) % QUERIES;
+        return query;
+    }
+
+    @Benchmark
+    public List<String> dijkstra() {
+        int i = nextQuery();
+        return map.findShortestPath(starts[i], ends[i]);
+    }
+
+    @Benchmark
+    public List<String> bidirectionalDijkstra() {
+        int i = nextQuery();
+        return map.findShortestPathBidirectional(starts[i], ends[i]);
+    }
+
+    @Benchmark
+    public List<String> aStarByDistance() {
+        int i = nextQuery();
+        return map.findShortestPath(starts[i], ends[i], RoutingMode.DISTANCE);
+    }
+
+    @Benchmark
+    public int compactRouter() {
+        int i = nextQuery();
+        return router.route(compactGraph.indexOf(starts[i]), compactGraph.indexOf(ends[i]));
+    }
+}
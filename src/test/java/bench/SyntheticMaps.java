@@ -0,0 +1,151 @@
+package bench;
+
+import model.CampusMap;
+import model.Node;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class SyntheticMaps {
+    private SyntheticMaps() {
+    }
+
+    // layout: grid, random или campus; размер — примерное число узлов
+    public static CampusMap generate(String layout, int nodes, long seed) {
+        switch (layout) {
+            case "grid":
+                return grid(nodes, 20);
+            case "random":
+                return randomGeometric(nodes, 3, seed);
+            case "campus":
+                // В кампусе на здание приходится около трёх узлов: здание, выход на улицу и угол квартала
+                return campus(Math.max(1, nodes / 3), seed);
+            default:
+                throw new IllegalArgumentException("Unknown map layout: " + layout);
+        }
+    }
+
+    // Квадратная решётка примерно из nodes перекрёстков с шагом spacing
+    public static CampusMap grid(int nodes, int spacing) {
+        int side = Math.max(2, (int) Math.round(Math.sqrt(nodes)));
+        CampusMap map = new CampusMap();
+        map.beginBulkImport();
+        String[] previousRow = new String[side];
+        for (int y = 0; y < side; y++) {
+            String left = null;
+            for (int x = 0; x < side; x++) {
+                String id = map.addJunction(new Point(x * spacing, y * spacing));
+                if (left != null) map.addRoad(left, id);
+                if (previousRow[x] != null) map.addRoad(previousRow[x], id);
+                previousRow[x] = id;
+                left = id;
+            }
+        }
+        map.endBulkImport();
+        return map;
+    }
+
+    // Случайный геометрический граф: точки равномерно в квадрате, каждая соединена с k ближайшими (приближённо).
+    // Соседи ищутся по корзинам равномерной сетки, поэтому генерация линейна по числу узлов.
+    public static CampusMap randomGeometric(int nodes, int k, long seed) {
+        Random random = new Random(seed);
+        int spacing = 20;
+        int size = (int) Math.sqrt((double) nodes) * spacing;
+        int cells = Math.max(1, size / (2 * spacing));
+        int cellSize = size / cells + 1;
+
+        CampusMap map = new CampusMap();
+        map.beginBulkImport();
+        String[] ids = new String[nodes];
+        int[] xs = new int[nodes];
+        int[] ys = new int[nodes];
+        List<List<Integer>> buckets = new ArrayList<>(cells * cells);
+        for (int i = 0; i < cells * cells; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < nodes; i++) {
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+            ids[i] = map.addJunction(new Point(xs[i], ys[i]));
+            buckets.get((ys[i] / cellSize) * cells + xs[i] / cellSize).add(i);
+        }
+
+        int[] nearest = new int[k];
+        long[] nearestDistance = new long[k];
+        for (int i = 0; i < nodes; i++) {
+            int found = 0;
+            int cx = xs[i] / cellSize;
+            int cy = ys[i] / cellSize;
+            for (int ring = 1; found < k && ring <= cells; ring++) {
+                found = 0;
+                for (int y = Math.max(0, cy - ring); y <= Math.min(cells - 1, cy + ring); y++) {
+                    for (int x = Math.max(0, cx - ring); x <= Math.min(cells - 1, cx + ring); x++) {
+                        for (int j : buckets.get(y * cells + x)) {
+                            if (j == i) continue;
+                            long dx = xs[j] - xs[i];
+                            long dy = ys[j] - ys[i];
+                            found = offer(nearest, nearestDistance, found, j, dx * dx + dy * dy);
+                        }
+                    }
+                }
+            }
+            for (int n = 0; n < found; n++) {
+                if (!map.getGraph().get(ids[i]).containsKey(ids[nearest[n]])) {
+                    map.addRoad(ids[i], ids[nearest[n]]);
+                }
+            }
+        }
+        map.endBulkImport();
+        return map;
+    }
+
+    // Кампус: кварталы зданий, разделённые улицами-решёткой; вход каждого здания выходит на улицу
+    public static CampusMap campus(int buildings, long seed) {
+        Random random = new Random(seed);
+        int blockSize = 120;
+        int side = Math.max(2, (int) Math.ceil(Math.sqrt(buildings)) + 1);
+        CampusMap map = grid(side * side, blockSize);
+        Map<Point, String> corners = new HashMap<>();
+        for (Node node : map.getNodes().values()) {
+            corners.put(node.getPosition(), node.getId());
+        }
+        map.beginBulkImport();
+        for (int i = 0; i < buildings; i++) {
+            int bx = (i % (side - 1)) * blockSize;
+            int by = (i / (side - 1)) * blockSize;
+            int width = 40 + random.nextInt(40);
+            int height = 40 + random.nextInt(40);
+            int x = bx + (blockSize - width) / 2;
+            int y = by + (blockSize - height) / 2;
+            Polygon shape = new Polygon(new int[]{x, x + width, x + width, x}, new int[]{y, y, y + height, y + height}, 4);
+            Point entry = new Point(x + width / 2, y);
+            map.addBuilding("Building " + i, shape, entry);
+            String street = map.addJunction(new Point(entry.x, by));
+            map.addRoad("B_Building " + i, street);
+            map.addRoad(street, corners.get(new Point(bx, by)));
+        }
+        map.endBulkImport();
+        return map;
+    }
+
+    private static int offer(int[] nearest, long[] nearestDistance, int found, int candidate, long distance) {
+        int position = found < nearest.length ? found++ : nearest.length;
+        if (position == nearest.length && distance >= nearestDistance[nearest.length - 1]) {
+            return found;
+        }
+        if (position == nearest.length) position--;
+        while (position > 0 && nearestDistance[position - 1] > distance) {
+            nearest[position] = nearest[position - 1];
+            nearestDistance[position] = nearestDistance[position - 1];
+            position--;
+        }
+        nearest[position] = candidate;
+        nearestDistance[position] = distance;
+        return found;
+    }
+}
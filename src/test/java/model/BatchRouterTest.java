@@ -0,0 +1,108 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRouterTest {
+
+    @Test
+    void findShortestPaths_shouldMatchSingleQueriesInBothModes() {
+        CampusMap map = TestMaps.randomGeometric(11, 12, 200, 800);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        Collections.sort(buildings);
+        List<BatchRouter.Request> requests = new ArrayList<>();
+        for (String start : buildings) {
+            for (String end : buildings) {
+                requests.add(new BatchRouter.Request(start, end));
+            }
+        }
+        BatchRouter router = new BatchRouter(map.snapshot().getRoutingGraph(), new ForkJoinPool(4));
+
+        BatchRouter.Result byRank = router.findShortestPaths(requests, RoutingMode.RANK);
+        BatchRouter.Result byDistance = router.findShortestPaths(requests, RoutingMode.DISTANCE);
+
+        assertEquals(requests.size(), byRank.size());
+        for (int i = 0; i < requests.size(); i++) {
+            BatchRouter.Request request = requests.get(i);
+            BatchRouter.Route rank = byRank.get(i);
+            assertEquals(i, rank.getIndex());
+            assertSame(request, rank.getRequest());
+            List<String> expected = map.findShortestPath(request.getStart(), request.getEnd(), RoutingMode.RANK);
+            assertEquals(expected.isEmpty(), !rank.isFound());
+            if (rank.isFound()) {
+                assertEquals(request.getStart(), rank.getPath().get(0));
+                assertEquals(request.getEnd(), rank.getPath().get(rank.getPath().size() - 1));
+                assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, rank.getPath()));
+                assertEquals(TestMaps.pathWeight(map, rank.getPath()), rank.getDistance(), 1e-9);
+            }
+
+            BatchRouter.Route distance = byDistance.get(i);
+            expected = map.findShortestPath(request.getStart(), request.getEnd(), RoutingMode.DISTANCE);
+            if (distance.isFound()) {
+                assertEquals(TestMaps.pathLength(map, expected), TestMaps.pathLength(map, distance.getPath()), 1e-9);
+                assertEquals(TestMaps.pathLength(map, distance.getPath()), distance.getDistance(), 1e-9);
+            } else {
+                assertTrue(expected.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void findShortestPaths_shouldReportUnknownAndUnreachableNodesAsNotFound() {
+        CampusMap map = TestMaps.grid(3, 3, 100);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        Collections.sort(buildings);
+        for (Edge edge : new ArrayList<>(map.getEdges())) {
+            if (edge.getFrom().equals(buildings.get(0)) || edge.getTo().equals(buildings.get(0))) {
+                map.deleteEdge(edge);
+            }
+        }
+        BatchRouter router = new BatchRouter(map.snapshot().getRoutingGraph());
+
+        BatchRouter.Result result = router.findShortestPaths(Arrays.asList(
+                new BatchRouter.Request("missing", buildings.get(1)),
+                new BatchRouter.Request(buildings.get(1), buildings.get(0)),
+                new BatchRouter.Request(buildings.get(1), buildings.get(1)),
+                new BatchRouter.Request(buildings.get(1), buildings.get(2))), RoutingMode.RANK);
+
+        assertFalse(result.get(0).isFound());
+        assertEquals(Double.POSITIVE_INFINITY, result.get(0).getDistance());
+        assertFalse(result.get(1).isFound());
+        assertEquals(Double.POSITIVE_INFINITY, result.get(1).getDistance());
+        assertEquals(Collections.singletonList(buildings.get(1)), result.get(2).getPath());
+        assertEquals(0, result.get(2).getDistance());
+        assertTrue(result.get(3).isFound());
+    }
+
+    @Test
+    void streamingFindShortestPaths_shouldDeliverEveryRequestOnce() {
+        CampusMap map = TestMaps.randomGeometric(5, 10, 150, 600);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        Random random = new Random(3);
+        List<BatchRouter.Request> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(new BatchRouter.Request(buildings.get(random.nextInt(buildings.size())),
+                    buildings.get(random.nextInt(buildings.size()))));
+        }
+        BatchRouter router = new BatchRouter(map.snapshot().getRoutingGraph(), new ForkJoinPool(4));
+        BatchRouter.Result collected = router.findShortestPaths(requests, RoutingMode.DISTANCE);
+
+        int[] delivered = new int[requests.size()];
+        router.findShortestPaths(requests, RoutingMode.DISTANCE, route -> {
+            delivered[route.getIndex()]++;
+            assertEquals(collected.get(route.getIndex()).getPath(), route.getPath());
+        });
+
+        for (int count : delivered) {
+            assertEquals(1, count);
+        }
+    }
+}
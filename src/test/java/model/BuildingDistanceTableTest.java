@@ -0,0 +1,63 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildingDistanceTableTest {
+
+    @Test
+    void build_shouldMatchDijkstraForAllBuildingPairs() {
+        CampusMap map = TestMaps.randomGeometric(31, 12, 250, 700);
+        BuildingDistanceTable table = BuildingDistanceTable.build(CompactGraph.of(map), map.getBuildings(), new ForkJoinPool(4));
+
+        assertEquals(12, table.size());
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> expected = map.findShortestPath(start, end);
+                List<String> actual = table.findShortestPath(start, end);
+                assertEquals(expected.isEmpty(), actual.isEmpty());
+                if (actual.isEmpty()) {
+                    assertEquals(BuildingDistanceTable.UNREACHABLE, table.distance(start, end));
+                } else {
+                    assertEquals(start, actual.get(0));
+                    assertEquals(end, actual.get(actual.size() - 1));
+                    assertEquals(TestMaps.pathWeight(map, actual), table.distance(start, end));
+                }
+                assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, actual));
+            }
+        }
+    }
+
+    @Test
+    void campusMap_shouldRebuildTableAfterMutation() {
+        CampusMap map = TestMaps.grid(6, 3, 40);
+        map.setBuildingTableEnabled(true);
+        BuildingDistanceTable before = map.getBuildingTable();
+        assertFalse(map.findShortestPath("B_0", "B_5").isEmpty());
+
+        String junction = map.addJunction(new Point(500, 500));
+        map.addRoad("B_0", junction);
+
+        BuildingDistanceTable after = map.getBuildingTable();
+        assertNotSame(before, after);
+        map.deleteNode("B_5");
+        assertFalse(map.getBuildingTable().contains("B_5"));
+        assertTrue(map.findShortestPath("B_0", "B_5").isEmpty());
+    }
+
+    @Test
+    void campusMap_shouldSkipTableForTooManyBuildings() {
+        CampusMap map = TestMaps.grid(BuildingDistanceTable.MAX_BUILDINGS + 1, 1, 10);
+        map.setBuildingTableEnabled(true);
+
+        assertNull(map.getBuildingTable());
+        String last = "B_" + BuildingDistanceTable.MAX_BUILDINGS;
+        assertEquals(BuildingDistanceTable.MAX_BUILDINGS + 3, map.findShortestPath("B_0", last).size());
+        assertEquals(BuildingDistanceTable.MAX_BUILDINGS + 3, map.snapshot().findShortestPath("B_0", last, RoutingMode.RANK).size());
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.awt.*;
+import java.io.ObjectInputStream;
 import java.util.*;
 import java.util.List;
 
@@ -59,6 +60,17 @@ class CampusMapTest {
         assertEquals(10, ids.size());
     }
 
+    @Test
+    void addJunction_shouldAllocateIncreasingNumbersWithoutReuse() {
+        String first = campusMap.addJunction(new Point(0, 0));
+        String second = campusMap.addJunction(new Point(1, 1));
+        campusMap.deleteNode(second);
+        campusMap.addJunction("J_41", new Point(2, 2));
+
+        assertEquals("J_1", first);
+        assertEquals("J_42", campusMap.addJunction(new Point(3, 3)));
+    }
+
     // Тесты для addRoad()
     @Test
     void addRoad_shouldConnectExistingNodes() {
@@ -83,6 +95,35 @@ class CampusMapTest {
         assertTrue(campusMap.getEdges().isEmpty());
     }
 
+    @Test
+    void addRoad_shouldReplaceExistingRoadBetweenSameNodes() {
+        String a = campusMap.addJunction(new Point(0, 0));
+        String b = campusMap.addJunction(new Point(30, 40));
+        campusMap.addRoad(a, b);
+        campusMap.addRoad(b, a);
+
+        assertEquals(1, campusMap.getEdges().size());
+        assertSame(campusMap.getGraph().get(a).get(b), campusMap.getEdges().get(0));
+
+        campusMap.deleteEdge(campusMap.getEdges().get(0));
+
+        assertTrue(campusMap.getEdges().isEmpty());
+    }
+
+    @Test
+    void addRoad_shouldShareIdStringsWithNodes() {
+        campusMap.addBuilding("A", createTestPolygon(), new Point(0, 0));
+        String junction = campusMap.addJunction(new Point(50, 0));
+        campusMap.addRoad(new String("B_A"), new String(junction));
+
+        Edge edge = campusMap.getEdges().get(0);
+        assertSame(campusMap.buildingId("A"), edge.getFrom());
+        assertSame(junction, edge.getTo());
+        assertNull(campusMap.buildingId("Missing"));
+        campusMap.deleteNode("B_A");
+        assertNull(campusMap.buildingId("A"));
+    }
+
     // Тесты для deleteNode()
     @Test
     void deleteNode_shouldRemoveBuildingAndConnectedRoads() {
@@ -147,6 +188,186 @@ class CampusMapTest {
         assertTrue(path.isEmpty());
     }
 
+    @Test
+    void findShortestPath_distanceModeShouldMatchReferenceLengths() {
+        CampusMap map = TestMaps.randomGeometric(11, 6, 100, 400);
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> path = map.findShortestPath(start, end, RoutingMode.DISTANCE);
+                double expected = TestMaps.referenceDistance(map, start, end);
+                if (Double.isInfinite(expected)) {
+                    assertTrue(path.isEmpty());
+                } else {
+                    assertEquals(start, path.get(0));
+                    assertEquals(end, path.get(path.size() - 1));
+                    assertEquals(expected, TestMaps.pathLength(map, path), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findShortestPathBidirectional_shouldMatchUnidirectionalWeights() {
+        CampusMap map = TestMaps.randomGeometric(12, 10, 200, 600);
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> expected = map.findShortestPath(start, end);
+                List<String> actual = map.findShortestPathBidirectional(start, end);
+                assertEquals(expected.isEmpty(), actual.isEmpty());
+                if (!actual.isEmpty()) {
+                    assertEquals(start, actual.get(0));
+                    assertEquals(end, actual.get(actual.size() - 1));
+                }
+                assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, actual));
+            }
+        }
+    }
+
+    @Test
+    void findShortestPathBidirectional_shouldReturnEmptyListForUnconnectedNodes() {
+        campusMap.addBuilding("A", createTestPolygon(), new Point(0, 0));
+        campusMap.addBuilding("B", createTestPolygon(), new Point(100, 0));
+
+        assertTrue(campusMap.findShortestPathBidirectional("B_A", "B_B").isEmpty());
+        assertEquals(Collections.singletonList("B_A"), campusMap.findShortestPathBidirectional("B_A", "B_A"));
+    }
+
+    // Тесты для кэша маршрутов
+    @Test
+    void routeCache_shouldServeRepeatedQueriesUntilMapChanges() {
+        campusMap.addBuilding("A", createTestPolygon(), new Point(0, 0));
+        campusMap.addBuilding("B", createTestPolygon(), new Point(100, 0));
+        campusMap.addRoad("B_A", "B_B");
+        campusMap.setRouteCacheCapacity(8);
+        RouteCache cache = campusMap.getRouteCache();
+
+        List<String> first = campusMap.findShortestPath("B_A", "B_B");
+        assertSame(first, campusMap.findShortestPath("B_A", "B_B"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        String junction = campusMap.addJunction(new Point(50, 50));
+        campusMap.addRoad("B_A", junction);
+        campusMap.addRoad(junction, "B_B");
+        campusMap.deleteEdge(campusMap.getGraph().get("B_A").get("B_B"));
+
+        assertEquals(Arrays.asList("B_A", junction, "B_B"), campusMap.findShortestPath("B_A", "B_B"));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void routeCache_shouldEvictLeastRecentlyUsedRoute() {
+        RouteCache cache = new RouteCache(2);
+        cache.put(0, "a", "b", RoutingMode.RANK, new RoutePath.Builder(1).add("a", 0, 0, 0).build());
+        cache.put(0, "b", "c", RoutingMode.RANK, new RoutePath.Builder(1).add("b", 0, 0, 0).build());
+        cache.get(0, "a", "b", RoutingMode.RANK);
+        cache.put(0, "c", "d", RoutingMode.RANK, new RoutePath.Builder(1).add("c", 0, 0, 0).build());
+
+        assertNotNull(cache.get(0, "a", "b", RoutingMode.RANK));
+        assertNull(cache.get(0, "b", "c", RoutingMode.RANK));
+        assertNull(cache.get(0, "a", "b", RoutingMode.DISTANCE));
+        assertNull(cache.get(1, "a", "b", RoutingMode.RANK));
+        assertEquals(0, cache.size());
+    }
+
+    // Тесты для инкрементального пересчёта весов
+    @Test
+    void incrementalWeights_shouldMatchEagerWeightsAndPaths() {
+        CampusMap eager = new CampusMap();
+        eager.setIncrementalWeights(false);
+        CampusMap incremental = new CampusMap();
+        buildRandomMap(eager, new Random(42));
+        buildRandomMap(incremental, new Random(42));
+
+        assertSameWeightsAndPaths(eager, incremental);
+    }
+
+    @Test
+    void bulkImport_shouldMatchEagerWeightsAndPaths() {
+        CampusMap eager = new CampusMap();
+        eager.setIncrementalWeights(false);
+        CampusMap bulk = new CampusMap();
+        buildRandomMap(eager, new Random(7));
+        bulk.beginBulkImport();
+        buildRandomMap(bulk, new Random(7));
+        bulk.endBulkImport();
+
+        assertFalse(bulk.isBulkImport());
+        assertSameWeightsAndPaths(eager, bulk);
+    }
+
+    @Test
+    void deleteEdge_shouldKeepWeightsConsecutiveInIncrementalMode() {
+        buildRandomMap(campusMap, new Random(3));
+        List<Edge> edges = new ArrayList<>(campusMap.getEdges());
+        campusMap.deleteEdge(edges.get(edges.size() / 2));
+
+        List<Edge> remaining = campusMap.getEdges();
+        for (int i = 0; i < remaining.size(); i++) {
+            assertEquals(i, remaining.get(i).weight);
+            if (i > 0) {
+                assertTrue(remaining.get(i - 1).length <= remaining.get(i).length);
+            }
+        }
+    }
+
+    @Test
+    void deleteNodesIn_shouldMatchDeletingNodesOneByOne() {
+        CampusMap region = TestMaps.randomGeometric(5, 10, 150, 600);
+        CampusMap oneByOne = TestMaps.randomGeometric(5, 10, 150, 600);
+        Rectangle area = new Rectangle(150, 150, 300, 300);
+        region.snapshot();
+        List<String> inside = new ArrayList<>();
+        for (Node node : oneByOne.getNodes().values()) {
+            if (area.contains(node.getPosition())) inside.add(node.getId());
+        }
+
+        int removed = region.deleteNodesIn(area);
+        for (String id : inside) {
+            oneByOne.deleteNode(id);
+        }
+
+        assertEquals(inside.size(), removed);
+        assertFalse(inside.isEmpty());
+        assertEquals(oneByOne.getNodes().keySet(), region.getNodes().keySet());
+        for (String id : oneByOne.getGraph().keySet()) {
+            assertEquals(oneByOne.getGraph().get(id).keySet(), region.getGraph().get(id).keySet());
+        }
+        List<Edge> edges = region.getEdges();
+        assertEquals(oneByOne.getEdges().size(), edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            assertEquals(i, edges.get(i).weight);
+            assertEquals(oneByOne.getEdges().get(i).length, edges.get(i).length);
+        }
+        region.getSpatialIndex().forEachNodeIn(area, node -> fail("Node left in the area: " + node.getId()));
+
+        MapSnapshot snapshot = region.snapshot();
+        for (String start : region.getBuildings()) {
+            for (String end : region.getBuildings()) {
+                List<String> expected = oneByOne.findShortestPath(start, end);
+                assertEquals(TestMaps.pathWeight(oneByOne, expected), TestMaps.pathWeight(region, region.findShortestPath(start, end)));
+                assertEquals(TestMaps.pathWeight(oneByOne, expected),
+                        TestMaps.pathWeight(region, snapshot.findShortestPath(start, end, RoutingMode.RANK)));
+            }
+        }
+    }
+
+    @Test
+    void deleteNode_shouldKeepSpatialIndexConsistent() {
+        campusMap.addBuilding("A", createTestPolygon(), new Point(0, 0));
+        String junction = campusMap.addJunction(new Point(100, 0));
+        campusMap.addRoad("B_A", junction);
+        SpatialIndex index = campusMap.getSpatialIndex();
+
+        campusMap.deleteNode(junction);
+
+        assertNull(index.nearestNode(100, 0, 5));
+        assertNull(index.nearestEdge(new Point(50, 0), 5));
+        assertNotNull(index.nearestNode(0, 0, 5));
+    }
+
     // Тесты для getters
     @Test
     void getNodes_shouldReturnAllNodes() {
@@ -165,7 +386,88 @@ class CampusMapTest {
         assertTrue(campusMap.getBuildings().contains("B_A"));
     }
 
+    // Тесты для чтения старых файлов .map
+    // Файл записан исходной версией классов модели
+    @Test
+    void readObject_shouldLoadMapSavedByEarlierVersion() throws Exception {
+        CampusMap map;
+        try (ObjectInputStream in = new ObjectInputStream(getClass().getResourceAsStream("legacy.map"))) {
+            map = (CampusMap) in.readObject();
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("B_Library", "B_Gym", "B_Lab")), map.getBuildings());
+        assertEquals(3, map.findShortestPath("B_Library", "B_Gym").size());
+        assertEquals("B_Lab", map.getSpatialIndex().nearestNode(250, 302, 5).getId());
+    }
+
+    @Test
+    void compactJunctionIds_shouldNotChangeNodesAndRoadsOfEarlierSnapshots() {
+        campusMap.addBuilding("A", createTestPolygon(), new Point(0, 0));
+        String first = "J_" + new UUID(2, 2);
+        String second = "J_" + new UUID(1, 1);
+        campusMap.addJunction(first, new Point(50, 0));
+        campusMap.addJunction(second, new Point(100, 0));
+        campusMap.addRoad("B_A", first);
+        campusMap.addRoad(first, second);
+        MapSnapshot before = campusMap.snapshot();
+
+        assertEquals(2, campusMap.compactJunctionIds());
+
+        // Номера выдаются в порядке прежних идентификаторов
+        assertEquals(Arrays.asList("B_A", "J_2", "J_1"), campusMap.findShortestPath("B_A", "J_1"));
+        for (Edge edge : campusMap.getEdges()) {
+            assertSame(campusMap.getGraph().get(edge.getFrom()).get(edge.getTo()), edge);
+            assertSame(campusMap.getGraph().get(edge.getTo()).get(edge.getFrom()), edge);
+        }
+        assertEquals(first, before.getNodes().get(first).getId());
+        assertEquals(Arrays.asList("B_A", first, second), before.findShortestPath("B_A", second, RoutingMode.RANK));
+        for (Edge edge : before.getEdges()) {
+            assertTrue(before.getNodes().containsKey(edge.getFrom()) && before.getNodes().containsKey(edge.getTo()));
+        }
+    }
+
     // Вспомогательные методы
+    private void buildRandomMap(CampusMap map, Random random) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            map.addBuilding("B" + i, createTestPolygon(), new Point(random.nextInt(500), random.nextInt(500)));
+            ids.add("B_B" + i);
+        }
+        for (int i = 0; i < 30; i++) {
+            ids.add(map.addJunction(new Point(random.nextInt(500), random.nextInt(500))));
+        }
+        // Ребра между узлами и повторяющиеся длины, чтобы проверить порядок при равенстве
+        for (int i = 0; i < 120; i++) {
+            String from = ids.get(random.nextInt(ids.size()));
+            String to = ids.get(random.nextInt(ids.size()));
+            map.addRoad(from, to);
+            if (i % 17 == 0) {
+                map.deleteNode(ids.remove(6 + random.nextInt(ids.size() - 6)));
+            }
+            if (i % 11 == 0 && map.getGraph().containsKey(from)) {
+                map.deleteEdge(map.getGraph().get(from).get(to));
+            }
+        }
+    }
+
+    private void assertSameWeightsAndPaths(CampusMap expected, CampusMap actual) {
+        List<Edge> expectedEdges = expected.getEdges();
+        List<Edge> actualEdges = actual.getEdges();
+        assertEquals(expectedEdges.size(), actualEdges.size());
+        for (int i = 0; i < expectedEdges.size(); i++) {
+            assertEquals(expectedEdges.get(i).weight, actualEdges.get(i).weight);
+            assertEquals(expectedEdges.get(i).length, actualEdges.get(i).length);
+        }
+        for (String start : expected.getBuildings()) {
+            for (String end : expected.getBuildings()) {
+                List<String> expectedPath = expected.findShortestPath(start, end);
+                List<String> actualPath = actual.findShortestPath(start, end);
+                assertEquals(expectedPath.isEmpty(), actualPath.isEmpty());
+                assertEquals(TestMaps.pathWeight(expected, expectedPath), TestMaps.pathWeight(actual, actualPath));
+            }
+        }
+    }
+
     private Polygon createTestPolygon() {
         return new Polygon(new int[]{0, 10, 10, 0}, new int[]{0, 0, 10, 10}, 4);
     }
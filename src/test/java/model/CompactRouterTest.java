@@ -0,0 +1,92 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRouterTest {
+
+    @Test
+    void compactGraph_shouldStoreBothDirectionsOfEveryRoad() {
+        CampusMap map = TestMaps.randomGeometric(1, 5, 40, 400);
+        CompactGraph graph = CompactGraph.of(map);
+
+        assertEquals(map.getNodes().size(), graph.nodeCount());
+        assertEquals(2 * map.getEdges().size(), graph.arcCount());
+        assertEquals(-1, graph.indexOf("nonexistent"));
+    }
+
+    @Test
+    void findShortestPath_shouldMatchCampusMapDistances() {
+        CampusMap map = TestMaps.randomGeometric(2, 8, 150, 600);
+        CompactRouter router = new CompactRouter(CompactGraph.of(map));
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> expected = map.findShortestPath(start, end);
+                List<String> actual = router.findShortestPath(start, end);
+                assertEquals(expected.isEmpty(), actual.isEmpty());
+                assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, actual));
+            }
+        }
+    }
+
+    @Test
+    void route_shouldReuseRouterAcrossQueries() {
+        CampusMap map = TestMaps.randomGeometric(3, 4, 60, 300);
+        CompactGraph graph = CompactGraph.of(map);
+        CompactRouter router = new CompactRouter(graph);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+
+        int source = graph.indexOf(buildings.get(0));
+        int target = graph.indexOf(buildings.get(1));
+        int first = router.route(source, target);
+        router.route(target, source);
+        int again = router.route(source, target);
+
+        assertEquals(first, again);
+        if (first > 0) {
+            assertEquals(source, router.pathNode(0));
+            assertEquals(target, router.pathNode(first - 1));
+        }
+    }
+
+    @Test
+    void distanceMode_shouldFindGeometricallyShortestPaths() {
+        CampusMap map = TestMaps.randomGeometric(4, 6, 120, 500);
+        CompactRouter router = new CompactRouter(CompactGraph.of(map));
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> path = router.findShortestPath(start, end, RoutingMode.DISTANCE);
+                double expected = TestMaps.referenceDistance(map, start, end);
+                if (Double.isInfinite(expected)) {
+                    assertTrue(path.isEmpty());
+                } else {
+                    assertEquals(expected, TestMaps.pathLength(map, path), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    void distanceMode_shouldSettleFewNodesOnLongThinMap() {
+        CampusMap map = TestMaps.grid(200, 4, 20);
+        CompactGraph graph = CompactGraph.of(map);
+        CompactRouter router = new CompactRouter(graph);
+
+        int pathNodes = router.route(graph.indexOf("B_100"), graph.indexOf("B_110"), RoutingMode.DISTANCE);
+
+        assertTrue(pathNodes > 0);
+        assertTrue(router.settledCount() < graph.nodeCount() / 10, "settled " + router.settledCount());
+    }
+
+    @Test
+    void findShortestPath_shouldReturnEmptyListForUnknownNodes() {
+        CompactRouter router = new CompactRouter(CompactGraph.of(new CampusMap()));
+        assertTrue(router.findShortestPath("nonexistent1", "nonexistent2").isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    @Test
+    void findShortestPath_shouldMatchDijkstraOnRandomMap() {
+        CampusMap map = TestMaps.randomGeometric(21, 10, 300, 800);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(map);
+
+        assertSamePathWeights(map, hierarchy, new Random(5), 300);
+    }
+
+    @Test
+    void findShortestPath_shouldMatchDijkstraOnGrid() {
+        CampusMap map = TestMaps.grid(25, 25, 30);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(map);
+
+        assertTrue(hierarchy.shortcutCount() > 0);
+        assertSamePathWeights(map, hierarchy, new Random(6), 300);
+    }
+
+    @Test
+    void saveAndLoad_shouldPreserveHierarchy() throws IOException {
+        CampusMap map = TestMaps.randomGeometric(22, 6, 150, 500);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(map);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        hierarchy.save(out);
+        ContractionHierarchy loaded = ContractionHierarchy.load(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(hierarchy.getFingerprint(), loaded.getFingerprint());
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                assertEquals(hierarchy.findShortestPath(start, end), loaded.findShortestPath(start, end));
+            }
+        }
+    }
+
+    @Test
+    void campusMap_shouldDropHierarchyWhenMapChanges() {
+        CampusMap map = TestMaps.randomGeometric(23, 4, 50, 300);
+        map.setContractionHierarchy(ContractionHierarchy.build(map));
+        assertNotNull(map.getContractionHierarchy());
+
+        map.addJunction(new Point(10, 10));
+
+        assertNull(map.getContractionHierarchy());
+        assertThrows(IllegalArgumentException.class,
+                () -> map.setContractionHierarchy(ContractionHierarchy.build(TestMaps.grid(3, 3, 10))));
+    }
+
+    private void assertSamePathWeights(CampusMap map, ContractionHierarchy hierarchy, Random random, int queries) {
+        List<String> ids = new ArrayList<>(map.getNodes().keySet());
+        for (int i = 0; i < queries; i++) {
+            String start = ids.get(random.nextInt(ids.size()));
+            String end = ids.get(random.nextInt(ids.size()));
+            List<String> expected = map.findShortestPath(start, end);
+            List<String> actual = hierarchy.findShortestPath(start, end);
+            assertEquals(expected.isEmpty(), actual.isEmpty());
+            if (!actual.isEmpty()) {
+                assertEquals(start, actual.get(0));
+                assertEquals(end, actual.get(actual.size() - 1));
+            }
+            assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, actual));
+        }
+    }
+}
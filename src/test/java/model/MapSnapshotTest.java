@@ -0,0 +1,213 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapSnapshotTest {
+
+    @Test
+    void findShortestPath_shouldMatchCampusMapInBothModes() {
+        CampusMap map = TestMaps.randomGeometric(4, 8, 150, 600);
+        map.setBuildingTableEnabled(true);
+        MapSnapshot snapshot = map.snapshot();
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> byRank = map.findShortestPath(start, end, RoutingMode.RANK);
+                List<String> snapshotByRank = snapshot.findShortestPath(start, end, RoutingMode.RANK);
+                assertEquals(TestMaps.pathWeight(map, byRank), TestMaps.pathWeight(map, snapshotByRank));
+                List<String> byDistance = map.findShortestPath(start, end, RoutingMode.DISTANCE);
+                List<String> snapshotByDistance = snapshot.findShortestPath(start, end, RoutingMode.DISTANCE);
+                assertEquals(TestMaps.pathLength(map, byDistance), TestMaps.pathLength(map, snapshotByDistance), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void snapshot_shouldNotSeeLaterEdits() {
+        CampusMap map = TestMaps.grid(4, 4, 100);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        String start = buildings.get(0);
+        String end = buildings.get(buildings.size() - 1);
+        MapSnapshot snapshot = map.snapshot();
+        List<String> before = snapshot.findShortestPath(start, end, RoutingMode.RANK);
+
+        for (Edge edge : new ArrayList<>(map.getEdges())) {
+            map.deleteEdge(edge);
+        }
+
+        assertTrue(map.findShortestPath(start, end, RoutingMode.RANK).isEmpty());
+        assertEquals(before, snapshot.findShortestPath(start, end, RoutingMode.RANK));
+        assertFalse(before.isEmpty());
+    }
+
+    @Test
+    void snapshot_shouldBeReusedUntilMapChanges() {
+        CampusMap map = TestMaps.grid(3, 3, 100);
+        MapSnapshot snapshot = map.snapshot();
+        assertSame(snapshot, map.snapshot());
+
+        map.addJunction(new Point(1000, 1000));
+
+        MapSnapshot changed = map.snapshot();
+        assertNotSame(snapshot, changed);
+        assertEquals(map.getVersion(), changed.getVersion());
+    }
+
+    @Test
+    void weight_shouldMatchEdgeWeightsThroughEditsAndBulkImport() {
+        Random random = new Random(5);
+        CampusMap map = TestMaps.randomGeometric(6, 6, 80, 400);
+        map.snapshot();
+        List<String> ids = new ArrayList<>(map.getNodes().keySet());
+
+        for (int i = 0; i < 400; i++) {
+            if (i == 200) {
+                map.beginBulkImport();
+                for (int j = 0; j < 50; j++) {
+                    map.addRoad(ids.get(random.nextInt(ids.size())), ids.get(random.nextInt(ids.size())));
+                }
+                map.endBulkImport();
+            }
+            applyRandomEdit(map, ids, random);
+            assertRanksMatch(map, map.snapshot());
+        }
+    }
+
+    @Test
+    void snapshot_shouldStayOnOldVersionDuringBulkImport() {
+        CampusMap map = TestMaps.grid(3, 3, 100);
+        MapSnapshot before = map.snapshot();
+
+        map.beginBulkImport();
+        map.addJunction(new Point(500, 500));
+
+        assertSame(before, map.snapshot());
+        map.endBulkImport();
+        assertEquals(map.getNodes().size(), map.snapshot().getNodes().size());
+    }
+
+    // Один поток правит карту, остальные одновременно ищут маршруты по снимкам. Каждый найденный путь
+    // должен существовать в своём снимке и совпадать с путём, найденным потом по тому же снимку в одном потоке
+    @Test
+    void findShortestPath_shouldReadConsistentSnapshotsWhileMapIsEdited() throws Exception {
+        CampusMap map = TestMaps.randomGeometric(7, 10, 200, 800);
+        map.setBuildingTableEnabled(true);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        List<String> ids = new ArrayList<>(map.getNodes().keySet());
+        map.snapshot();
+
+        int readers = 8;
+        int queriesPerReader = 1000;
+        ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+        AtomicBoolean editing = new AtomicBoolean(true);
+        List<Object[]> samples = Collections.synchronizedList(new ArrayList<>());
+        try {
+            Future<?> editor = pool.submit(() -> {
+                Random random = new Random(8);
+                for (int i = 0; i < 3000; i++) {
+                    applyRandomEdit(map, ids, random);
+                }
+                editing.set(false);
+            });
+            List<Future<?>> queries = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                long seed = r;
+                queries.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < queriesPerReader; i++) {
+                        MapSnapshot snapshot = map.snapshot();
+                        String start = buildings.get(random.nextInt(buildings.size()));
+                        String end = buildings.get(random.nextInt(buildings.size()));
+                        RoutingMode mode = random.nextBoolean() ? RoutingMode.RANK : RoutingMode.DISTANCE;
+                        List<String> path = snapshot.findShortestPath(start, end, mode);
+                        assertValidPath(snapshot, start, end, path);
+                        if (i % 50 == 0) {
+                            samples.add(new Object[]{snapshot, start, end, mode, path});
+                        }
+                    }
+                }));
+            }
+            editor.get(60, TimeUnit.SECONDS);
+            for (Future<?> query : queries) {
+                query.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertFalse(editing.get());
+        for (Object[] sample : samples) {
+            MapSnapshot snapshot = (MapSnapshot) sample[0];
+            RoutingMode mode = (RoutingMode) sample[3];
+            @SuppressWarnings("unchecked")
+            List<String> path = (List<String>) sample[4];
+            List<String> expected = new CompactRouter(snapshot.compactGraph()).findShortestPath((String) sample[1], (String) sample[2], mode);
+            if (mode == RoutingMode.RANK) {
+                assertEquals(pathWeight(snapshot, expected), pathWeight(snapshot, path));
+            } else {
+                assertEquals(expected, path);
+            }
+        }
+        assertRanksMatch(map, map.snapshot());
+    }
+
+    // Добавление перекрёстка с дорогами, новая дорога, удаление дороги или перекрёстка; здания не удаляются
+    private static void applyRandomEdit(CampusMap map, List<String> ids, Random random) {
+        int action = random.nextInt(4);
+        if (action == 0) {
+            String id = map.addJunction(new Point(random.nextInt(800), random.nextInt(800)));
+            ids.add(id);
+            map.addRoad(id, ids.get(random.nextInt(ids.size())));
+            map.addRoad(id, ids.get(random.nextInt(ids.size())));
+        } else if (action == 1) {
+            map.addRoad(ids.get(random.nextInt(ids.size())), ids.get(random.nextInt(ids.size())));
+        } else if (action == 2 && !map.getEdges().isEmpty()) {
+            map.deleteEdge(map.getEdges().get(random.nextInt(map.getEdges().size())));
+        } else {
+            String id = ids.get(random.nextInt(ids.size()));
+            if (!map.getNodes().containsKey(id) || map.getNodes().get(id).isBuilding()) return;
+            map.deleteNode(id);
+            ids.remove(id);
+        }
+    }
+
+    private static void assertRanksMatch(CampusMap map, MapSnapshot snapshot) {
+        assertEquals(map.getVersion(), snapshot.getVersion());
+        assertEquals(map.getNodes(), snapshot.getNodes());
+        assertEquals(map.getGraph(), snapshot.getGraph());
+        assertEquals(map.getEdges(), snapshot.getEdges());
+        for (Edge edge : map.getEdges()) {
+            assertEquals(edge.weight, snapshot.weight(edge));
+        }
+    }
+
+    private static void assertValidPath(MapSnapshot snapshot, String start, String end, List<String> path) {
+        if (path.isEmpty()) return;
+        assertEquals(start, path.get(0));
+        assertEquals(end, path.get(path.size() - 1));
+        for (int i = 1; i < path.size(); i++) {
+            assertNotNull(snapshot.getGraph().get(path.get(i - 1)).get(path.get(i)), "Missing road in snapshot");
+        }
+    }
+
+    private static long pathWeight(MapSnapshot snapshot, List<String> path) {
+        long weight = 0;
+        for (int i = 1; i < path.size(); i++) {
+            weight += snapshot.weight(snapshot.getGraph().get(path.get(i - 1)).get(path.get(i)));
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,161 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Polygon;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedMapTest {
+
+    @Test
+    void open_shouldExposeNodesRoadsAndBuildingsOfTheMap(@TempDir File directory) throws IOException {
+        CampusMap map = TestMaps.randomGeometric(4, 10, 120, 600);
+        MappedMap mapped = writeAndOpen(map, new File(directory, "campus.mmap"));
+
+        assertEquals(map.getNodes().size(), mapped.nodeCount());
+        assertEquals(2 * map.getEdges().size(), mapped.arcCount());
+        assertEquals(ContractionHierarchy.fingerprint(map), mapped.getFingerprint());
+        assertEquals(map.getBuildings(), mapped.getBuildings());
+        assertEquals(-1, mapped.indexOf("nonexistent"));
+        for (Node node : map.getNodes().values()) {
+            int index = mapped.indexOf(node.getId());
+            assertEquals(node.getId(), mapped.id(index));
+            assertEquals(node.getPosition().x, mapped.x(index));
+            assertEquals(node.getPosition().y, mapped.y(index));
+            assertEquals(map.getGraph().get(node.getId()).size(), mapped.endArc(index) - mapped.firstArc(index));
+            int building = mapped.buildingOf(index);
+            assertEquals(node.isBuilding(), building >= 0);
+            if (building >= 0) {
+                Polygon shape = node.getShape();
+                assertEquals(index, mapped.buildingNode(building));
+                assertEquals(node.getId().substring(2), mapped.label(building));
+                assertEquals(shape.npoints, mapped.endVertex(building) - mapped.firstVertex(building));
+                for (int i = 0; i < shape.npoints; i++) {
+                    assertEquals(shape.xpoints[i], mapped.vertexX(mapped.firstVertex(building) + i));
+                    assertEquals(shape.ypoints[i], mapped.vertexY(mapped.firstVertex(building) + i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void findShortestPath_shouldMatchCampusMap(@TempDir File directory) throws IOException {
+        CampusMap map = TestMaps.randomGeometric(5, 8, 150, 600);
+        MappedMap mapped = writeAndOpen(map, new File(directory, "campus.mmap"));
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> expected = map.findShortestPath(start, end);
+                List<String> actual = mapped.findShortestPath(start, end, RoutingMode.RANK);
+                assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, actual));
+                List<String> byDistance = mapped.findShortestPath(start, end, RoutingMode.DISTANCE);
+                assertEquals(TestMaps.pathLength(map, map.findShortestPath(start, end, RoutingMode.DISTANCE)),
+                        TestMaps.pathLength(map, byDistance), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void setContractionHierarchy_shouldAcceptOnlyHierarchyOfTheSameMap(@TempDir File directory) throws IOException {
+        CampusMap map = TestMaps.randomGeometric(6, 6, 80, 400);
+        MappedMap mapped = writeAndOpen(map, new File(directory, "campus.mmap"));
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(map);
+
+        mapped.setContractionHierarchy(hierarchy);
+        String start = map.getBuildings().iterator().next();
+        for (String end : map.getBuildings()) {
+            assertEquals(hierarchy.findShortestPath(start, end), mapped.findShortestPath(start, end, RoutingMode.RANK));
+        }
+        ContractionHierarchy other = ContractionHierarchy.build(TestMaps.grid(4, 4, 50));
+        assertThrows(IllegalArgumentException.class, () -> mapped.setContractionHierarchy(other));
+    }
+
+    @Test
+    void buildingTable_shouldMatchSearchBetweenBuildings(@TempDir File directory) throws IOException {
+        CampusMap map = TestMaps.randomGeometric(8, 10, 150, 600);
+        MappedMap mapped = writeAndOpen(map, new File(directory, "campus.mmap"));
+        MappedMap withTable = writeAndOpen(map, new File(directory, "table.mmap"));
+        withTable.setBuildingTableEnabled(true);
+
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                List<String> expected = mapped.findShortestPath(start, end, RoutingMode.RANK);
+                List<String> actual = withTable.findShortestPath(start, end, RoutingMode.RANK);
+                assertEquals(TestMaps.pathWeight(map, expected), TestMaps.pathWeight(map, actual));
+            }
+        }
+        int node = 0;
+        while (mapped.buildingOf(node) >= 0) node++;
+        String junction = mapped.id(node);
+        String building = map.getBuildings().iterator().next();
+        assertEquals(TestMaps.pathWeight(map, mapped.findShortestPath(building, junction, RoutingMode.RANK)),
+                TestMaps.pathWeight(map, withTable.findShortestPath(building, junction, RoutingMode.RANK)));
+    }
+
+    @Test
+    void cellTable_shouldListObjectsInCellsOfTheirBounds(@TempDir File directory) throws IOException {
+        CampusMap map = TestMaps.randomGeometric(7, 12, 200, 1500);
+        MappedMap mapped = writeAndOpen(map, new File(directory, "campus.mmap"));
+
+        int[] nodeCells = new int[mapped.nodeCount()];
+        int roads = 0;
+        int buildings = 0;
+        for (int row = 0; row <= mapped.cellRow(Integer.MAX_VALUE); row++) {
+            for (int column = 0; column <= mapped.cellColumn(Integer.MAX_VALUE); column++) {
+                int cell = mapped.cell(column, row);
+                for (int entry = mapped.firstCellNode(cell); entry < mapped.endCellNode(cell); entry++) {
+                    int node = mapped.cellNode(entry);
+                    nodeCells[node]++;
+                    assertEquals(column, mapped.cellColumn(mapped.x(node)));
+                    assertEquals(row, mapped.cellRow(mapped.y(node)));
+                }
+                for (int entry = mapped.firstCellRoad(cell); entry < mapped.endCellRoad(cell); entry++) {
+                    int from = mapped.cellRoadFrom(entry);
+                    int to = mapped.cellRoadTo(entry);
+                    assertTrue(from < to);
+                    assertTrue(column >= mapped.cellColumn(Math.min(mapped.x(from), mapped.x(to)))
+                            && column <= mapped.cellColumn(Math.max(mapped.x(from), mapped.x(to))));
+                    if (column == mapped.cellColumn(Math.min(mapped.x(from), mapped.x(to)))
+                            && row == mapped.cellRow(Math.min(mapped.y(from), mapped.y(to)))) {
+                        roads++;
+                    }
+                }
+                for (int entry = mapped.firstCellBuilding(cell); entry < mapped.endCellBuilding(cell); entry++) {
+                    int building = mapped.cellBuilding(entry);
+                    assertTrue(row >= mapped.cellRow(mapped.buildingMinY(building)) && row <= mapped.cellRow(mapped.buildingMaxY(building)));
+                    if (column == mapped.cellColumn(mapped.buildingMinX(building)) && row == mapped.cellRow(mapped.buildingMinY(building))) {
+                        buildings++;
+                    }
+                }
+            }
+        }
+        for (int count : nodeCells) {
+            assertEquals(1, count);
+        }
+        assertEquals(map.getEdges().size(), roads);
+        assertEquals(mapped.buildingCount(), buildings);
+    }
+
+    @Test
+    void open_shouldRejectTruncatedFile(@TempDir File directory) throws IOException {
+        File file = new File(directory, "campus.mmap");
+        writeAndOpen(TestMaps.grid(5, 5, 40), file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        File truncated = new File(directory, "truncated.mmap");
+        Files.write(truncated.toPath(), java.util.Arrays.copyOf(bytes, bytes.length - 7));
+
+        assertThrows(IOException.class, () -> MappedMap.open(truncated));
+    }
+
+    private static MappedMap writeAndOpen(CampusMap map, File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            MappedMap.write(map, out);
+        }
+        return MappedMap.open(file);
+    }
+}
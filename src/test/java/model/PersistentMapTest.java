@@ -0,0 +1,69 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentMapTest {
+
+    @Test
+    void plusAndMinus_shouldMatchHashMapAndKeepOldVersions() {
+        Random random = new Random(1);
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        Map<String, Integer> expected = new HashMap<>();
+        List<PersistentMap<String, Integer>> versions = new ArrayList<>();
+        List<Map<String, Integer>> expectedVersions = new ArrayList<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            String key = "k" + random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+            if (i % 1000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new HashMap<>(expected));
+            }
+        }
+
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(expectedVersions.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    void keysWithEqualHashes_shouldBeKeptApart() {
+        // "Aa" и "BB" имеют одинаковый hashCode
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2).plus("C", 3);
+
+        assertEquals(1, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        assertEquals(3, map.size());
+        PersistentMap<String, Integer> smaller = map.minus("Aa");
+        assertNull(smaller.get("Aa"));
+        assertEquals(2, smaller.get("BB"));
+        assertEquals(1, map.get("Aa"));
+        assertTrue(smaller.minus("BB").minus("C").isEmpty());
+    }
+
+    @Test
+    void unchangedUpdates_shouldReturnSameInstance() {
+        Integer value = 7;
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", value);
+
+        assertSame(map, map.plus("a", value));
+        assertSame(map, map.minus("missing"));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("b", 1));
+    }
+}
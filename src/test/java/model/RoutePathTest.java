@@ -0,0 +1,121 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutePathTest {
+
+    @Test
+    void builder_shouldAccumulateDistancesAndSignTurns() {
+        RoutePath route = new RoutePath.Builder(1)
+                .add("a", 0, 0, 0)
+                .add("b", 10, 0, 10)
+                .add("c", 10, 10, 12)
+                .add("d", 20, 10, 10)
+                .add("e", 30, 10, 10)
+                .build();
+
+        assertEquals(5, route.size());
+        assertEquals(4, route.segmentCount());
+        assertEquals(12, route.segmentLength(1));
+        assertEquals(22, route.distance(2));
+        assertEquals(42, route.getLength());
+        assertEquals(0, route.turnAngle(0));
+        assertEquals(90, route.turnAngle(1), 1e-9); // на восток, затем вниз по экрану — направо
+        assertEquals(-90, route.turnAngle(2), 1e-9);
+        assertEquals(0, route.turnAngle(3), 1e-9);
+        assertEquals(0, route.turnAngle(4));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), route.getNodeIds());
+        assertSame(route.getNodeIds(), route.getNodeIds());
+        assertTrue(RoutePath.EMPTY.isEmpty());
+        assertEquals(0, RoutePath.EMPTY.getLength());
+    }
+
+    @Test
+    void snapshotFindRoute_shouldCarryGeometryOfThePathInBothModes() {
+        CampusMap map = TestMaps.randomGeometric(9, 8, 150, 600);
+        MapSnapshot snapshot = map.snapshot();
+        for (String start : map.getBuildings()) {
+            for (String end : map.getBuildings()) {
+                for (RoutingMode mode : RoutingMode.values()) {
+                    RoutePath route = snapshot.findRoute(start, end, mode);
+                    assertEquals(snapshot.findShortestPath(start, end, mode), route.getNodeIds());
+                    assertGeometry(map, route);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findRoute_shouldCarryGeometryFromTableAndHierarchy() {
+        CampusMap map = TestMaps.randomGeometric(3, 8, 150, 600);
+        List<String> buildings = new ArrayList<>(map.getBuildings());
+        Collections.sort(buildings);
+
+        BuildingDistanceTable table = BuildingDistanceTable.build(map);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(map);
+        RoutingGraph graph = map.snapshot().getRoutingGraph();
+        for (String start : buildings) {
+            for (String end : buildings) {
+                RoutePath byTable = table.findRoute(start, end);
+                assertEquals(table.findShortestPath(start, end), byTable.getNodeIds());
+                assertGeometry(map, byTable);
+                RoutePath byHierarchy = hierarchy.findRoute(start, end, graph);
+                assertEquals(hierarchy.findShortestPath(start, end), byHierarchy.getNodeIds());
+                assertGeometry(map, byHierarchy);
+            }
+        }
+    }
+
+    @Test
+    void mappedMapFindRoute_shouldMatchSnapshot(@TempDir File directory) throws IOException {
+        CampusMap map = TestMaps.randomGeometric(5, 8, 150, 600);
+        File file = new File(directory, "campus.mmap");
+        try (OutputStream out = new FileOutputStream(file)) {
+            MappedMap.write(map, out);
+        }
+        MappedMap mapped = MappedMap.open(file);
+        mapped.setContractionHierarchy(ContractionHierarchy.build(map));
+        mapped.setRouteCacheCapacity(16);
+        String start = map.getBuildings().iterator().next();
+        for (String end : map.getBuildings()) {
+            RoutePath byRank = mapped.findRoute(start, end, RoutingMode.RANK);
+            assertGeometry(map, byRank);
+            assertSame(byRank, mapped.findRoute(start, end, RoutingMode.RANK));
+            RoutePath byDistance = mapped.findRoute(start, end, RoutingMode.DISTANCE);
+            assertGeometry(map, byDistance);
+            assertEquals(TestMaps.pathLength(map, map.findShortestPath(start, end, RoutingMode.DISTANCE)),
+                    byDistance.getLength(), 1e-9);
+        }
+    }
+
+    private static void assertGeometry(CampusMap map, RoutePath route) {
+        assertEquals(Math.max(0, route.size() - 1), route.segmentCount());
+        double distance = 0;
+        for (int i = 0; i < route.size(); i++) {
+            Point position = map.getNodes().get(route.id(i)).getPosition();
+            assertEquals(position.x, route.x(i));
+            assertEquals(position.y, route.y(i));
+            if (i > 0) {
+                double length = map.getGraph().get(route.id(i - 1)).get(route.id(i)).length;
+                assertEquals(length, route.segmentLength(i - 1));
+                distance += length;
+            }
+            assertEquals(distance, route.distance(i), 1e-9);
+            assertTrue(Math.abs(route.turnAngle(i)) <= 180);
+        }
+        assertEquals(TestMaps.pathLength(map, route.getNodeIds()), route.getLength(), 1e-9);
+    }
+}
@@ -0,0 +1,181 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortestPathTreeTest {
+
+    @Test
+    void repairedTrees_shouldMatchTreesBuiltFromScratchAfterRandomEdits() {
+        CampusMap map = TestMaps.randomGeometric(17, 10, 150, 600);
+        map.setDynamicRoutingEnabled(true);
+        MapSnapshot initial = map.snapshot();
+        List<String> sources = Arrays.asList("B_B0", "B_B3", "B_B7");
+        List<ShortestPathTree> trees = new ArrayList<>();
+        for (String source : sources) {
+            map.findShortestPath(source, "B_B1", RoutingMode.DISTANCE);
+            trees.add(map.getShortestPathTrees().tree(source));
+        }
+
+        Random random = new Random(5);
+        for (int step = 0; step < 300; step++) {
+            List<String> ids = new ArrayList<>(map.getNodes().keySet());
+            Collections.sort(ids);
+            int action = random.nextInt(10);
+            if (action < 4) {
+                map.addRoad(ids.get(random.nextInt(ids.size())), ids.get(random.nextInt(ids.size())));
+            } else if (action < 8 && !map.getEdges().isEmpty()) {
+                map.deleteEdge(map.getEdges().get(random.nextInt(map.getEdges().size())));
+            } else if (action == 8) {
+                String id = ids.get(random.nextInt(ids.size()));
+                if (!sources.contains(id)) map.deleteNode(id);
+            } else {
+                map.addJunction(new Point(random.nextInt(600), random.nextInt(600)));
+            }
+
+            for (int i = 0; i < sources.size(); i++) {
+                // Дерево исправлено на месте, а не построено заново
+                assertSame(trees.get(i), map.getShortestPathTrees().tree(sources.get(i)));
+                ShortestPathTree expected = new ShortestPathTree(sources.get(i), map.getGraph());
+                for (String id : map.getNodes().keySet()) {
+                    assertEquals(expected.distance(id), trees.get(i).distance(id), 1e-6, "step " + step + ", node " + id);
+                    List<String> path = trees.get(i).path(id);
+                    if (!path.isEmpty()) {
+                        assertEquals(trees.get(i).distance(id), TestMaps.pathLength(map, path), 1e-6);
+                    }
+                }
+            }
+        }
+
+        for (String end : map.getBuildings()) {
+            List<String> path = map.findShortestPath("B_B0", end, RoutingMode.DISTANCE);
+            assertEquals(TestMaps.referenceDistance(map, "B_B0", end),
+                    path.isEmpty() ? Double.POSITIVE_INFINITY : TestMaps.pathLength(map, path), 1e-6);
+            assertEquals(TestMaps.pathLength(map, path), map.snapshot().findRoute("B_B0", end, RoutingMode.DISTANCE).getLength(), 1e-6);
+        }
+        // Снимок старой версии деревьями не пользуется и отвечает по своей версии
+        assertNull(map.getShortestPathTrees().findRoute(initial.getVersion(), initial.getNodes(), initial.getGraph(), "B_B0", "B_B1"));
+    }
+
+    @Test
+    void repair_shouldTouchOnlyTheAffectedPartOfTheTree() {
+        CampusMap map = TestMaps.grid(30, 30, 10);
+        map.setDynamicRoutingEnabled(true);
+        map.findShortestPath("B_0", "B_29", RoutingMode.DISTANCE);
+        ShortestPathTree tree = map.getShortestPathTrees().tree("B_0");
+        assertTrue(tree.getLastUpdates() >= 900);
+
+        // Дорога у дальнего угла: от B_0 до (290, 290) 580 + 5, диагональ сокращает путь только до него
+        String corner = map.getSpatialIndex().nearestNode(290, 290, 1).getId();
+        String beforeCorner = map.getSpatialIndex().nearestNode(280, 280, 1).getId();
+        map.addRoad(beforeCorner, corner);
+        assertEquals(1, tree.getLastUpdates());
+        assertEquals(5 + 560 + Math.sqrt(200), tree.distance(corner), 1e-9);
+
+        map.deleteEdge(map.getGraph().get(beforeCorner).get(corner));
+        assertTrue(tree.getLastUpdates() <= 2);
+        assertEquals(585, tree.distance(corner), 1e-9);
+
+        // Дорога вне дерева: ничего не пересчитывается
+        for (Edge edge : map.getEdges()) {
+            if (!parentOf(tree, edge.getTo()).equals(edge.getFrom()) && !parentOf(tree, edge.getFrom()).equals(edge.getTo())) {
+                map.deleteEdge(edge);
+                assertEquals(0, tree.getLastUpdates());
+                break;
+            }
+        }
+    }
+
+    @Test
+    void trees_shouldBeDroppedWhenMapChangesInOtherWays() {
+        CampusMap map = TestMaps.grid(5, 5, 10);
+        map.setDynamicRoutingEnabled(true);
+        map.findShortestPath("B_0", "B_4", RoutingMode.DISTANCE);
+        map.findShortestPath("B_1", "B_4", RoutingMode.DISTANCE);
+        assertEquals(2, map.getShortestPathTrees().size());
+
+        // Начальный узел удалён — его дерево больше не нужно
+        map.deleteNode("B_1");
+        assertEquals(1, map.getShortestPathTrees().size());
+        // Заменённое здание могло сдвинуться: все деревья сбрасываются
+        map.addBuilding("0", TestMaps.square(0, -10), new Point(0, -5));
+        assertEquals(0, map.getShortestPathTrees().size());
+
+        List<String> path = map.findShortestPath("B_2", "B_4", RoutingMode.DISTANCE);
+        assertEquals(TestMaps.referenceDistance(map, "B_2", "B_4"), TestMaps.pathLength(map, path), 1e-9);
+        map.setDynamicRoutingEnabled(false);
+        assertNull(map.getShortestPathTrees());
+        assertEquals(path, map.findShortestPath("B_2", "B_4", RoutingMode.DISTANCE));
+    }
+
+    // Дерево строится без блокировки деревьев: правка карты не ждёт поиска по снимку, а дерево
+    // устаревшей к концу построения версии не сохраняется
+    @Test
+    void findRoute_shouldNotBlockEditsWhileTreeIsBuilt() throws Exception {
+        CampusMap map = TestMaps.grid(10, 10, 10);
+        map.setDynamicRoutingEnabled(true);
+        MapSnapshot snapshot = map.snapshot();
+        double expected = TestMaps.referenceDistance(map, "B_0", "B_9");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, Map<String, Edge>> graph = snapshot.getGraph();
+        Map<String, Map<String, Edge>> blocking = new AbstractMap<String, Map<String, Edge>>() {
+            @Override
+            public Set<Entry<String, Map<String, Edge>>> entrySet() {
+                return graph.entrySet();
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return graph.containsKey(key);
+            }
+
+            @Override
+            public Map<String, Edge> get(Object key) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return graph.get(key);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<RoutePath> route = executor.submit(() -> map.getShortestPathTrees()
+                    .findRoute(snapshot.getVersion(), snapshot.getNodes(), blocking, "B_0", "B_9"));
+            started.await();
+            executor.submit(() -> map.addRoad("B_0", "B_9")).get(5, TimeUnit.SECONDS);
+            release.countDown();
+
+            assertEquals(expected, route.get(5, TimeUnit.SECONDS).getLength(), 1e-9);
+            assertEquals(0, map.getShortestPathTrees().size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static String parentOf(ShortestPathTree tree, String nodeId) {
+        List<String> path = tree.path(nodeId);
+        return path.size() < 2 ? "" : path.get(path.size() - 2);
+    }
+}
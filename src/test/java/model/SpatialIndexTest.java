@@ -0,0 +1,137 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+
+    @Test
+    void queries_shouldMatchLinearScan() {
+        CampusMap map = TestMaps.randomGeometric(31, 12, 400, 1000);
+
+        assertMatchesLinearScan(map, new Random(1), 500);
+    }
+
+    @Test
+    void index_shouldFollowMapChanges() {
+        CampusMap map = TestMaps.randomGeometric(32, 8, 200, 800);
+        map.getSpatialIndex();
+        Random random = new Random(2);
+
+        for (int i = 0; i < 40; i++) {
+            List<String> ids = new ArrayList<>(map.getNodes().keySet());
+            switch (i % 4) {
+                case 0:
+                    map.addJunction(new Point(random.nextInt(800), random.nextInt(800)));
+                    break;
+                case 1:
+                    map.addRoad(ids.get(random.nextInt(ids.size())), ids.get(random.nextInt(ids.size())));
+                    break;
+                case 2:
+                    map.deleteNode(ids.get(random.nextInt(ids.size())));
+                    break;
+                default:
+                    List<Edge> edges = map.getEdges();
+                    if (!edges.isEmpty()) map.deleteEdge(edges.get(random.nextInt(edges.size())));
+            }
+        }
+        map.addBuilding("Moved", TestMaps.square(600, 600), new Point(600, 600));
+        map.addBuilding("Moved", TestMaps.square(100, 100), new Point(100, 100));
+
+        assertMatchesLinearScan(map, random, 500);
+        assertNull(map.getSpatialIndex().nearestNode(600, 600, 1));
+    }
+
+    @Test
+    void nearestEdge_shouldFindLongDiagonalRoad() {
+        CampusMap map = new CampusMap();
+        String a = map.addJunction(new Point(0, 0));
+        String b = map.addJunction(new Point(1000, 1000));
+        map.addRoad(a, b);
+
+        assertSame(map.getGraph().get(a).get(b), map.getSpatialIndex().nearestEdge(new Point(502, 498), 5));
+        assertNull(map.getSpatialIndex().nearestEdge(new Point(0, 1000), 5));
+    }
+
+    @Test
+    void forEachIn_shouldReportEveryIntersectingObjectOnce() {
+        CampusMap map = TestMaps.randomGeometric(33, 30, 600, 1500);
+        SpatialIndex index = map.getSpatialIndex();
+        Random random = new Random(3);
+
+        for (int i = 0; i < 200; i++) {
+            // Маленькие окна обходят клетки по сетке, большие — все занятые клетки
+            int size = i % 2 == 0 ? 50 + random.nextInt(200) : 2000 + random.nextInt(2000);
+            Rectangle2D area = new Rectangle2D.Double(random.nextInt(1500) - size / 2.0, random.nextInt(1500) - size / 2.0, size, size);
+
+            Map<Edge, Integer> edges = new IdentityHashMap<>();
+            index.forEachEdgeIn(area, edge -> edges.merge(edge, 1, Integer::sum));
+            Map<Node, Integer> buildings = new IdentityHashMap<>();
+            index.forEachBuildingIn(area, building -> buildings.merge(building, 1, Integer::sum));
+            List<Node> nodes = new ArrayList<>();
+            index.forEachNodeIn(area, nodes::add);
+
+            for (Map<String, Edge> neighbors : map.getGraph().values()) {
+                for (Edge edge : neighbors.values()) {
+                    Line2D segment = new Line2D.Double(map.getNodes().get(edge.from).position, map.getNodes().get(edge.to).position);
+                    if (segment.intersects(area)) {
+                        assertTrue(edges.containsKey(edge));
+                    }
+                }
+            }
+            assertTrue(edges.values().stream().allMatch(count -> count == 1));
+            long expectedNodes = 0;
+            for (Node node : map.getNodes().values()) {
+                if (area.contains(node.position)) expectedNodes++;
+                if (node.isBuilding() && node.shape.intersects(area)) {
+                    assertEquals(1, buildings.get(node));
+                }
+            }
+            assertTrue(buildings.values().stream().allMatch(count -> count == 1));
+            assertEquals(expectedNodes, nodes.size());
+        }
+    }
+
+    private void assertMatchesLinearScan(CampusMap map, Random random, int queries) {
+        SpatialIndex index = map.getSpatialIndex();
+        for (int i = 0; i < queries; i++) {
+            Point p = new Point(random.nextInt(1000), random.nextInt(1000));
+
+            Node nearest = index.nearestNode(p.x, p.y, 40);
+            double expected = 40;
+            for (Node node : map.getNodes().values()) {
+                expected = Math.min(expected, p.distance(node.position));
+            }
+            assertEquals(expected, nearest == null ? 40 : p.distance(nearest.position), 1e-9);
+
+            Edge edge = index.nearestEdge(p, 10);
+            double expectedEdge = 10;
+            for (Map.Entry<String, Map<String, Edge>> entry : map.getGraph().entrySet()) {
+                for (Edge candidate : entry.getValue().values()) {
+                    expectedEdge = Math.min(expectedEdge, SpatialIndex.distanceToSegment(p,
+                            map.getNodes().get(candidate.from).position, map.getNodes().get(candidate.to).position));
+                }
+            }
+            double actualEdge = edge == null ? 10 : SpatialIndex.distanceToSegment(p,
+                    map.getNodes().get(edge.from).position, map.getNodes().get(edge.to).position);
+            assertEquals(expectedEdge, actualEdge, 1e-9);
+
+            List<Node> buildings = index.buildingsNear(p, 0);
+            for (Node node : map.getNodes().values()) {
+                if (node.isBuilding() && node.shape.contains(p)) {
+                    assertTrue(buildings.contains(node));
+                }
+            }
+        }
+    }
+}
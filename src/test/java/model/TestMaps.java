@@ -0,0 +1,111 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+final class TestMaps {
+    private TestMaps() {
+    }
+
+    // Случайный геометрический граф: каждый узел соединяется с несколькими ближайшими соседями
+    static CampusMap randomGeometric(long seed, int buildings, int junctions, int size) {
+        Random random = new Random(seed);
+        CampusMap map = new CampusMap();
+        map.beginBulkImport();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < buildings; i++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            map.addBuilding("B" + i, square(x, y), new Point(x, y));
+            ids.add("B_B" + i);
+        }
+        for (int i = 0; i < junctions; i++) {
+            ids.add(map.addJunction(new Point(random.nextInt(size), random.nextInt(size))));
+        }
+        for (String id : ids) {
+            Point p = map.getNodes().get(id).getPosition();
+            List<String> nearest = new ArrayList<>(ids);
+            nearest.sort((a, b) -> Double.compare(
+                    p.distance(map.getNodes().get(a).getPosition()),
+                    p.distance(map.getNodes().get(b).getPosition())));
+            for (int k = 1; k <= 3 && k < nearest.size(); k++) {
+                if (!map.getGraph().get(id).containsKey(nearest.get(k))) {
+                    map.addRoad(id, nearest.get(k));
+                }
+            }
+        }
+        map.endBulkImport();
+        return map;
+    }
+
+    // Решётка перекрёстков cols x rows; здания B_0..B_{cols-1} стоят над верхним рядом и подключены к нему
+    static CampusMap grid(int cols, int rows, int spacing) {
+        CampusMap map = new CampusMap();
+        map.beginBulkImport();
+        String[][] cells = new String[cols][rows];
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < rows; y++) {
+                cells[x][y] = map.addJunction(new Point(x * spacing, y * spacing));
+                if (x > 0) map.addRoad(cells[x - 1][y], cells[x][y]);
+                if (y > 0) map.addRoad(cells[x][y - 1], cells[x][y]);
+            }
+            Point entry = new Point(x * spacing, -spacing / 2);
+            map.addBuilding(String.valueOf(x), square(entry.x, entry.y - 5), entry);
+            map.addRoad("B_" + x, cells[x][0]);
+        }
+        map.endBulkImport();
+        return map;
+    }
+
+    // Эталонная Дейкстра по длинам дорог без эвристики
+    static double referenceDistance(CampusMap map, String start, String end) {
+        Map<String, Double> distances = new HashMap<>();
+        Set<String> settled = new HashSet<>();
+        distances.put(start, 0.0);
+        while (true) {
+            String current = null;
+            for (Map.Entry<String, Double> entry : distances.entrySet()) {
+                if (!settled.contains(entry.getKey()) && (current == null || entry.getValue() < distances.get(current))) {
+                    current = entry.getKey();
+                }
+            }
+            if (current == null) return Double.POSITIVE_INFINITY;
+            if (current.equals(end)) return distances.get(current);
+            settled.add(current);
+            for (Map.Entry<String, Edge> neighbor : map.getGraph().get(current).entrySet()) {
+                double candidate = distances.get(current) + neighbor.getValue().length;
+                Double old = distances.get(neighbor.getKey());
+                if (old == null || candidate < old) {
+                    distances.put(neighbor.getKey(), candidate);
+                }
+            }
+        }
+    }
+
+    static Polygon square(int x, int y) {
+        return new Polygon(new int[]{x - 5, x + 5, x + 5, x - 5}, new int[]{y - 5, y - 5, y + 5, y + 5}, 4);
+    }
+
+    static int pathWeight(CampusMap map, List<String> path) {
+        int weight = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            weight += map.getGraph().get(path.get(i)).get(path.get(i + 1)).weight;
+        }
+        return weight;
+    }
+
+    static double pathLength(CampusMap map, List<String> path) {
+        double length = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            length += map.getGraph().get(path.get(i)).get(path.get(i + 1)).length;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,133 @@
+package server;
+
+import model.CampusMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.FileUtil;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteServerTest {
+    @TempDir
+    File directory;
+
+    private RouteServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Библиотека — перекрёсток — спортзал; до кафе дороги нет
+        CampusMap map = new CampusMap();
+        map.addBuilding("Library", square(0, 0), new Point(0, 0));
+        map.addBuilding("Gym", square(200, 0), new Point(200, 0));
+        map.addBuilding("Café \"Nord\"", square(0, 400), new Point(0, 400));
+        String junction = map.addJunction(new Point(100, 50));
+        map.addRoad("B_Library", junction);
+        map.addRoad(junction, "B_Gym");
+        FileUtil.writeMap(map, new File(directory, "campus.map"));
+
+        server = new RouteServer(directory, new InetSocketAddress("127.0.0.1", 0), 2, 4);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void route_shouldReturnPathWithPoints() throws IOException {
+        Response response = get("/route?map=campus&from=Library&to=Gym&mode=distance");
+
+        assertEquals(200, response.status);
+        assertTrue(response.body.contains("\"found\":true"), response.body);
+        assertTrue(response.body.contains("\"path\":[\"B_Library\",\"J_"), response.body);
+        assertTrue(response.body.contains("\"points\":[[0,0],[100,50],[200,0]]"), response.body);
+    }
+
+    @Test
+    void route_shouldReportUnreachableBuilding() throws IOException {
+        Response response = get("/route?map=campus&from=Library&to=Caf%C3%A9+%22Nord%22");
+
+        assertEquals(200, response.status);
+        assertTrue(response.body.contains("\"to\":\"Café \\\"Nord\\\"\""), response.body);
+        assertTrue(response.body.contains("\"found\":false"), response.body);
+        assertTrue(response.body.contains("\"path\":[]"), response.body);
+    }
+
+    @Test
+    void mapsAndBuildings_shouldListDirectoryContents() throws IOException {
+        assertEquals("{\"maps\":[\"campus\"]}", get("/maps").body);
+        assertEquals("{\"buildings\":[\"Café \\\"Nord\\\"\",\"Gym\",\"Library\"]}", get("/buildings?map=campus").body);
+    }
+
+    @Test
+    void badRequests_shouldGetErrorStatus() throws IOException {
+        assertEquals(400, get("/route?map=campus&from=Library").status);
+        assertEquals(400, get("/route?map=campus&from=Library&to=Gym&mode=fastest").status);
+        assertEquals(404, get("/route?map=missing&from=Library&to=Gym").status);
+        assertEquals(404, get("/route?map=..%2Fcampus&from=Library&to=Gym").status);
+        Response unknown = get("/route?map=campus&from=Library&to=Pool");
+        assertEquals(404, unknown.status);
+        assertEquals("{\"error\":\"Unknown building: Pool\"}", unknown.body);
+    }
+
+    @Test
+    void route_shouldUseResavedMapFromNewMappedFile() throws IOException, ClassNotFoundException {
+        File mapFile = new File(directory, "campus.map");
+        assertTrue(get("/route?map=campus&from=Library&to=Caf%C3%A9+%22Nord%22").body.contains("\"found\":false"));
+        File oldMapped = FileUtil.mappedFileFor(mapFile);
+        assertTrue(oldMapped.isFile());
+
+        // Старая версия ещё отображена в память; новая пишется в другой файл, а не поверх неё
+        CampusMap map = FileUtil.readMap(mapFile);
+        map.addRoad("B_Library", "B_Café \"Nord\"");
+        FileUtil.writeMap(map, mapFile);
+        assertTrue(mapFile.setLastModified(mapFile.lastModified() + 2000));
+        File newMapped = FileUtil.mappedFileFor(mapFile);
+        assertNotEquals(oldMapped, newMapped);
+
+        Response response = get("/route?map=campus&from=Library&to=Caf%C3%A9+%22Nord%22");
+        assertTrue(response.body.contains("\"found\":true"), response.body);
+        assertTrue(newMapped.isFile());
+    }
+
+    private Response get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                body.write(buffer, 0, read);
+            }
+            return new Response(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Polygon square(int x, int y) {
+        return new Polygon(new int[]{x - 10, x + 10, x + 10, x - 10}, new int[]{y - 10, y - 10, y + 10, y + 10}, 4);
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ui;
+
+import model.CampusMap;
+import model.MappedMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapRendererTest {
+    private static final int FRAMES = 50;
+
+    @Test
+    void paint_shouldNotAllocatePerMapElement() {
+        long small = bytesPerFrame(campus(200), null);
+        long large = bytesPerFrame(campus(3200), null);
+
+        // В 16 раз больше объектов, а память на кадр та же: несколько лямбд и итераторов
+        assertTrue(large < 4096, "bytes per frame: " + large);
+        assertTrue(large - small < 1024, "small map: " + small + ", large map: " + large);
+    }
+
+    @Test
+    void paint_shouldNotAllocatePerVisibleElementWhenCulling() {
+        Rectangle2D visible = new Rectangle2D.Double(0, 0, 1200, 1200);
+        long bytes = bytesPerFrame(campus(3200), visible);
+
+        assertTrue(bytes < 4096, "bytes per frame: " + bytes);
+    }
+
+    @Test
+    void culling_shouldSubmitOnlyVisibleGeometry() {
+        CampusMap map = campus(3200);
+        MapRenderer renderer = new MapRenderer(map);
+
+        RecordingGraphics all = new RecordingGraphics();
+        renderer.paintRoads(all, 1.0, null, null);
+        renderer.paintNodes(all, 1.0, null, null);
+        RecordingGraphics culled = new RecordingGraphics();
+        Rectangle2D visible = new Rectangle2D.Double(0, 0, 1200, 1200);
+        renderer.paintRoads(culled, 1.0, visible, null);
+        renderer.paintNodes(culled, 1.0, visible, null);
+
+        assertTrue(culled.primitives > 0);
+        assertTrue(culled.primitives * 10 < all.primitives, culled.primitives + " of " + all.primitives);
+    }
+
+    @Test
+    void mappedMap_shouldSubmitSameGeometryAsCampusMap(@TempDir File directory) throws IOException {
+        CampusMap map = campus(400);
+        File file = new File(directory, "campus.mmap");
+        try (OutputStream out = new FileOutputStream(file)) {
+            MappedMap.write(map, out);
+        }
+        MapRenderer renderer = new MapRenderer(MappedMap.open(file));
+
+        RecordingGraphics expected = new RecordingGraphics();
+        new MapRenderer(map).paintRoads(expected, 1.0, null, null);
+        new MapRenderer(map).paintNodes(expected, 1.0, null, null);
+        RecordingGraphics all = new RecordingGraphics();
+        renderer.paintRoads(all, 1.0, null, null);
+        renderer.paintNodes(all, 1.0, null, null);
+        RecordingGraphics culled = new RecordingGraphics();
+        Rectangle2D visible = new Rectangle2D.Double(0, 0, 600, 600);
+        renderer.paintRoads(culled, 1.0, visible, null);
+        renderer.paintNodes(culled, 1.0, visible, null);
+
+        assertEquals(expected.primitives, all.primitives);
+        assertTrue(culled.primitives > 0 && culled.primitives * 4 < all.primitives, culled.primitives + " of " + all.primitives);
+    }
+
+    @Test
+    void mappedMap_shouldDrawEachObjectOnceWhenCullingThroughCells(@TempDir File directory) throws IOException {
+        CampusMap map = campus(400);
+        File file = new File(directory, "campus.mmap");
+        try (OutputStream out = new FileOutputStream(file)) {
+            MappedMap.write(map, out);
+        }
+        MapRenderer renderer = new MapRenderer(MappedMap.open(file));
+
+        RecordingGraphics all = new RecordingGraphics();
+        renderer.paintRoads(all, 1.0, null, null);
+        renderer.paintNodes(all, 1.0, null, null);
+        // Вся карта видна, но обход идёт по ячейкам: длинные дороги лежат в нескольких ячейках
+        RecordingGraphics covering = new RecordingGraphics();
+        Rectangle2D everything = new Rectangle2D.Double(-1000, -1000, 5000, 5000);
+        renderer.paintRoads(covering, 1.0, everything, null);
+        renderer.paintNodes(covering, 1.0, everything, null);
+
+        assertEquals(all.primitives, covering.primitives);
+    }
+
+    private long bytesPerFrame(CampusMap map, Rectangle2D visible) {
+        MapRenderer renderer = new MapRenderer(map);
+        RecordingGraphics g2d = new RecordingGraphics();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        // Первые кадры включают прогрев и построение индекса, берём лучший из нескольких замеров
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int frame = 0; frame < FRAMES; frame++) {
+                renderer.paintRoads(g2d, 0.5, visible, null);
+                renderer.paintNodes(g2d, 0.5, visible, null);
+            }
+            best = Math.min(best, (threads.getThreadAllocatedBytes(thread) - before) / FRAMES);
+        }
+        return best;
+    }
+
+    // Ряды зданий 60x60 с шагом 120, у каждого выход на перекрёсток, перекрёстки ряда соединены
+    private static CampusMap campus(int buildings) {
+        CampusMap map = new CampusMap();
+        int side = (int) Math.ceil(Math.sqrt(buildings));
+        String previous = null;
+        for (int i = 0; i < buildings; i++) {
+            int x = (i % side) * 120;
+            int y = (i / side) * 120;
+            map.addBuilding("N" + i, new Polygon(new int[]{x, x + 60, x + 60, x}, new int[]{y, y, y + 60, y + 60}, 4), new Point(x + 60, y + 30));
+            String junction = map.addJunction(new Point(x + 90, y + 30));
+            map.addRoad("B_N" + i, junction);
+            if (previous != null && i % side != 0) map.addRoad(previous, junction);
+            previous = junction;
+        }
+        return map;
+    }
+}
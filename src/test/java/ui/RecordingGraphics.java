@@ -0,0 +1,371 @@
+package ui;
+
+import java.awt.*;
+import java.awt.RenderingHints.Key;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+// Graphics2D, который ничего не рисует, а только считает примитивы. Нужен тестам отрисовки,
+// чтобы измерять память и число вызовов самого рендерера без растеризации Java2D.
+class RecordingGraphics extends Graphics2D {
+    int primitives;
+    private Color color = Color.BLACK;
+    private Color background = Color.WHITE;
+    private Font font = new Font(Font.DIALOG, Font.PLAIN, 12);
+    private Stroke stroke = new BasicStroke();
+    private final AffineTransform transform = new AffineTransform();
+
+    @Override
+    public void addRenderingHints(Map<?, ?> a0) {
+    }
+
+    @Override
+    public void clearRect(int a0, int a1, int a2, int a3) {
+        primitives++;
+    }
+
+    @Override
+    public void clipRect(int a0, int a1, int a2, int a3) {
+    }
+
+    @Override
+    public void clip(Shape a0) {
+    }
+
+    @Override
+    public void copyArea(int a0, int a1, int a2, int a3, int a4, int a5) {
+        primitives++;
+    }
+
+    @Override
+    public Graphics create() {
+        return this;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void drawArc(int a0, int a1, int a2, int a3, int a4, int a5) {
+        primitives++;
+    }
+
+    @Override
+    public void drawGlyphVector(GlyphVector a0, float a1, float a2) {
+        primitives++;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, AffineTransform a1, ImageObserver a2) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, int a1, int a2, Color a3, ImageObserver a4) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, int a1, int a2, int a3, int a4, Color a5, ImageObserver a6) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, Color a9, ImageObserver a10) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, ImageObserver a9) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, int a1, int a2, int a3, int a4, ImageObserver a5) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image a0, int a1, int a2, ImageObserver a3) {
+        primitives++;
+        return true;
+    }
+
+    @Override
+    public void drawImage(BufferedImage a0, BufferedImageOp a1, int a2, int a3) {
+        primitives++;
+    }
+
+    @Override
+    public void drawLine(int a0, int a1, int a2, int a3) {
+        primitives++;
+    }
+
+    @Override
+    public void drawOval(int a0, int a1, int a2, int a3) {
+        primitives++;
+    }
+
+    @Override
+    public void drawPolygon(int[] a0, int[] a1, int a2) {
+        primitives++;
+    }
+
+    @Override
+    public void drawPolyline(int[] a0, int[] a1, int a2) {
+        primitives++;
+    }
+
+    @Override
+    public void drawRenderableImage(RenderableImage a0, AffineTransform a1) {
+        primitives++;
+    }
+
+    @Override
+    public void drawRenderedImage(RenderedImage a0, AffineTransform a1) {
+        primitives++;
+    }
+
+    @Override
+    public void drawRoundRect(int a0, int a1, int a2, int a3, int a4, int a5) {
+        primitives++;
+    }
+
+    @Override
+    public void drawString(String a0, float a1, float a2) {
+        primitives++;
+    }
+
+    @Override
+    public void drawString(String a0, int a1, int a2) {
+        primitives++;
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator a0, float a1, float a2) {
+        primitives++;
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator a0, int a1, int a2) {
+        primitives++;
+    }
+
+    @Override
+    public void draw(Shape a0) {
+        primitives++;
+    }
+
+    @Override
+    public void fillArc(int a0, int a1, int a2, int a3, int a4, int a5) {
+        primitives++;
+    }
+
+    @Override
+    public void fillOval(int a0, int a1, int a2, int a3) {
+        primitives++;
+    }
+
+    @Override
+    public void fillPolygon(int[] a0, int[] a1, int a2) {
+        primitives++;
+    }
+
+    @Override
+    public void fillRect(int a0, int a1, int a2, int a3) {
+        primitives++;
+    }
+
+    @Override
+    public void fillRoundRect(int a0, int a1, int a2, int a3, int a4, int a5) {
+        primitives++;
+    }
+
+    @Override
+    public void fill(Shape a0) {
+        primitives++;
+    }
+
+    @Override
+    public Color getBackground() {
+        return background;
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        return null;
+    }
+
+    @Override
+    public Shape getClip() {
+        return null;
+    }
+
+    @Override
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public Composite getComposite() {
+        return AlphaComposite.SrcOver;
+    }
+
+    @Override
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return null;
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(Font a0) {
+        return null;
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        return null;
+    }
+
+    @Override
+    public Font getFont() {
+        return font;
+    }
+
+    @Override
+    public Paint getPaint() {
+        return color;
+    }
+
+    @Override
+    public Object getRenderingHint(Key a0) {
+        return null;
+    }
+
+    @Override
+    public RenderingHints getRenderingHints() {
+        return null;
+    }
+
+    @Override
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    @Override
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    @Override
+    public boolean hit(Rectangle a0, Shape a1, boolean a2) {
+        return false;
+    }
+
+    @Override
+    public void rotate(double a0, double a1, double a2) {
+        transform.rotate(a0, a1, a2);
+    }
+
+    @Override
+    public void rotate(double a0) {
+        transform.rotate(a0);
+    }
+
+    @Override
+    public void scale(double a0, double a1) {
+        transform.scale(a0, a1);
+    }
+
+    @Override
+    public void setBackground(Color a0) {
+        background = a0;
+    }
+
+    @Override
+    public void setClip(int a0, int a1, int a2, int a3) {
+    }
+
+    @Override
+    public void setClip(Shape a0) {
+    }
+
+    @Override
+    public void setColor(Color a0) {
+        color = a0;
+    }
+
+    @Override
+    public void setComposite(Composite a0) {
+    }
+
+    @Override
+    public void setFont(Font a0) {
+        font = a0;
+    }
+
+    @Override
+    public void setPaintMode() {
+    }
+
+    @Override
+    public void setPaint(Paint a0) {
+        if (a0 instanceof Color) color = (Color) a0;
+    }
+
+    @Override
+    public void setRenderingHint(Key a0, Object a1) {
+    }
+
+    @Override
+    public void setRenderingHints(Map<?, ?> a0) {
+    }
+
+    @Override
+    public void setStroke(Stroke a0) {
+        stroke = a0;
+    }
+
+    @Override
+    public void setTransform(AffineTransform a0) {
+        transform.setTransform(a0);
+    }
+
+    @Override
+    public void setXORMode(Color a0) {
+    }
+
+    @Override
+    public void shear(double a0, double a1) {
+        transform.shear(a0, a1);
+    }
+
+    @Override
+    public void transform(AffineTransform a0) {
+        transform.concatenate(a0);
+    }
+
+    @Override
+    public void translate(double a0, double a1) {
+        transform.translate(a0, a1);
+    }
+
+    @Override
+    public void translate(int a0, int a1) {
+        transform.translate(a0, a1);
+    }
+}
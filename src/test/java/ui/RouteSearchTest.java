@@ -0,0 +1,70 @@
+package ui;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSearchTest {
+
+    @Test
+    void submit_shouldDeliverOnlyTheLatestRequest() throws Exception {
+        RouteSearch<List<String>> search = new RouteSearch<>();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<List<String>> results = Collections.synchronizedList(new ArrayList<>());
+        int[] skipped = {0};
+        RouteSearch.Callback<List<String>> callback = new RouteSearch.Callback<List<String>>() {
+            @Override
+            public void found(List<String> path, long elapsedMillis) {
+                assertTrue(SwingUtilities.isEventDispatchThread());
+                results.add(path);
+                delivered.countDown();
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+                fail(cause);
+            }
+        };
+
+        SwingUtilities.invokeAndWait(() -> {
+            search.submit(() -> {
+                firstStarted.countDown();
+                // Отмена прерывает поток, но запрос, не проверяющий прерывание, доходит до конца
+                while (true) {
+                    try {
+                        releaseFirst.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+                return Collections.singletonList("first");
+            }, callback);
+        });
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> {
+            search.submit(() -> {
+                skipped[0]++;
+                return Collections.singletonList("second");
+            }, callback);
+            search.submit(() -> Collections.singletonList("third"), callback);
+            assertTrue(search.isBusy());
+        });
+        releaseFirst.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> assertFalse(search.isBusy()));
+        assertEquals(Collections.singletonList(Collections.singletonList("third")), results);
+        assertEquals(0, skipped[0]);
+        search.shutdown();
+    }
+}
@@ -0,0 +1,190 @@
+package ui;
+
+import model.CampusMap;
+import model.MappedMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimplifiedGeometryTest {
+
+    @Test
+    void simplifyPolygon_shouldKeepContourWithinTolerance() {
+        Polygon circle = circle(500, 500, 100, 32);
+
+        Polygon simplified = SimplifiedGeometry.simplifyPolygon(circle, 5);
+
+        assertTrue(simplified.npoints >= 3 && simplified.npoints < circle.npoints, "points: " + simplified.npoints);
+        for (int i = 0; i < circle.npoints; i++) {
+            Point vertex = new Point(circle.xpoints[i], circle.ypoints[i]);
+            assertTrue(distanceToContour(simplified, vertex) <= 5, "vertex " + i);
+        }
+        assertEquals(circle.npoints, SimplifiedGeometry.simplifyPolygon(circle, 0).npoints);
+    }
+
+    @Test
+    void simplifyPolygon_shouldNotLoseTinyBuildings() {
+        Polygon tiny = circle(50, 50, 3, 32);
+
+        Polygon simplified = SimplifiedGeometry.simplifyPolygon(tiny, 20);
+
+        assertTrue(simplified.npoints >= 3);
+        assertTrue(simplified.getBounds().width > 0 && simplified.getBounds().height > 0);
+    }
+
+    @Test
+    void simplifyPolyline_shouldDropCollinearPoints() {
+        int[][] simplified = SimplifiedGeometry.simplifyPolyline(
+                new int[]{0, 10, 20, 30, 40, 40}, new int[]{0, 0, 1, 0, 0, 50}, 2);
+
+        assertArrayEquals(new int[]{0, 40, 40}, simplified[0]);
+        assertArrayEquals(new int[]{0, 0, 50}, simplified[1]);
+    }
+
+    @Test
+    void roadChains_shouldMergeJunctionsWithTwoRoads() {
+        CampusMap map = new CampusMap();
+        map.addBuilding("A", square(0, 0), new Point(10, 5));
+        map.addBuilding("B", square(400, 0), new Point(400, 5));
+        String previous = "B_A";
+        for (int x = 100; x <= 300; x += 100) {
+            String junction = map.addJunction(new Point(x, 5));
+            map.addRoad(previous, junction);
+            previous = junction;
+        }
+        map.addRoad(previous, "B_B");
+        // Ответвление от среднего перекрёстка делает его концом цепочек
+        String middle = map.getSpatialIndex().nearestNode(200, 5, 1).getId();
+        String branch = map.addJunction(new Point(200, 200));
+        map.addRoad(middle, branch);
+
+        List<int[][]> chains = SimplifiedGeometry.roadChains(map);
+
+        assertEquals(3, chains.size());
+        int segments = 0;
+        for (int[][] chain : chains) {
+            segments += chain[0].length - 1;
+        }
+        assertEquals(map.getEdges().size(), segments);
+    }
+
+    @Test
+    void roadChains_shouldCoverClosedRings() {
+        CampusMap map = new CampusMap();
+        String a = map.addJunction(new Point(0, 0));
+        String b = map.addJunction(new Point(100, 0));
+        String c = map.addJunction(new Point(50, 80));
+        map.addRoad(a, b);
+        map.addRoad(b, c);
+        map.addRoad(c, a);
+
+        List<int[][]> chains = SimplifiedGeometry.roadChains(map);
+
+        assertEquals(1, chains.size());
+        assertEquals(4, chains.get(0)[0].length);
+    }
+
+    @Test
+    void levelOfDetail_shouldPickDeepestTierBelowScale() {
+        LevelOfDetail levels = new LevelOfDetail(0.5, 0.35, new double[]{0.6, 0.3, 0.15}, 1.0);
+
+        assertEquals(-1, levels.tierFor(1.0));
+        assertEquals(0, levels.tierFor(0.5));
+        assertEquals(1, levels.tierFor(0.2));
+        assertEquals(2, levels.tierFor(0.1));
+        assertEquals(1 / 0.15, levels.tolerance(2), 1e-9);
+        assertFalse(levels.showLabels(0.4));
+        assertTrue(levels.showJunctions(0.4));
+        assertThrows(IllegalArgumentException.class, () -> new LevelOfDetail(0, 0, new double[]{0.3, 0.6}, 1));
+    }
+
+    @Test
+    void paint_shouldSkipLabelsJunctionsAndMergeRoadsWhenZoomedOut() {
+        CampusMap map = new CampusMap();
+        map.addBuilding("A", circle(0, 0, 40, 32), new Point(40, 0));
+        String previous = "B_A";
+        for (int x = 100; x <= 2000; x += 100) {
+            String junction = map.addJunction(new Point(x, (x / 100) % 2));
+            map.addRoad(previous, junction);
+            previous = junction;
+        }
+        MapRenderer renderer = new MapRenderer(map);
+
+        RecordingGraphics full = new RecordingGraphics();
+        renderer.paintRoads(full, 1.0, null, null);
+        renderer.paintNodes(full, 1.0, null, null);
+        RecordingGraphics zoomedOut = new RecordingGraphics();
+        renderer.paintRoads(zoomedOut, 0.1, null, null);
+        renderer.paintNodes(zoomedOut, 0.1, null, null);
+
+        // 20 дорог, 20 перекрёстков и здание (заливка, контур, точка подключения, подпись)
+        assertEquals(20 + 20 + 5, full.primitives);
+        // Одна ломаная и здание без подписи и точки подключения
+        assertEquals(1 + 2, zoomedOut.primitives);
+
+        renderer.setLevelOfDetail(LevelOfDetail.FULL);
+        RecordingGraphics forced = new RecordingGraphics();
+        renderer.paintRoads(forced, 0.1, null, null);
+        renderer.paintNodes(forced, 0.1, null, null);
+        assertEquals(full.primitives, forced.primitives);
+    }
+
+    @Test
+    void paint_shouldUseLevelOfDetailForMappedMap(@TempDir File directory) throws IOException {
+        CampusMap map = new CampusMap();
+        map.addBuilding("A", circle(0, 0, 40, 32), new Point(40, 0));
+        String previous = "B_A";
+        for (int x = 100; x <= 2000; x += 100) {
+            String junction = map.addJunction(new Point(x, (x / 100) % 2));
+            map.addRoad(previous, junction);
+            previous = junction;
+        }
+        File file = new File(directory, "campus.mmap");
+        try (OutputStream out = new FileOutputStream(file)) {
+            MappedMap.write(map, out);
+        }
+        MapRenderer renderer = new MapRenderer(MappedMap.open(file));
+
+        RecordingGraphics full = new RecordingGraphics();
+        renderer.paintRoads(full, 1.0, null, null);
+        renderer.paintNodes(full, 1.0, null, null);
+        RecordingGraphics zoomedOut = new RecordingGraphics();
+        renderer.paintRoads(zoomedOut, 0.1, null, null);
+        renderer.paintNodes(zoomedOut, 0.1, null, null);
+
+        assertEquals(20 + 20 + 5, full.primitives);
+        assertEquals(1 + 2, zoomedOut.primitives);
+        assertEquals(1, SimplifiedGeometry.roadChains(MappedMap.open(file)).size());
+    }
+
+    private static Polygon circle(int cx, int cy, int radius, int points) {
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            polygon.addPoint(cx + (int) Math.round(radius * Math.cos(angle)), cy + (int) Math.round(radius * Math.sin(angle)));
+        }
+        return polygon;
+    }
+
+    private static Polygon square(int x, int y) {
+        return new Polygon(new int[]{x, x + 10, x + 10, x}, new int[]{y, y, y + 10, y + 10}, 4);
+    }
+
+    private static double distanceToContour(Polygon polygon, Point p) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < polygon.npoints; i++) {
+            int j = (i + 1) % polygon.npoints;
+            best = Math.min(best, MapHitTester.distanceToSegment(p,
+                    new Point(polygon.xpoints[i], polygon.ypoints[i]), new Point(polygon.xpoints[j], polygon.ypoints[j])));
+        }
+        return best;
+    }
+}
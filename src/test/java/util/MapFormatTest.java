@@ -0,0 +1,232 @@
+package util;
+
+import model.CampusMap;
+import model.ContractionHierarchy;
+import model.Edge;
+import model.Node;
+import model.NodeIds;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapFormatTest {
+
+    @Test
+    void readWrite_shouldRestoreNodesShapesAndRoadRanks() throws IOException {
+        CampusMap map = randomMap(new Random(7));
+        map.addJunction("J_custom", new Point(-5, 1_000_000));
+        map.addRoad("J_custom", "B_Главный корпус");
+
+        CampusMap restored = roundTrip(map);
+
+        assertEquals(map.getNodes().keySet(), restored.getNodes().keySet());
+        for (Node node : map.getNodes().values()) {
+            Node copy = restored.getNodes().get(node.getId());
+            assertEquals(node.getPosition(), copy.getPosition());
+            assertEquals(node.getConnectionPoint(), copy.getConnectionPoint());
+            if (node.isBuilding()) {
+                Polygon shape = node.getShape();
+                assertEquals(shape.npoints, copy.getShape().npoints);
+                assertArrayEquals(Arrays.copyOf(shape.xpoints, shape.npoints), Arrays.copyOf(copy.getShape().xpoints, shape.npoints));
+                assertArrayEquals(Arrays.copyOf(shape.ypoints, shape.npoints), Arrays.copyOf(copy.getShape().ypoints, shape.npoints));
+            } else {
+                assertFalse(copy.isBuilding());
+            }
+        }
+        List<Edge> edges = map.getEdges();
+        List<Edge> restoredEdges = restored.getEdges();
+        assertEquals(edges.size(), restoredEdges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            assertEquals(edges.get(i).getFrom(), restoredEdges.get(i).getFrom());
+            assertEquals(edges.get(i).getTo(), restoredEdges.get(i).getTo());
+            assertEquals(edges.get(i).getLength(), restoredEdges.get(i).getLength());
+        }
+        // Отпечаток учитывает веса: сохранённая рядом иерархия сжатия остаётся действительной
+        assertEquals(ContractionHierarchy.fingerprint(map), ContractionHierarchy.fingerprint(restored));
+        assertEquals(map.findShortestPath("B_B0", "B_B5"), restored.findShortestPath("B_B0", "B_B5"));
+    }
+
+    @Test
+    void write_shouldBeSmallerThanSerialization() throws IOException {
+        CampusMap map = randomMap(new Random(3));
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(map);
+        }
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        MapFormat.write(map, binary);
+
+        assertTrue(binary.size() * 3 < serialized.size(), binary.size() + " vs " + serialized.size());
+    }
+
+    @Test
+    void read_shouldRejectTruncatedAndForeignFiles() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        MapFormat.write(randomMap(new Random(5)), binary);
+        byte[] bytes = binary.toByteArray();
+
+        assertThrows(EOFException.class, () -> MapFormat.read(new ByteArrayInputStream(bytes, 0, bytes.length / 2)));
+        assertThrows(IOException.class, () -> MapFormat.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+    }
+
+    @Test
+    void convert_shouldRewriteLegacyMapAndKeepBackup(@TempDir File directory) throws Exception {
+        File mapFile = new File(directory, "campus.map");
+        try (InputStream in = getClass().getResourceAsStream("/model/legacy.map")) {
+            Files.copy(in, mapFile.toPath());
+        }
+        CampusMap legacy = FileUtil.readMap(mapFile);
+        assertTrue(FileUtil.isLegacyMap(mapFile));
+
+        MapConverter.convert(mapFile);
+
+        assertFalse(FileUtil.isLegacyMap(mapFile));
+        assertTrue(new File(directory, "campus.map.bak").isFile());
+        CampusMap converted = FileUtil.readMap(mapFile);
+        assertEquals(legacy.getNodes().keySet(), converted.getNodes().keySet());
+        assertEquals(ContractionHierarchy.fingerprint(legacy), ContractionHierarchy.fingerprint(converted));
+        assertEquals(legacy.findShortestPath("B_Library", "B_Gym"), converted.findShortestPath("B_Library", "B_Gym"));
+    }
+
+    @Test
+    void read_shouldRenumberUuidJunctionsOfVersion1Files() throws IOException {
+        CampusMap map = randomMap(new Random(11));
+        for (int i = 0; i < 20; i++) {
+            String id = "J_" + new UUID(i * 31L, i);
+            map.addJunction(id, new Point(i * 70, 2100));
+            map.addRoad(id, "B_B" + (i % 10));
+            if (i > 0) map.addRoad(id, "J_" + new UUID((i - 1) * 31L, i - 1));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapFormat.write(map, out);
+        byte[] bytes = out.toByteArray();
+        bytes[4] = 1; // версия формата: в файлах версии 1 перекрёстки хранились только как UUID
+
+        CampusMap first = MapFormat.read(new ByteArrayInputStream(bytes));
+        CampusMap second = MapFormat.read(new ByteArrayInputStream(bytes));
+
+        assertEquals(map.getNodes().size(), first.getNodes().size());
+        assertEquals(map.getEdges().size(), first.getEdges().size());
+        for (Node node : first.getNodes().values()) {
+            assertTrue(node.isBuilding() || NodeIds.junctionNumber(node.getId()) > 0, node.getId());
+        }
+        for (Edge edge : first.getEdges()) {
+            assertSame(first.getNodes().get(edge.getFrom()).getId(), edge.getFrom());
+            assertSame(first.getNodes().get(edge.getTo()).getId(), edge.getTo());
+        }
+        // Номера зависят только от содержимого файла: иерархии .ch, построенные по одной загрузке, подходят к другой
+        assertEquals(first.getNodes().keySet(), second.getNodes().keySet());
+        assertEquals(ContractionHierarchy.fingerprint(first), ContractionHierarchy.fingerprint(second));
+        for (int i = 1; i < 10; i++) {
+            assertEquals(pathLength(map, map.findShortestPath("B_B0", "B_B" + i)),
+                    pathLength(first, first.findShortestPath("B_B0", "B_B" + i)), 1e-9);
+        }
+        // 50 перекрёстков с номерами из randomMap и 20 переименованных
+        assertEquals("J_71", first.addJunction(new Point(0, 0)));
+    }
+
+    @Test
+    void readMap_shouldRenumberJunctionsOfLegacySerializedMap(@TempDir File directory) throws Exception {
+        File mapFile = new File(directory, "campus.map");
+        try (InputStream in = getClass().getResourceAsStream("/model/legacy.map")) {
+            Files.copy(in, mapFile.toPath());
+        }
+
+        CampusMap legacy = FileUtil.readMap(mapFile);
+
+        for (Node node : legacy.getNodes().values()) {
+            assertTrue(node.isBuilding() || NodeIds.junctionNumber(node.getId()) > 0, node.getId());
+        }
+        assertFalse(legacy.findShortestPath("B_Library", "B_Gym").isEmpty());
+        assertEquals(legacy.getNodes().keySet(), FileUtil.readMap(mapFile).getNodes().keySet());
+    }
+
+    @Test
+    void readMap_shouldReportProgressAndEveryNode(@TempDir File directory) throws Exception {
+        CampusMap map = randomMap(new Random(9));
+        File mapFile = new File(directory, "campus.map");
+        FileUtil.writeMap(map, mapFile);
+        long[] lastBytes = {0};
+        List<Node> nodes = new java.util.ArrayList<>();
+
+        CampusMap restored = FileUtil.readMap(mapFile, new MapLoadListener() {
+            @Override
+            public void bytesRead(long bytes, long total) {
+                assertTrue(bytes > lastBytes[0] && bytes <= total);
+                lastBytes[0] = bytes;
+            }
+
+            @Override
+            public void nodeRead(Node node) {
+                nodes.add(node);
+            }
+        });
+
+        assertEquals(mapFile.length(), lastBytes[0]);
+        assertEquals(restored.getNodes().size(), nodes.size());
+        for (Node node : nodes) {
+            assertSame(restored.getNodes().get(node.getId()), node);
+        }
+    }
+
+    @Test
+    void readMap_shouldStopWhenThreadIsInterrupted(@TempDir File directory) throws Exception {
+        File mapFile = new File(directory, "campus.map");
+        FileUtil.writeMap(randomMap(new Random(9)), mapFile);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> FileUtil.readMap(mapFile, (bytes, total) -> { }));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static CampusMap roundTrip(CampusMap map) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapFormat.write(map, out);
+        return MapFormat.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static double pathLength(CampusMap map, List<String> path) {
+        double length = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            length += map.getGraph().get(path.get(i)).get(path.get(i + 1)).getLength();
+        }
+        return length;
+    }
+
+    // Здания с многоугольниками, перекрёстки с номерами и дороги с повторяющимися длинами
+    private static CampusMap randomMap(Random random) {
+        CampusMap map = new CampusMap();
+        String[] ids = new String[60];
+        for (int i = 0; i < 10; i++) {
+            int x = random.nextInt(2000);
+            int y = random.nextInt(2000);
+            Polygon shape = new Polygon();
+            int vertices = 3 + random.nextInt(6);
+            for (int j = 0; j < vertices; j++) {
+                shape.addPoint(x - 40 + random.nextInt(80), y - 40 + random.nextInt(80));
+            }
+            String name = i == 9 ? "Главный корпус" : "B" + i;
+            map.addBuilding(name, shape, new Point(x, y));
+            ids[i] = "B_" + name;
+        }
+        for (int i = 10; i < ids.length; i++) {
+            ids[i] = map.addJunction(new Point(random.nextInt(40) * 50, random.nextInt(40) * 50));
+        }
+        for (int i = 0; i < 200; i++) {
+            map.addRoad(ids[random.nextInt(ids.length)], ids[random.nextInt(ids.length)]);
+        }
+        return map;
+    }
+}
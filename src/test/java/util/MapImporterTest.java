@@ -0,0 +1,140 @@
+package util;
+
+import model.CampusMap;
+import model.Edge;
+import model.Node;
+import model.RoutingMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapImporterTest {
+    // Два здания у концов дороги; начало второй линии в 0.9 пикселя от конца первой
+    private static final String GEOJSON = "\uFEFF{\"type\": \"FeatureCollection\", \"crs\": {\"type\": \"name\", \"properties\": {\"name\": \"local\"}},\n"
+            + " \"features\": [\n"
+            + "  {\"type\": \"Feature\", \"properties\": {\"name\": \"Корпус \\\"А\\\"\", \"levels\": [1, 2]},\n"
+            + "   \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [40, 0], [40, 40], [0, 40], [0, 0]]]}},\n"
+            + "  {\"type\": \"Feature\", \"geometry\": {\"coordinates\": [[60, 20, 5], [100, 20, 5]], \"type\": \"LineString\"},\n"
+            + "   \"properties\": null},\n"
+            + "  {\"type\": \"Feature\", \"geometry\": {\"type\": \"MultiLineString\", \"coordinates\": [[[100.9, 20], [140, 20]], [[100, 20], [100, 80]]]}},\n"
+            + "  {\"type\": \"Feature\", \"properties\": {\"name\": 7},\n"
+            + "   \"geometry\": {\"type\": \"MultiPolygon\", \"coordinates\": [[[[150, 0], [151, 0], [151, 1]]], [[[160, 0], [200, 0], [200, 40], [160, 40]]]]}},\n"
+            + "  {\"type\": \"Feature\", \"properties\": {\"name\": \"Корпус \\\"А\\\"\"},\n"
+            + "   \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[300, 300], [310, 300], [310, 310]]]}},\n"
+            + "  {\"type\": \"Feature\", \"properties\": {}, \"geometry\": {\"type\": \"Point\", \"coordinates\": [5, 5]}},\n"
+            + "  {\"type\": \"Feature\", \"properties\": {}, \"geometry\": null}\n"
+            + " ]}\n";
+
+    @Test
+    void importGeoJson_shouldSnapRoadsAndConnectBuildings() throws IOException {
+        MapImporter importer = new MapImporter();
+
+        CampusMap map = importer.importGeoJson(new StringReader(GEOJSON));
+
+        assertEquals(3, importer.getBuildingCount());
+        assertEquals(1, importer.getUnconnectedBuildings());
+        assertEquals(2, importer.getSkippedFeatures());
+        // 60,20 · 100,20 (общий для трёх отрезков) · 140,20 · 100,80
+        assertEquals(4, importer.getJunctionCount());
+        assertFalse(map.isBulkImport());
+
+        Node first = map.getNodes().get("B_Корпус \"А\"");
+        assertEquals(new Point(40, 20), first.getConnectionPoint());
+        assertEquals(4, first.getShape().npoints);
+        Node second = map.getNodes().get("B_7");
+        assertEquals(new Point(160, 20), second.getConnectionPoint());
+        assertEquals(4, second.getShape().npoints);
+        Node duplicate = map.getNodes().get("B_Корпус \"А\" (2)");
+        assertTrue(map.getGraph().get(duplicate.getId()).isEmpty());
+
+        List<String> path = map.findShortestPath(first.getId(), second.getId());
+        assertEquals(5, path.size());
+        List<Edge> edges = map.getEdges();
+        assertEquals(5, edges.size());
+        // Веса проставлены один раз в конце импорта: дороги упорядочены по длине
+        for (int i = 1; i < edges.size(); i++) {
+            assertTrue(edges.get(i - 1).getLength() <= edges.get(i).getLength());
+        }
+        assertNotNull(map.getSpatialIndex().nearestNode(100, 20, 1));
+    }
+
+    @Test
+    void importCsv_shouldReadQuotedWktLikeGeoJson() throws IOException {
+        String csv = "id;Name;WKT\r\n"
+                + "1;\"Корпус \"\"А\"\"\";\"POLYGON ((0 0, 40 0, 40 40, 0 40, 0 0))\"\r\n"
+                + "2;;LINESTRING Z (60 20 5, 100 20 5)\r\n"
+                + "\r\n"
+                + "3;;\"MULTILINESTRING ((100.9 20, 140 20),\n (100 20, 100 80))\"\r\n"
+                + "4;7;\"MULTIPOLYGON (((150 0, 151 0, 151 1)), ((160 0, 200 0, 200 40, 160 40)))\"\r\n"
+                + "5;;POINT (5 5)\r\n"
+                + "6;;\r\n";
+        MapImporter importer = new MapImporter();
+
+        CampusMap map = importer.importCsv(new StringReader(csv));
+        CampusMap expected = new MapImporter().importGeoJson(new StringReader(GEOJSON));
+
+        assertEquals(2, importer.getBuildingCount());
+        assertEquals(2, importer.getSkippedFeatures());
+        assertEquals(expected.getEdges().size(), map.getEdges().size());
+        for (int i = 0; i < map.getEdges().size(); i++) {
+            assertEquals(expected.getEdges().get(i).getLength(), map.getEdges().get(i).getLength());
+        }
+        assertEquals(expected.findShortestPath("B_Корпус \"А\"", "B_7"), map.findShortestPath("B_Корпус \"А\"", "B_7"));
+    }
+
+    @Test
+    void importFile_shouldJoinCrossingRoadsOfLargeGrid(@TempDir File directory) throws IOException {
+        int n = 60;
+        StringBuilder json = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int line = 0; line < n; line++) {
+            StringBuilder horizontal = new StringBuilder();
+            StringBuilder vertical = new StringBuilder();
+            for (int k = 0; k < n; k++) {
+                // Координаты ГИС в метрах, ось y вверх; масштаб 0.5 переводит шаг 20 м в 10 пикселей
+                horizontal.append(k == 0 ? "" : ",").append('[').append(1000 + k * 20).append(',').append(5000 - line * 20).append(']');
+                vertical.append(k == 0 ? "" : ",").append('[').append(1000 + line * 20).append(',').append(5000 - k * 20).append(']');
+            }
+            json.append(line == 0 ? "" : ",")
+                    .append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[").append(horizontal).append("]}},")
+                    .append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[").append(vertical).append("]}}");
+        }
+        json.append(",{\"type\":\"Feature\",\"properties\":{\"name\":\"Library\"},\"geometry\":{\"type\":\"Polygon\",\"coordinates\":"
+                + "[[[1002,5030],[1012,5030],[1012,5010],[1002,5010]]]}}]}");
+        File file = new File(directory, "campus.geojson");
+        Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        MapImporter importer = new MapImporter();
+        importer.setScale(0.5);
+        importer.setOrigin(1000, 5030);
+        importer.setFlipY(true);
+        importer.setConnectRadius(10);
+
+        CampusMap map = importer.importFile(file);
+
+        assertEquals(n * n, importer.getJunctionCount());
+        assertEquals(2 * n * (n - 1) + 1, map.getEdges().size());
+        Node library = map.getNodes().get("B_Library");
+        // Ближайший перекрёсток — (0, 15), угол сетки
+        assertEquals(new Point(1, 10), library.getConnectionPoint());
+        String corner = map.getSpatialIndex().nearestNode((n - 1) * 10, 15 + (n - 1) * 10, 1).getId();
+        assertEquals(2 * (n - 1) + 2, map.findShortestPath("B_Library", corner, RoutingMode.DISTANCE).size());
+    }
+
+    @Test
+    void importGeoJson_shouldRejectMalformedInput() {
+        MapImporter importer = new MapImporter();
+        IOException error = assertThrows(IOException.class,
+                () -> importer.importGeoJson(new StringReader("{\"features\": [{\"geometry\": {\"type\": \"LineString\"")));
+        assertTrue(error.getMessage().startsWith("Malformed JSON"));
+        assertThrows(IOException.class, () -> importer.importCsv(new StringReader("id,name\n1,A\n")));
+        assertThrows(IOException.class, () -> importer.importFile(new File("campus.shp")));
+    }
+}